@@ -1,5 +1,7 @@
 package eu.wdaqua.qanary.component.copyvaluesofpriorgraph;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
@@ -31,8 +33,9 @@ public class Application {
 	public QanaryComponent qanaryComponent(
 			@Value("${spring.application.name}") final String applicationName,
 			@Value("${spring.boot.admin.url}") final String adminUrl,
+			@Value("${copyvaluesofpriorgraph.annotation-types:}") final List<String> annotationTypes,
 			RestTemplate restTemplate) {
-		return new CopyValuesOfPriorGraph(applicationName, adminUrl, restTemplate);
+		return new CopyValuesOfPriorGraph(applicationName, adminUrl, annotationTypes, restTemplate);
 	}
 
 	@Autowired
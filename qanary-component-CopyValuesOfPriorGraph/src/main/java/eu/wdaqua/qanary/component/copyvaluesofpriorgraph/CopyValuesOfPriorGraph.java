@@ -3,6 +3,8 @@ package eu.wdaqua.qanary.component.copyvaluesofpriorgraph;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.QuerySolutionMap;
@@ -37,24 +39,39 @@ public class CopyValuesOfPriorGraph extends QanaryComponent {
 
 	private static final String FILENAME_FETCH_REQUIRED_ANNOTATIONS = "/queries/fetchRequiredAnnotations.rq";
 	private static final String FILENAME_ADD_DATA_TO_GRAPH = "/queries/addDataToGraph.rq";
+	private static final String FILENAME_ADD_ANNOTATIONS_OF_TYPE_TO_GRAPH = "/queries/addAnnotationsOfTypeToGraph.rq";
 	private static final String FILENAME_STORE_COMPUTED_ANNOTATIONS = "/queries/storeComputedAnnotations.rq";
 	
 	private static final Logger logger = LoggerFactory.getLogger(CopyValuesOfPriorGraph.class);
 
 	private final String applicationName;
 	private final String adminUrl;
+	private final List<String> annotationTypes;
 	private RestTemplate myRestTemplate; 
 
+	/**
+	 * @param annotationTypes the types of the annotations copied from the prior
+	 *                        graphs, if empty the complete graphs are copied
+	 */
 	public CopyValuesOfPriorGraph(
 			@Value("${spring.application.name}") final String applicationName,
 			@Value("${spring.boot.admin.url}") final String adminUrl,
+			@Value("${copyvaluesofpriorgraph.annotation-types:}") final List<String> annotationTypes,
 			RestTemplate restTemplate) {
 		this.applicationName = applicationName;
 		this.adminUrl = adminUrl;
+		this.annotationTypes = new ArrayList<>();
+		for (String annotationType : annotationTypes) {
+			if (!annotationType.isBlank()) {
+				this.annotationTypes.add(annotationType.trim());
+			}
+		}
 		this.myRestTemplate = restTemplate;
 
 		// here if the files are available and do contain content
 		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_FETCH_REQUIRED_ANNOTATIONS);
+		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_ADD_DATA_TO_GRAPH);
+		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_ADD_ANNOTATIONS_OF_TYPE_TO_GRAPH);
 		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_STORE_COMPUTED_ANNOTATIONS);
 	}
 	/**
@@ -84,15 +101,16 @@ public class CopyValuesOfPriorGraph extends QanaryComponent {
 		// --------------------------------------------------------------------
 		// STEP 2: add data from the previous graph to the current graph
 		// --------------------------------------------------------------------
-		int p = 0;
+		List<String> priorGraphs = new ArrayList<>();
 		while (resultset.hasNext()) {
-			// update the current graph with information from the prior graph
 			QuerySolution tuple = resultset.next();
-			String priorGraph = tuple.get("priorGraph").asResource().getURI(); 
-			// create an update query to copy values
-			addDataToGraph(priorGraph, myQanaryQuestion.getInGraph().toString());
-			logger.info("Copied data from prior graph {}", priorGraph);
-			p++;
+			priorGraphs.add(tuple.get("priorGraph").asResource().getURI());
+		}
+		int p = priorGraphs.size();
+		if (p > 0) {
+			// update the current graph with information from all prior graphs using one request
+			addDataToGraph(priorGraphs, myQanaryQuestion.getInGraph().toString());
+			logger.info("Copied data from prior graphs {}", priorGraphs);
 		}
 		if (p == 0) {
 			logger.warn("Component {} was called, but NO prior graph could be found!", applicationName);
@@ -106,13 +124,29 @@ public class CopyValuesOfPriorGraph extends QanaryComponent {
 	}
 
 	protected void addDataToGraph(String sourceGraph, String targetGraph) throws Exception {
-		QuerySolutionMap bindsForAdd = new QuerySolutionMap();
-		bindsForAdd.add("sourceGraph",
-				ResourceFactory.createResource(sourceGraph));
-		bindsForAdd.add("targetGraph", 
-				ResourceFactory.createResource(targetGraph));
-		String sparqlAddQuery = QanaryTripleStoreConnector.readFileFromResourcesWithMap(
-				FILENAME_ADD_DATA_TO_GRAPH, bindsForAdd);
+		addDataToGraph(List.of(sourceGraph), targetGraph);
+	}
+
+	/**
+	 * copies the data of all source graphs to the target graph using one SPARQL
+	 * update request, if annotation types are configured only the annotations of
+	 * these types are copied
+	 */
+	protected void addDataToGraph(List<String> sourceGraphs, String targetGraph) throws Exception {
+		List<String> sparqlAddQueries = new ArrayList<>();
+		for (String sourceGraph : sourceGraphs) {
+			if (annotationTypes.isEmpty()) {
+				sparqlAddQueries.add(createAddQuery(FILENAME_ADD_DATA_TO_GRAPH, sourceGraph, targetGraph, null));
+			} else {
+				for (String annotationType : annotationTypes) {
+					sparqlAddQueries.add(createAddQuery(FILENAME_ADD_ANNOTATIONS_OF_TYPE_TO_GRAPH, sourceGraph, targetGraph, annotationType));
+				}
+			}
+		}
+		if (sparqlAddQueries.isEmpty()) {
+			return;
+		}
+		String sparqlAddQuery = String.join(" ;\n", sparqlAddQueries);
 		logger.info("generated SPARQL ADD query: {}", sparqlAddQuery);
 
 		// call SPARQL endpoint of pipeline 
@@ -135,8 +169,21 @@ public class CopyValuesOfPriorGraph extends QanaryComponent {
 		} catch (Exception e) { 
 			logger.debug("post to endpoint not successful: {}", e);
 			throw new Exception("Data could not be added!" // 
-					+ "\nsource graph: " + sourceGraph //
+					+ "\nsource graphs: " + sourceGraphs //
 					+ "\ntarget graph: " + targetGraph);
 		}
 	}
+
+	private String createAddQuery(String filename, String sourceGraph, String targetGraph, String annotationType) throws IOException {
+		QuerySolutionMap bindsForAdd = new QuerySolutionMap();
+		bindsForAdd.add("sourceGraph",
+				ResourceFactory.createResource(sourceGraph));
+		bindsForAdd.add("targetGraph", 
+				ResourceFactory.createResource(targetGraph));
+		if (annotationType != null) {
+			bindsForAdd.add("annotationType", 
+					ResourceFactory.createResource(annotationType));
+		}
+		return QanaryTripleStoreConnector.readFileFromResourcesWithMap(filename, bindsForAdd);
+	}
 }
@@ -0,0 +1,159 @@
+package eu.wdaqua.qanary.component.copyvaluesofpriorgraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * test copying the prior graphs of a conversation using a local stand-in of
+ * the SPARQL endpoint of the Qanary pipeline
+ */
+class CopyValuesOfPriorGraphTest {
+
+	private static final String PREFIXES = "" //
+			+ "PREFIX qa: <http://www.wdaqua.eu/qa#> " //
+			+ "PREFIX oa: <http://www.w3.org/ns/openannotation/core/> " //
+			+ "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+	private static final int NUMBER_OF_TURNS = 50;
+	private static final String CURRENT_GRAPH = "urn:graph:current";
+
+	private Dataset dataset;
+	private LocalSparqlEndpoint endpoint;
+
+	private static String getGraph(int turn) {
+		return "urn:graph:" + turn;
+	}
+
+	/**
+	 * each turn of the conversation contains the question (linked to a blank
+	 * node of its metadata), an annotation of an instance (including its target
+	 * and selector) and an annotation of a SPARQL query
+	 */
+	@BeforeEach
+	public void startEndpoint() throws Exception {
+		dataset = DatasetFactory.createGeneral();
+		for (int turn = 0; turn < NUMBER_OF_TURNS; turn++) {
+			UpdateAction.parseExecute(PREFIXES //
+					+ "INSERT DATA { GRAPH <" + getGraph(turn) + "> { " //
+					+ "<urn:question:" + turn + "> a qa:Question ; " //
+					+ "  qa:hasMetadata [ a qa:QuestionMetadata ; qa:language \"en\" ] . " //
+					+ (turn > 0 ? "<urn:question:" + turn + "> qa:priorConversation <" + getGraph(turn - 1) + "> . " : "") //
+					+ "<urn:instance:" + turn + "> a qa:AnnotationOfInstance ; " //
+					+ "  oa:hasTarget [ a oa:SpecificResource ; oa:hasSource <urn:question:" + turn + "> ; " //
+					+ "    oa:hasSelector [ a oa:TextPositionSelector ; oa:start \"" + turn + "\"^^xsd:nonNegativeInteger ; oa:end \"" + (turn + 5) + "\"^^xsd:nonNegativeInteger ] ] ; " //
+					+ "  oa:hasBody <http://dbpedia.org/resource/Entity_" + turn + "> ; " //
+					+ "  oa:annotatedBy <urn:qanary:NED> . " //
+					+ "<urn:sparql:" + turn + "> a qa:AnnotationOfAnswerSPARQL ; " //
+					+ "  oa:hasBody \"SELECT * WHERE { ?s ?p ?o }\" ; " //
+					+ "  oa:annotatedBy <urn:qanary:QB> . " //
+					+ "} }", dataset);
+		}
+		endpoint = new LocalSparqlEndpoint(dataset);
+	}
+
+	@AfterEach
+	public void stopEndpoint() {
+		endpoint.close();
+	}
+
+	private CopyValuesOfPriorGraph createComponent(List<String> annotationTypes) {
+		return new CopyValuesOfPriorGraph("CopyValuesOfPriorGraph", endpoint.getUrl(), annotationTypes, new RestTemplate());
+	}
+
+	private static List<String> getPriorGraphs() {
+		List<String> priorGraphs = new ArrayList<>();
+		for (int turn = 0; turn < NUMBER_OF_TURNS; turn++) {
+			priorGraphs.add(getGraph(turn));
+		}
+		return priorGraphs;
+	}
+
+	private int count(String pattern) {
+		try (QueryExecution queryExecution = QueryExecutionFactory.create(PREFIXES //
+				+ "SELECT (COUNT(*) AS ?count) WHERE { GRAPH <" + CURRENT_GRAPH + "> { " + pattern + " } }", dataset)) {
+			return queryExecution.execSelect().next().getLiteral("count").getInt();
+		}
+	}
+
+	@Test
+	void testAllPriorGraphsAreCopiedByOneRequest() throws Exception {
+		createComponent(List.of()).addDataToGraph(getPriorGraphs(), CURRENT_GRAPH);
+
+		assertEquals(1, endpoint.getUpdates().size());
+		long expectedSize = 0;
+		for (int turn = 0; turn < NUMBER_OF_TURNS; turn++) {
+			expectedSize += dataset.getNamedModel(getGraph(turn)).size();
+		}
+		assertEquals(expectedSize, dataset.getNamedModel(CURRENT_GRAPH).size());
+		assertEquals(NUMBER_OF_TURNS, count("?question a qa:Question ."));
+		assertEquals(NUMBER_OF_TURNS, count("?question a qa:Question ; qa:hasMetadata/qa:language ?language ."));
+		assertEquals(NUMBER_OF_TURNS, count("?annotation a qa:AnnotationOfAnswerSPARQL ."));
+		assertEquals(NUMBER_OF_TURNS, count("?annotation a qa:AnnotationOfInstance ; oa:hasTarget/oa:hasSelector/oa:start ?start ."));
+	}
+
+	@Test
+	void testOnlyConfiguredAnnotationTypesAreCopied() throws Exception {
+		createComponent(List.of("http://www.wdaqua.eu/qa#AnnotationOfInstance", " "))
+				.addDataToGraph(getPriorGraphs(), CURRENT_GRAPH);
+
+		assertEquals(1, endpoint.getUpdates().size());
+		assertEquals(0, count("?question a qa:Question ."));
+		assertEquals(0, count("?annotation a qa:AnnotationOfAnswerSPARQL ."));
+		// the question is the source of the target, but its blank nodes are not part of the annotation
+		assertEquals(0, count("?metadata a qa:QuestionMetadata ."));
+		// annotation (4 triples), target (3 triples) and selector (3 triples)
+		assertEquals(NUMBER_OF_TURNS * 10, dataset.getNamedModel(CURRENT_GRAPH).size());
+		for (int turn = 0; turn < NUMBER_OF_TURNS; turn++) {
+			assertEquals(1, count("<urn:instance:" + turn + "> oa:hasBody <http://dbpedia.org/resource/Entity_" + turn + "> ; " //
+					+ "oa:hasTarget [ oa:hasSource <urn:question:" + turn + "> ; " //
+					+ "oa:hasSelector [ oa:start \"" + turn + "\"^^xsd:nonNegativeInteger ; oa:end \"" + (turn + 5) + "\"^^xsd:nonNegativeInteger ] ] ."));
+		}
+	}
+
+	@Test
+	void testMultipleAnnotationTypesAreCopiedByOneRequest() throws Exception {
+		createComponent(List.of("http://www.wdaqua.eu/qa#AnnotationOfInstance", "http://www.wdaqua.eu/qa#AnnotationOfAnswerSPARQL"))
+				.addDataToGraph(getPriorGraphs(), CURRENT_GRAPH);
+
+		assertEquals(1, endpoint.getUpdates().size());
+		assertEquals(0, count("?question a qa:Question ."));
+		assertEquals(NUMBER_OF_TURNS, count("?annotation a qa:AnnotationOfInstance ."));
+		assertEquals(NUMBER_OF_TURNS, count("?annotation a qa:AnnotationOfAnswerSPARQL ; oa:hasBody ?query ."));
+	}
+
+	@Test
+	void testSingleGraphIsCopied() throws Exception {
+		createComponent(List.of()).addDataToGraph(getGraph(7), CURRENT_GRAPH);
+
+		assertEquals(1, endpoint.getUpdates().size());
+		assertTrue(dataset.getNamedModel(CURRENT_GRAPH).isIsomorphicWith(dataset.getNamedModel(getGraph(7))));
+	}
+
+	@Test
+	void testNoRequestWithoutPriorGraphs() throws Exception {
+		createComponent(List.of()).addDataToGraph(new ArrayList<>(), CURRENT_GRAPH);
+
+		assertTrue(endpoint.getUpdates().isEmpty());
+	}
+
+	@Test
+	void testFailedRequest() {
+		endpoint.setFailureStatusCode(500);
+
+		assertThrows(Exception.class, () -> createComponent(List.of()).addDataToGraph(getPriorGraphs(), CURRENT_GRAPH));
+		assertTrue(dataset.getNamedModel(CURRENT_GRAPH).isEmpty());
+	}
+}
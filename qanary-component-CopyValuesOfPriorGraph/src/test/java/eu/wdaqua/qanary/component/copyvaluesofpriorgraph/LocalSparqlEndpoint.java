@@ -0,0 +1,100 @@
+package eu.wdaqua.qanary.component.copyvaluesofpriorgraph;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.update.UpdateAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * stand-in for the SPARQL endpoint of the Qanary pipeline (SPARQL 1.1
+ * protocol, form-encoded updates) serving an in-memory dataset
+ */
+class LocalSparqlEndpoint implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(LocalSparqlEndpoint.class);
+
+	private final Dataset dataset;
+	private final HttpServer server;
+	private final List<String> updates = Collections.synchronizedList(new ArrayList<>());
+	private volatile int failureStatusCode = 0;
+
+	LocalSparqlEndpoint(Dataset dataset) throws IOException {
+		this.dataset = dataset;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/sparql", this::handle);
+		this.server.start();
+	}
+
+	/**
+	 * @return the URL of the stand-in pipeline, the SPARQL endpoint is
+	 *         available at /sparql
+	 */
+	String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the update requests received so far
+	 */
+	List<String> getUpdates() {
+		return updates;
+	}
+
+	/**
+	 * all following requests are answered with the given status code, 0 to
+	 * answer them again
+	 */
+	void setFailureStatusCode(int failureStatusCode) {
+		this.failureStatusCode = failureStatusCode;
+	}
+
+	private static String getParameter(String encodedParameters, String name) {
+		if (encodedParameters == null) {
+			return null;
+		}
+		for (String parameter : encodedParameters.split("&")) {
+			int index = parameter.indexOf('=');
+			if (index > 0 && parameter.substring(0, index).equals(name)) {
+				return URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			if (failureStatusCode != 0) {
+				exchange.sendResponseHeaders(failureStatusCode, -1);
+				return;
+			}
+			String update = getParameter(body, "update");
+			updates.add(update);
+			synchronized (dataset) {
+				UpdateAction.parseExecute(update, dataset);
+			}
+			exchange.sendResponseHeaders(200, -1);
+		} catch (RuntimeException e) {
+			logger.warn("failed to answer request: {}", e.getMessage());
+			exchange.sendResponseHeaders(400, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
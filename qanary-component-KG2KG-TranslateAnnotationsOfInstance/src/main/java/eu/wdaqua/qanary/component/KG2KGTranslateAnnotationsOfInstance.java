@@ -3,16 +3,25 @@ package eu.wdaqua.qanary.component;
 import eu.wdaqua.qanary.commons.QanaryMessage;
 import eu.wdaqua.qanary.commons.QanaryUtils;
 import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnector;
+import eu.wdaqua.qanary.component.cache.EquivalentResourceCache;
 import eu.wdaqua.qanary.component.pojos.AnnotationOfInstancePojo;
 import eu.wdaqua.qanary.component.repositories.KG2KGTranslateAnnotationsOfInstanceRepository;
 import eu.wdaqua.qanary.exceptions.SparqlQueryFailed;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdfconnection.JenaConnectionException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,9 +30,13 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
@@ -47,6 +60,8 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
     }};
     @Autowired
     private KG2KGTranslateAnnotationsOfInstanceRepository kg2KGTranslateAnnotationsOfInstanceRepository;
+    @Autowired
+    private EquivalentResourceCache equivalentResourceCache;
 
     public KG2KGTranslateAnnotationsOfInstance(@Value("${spring.application.name}") final String applicationName) {
         this.applicationName = applicationName;
@@ -72,6 +87,7 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
         // Step 2: Compute new and equivalent resources
         annotationOfInstanceObjects = computeEquivalentResources(annotationOfInstanceObjects);
         logger.info("Computed new resources: {}", annotationOfInstanceObjects.toString());
+        equivalentResourceCache.logStatistics();
 
         // Step 3: Insert new annotations with new computed resource
         updateTriplestore(annotationOfInstanceObjects, graphID, qanaryTripleStoreConnector);
@@ -126,27 +142,121 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
      */
 
     /**
+     * computes the equivalent resources of all annotations using one request per direction
+     * (DBpedia to Wikidata and Wikidata to DBpedia)
+     *
      * @param annotationOfInstanceObjects Annotation objects with missing newResource value which is added here
      * @return List with Annotation objects containing newResource values
      */
     public List<AnnotationOfInstancePojo> computeEquivalentResources(List<AnnotationOfInstancePojo> annotationOfInstanceObjects) throws IOException {
-        List<AnnotationOfInstancePojo> temp = new ArrayList<>(annotationOfInstanceObjects);
-        for (AnnotationOfInstancePojo annotationObject : annotationOfInstanceObjects
-        ) {
+        // the origin resources grouped by the query used to fetch their equivalent resources
+        Map<String, Set<String>> originResourcesByQuery = new LinkedHashMap<>();
+        for (AnnotationOfInstancePojo annotationObject : annotationOfInstanceObjects) {
             String originResource = annotationObject.getOriginResource();
+            originResourcesByQuery.computeIfAbsent(containsDBpediaPrefix.get(originResource.contains(DBPEDIA_PREFIX)), query -> new LinkedHashSet<>()).add(originResource);
+        }
+
+        Map<String, List<RDFNode>> equivalentResources = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : originResourcesByQuery.entrySet()) {
             try {
-                List<RDFNode> newResources = getEquivalentResource(containsDBpediaPrefix.get(originResource.contains(DBPEDIA_PREFIX)), originResource);
-                logger.info("Resource(s) found for resource: {}", annotationObject.getOriginResource());
-                annotationObject.setNewResources(newResources);
+                equivalentResources.putAll(getEquivalentResources(entry.getKey(), entry.getValue()));
             } catch (RuntimeException e) {
+                logger.error("Error while fetching resources for {}: {}", entry.getValue(), e.getMessage());
+            }
+        }
+
+        List<AnnotationOfInstancePojo> temp = new ArrayList<>();
+        for (AnnotationOfInstancePojo annotationObject : annotationOfInstanceObjects) {
+            List<RDFNode> newResources = equivalentResources.get(annotationObject.getOriginResource());
+            if (newResources == null) {
                 // no equivalent resource found -> remove this obj since it's not necessary anymore
                 logger.error("No resource found for resource: {}", annotationObject.getOriginResource());
-                temp.remove(annotationObject);
+            } else {
+                logger.info("Resource(s) found for resource: {}", annotationObject.getOriginResource());
+                annotationObject.setNewResources(newResources);
+                temp.add(annotationObject);
             }
         }
         return temp;
     }
 
+    /**
+     * returns the equivalent resources of all origin resources, only the origin resources not contained in the
+     * cache are requested (at once) and the results - including origin resources without equivalent
+     * resource - are cached
+     *
+     * @param query           used query - depending on the origin resources
+     * @param originResources either Wikidata or DBpedia resources
+     * @return the equivalent resources of each origin resource having at least one
+     * @throws JenaConnectionException thrown when connection problems occur
+     */
+    public Map<String, List<RDFNode>> getEquivalentResources(String query, Collection<String> originResources) throws IOException, RuntimeException {
+        Map<String, List<RDFNode>> equivalentResources = new LinkedHashMap<>();
+        List<String> uncachedResources = new ArrayList<>();
+        for (String originResource : originResources) {
+            List<RDFNode> cachedResources = equivalentResourceCache.get(query, originResource);
+            if (cachedResources == null) {
+                uncachedResources.add(originResource);
+            } else if (!cachedResources.isEmpty()) {
+                equivalentResources.put(originResource, cachedResources);
+            }
+        }
+        if (uncachedResources.isEmpty()) {
+            return equivalentResources;
+        }
+
+        Map<String, List<RDFNode>> fetchedResources = fetchEquivalentResources(query, uncachedResources);
+        for (String originResource : uncachedResources) {
+            List<RDFNode> newResources = fetchedResources.get(originResource);
+            // a missing result is cached as well, so unmapped resources are not requested again
+            equivalentResourceCache.put(query, originResource, newResources);
+            if (newResources != null) {
+                equivalentResources.put(originResource, newResources);
+            }
+        }
+        return equivalentResources;
+    }
+
+    /**
+     * requests the DBpedia-SPARQL endpoint (or the local index) to fetch the equivalent resources of all
+     * origin resources at once
+     */
+    private Map<String, List<RDFNode>> fetchEquivalentResources(String query, Collection<String> originResources) throws IOException, RuntimeException {
+        if (kg2KGTranslateAnnotationsOfInstanceRepository.hasSameAsIndex()) {
+            // same links and filter as used by the query
+            boolean dbpediaToWikidata = DBPEDIA_TO_WIKIDATA_QUERY.equals(query);
+            return kg2KGTranslateAnnotationsOfInstanceRepository.lookupEquivalentResources(originResources,
+                    dbpediaToWikidata, dbpediaToWikidata ? WIKIDATA_PREFIX : DBPEDIA_PREFIX);
+        }
+        String executableQuery = getResourcesRequestQuery(query, originResources);
+        return kg2KGTranslateAnnotationsOfInstanceRepository.fetchEquivalentResources(executableQuery);
+    }
+
+    /**
+     * extends the query by the origin resources (VALUES ?originResource) and returns it,
+     * the results contain the origin resource of each equivalent resource
+     */
+    public String getResourcesRequestQuery(String query, Collection<String> originResources) throws IOException {
+        logger.info("Query: {}", query);
+        Query batchQuery = QueryFactory.create(QanaryTripleStoreConnector.readFileFromResources(query));
+        Var originResource = Var.alloc("originResource");
+
+        ElementData values = new ElementData();
+        values.add(originResource);
+        for (String resource : originResources) {
+            values.add(BindingFactory.binding(originResource, NodeFactory.createURI(resource)));
+        }
+        ElementGroup pattern = new ElementGroup();
+        pattern.addElement(values);
+        for (Element element : ((ElementGroup) batchQuery.getQueryPattern()).getElements()) {
+            pattern.addElement(element);
+        }
+        batchQuery.setQueryPattern(pattern);
+        batchQuery.addResultVar(originResource);
+
+        return batchQuery.toString();
+    }
+
     /**
      * used for the API endpoint
      */
@@ -160,7 +270,7 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
     }
 
     /**
-     * requests the DBpedia-SPARQL endpoint to fetch an equivalent resource and returns it
+     * returns the equivalent resources of an origin resource (see {@link #getEquivalentResources(String, Collection)})
      *
      * @param query          used query - depending on the originResource
      * @param originResource either Wikidata or DBpedia
@@ -169,24 +279,11 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
      * @throws JenaConnectionException thrown when connection problems occur
      */
     public List<RDFNode> getEquivalentResource(String query, String originResource) throws IOException, RuntimeException {
-        try {
-            String executableQuery = getResourceRequestQuery(query, originResource);
-            return kg2KGTranslateAnnotationsOfInstanceRepository.fetchEquivalentResource(executableQuery);
-        } catch (IOException ioException) {
-            logger.error("Error while creating query for resource fetching. {}", ioException.getMessage());
-            throw new IOException();
+        List<RDFNode> newResources = getEquivalentResources(query, List.of(originResource)).get(originResource);
+        if (newResources == null) {
+            throw new RuntimeException("No resource found");
         }
-    }
-
-    /**
-     * binds values for request query and returns it
-     */
-    public String getResourceRequestQuery(String query, String originResource) throws IOException {
-        logger.info("Query: {}", query);
-        QuerySolutionMap bindingsForQuery = new QuerySolutionMap();
-        bindingsForQuery.add("originResource", ResourceFactory.createResource(originResource));
-
-        return QanaryTripleStoreConnector.readFileFromResourcesWithMap(query, bindingsForQuery);
+        return newResources;
     }
 
     /*
@@ -194,19 +291,26 @@ public class KG2KGTranslateAnnotationsOfInstance extends QanaryComponent {
      */
 
     /**
-     * create the insert query for every annotation and update the triplestore
+     * create the insert query for every annotation and update the triplestore with a single request
      *
      * @param annotationOfInstanceObjects Annotation objects containing origin and new resource
      */
     public void updateTriplestore(List<AnnotationOfInstancePojo> annotationOfInstanceObjects, String graphID, QanaryTripleStoreConnector qanaryTripleStoreConnector) throws IOException, SparqlQueryFailed {
+        List<String> insertQueries = new ArrayList<>();
         for (AnnotationOfInstancePojo obj: annotationOfInstanceObjects
         ) { // inner for-loop for originResources with more than one equivalent resource
             for (RDFNode objResource : obj.getNewResources()) {
-                String query = createInsertQuery(obj, objResource.toString(), graphID);
-                logger.info("Created Insert Query: {}", query);
-                updateTriplestoreWithQuery(query, qanaryTripleStoreConnector);
+                insertQueries.add(createInsertQuery(obj, objResource.toString(), graphID));
             }
         }
+        if (insertQueries.isEmpty()) {
+            logger.info("No new annotations");
+            return;
+        }
+        // the insert operations are executed as one SPARQL update request
+        String query = String.join(" ;\n", insertQueries);
+        logger.info("Created Insert Query: {}", query);
+        updateTriplestoreWithQuery(query, qanaryTripleStoreConnector);
     }
 
     public void updateTriplestoreWithQuery(String query, QanaryTripleStoreConnector qanaryTripleStoreConnector) throws SparqlQueryFailed {
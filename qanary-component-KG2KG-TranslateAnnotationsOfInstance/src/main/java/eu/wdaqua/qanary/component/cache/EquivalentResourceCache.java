@@ -0,0 +1,194 @@
+package eu.wdaqua.qanary.component.cache;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * bounded cache of the equivalent resources of origin resources, one cache per translation direction
+ * <p>
+ * Origin resources without an equivalent resource are cached as well (negative entries), hence, unmapped
+ * resources are not looked up again for every question. Negative entries expire after their own (usually
+ * shorter) time to live. If a cache is full, the least recently used entry is evicted.
+ */
+@Component
+public class EquivalentResourceCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TTL_MS = 3600000;
+    public static final long DEFAULT_NEGATIVE_TTL_MS = 600000;
+
+    private static final Logger logger = LoggerFactory.getLogger(EquivalentResourceCache.class);
+
+    private static class Entry {
+        private final List<RDFNode> equivalentResources;
+        private final long expiresAt;
+
+        private Entry(List<RDFNode> equivalentResources, long expiresAt) {
+            this.equivalentResources = equivalentResources;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * the cached entries of one translation direction
+     */
+    private static class DirectionCache {
+        private final Map<String, Entry> entries;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        private DirectionCache(int maxSize) {
+            // access order: the eldest entry is the least recently used one
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final LongSupplier clock;
+    private final Map<String, DirectionCache> directionCaches = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize       the maximum number of origin resources cached per translation direction, 0 disables the cache
+     * @param ttlMs         the time to live of origin resources having equivalent resources
+     * @param negativeTtlMs the time to live of origin resources without an equivalent resource
+     */
+    @Autowired
+    public EquivalentResourceCache(
+            @Value("${equivalence.cache.max-size:" + DEFAULT_MAX_SIZE + "}") int maxSize,
+            @Value("${equivalence.cache.ttl-ms:" + DEFAULT_TTL_MS + "}") long ttlMs,
+            @Value("${equivalence.cache.negative-ttl-ms:" + DEFAULT_NEGATIVE_TTL_MS + "}") long negativeTtlMs) {
+        this(maxSize, ttlMs, negativeTtlMs, System::currentTimeMillis);
+    }
+
+    EquivalentResourceCache(int maxSize, long ttlMs, long negativeTtlMs, LongSupplier clock) {
+        if (maxSize < 0 || ttlMs < 0 || negativeTtlMs < 0) {
+            throw new IllegalArgumentException("the size and the time to live of the equivalence cache must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.clock = clock;
+        logger.info("equivalence cache: max. {} resources per direction, TTL: {} ms, negative TTL: {} ms", maxSize, ttlMs, negativeTtlMs);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    private DirectionCache getDirectionCache(String direction) {
+        return directionCaches.computeIfAbsent(direction, key -> new DirectionCache(maxSize));
+    }
+
+    /**
+     * @param direction      the translation direction, e.g., the query used to fetch the equivalent resources
+     * @param originResource the resource to be translated
+     * @return the cached equivalent resources, an empty list if the origin resource is known to have no
+     * equivalent resource, null if the origin resource is not cached (or expired)
+     */
+    public List<RDFNode> get(String direction, String originResource) {
+        if (!isEnabled()) {
+            return null;
+        }
+        DirectionCache directionCache = getDirectionCache(direction);
+        Entry entry;
+        synchronized (directionCache) {
+            entry = directionCache.entries.get(originResource);
+            if (entry != null && entry.expiresAt <= clock.getAsLong()) {
+                directionCache.entries.remove(originResource);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            directionCache.misses.incrementAndGet();
+            return null;
+        }
+        directionCache.hits.incrementAndGet();
+        return entry.equivalentResources;
+    }
+
+    /**
+     * @param direction           the translation direction, e.g., the query used to fetch the equivalent resources
+     * @param originResource      the resource to be translated
+     * @param equivalentResources the equivalent resources, null or empty if there is no equivalent resource
+     */
+    public void put(String direction, String originResource, List<RDFNode> equivalentResources) {
+        if (!isEnabled()) {
+            return;
+        }
+        Entry entry;
+        if (equivalentResources == null || equivalentResources.isEmpty()) {
+            entry = new Entry(Collections.emptyList(), clock.getAsLong() + negativeTtlMs);
+        } else {
+            entry = new Entry(List.copyOf(equivalentResources), clock.getAsLong() + ttlMs);
+        }
+        DirectionCache directionCache = getDirectionCache(direction);
+        synchronized (directionCache) {
+            directionCache.entries.put(originResource, entry);
+        }
+    }
+
+    /**
+     * @return the number of lookups of the direction answered by the cache (including negative entries)
+     */
+    public long getHitCount(String direction) {
+        DirectionCache directionCache = directionCaches.get(direction);
+        return directionCache == null ? 0 : directionCache.hits.get();
+    }
+
+    /**
+     * @return the number of lookups of the direction not answered by the cache
+     */
+    public long getMissCount(String direction) {
+        DirectionCache directionCache = directionCaches.get(direction);
+        return directionCache == null ? 0 : directionCache.misses.get();
+    }
+
+    /**
+     * @return the number of cached origin resources of the direction (including expired ones not removed yet)
+     */
+    public int size(String direction) {
+        DirectionCache directionCache = directionCaches.get(direction);
+        if (directionCache == null) {
+            return 0;
+        }
+        synchronized (directionCache) {
+            return directionCache.entries.size();
+        }
+    }
+
+    /**
+     * removes all entries and resets the hit and miss counts
+     */
+    public void clear() {
+        directionCaches.clear();
+    }
+
+    /**
+     * logs the size and the hit and miss counts of each direction
+     */
+    public void logStatistics() {
+        for (Map.Entry<String, DirectionCache> directionCache : directionCaches.entrySet()) {
+            logger.info("equivalence cache {}: {} resources, {} hits, {} misses", directionCache.getKey(),
+                    size(directionCache.getKey()), directionCache.getValue().hits.get(), directionCache.getValue().misses.get());
+        }
+    }
+}
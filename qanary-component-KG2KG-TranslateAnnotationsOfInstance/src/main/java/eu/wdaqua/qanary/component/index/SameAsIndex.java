@@ -0,0 +1,240 @@
+package eu.wdaqua.qanary.component.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * read-only index of owl:sameAs links stored in a memory-mapped file (created by {@link SameAsIndexBuilder})
+ * <p>
+ * The file contains the links twice: sorted by subject and sorted by object. Hence, the equivalent resources
+ * are found by a binary search in both directions. Each IRI is stored as the id of its namespace (the IRI up
+ * to the last '/' or '#') and its local name.
+ * <p>
+ * File layout:
+ * <pre>
+ * header:   magic ("SAMEASIX"), version (int), number of namespaces (int), namespaces (UTF)
+ * sections: links sorted by subject, links sorted by object
+ *           each section: records (encoded subject and object, or object and subject), record offsets (int[])
+ * footer:   for each section: position of the records (long), length of the records (long), number of records (int)
+ * </pre>
+ * An encoded IRI consists of the namespace id (unsigned short), the length of the local name (unsigned short)
+ * and the local name (UTF-8).
+ */
+public class SameAsIndex implements AutoCloseable {
+
+    static final byte[] MAGIC = "SAMEASIX".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    // IRIs are stored completely as local name if the namespace table is full
+    static final int NO_NAMESPACE = 0xFFFF;
+    static final int MAX_NAMESPACES = NO_NAMESPACE;
+    static final int MAX_LOCAL_NAME_LENGTH = 0xFFFF;
+    static final int FOOTER_LENGTH = 2 * (8 + 8 + 4);
+
+    private static final Logger logger = LoggerFactory.getLogger(SameAsIndex.class);
+
+    /**
+     * links sorted by the first IRI of the records
+     */
+    private static class Section {
+        private final ByteBuffer records;
+        private final IntBuffer offsets;
+
+        private Section(ByteBuffer records, IntBuffer offsets) {
+            this.records = records;
+            this.offsets = offsets;
+        }
+
+        private int size() {
+            return offsets.limit();
+        }
+
+        /**
+         * compares the first IRI of the record with the encoded key
+         */
+        private int compareKey(int recordOffset, byte[] key) {
+            int keyLength = 4 + (records.getShort(recordOffset + 2) & 0xFFFF);
+            int length = Math.min(keyLength, key.length);
+            for (int i = 0; i < length; i++) {
+                int difference = (records.get(recordOffset + i) & 0xFF) - (key[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return keyLength - key.length;
+        }
+
+        /**
+         * @return the second IRIs of all records having the key as first IRI
+         */
+        private List<String> lookup(byte[] key, List<String> namespaces) {
+            // binary search of the first record having a key >= the given key
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareKey(offsets.get(middle), key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            List<String> values = new ArrayList<>();
+            for (int i = low; i < size() && compareKey(offsets.get(i), key) == 0; i++) {
+                values.add(decode(records, offsets.get(i) + key.length, namespaces));
+            }
+            return values;
+        }
+    }
+
+    private final FileChannel channel;
+    private final List<String> namespaces;
+    private final Map<String, Integer> namespaceIds = new HashMap<>();
+    private final Section bySubject;
+    private final Section byObject;
+
+    private SameAsIndex(FileChannel channel, List<String> namespaces, Section bySubject, Section byObject) {
+        this.channel = channel;
+        this.namespaces = namespaces;
+        for (int i = 0; i < namespaces.size(); i++) {
+            namespaceIds.put(namespaces.get(i), i);
+        }
+        this.bySubject = bySubject;
+        this.byObject = byObject;
+    }
+
+    /**
+     * maps the index file into memory
+     */
+    public static SameAsIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+            byte[] magic = new byte[MAGIC.length];
+            header.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException(file + " is not a sameAs index");
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version + " of sameAs index " + file);
+            }
+            int numberOfNamespaces = header.readInt();
+            List<String> namespaces = new ArrayList<>(numberOfNamespaces);
+            for (int i = 0; i < numberOfNamespaces; i++) {
+                namespaces.add(header.readUTF());
+            }
+
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, channel.size() - FOOTER_LENGTH, FOOTER_LENGTH);
+            Section bySubject = mapSection(channel, footer);
+            Section byObject = mapSection(channel, footer);
+            SameAsIndex index = new SameAsIndex(channel, Collections.unmodifiableList(namespaces), bySubject, byObject);
+            logger.info("opened sameAs index {} containing {} links", file, index.size());
+            return index;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Section mapSection(FileChannel channel, ByteBuffer footer) throws IOException {
+        long recordsPosition = footer.getLong();
+        long recordsLength = footer.getLong();
+        int numberOfRecords = footer.getInt();
+        ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, recordsPosition, recordsLength);
+        IntBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, recordsPosition + recordsLength, 4L * numberOfRecords).asIntBuffer();
+        return new Section(records, offsets);
+    }
+
+    /**
+     * @return the objects of the links ?subject owl:sameAs ?object
+     */
+    public List<String> getObjects(String subject) {
+        byte[] key = encode(subject);
+        return key == null ? Collections.emptyList() : bySubject.lookup(key, namespaces);
+    }
+
+    /**
+     * @return the subjects of the links ?subject owl:sameAs ?object
+     */
+    public List<String> getSubjects(String object) {
+        byte[] key = encode(object);
+        return key == null ? Collections.emptyList() : byObject.lookup(key, namespaces);
+    }
+
+    /**
+     * @return the number of links
+     */
+    public int size() {
+        return bySubject.size();
+    }
+
+    /**
+     * @return the encoded IRI, null if it cannot be contained in the index
+     */
+    private byte[] encode(String iri) {
+        int namespaceLength = getNamespaceLength(iri);
+        Integer namespaceId = namespaceIds.get(iri.substring(0, namespaceLength));
+        if (namespaceId != null) {
+            return encode(namespaceId, iri.substring(namespaceLength));
+        } else if (namespaces.size() == MAX_NAMESPACES) {
+            return encode(NO_NAMESPACE, iri);
+        }
+        return null;
+    }
+
+    static int getNamespaceLength(String iri) {
+        return Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#')) + 1;
+    }
+
+    /**
+     * @return the encoded IRI, null if the local name is too long
+     */
+    static byte[] encode(int namespaceId, String localName) {
+        byte[] local = localName.getBytes(StandardCharsets.UTF_8);
+        if (local.length > MAX_LOCAL_NAME_LENGTH) {
+            return null;
+        }
+        byte[] encoded = new byte[4 + local.length];
+        encoded[0] = (byte) (namespaceId >>> 8);
+        encoded[1] = (byte) namespaceId;
+        encoded[2] = (byte) (local.length >>> 8);
+        encoded[3] = (byte) local.length;
+        System.arraycopy(local, 0, encoded, 4, local.length);
+        return encoded;
+    }
+
+    private static String decode(ByteBuffer buffer, int offset, List<String> namespaces) {
+        int namespaceId = buffer.getShort(offset) & 0xFFFF;
+        byte[] local = new byte[buffer.getShort(offset + 2) & 0xFFFF];
+        for (int i = 0; i < local.length; i++) {
+            local[i] = buffer.get(offset + 4 + i);
+        }
+        String localName = new String(local, StandardCharsets.UTF_8);
+        return namespaceId == NO_NAMESPACE ? localName : namespaces.get(namespaceId) + localName;
+    }
+
+    /**
+     * closes the file, the mapped memory is released by the garbage collector
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,357 @@
+package eu.wdaqua.qanary.component.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * builds a {@link SameAsIndex} from a dump of owl:sameAs links (N-Triples, optionally gzipped)
+ * <p>
+ * The links are sorted by an external merge sort, hence, the required memory is bounded by the chunk size
+ * and does not depend on the size of the dump. Triples having another predicate or a literal or blank node
+ * are ignored.
+ * <p>
+ * Usage: {@code java -cp <component jar> -Dloader.main=eu.wdaqua.qanary.component.index.SameAsIndexBuilder
+ * org.springframework.boot.loader.PropertiesLauncher <dump.nt[.gz]> <index file>}
+ */
+public class SameAsIndexBuilder {
+
+    public static final String OWL_SAME_AS = "http://www.w3.org/2002/07/owl#sameAs";
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    // longer namespaces are not stored, the links are skipped
+    private static final int MAX_NAMESPACE_LENGTH = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(SameAsIndexBuilder.class);
+
+    /**
+     * the records of one section, collected in sorted runs that are merged at the end
+     */
+    private static class SectionWriter implements AutoCloseable {
+        private final Path directory;
+        private final byte[] chunk;
+        private int chunkLength = 0;
+        private int[] recordOffsets = new int[1024];
+        private int numberOfRecords = 0;
+        private final List<Path> runs = new ArrayList<>();
+
+        private SectionWriter(Path directory, int chunkSize) {
+            this.directory = directory;
+            this.chunk = new byte[chunkSize];
+        }
+
+        private void add(byte[] key, byte[] value) throws IOException {
+            if (key.length + value.length > chunk.length) {
+                throw new IOException("the link exceeds the chunk size of " + chunk.length + " bytes");
+            }
+            if (chunkLength + key.length + value.length > chunk.length) {
+                writeRun();
+            }
+            if (numberOfRecords == recordOffsets.length) {
+                recordOffsets = Arrays.copyOf(recordOffsets, 2 * recordOffsets.length);
+            }
+            recordOffsets[numberOfRecords++] = chunkLength;
+            System.arraycopy(key, 0, chunk, chunkLength, key.length);
+            System.arraycopy(value, 0, chunk, chunkLength + key.length, value.length);
+            chunkLength += key.length + value.length;
+        }
+
+        /**
+         * sorts the records of the chunk and writes them to a new run file
+         */
+        private void writeRun() throws IOException {
+            if (numberOfRecords == 0) {
+                return;
+            }
+            Integer[] sorted = IntStream.of(recordOffsets).limit(numberOfRecords).boxed().toArray(Integer[]::new);
+            Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(chunk, a, a + getRecordLength(chunk, a),
+                    chunk, b, b + getRecordLength(chunk, b)));
+            Path run = Files.createTempFile(directory, "run", ".tmp");
+            try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(run), 1 << 16)) {
+                for (int offset : sorted) {
+                    out.write(chunk, offset, getRecordLength(chunk, offset));
+                }
+            }
+            runs.add(run);
+            chunkLength = 0;
+            numberOfRecords = 0;
+        }
+
+        /**
+         * merges the runs, writes the distinct records to the output and their offsets to the offsets file
+         *
+         * @return the number of written records
+         */
+        private int merge(DataOutputStream out, Path offsetsFile) throws IOException {
+            writeRun();
+            PriorityQueue<RunReader> readers = new PriorityQueue<>();
+            long recordsLength = 0;
+            int numberOfWrittenRecords = 0;
+            try (DataOutputStream offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsFile), 1 << 16))) {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run);
+                    if (reader.next()) {
+                        readers.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+                byte[] previous = null;
+                while (!readers.isEmpty()) {
+                    RunReader reader = readers.poll();
+                    byte[] record = reader.current;
+                    if (!Arrays.equals(previous, record)) {
+                        if (recordsLength + record.length > Integer.MAX_VALUE) {
+                            throw new IOException("the links exceed the maximum size of an index section");
+                        }
+                        offsets.writeInt((int) recordsLength);
+                        out.write(record);
+                        recordsLength += record.length;
+                        numberOfWrittenRecords++;
+                        previous = record;
+                    }
+                    if (reader.next()) {
+                        readers.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+            } finally {
+                for (RunReader reader : readers) {
+                    reader.close();
+                }
+            }
+            return numberOfWrittenRecords;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * reads the records of a sorted run
+     */
+    private static class RunReader implements Comparable<RunReader>, AutoCloseable {
+        private final DataInputStream in;
+        private byte[] current;
+
+        private RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+
+        private boolean next() throws IOException {
+            byte[] keyHeader = new byte[4];
+            try {
+                in.readFully(keyHeader);
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            int keyLength = 4 + getLocalNameLength(keyHeader, 0);
+            byte[] key = Arrays.copyOf(keyHeader, keyLength);
+            in.readFully(key, 4, keyLength - 4);
+            byte[] valueHeader = new byte[4];
+            in.readFully(valueHeader);
+            byte[] record = Arrays.copyOf(key, keyLength + 4 + getLocalNameLength(valueHeader, 0));
+            System.arraycopy(valueHeader, 0, record, keyLength, 4);
+            in.readFully(record, keyLength + 4, record.length - keyLength - 4);
+            current = record;
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return Arrays.compareUnsigned(current, other.current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private final int chunkSize;
+    private final Map<String, Integer> namespaceIds = new LinkedHashMap<>();
+    private long numberOfSkippedLinks = 0;
+
+    public SameAsIndexBuilder() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize the number of bytes of links sorted in memory (for each direction)
+     */
+    public SameAsIndexBuilder(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    private static int getLocalNameLength(byte[] buffer, int encodedIriOffset) {
+        return ((buffer[encodedIriOffset + 2] & 0xFF) << 8) | (buffer[encodedIriOffset + 3] & 0xFF);
+    }
+
+    private static int getRecordLength(byte[] buffer, int recordOffset) {
+        int keyLength = 4 + getLocalNameLength(buffer, recordOffset);
+        return keyLength + 4 + getLocalNameLength(buffer, recordOffset + keyLength);
+    }
+
+    /**
+     * @return the subject and object of an owl:sameAs triple between two IRIs, null for any other line
+     */
+    static String[] parseLink(String line) {
+        int subjectStart = line.indexOf('<');
+        if (subjectStart < 0 || !line.substring(0, subjectStart).isBlank()) {
+            return null; // comment, empty line or blank node subject
+        }
+        int subjectEnd = line.indexOf('>', subjectStart);
+        int predicateStart = line.indexOf('<', subjectEnd);
+        int predicateEnd = predicateStart < 0 ? -1 : line.indexOf('>', predicateStart);
+        if (subjectEnd < 0 || predicateEnd < 0
+                || !line.startsWith(OWL_SAME_AS, predicateStart + 1) || predicateEnd != predicateStart + 1 + OWL_SAME_AS.length()) {
+            return null;
+        }
+        int objectStart = predicateEnd + 1;
+        while (objectStart < line.length() && Character.isWhitespace(line.charAt(objectStart))) {
+            objectStart++;
+        }
+        int objectEnd = line.indexOf('>', objectStart);
+        if (objectStart >= line.length() || line.charAt(objectStart) != '<' || objectEnd < 0) {
+            return null; // literal or blank node object
+        }
+        return new String[]{line.substring(subjectStart + 1, subjectEnd), line.substring(objectStart + 1, objectEnd)};
+    }
+
+    /**
+     * @return the encoded IRI, null if it cannot be stored
+     */
+    private byte[] encode(String iri) {
+        int namespaceLength = SameAsIndex.getNamespaceLength(iri);
+        if (namespaceLength > MAX_NAMESPACE_LENGTH) {
+            return null;
+        }
+        String namespace = iri.substring(0, namespaceLength);
+        Integer namespaceId = namespaceIds.get(namespace);
+        if (namespaceId == null && namespaceIds.size() < SameAsIndex.MAX_NAMESPACES) {
+            namespaceId = namespaceIds.size();
+            namespaceIds.put(namespace, namespaceId);
+        }
+        if (namespaceId == null) {
+            return SameAsIndex.encode(SameAsIndex.NO_NAMESPACE, iri);
+        }
+        return SameAsIndex.encode(namespaceId, iri.substring(namespaceLength));
+    }
+
+    /**
+     * builds the index from the dump, files ending with .gz are decompressed
+     *
+     * @return the number of distinct links in the index
+     */
+    public int build(Path dump, Path index) throws IOException {
+        InputStream in = Files.newInputStream(dump);
+        if (dump.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            return build(reader, index);
+        }
+    }
+
+    /**
+     * @return the number of distinct links in the index
+     */
+    public int build(BufferedReader dump, Path index) throws IOException {
+        Path directory = index.toAbsolutePath().getParent();
+        Path offsetsFile = Files.createTempFile(directory, "offsets", ".tmp");
+        try (SectionWriter bySubject = new SectionWriter(directory, chunkSize);
+             SectionWriter byObject = new SectionWriter(directory, chunkSize)) {
+            String line;
+            long numberOfLines = 0;
+            while ((line = dump.readLine()) != null) {
+                String[] link = parseLink(line);
+                if (++numberOfLines % 1000000 == 0) {
+                    logger.info("read {} lines", numberOfLines);
+                }
+                if (link == null) {
+                    continue;
+                }
+                byte[] subject = encode(link[0]);
+                byte[] object = encode(link[1]);
+                if (subject == null || object == null) {
+                    numberOfSkippedLinks++;
+                    continue;
+                }
+                bySubject.add(subject, object);
+                byObject.add(object, subject);
+            }
+
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.write(SameAsIndex.MAGIC);
+                out.writeInt(SameAsIndex.VERSION);
+                out.writeInt(namespaceIds.size());
+                for (String namespace : namespaceIds.keySet()) {
+                    out.writeUTF(namespace);
+                }
+
+                DataOutputStream footer = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                long[] recordsPositions = new long[2];
+                long[] recordsLengths = new long[2];
+                int[] numberOfRecords = new int[2];
+                SectionWriter[] sections = {bySubject, byObject};
+                for (int i = 0; i < sections.length; i++) {
+                    out.flush();
+                    recordsPositions[i] = channel.position();
+                    numberOfRecords[i] = sections[i].merge(out, offsetsFile);
+                    out.flush();
+                    recordsLengths[i] = channel.position() - recordsPositions[i];
+                    Files.copy(offsetsFile, out);
+                }
+                out.flush();
+                for (int i = 0; i < sections.length; i++) {
+                    footer.writeLong(recordsPositions[i]);
+                    footer.writeLong(recordsLengths[i]);
+                    footer.writeInt(numberOfRecords[i]);
+                }
+                footer.flush();
+                logger.info("created sameAs index {} containing {} links ({} links skipped)", index, numberOfRecords[0], numberOfSkippedLinks);
+                return numberOfRecords[0];
+            }
+        } finally {
+            Files.deleteIfExists(offsetsFile);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: SameAsIndexBuilder <sameAs dump (N-Triples, optionally .gz)> <index file>");
+            System.exit(1);
+        }
+        int numberOfLinks = new SameAsIndexBuilder().build(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("indexed " + numberOfLinks + " links");
+    }
+}
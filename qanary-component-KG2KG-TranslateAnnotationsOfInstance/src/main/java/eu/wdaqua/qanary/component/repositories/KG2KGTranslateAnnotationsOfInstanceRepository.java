@@ -1,17 +1,27 @@
 package eu.wdaqua.qanary.component.repositories;
 
+import eu.wdaqua.qanary.component.index.SameAsIndex;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdfconnection.RDFConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class KG2KGTranslateAnnotationsOfInstanceRepository {
@@ -19,29 +29,85 @@ public class KG2KGTranslateAnnotationsOfInstanceRepository {
     private final static String dbpediaSparqlEndpoint = "http://dbpedia.org/sparql";
     private final Logger logger = LoggerFactory.getLogger(KG2KGTranslateAnnotationsOfInstanceRepository.class);
     private RDFConnection rdfConnection;
+    private SameAsIndex sameAsIndex;
 
     public KG2KGTranslateAnnotationsOfInstanceRepository() {
         this.rdfConnection = RDFConnection.connect(dbpediaSparqlEndpoint);
     }
 
+    /**
+     * @param sameAsIndexFile the local index of owl:sameAs links (see SameAsIndexBuilder) used instead of the
+     *                        DBpedia endpoint, empty if the DBpedia endpoint should be used
+     */
+    @Autowired
+    public KG2KGTranslateAnnotationsOfInstanceRepository(@Value("${sameas.index.file:}") String sameAsIndexFile) throws IOException {
+        this();
+        if (!sameAsIndexFile.isBlank()) {
+            this.sameAsIndex = SameAsIndex.open(Path.of(sameAsIndexFile));
+        }
+    }
+
     public void setRdfConnection(Dataset dataset) {
         this.rdfConnection = RDFConnection.connect(dataset);
     }
 
-    public List<RDFNode> fetchEquivalentResource(String executableQuery) throws RuntimeException {
-        QueryExecution queryExecution = rdfConnection.query(executableQuery);
-        List<RDFNode> equivalentResources = new ArrayList<>();
-        ResultSet resultSet = queryExecution.execSelect();
+    public void setSameAsIndex(SameAsIndex sameAsIndex) {
+        this.sameAsIndex = sameAsIndex;
+    }
+
+    /**
+     * @return true if the equivalent resources are looked up in the local index instead of the DBpedia endpoint
+     */
+    public boolean hasSameAsIndex() {
+        return sameAsIndex != null;
+    }
 
-        if (!resultSet.hasNext()) {
-            throw new RuntimeException("No resource found");
+    /**
+     * @param executableQuery query returning the variables ?originResource and ?resource
+     * @return the equivalent resources of each origin resource, origin resources without
+     * an equivalent resource are not contained
+     */
+    public Map<String, List<RDFNode>> fetchEquivalentResources(String executableQuery) throws RuntimeException {
+        Map<String, List<RDFNode>> equivalentResources = new LinkedHashMap<>();
+        try (QueryExecution queryExecution = rdfConnection.query(executableQuery)) {
+            ResultSet resultSet = queryExecution.execSelect();
+            while (resultSet.hasNext()) {
+                QuerySolution querySolution = resultSet.next();
+                String originResource = querySolution.getResource("originResource").getURI();
+                equivalentResources.computeIfAbsent(originResource, key -> new ArrayList<>()).add(querySolution.getResource("resource"));
+            }
         }
-        while (resultSet.hasNext()) {
-            QuerySolution querySolution = resultSet.next();
-            RDFNode newResource = querySolution.getResource("resource");
-            equivalentResources.add(newResource);
+        return equivalentResources;
+    }
+
+    /**
+     * looks up the equivalent resources in the local index
+     *
+     * @param originResources  the resources to be translated
+     * @param originIsSubject  true for links ?originResource owl:sameAs ?resource, false for links
+     *                         ?resource owl:sameAs ?originResource
+     * @param resourcePrefix   the prefix of the returned resources
+     * @return the equivalent resources of each origin resource, origin resources without
+     * an equivalent resource are not contained
+     */
+    public Map<String, List<RDFNode>> lookupEquivalentResources(Collection<String> originResources, boolean originIsSubject, String resourcePrefix) {
+        Map<String, List<RDFNode>> equivalentResources = new LinkedHashMap<>();
+        for (String originResource : originResources) {
+            List<String> linkedResources = originIsSubject ? sameAsIndex.getObjects(originResource) : sameAsIndex.getSubjects(originResource);
+            for (String linkedResource : linkedResources) {
+                if (linkedResource.startsWith(resourcePrefix)) {
+                    equivalentResources.computeIfAbsent(originResource, key -> new ArrayList<>()).add(ResourceFactory.createResource(linkedResource));
+                }
+            }
         }
         return equivalentResources;
     }
 
+    @PreDestroy
+    public void closeSameAsIndex() throws IOException {
+        if (sameAsIndex != null) {
+            sameAsIndex.close();
+        }
+    }
+
 }
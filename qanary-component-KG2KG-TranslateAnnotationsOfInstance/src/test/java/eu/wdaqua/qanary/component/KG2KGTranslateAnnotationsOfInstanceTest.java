@@ -2,18 +2,25 @@ package eu.wdaqua.qanary.component;
 
 
 import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnector;
+import eu.wdaqua.qanary.component.cache.EquivalentResourceCache;
 import eu.wdaqua.qanary.component.pojos.AnnotationOfInstancePojo;
 import eu.wdaqua.qanary.component.repositories.KG2KGTranslateAnnotationsOfInstanceRepository;
 import eu.wdaqua.qanary.exceptions.SparqlQueryFailed;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdfconnection.RDFConnection;
+import org.apache.jena.update.UpdateAction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
@@ -21,10 +28,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,6 +52,8 @@ public class KG2KGTranslateAnnotationsOfInstanceTest {
     private KG2KGTranslateAnnotationsOfInstance kg2KGTranslateAnnotationsOfInstance;
     @Autowired
     private KG2KGTranslateAnnotationsOfInstanceRepository kg2KGTranslateAnnotationsOfInstanceRepository;
+    @Autowired
+    private EquivalentResourceCache equivalentResourceCache;
 
     @Nested
     class Step1Tests {
@@ -76,6 +88,8 @@ public class KG2KGTranslateAnnotationsOfInstanceTest {
         public void setup() {
             Dataset dataset = testDataProvider.getDataset();
             kg2KGTranslateAnnotationsOfInstanceRepository.setRdfConnection(dataset);
+            // the results of other datasets must not be used
+            equivalentResourceCache.clear();
         }
 
         // Querying on an empty dataset results in exception
@@ -138,18 +152,91 @@ public class KG2KGTranslateAnnotationsOfInstanceTest {
             // The dataset is about Leipzig and the List contains 3 annotation objects where only one annotation includes Leipzig as a originResource
             assertEquals(1, newList.size());
         }
+    }
+
+    /**
+     * the equivalent resources of all annotations are fetched by one query per direction
+     */
+    @Nested
+    class BatchedLookupTests {
+
+        private KG2KGTranslateAnnotationsOfInstanceRepository repository;
+        private KG2KGTranslateAnnotationsOfInstance component;
+
+        @BeforeEach
+        public void setup() {
+            repository = Mockito.spy(new KG2KGTranslateAnnotationsOfInstanceRepository());
+            repository.setRdfConnection(testDataProvider.getDataset());
+            component = new KG2KGTranslateAnnotationsOfInstance("KG2KGTranslateAnnotationsOfInstance");
+            ReflectionTestUtils.setField(component, "kg2KGTranslateAnnotationsOfInstanceRepository", repository);
+            ReflectionTestUtils.setField(component, "equivalentResourceCache", new EquivalentResourceCache(
+                    EquivalentResourceCache.DEFAULT_MAX_SIZE, EquivalentResourceCache.DEFAULT_TTL_MS, EquivalentResourceCache.DEFAULT_NEGATIVE_TTL_MS));
+        }
+
+        /**
+         * executes the query for a single origin resource
+         */
+        private List<RDFNode> fetchEquivalentResource(String query, String originResource) throws IOException {
+            QuerySolutionMap bindingsForQuery = new QuerySolutionMap();
+            bindingsForQuery.add("originResource", ResourceFactory.createResource(originResource));
+            List<RDFNode> equivalentResources = new ArrayList<>();
+            try (QueryExecution queryExecution = QueryExecutionFactory.create(
+                    QanaryTripleStoreConnector.readFileFromResourcesWithMap(query, bindingsForQuery), testDataProvider.getDataset())) {
+                queryExecution.execSelect().forEachRemaining(querySolution -> equivalentResources.add(querySolution.getResource("resource")));
+            }
+            return equivalentResources;
+        }
+
+        private List<AnnotationOfInstancePojo> createAnnotations(String... originResources) {
+            List<AnnotationOfInstancePojo> annotations = new ArrayList<>();
+            for (int i = 0; i < originResources.length; i++) {
+                annotations.add(new AnnotationOfInstancePojo("annoID" + i, originResources[i], "targetQuestion", i, i + 1, 0.5d));
+            }
+            return annotations;
+        }
 
         @Test
-        public void getResourceRequestQueryTest() throws IOException {
-            String resourceRequestQuery = kg2KGTranslateAnnotationsOfInstance.getResourceRequestQuery(DBPEDIA_TO_WIKIDATA_QUERY, originResourceDbpedia);
-            String insertedResource = "<" + originResourceDbpedia + ">" + "owl:sameAs?resource";
+        public void oneQueryPerDirectionTest() throws IOException {
+            List<AnnotationOfInstancePojo> annotations = createAnnotations(
+                    "http://dbpedia.org/resource/Leipzig", "http://www.wikidata.org/entity/Q2079",
+                    "http://dbpedia.org/resource/Hulk", "http://dbpedia.org/resource/Leipzig",
+                    "http://www.wikidata.org/entity/Q1", "http://dbpedia.org/resource/Batman");
 
-            logger.info("Test getResourceRequestQueryTest, insertedResource: {}", insertedResource);
+            List<AnnotationOfInstancePojo> computed = component.computeEquivalentResources(annotations);
 
-            assertTrue(StringUtils.trimAllWhitespace(resourceRequestQuery).contains(insertedResource));
+            Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+            assertEquals(List.of("annoID0", "annoID1", "annoID3"),
+                    computed.stream().map(AnnotationOfInstancePojo::getAnnotationId).collect(Collectors.toList()));
         }
 
+        @Test
+        public void sameResultAsSingleQueriesTest() throws IOException {
+            List<AnnotationOfInstancePojo> computed = component.computeEquivalentResources(
+                    createAnnotations("http://dbpedia.org/resource/Leipzig", "http://www.wikidata.org/entity/Q2079"));
+
+            assertEquals(2, computed.size());
+            assertEquals(fetchEquivalentResource(DBPEDIA_TO_WIKIDATA_QUERY, "http://dbpedia.org/resource/Leipzig"),
+                    computed.get(0).getNewResources());
+            assertEquals(fetchEquivalentResource(WIKIDATA_TO_DBPEDIA_QUERY, "http://www.wikidata.org/entity/Q2079"),
+                    computed.get(1).getNewResources());
+        }
 
+        @Test
+        public void noQueryWithoutAnnotationsTest() throws IOException {
+            assertTrue(component.computeEquivalentResources(new ArrayList<>()).isEmpty());
+
+            Mockito.verify(repository, Mockito.never()).fetchEquivalentResources(any());
+        }
+
+        @Test
+        public void getResourcesRequestQueryTest() throws IOException {
+            String query = component.getResourcesRequestQuery(DBPEDIA_TO_WIKIDATA_QUERY,
+                    List.of("http://dbpedia.org/resource/Leipzig", "http://dbpedia.org/resource/Hulk"));
+
+            String trimmedQuery = StringUtils.trimAllWhitespace(query);
+            assertTrue(trimmedQuery.contains("VALUES?originResource{<http://dbpedia.org/resource/Leipzig><http://dbpedia.org/resource/Hulk>}"), query);
+            assertTrue(trimmedQuery.contains("?originResourceowl:sameAs?resource") || trimmedQuery.contains("?originResource<http://www.w3.org/2002/07/owl#sameAs>?resource"), query);
+        }
     }
 
     @Nested
@@ -168,7 +255,35 @@ public class KG2KGTranslateAnnotationsOfInstanceTest {
             List<AnnotationOfInstancePojo> list = testDataProvider.getAnnotationOfInstanceCompletePojoList();
             kg2KGTranslateAnnotationsOfInstance.updateTriplestore(list, graphID, qanaryTripleStoreConnector);
 
-            Mockito.verify(this.qanaryTripleStoreConnector, Mockito.times(5)).update(any());
+            // all 5 annotations are inserted by a single request
+            Mockito.verify(this.qanaryTripleStoreConnector, Mockito.times(1)).update(any());
+        }
+
+        @Test
+        public void updateTriplestoreInsertsAllAnnotationsTest() throws IOException, SparqlQueryFailed {
+            List<AnnotationOfInstancePojo> list = testDataProvider.getAnnotationOfInstanceCompletePojoList();
+            ArgumentCaptor<String> update = ArgumentCaptor.forClass(String.class);
+            kg2KGTranslateAnnotationsOfInstance.updateTriplestore(list, graphID, qanaryTripleStoreConnector);
+            Mockito.verify(this.qanaryTripleStoreConnector).update(update.capture());
+
+            Dataset dataset = DatasetFactory.create();
+            UpdateAction.parseExecute(update.getValue(), dataset);
+            try (QueryExecution queryExecution = QueryExecutionFactory.create("" //
+                    + "PREFIX qa: <http://www.wdaqua.eu/qa#> PREFIX oa: <http://www.w3.org/ns/openannotation/core/> " //
+                    + "SELECT ?resource WHERE { GRAPH <" + graphID + "> { ?a a qa:AnnotationOfInstance ; oa:hasBody ?resource . } } ORDER BY ?resource", dataset)) {
+                List<String> resources = new ArrayList<>();
+                queryExecution.execSelect().forEachRemaining(solution -> resources.add(solution.getResource("resource").getURI()));
+                assertEquals(List.of("http://wikidata.org/entity/Q113624612", "http://wikidata.org/entity/Q2079",
+                        "http://wikidata.org/entity/Q3677461", "http://www.wikidata.org/entity/Q188760",
+                        "http://www.wikidata.org/entity/Q2695156"), resources);
+            }
+        }
+
+        @Test
+        public void updateTriplestoreWithoutAnnotationsTest() throws IOException, SparqlQueryFailed {
+            kg2KGTranslateAnnotationsOfInstance.updateTriplestore(new ArrayList<>(), graphID, qanaryTripleStoreConnector);
+
+            Mockito.verify(this.qanaryTripleStoreConnector, Mockito.never()).update(any());
         }
 
     }
@@ -0,0 +1,170 @@
+package eu.wdaqua.qanary.component.cache;
+
+import eu.wdaqua.qanary.component.KG2KGTranslateAnnotationsOfInstance;
+import eu.wdaqua.qanary.component.TestDataProvider;
+import eu.wdaqua.qanary.component.pojos.AnnotationOfInstancePojo;
+import eu.wdaqua.qanary.component.repositories.KG2KGTranslateAnnotationsOfInstanceRepository;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class EquivalentResourceCacheTest {
+
+    private static final String DBPEDIA_TO_WIKIDATA_QUERY = "/queries/dbpediaToWikidata.rq";
+    private static final String WIKIDATA_TO_DBPEDIA_QUERY = "/queries/wikidataToDbpedia.rq";
+    private static final long TTL_MS = 60000;
+    private static final long NEGATIVE_TTL_MS = 10000;
+
+    private final TestDataProvider testDataProvider = new TestDataProvider();
+    private final AtomicLong now = new AtomicLong(1000);
+    private EquivalentResourceCache cache;
+    private KG2KGTranslateAnnotationsOfInstanceRepository repository;
+    private KG2KGTranslateAnnotationsOfInstance component;
+
+    @BeforeEach
+    public void setup() {
+        cache = new EquivalentResourceCache(100, TTL_MS, NEGATIVE_TTL_MS, now::get);
+        repository = Mockito.spy(new KG2KGTranslateAnnotationsOfInstanceRepository());
+        repository.setRdfConnection(testDataProvider.getDataset());
+        component = new KG2KGTranslateAnnotationsOfInstance("KG2KGTranslateAnnotationsOfInstance");
+        ReflectionTestUtils.setField(component, "kg2KGTranslateAnnotationsOfInstanceRepository", repository);
+        ReflectionTestUtils.setField(component, "equivalentResourceCache", cache);
+    }
+
+    /**
+     * annotations of a question containing mapped (Leipzig, Q2079) and unmapped (Hulk, Q1) resources
+     */
+    private List<AnnotationOfInstancePojo> createQuestion() {
+        String[] originResources = {"http://dbpedia.org/resource/Leipzig", "http://www.wikidata.org/entity/Q2079",
+                "http://dbpedia.org/resource/Hulk", "http://www.wikidata.org/entity/Q1"};
+        List<AnnotationOfInstancePojo> annotations = new ArrayList<>();
+        for (int i = 0; i < originResources.length; i++) {
+            annotations.add(new AnnotationOfInstancePojo("annoID" + i, originResources[i], "targetQuestion", i, i + 1, 0.5d));
+        }
+        return annotations;
+    }
+
+    private static List<String> getNewResources(List<AnnotationOfInstancePojo> annotations) {
+        return annotations.stream().flatMap(annotation -> annotation.getNewResources().stream())
+                .map(RDFNode::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void repeatedQuestionsAreAnsweredByTheCacheTest() throws IOException {
+        List<String> newResources = getNewResources(component.computeEquivalentResources(createQuestion()));
+        Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(500);
+            assertEquals(newResources, getNewResources(component.computeEquivalentResources(createQuestion())));
+        }
+
+        // no further queries, the unmapped resources are remembered as well
+        Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+        assertEquals(20, cache.getHitCount(DBPEDIA_TO_WIKIDATA_QUERY));
+        assertEquals(2, cache.getMissCount(DBPEDIA_TO_WIKIDATA_QUERY));
+        assertEquals(20, cache.getHitCount(WIKIDATA_TO_DBPEDIA_QUERY));
+        assertEquals(2, cache.getMissCount(WIKIDATA_TO_DBPEDIA_QUERY));
+        assertEquals(2, cache.size(DBPEDIA_TO_WIKIDATA_QUERY));
+    }
+
+    @Test
+    void negativeEntriesExpireFirstTest() throws IOException {
+        component.computeEquivalentResources(createQuestion());
+        Mockito.clearInvocations(repository);
+
+        now.addAndGet(NEGATIVE_TTL_MS);
+        assertEquals(2, component.computeEquivalentResources(createQuestion()).size());
+
+        // only the unmapped resources are requested again
+        Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+        assertEquals(3, cache.getMissCount(DBPEDIA_TO_WIKIDATA_QUERY));
+        String dbpediaQuery = component.getResourcesRequestQuery(DBPEDIA_TO_WIKIDATA_QUERY, List.of("http://dbpedia.org/resource/Hulk"));
+        Mockito.verify(repository).fetchEquivalentResources(dbpediaQuery);
+
+        now.addAndGet(TTL_MS - NEGATIVE_TTL_MS);
+        Mockito.clearInvocations(repository);
+        assertEquals(2, component.computeEquivalentResources(createQuestion()).size());
+
+        // the positive entries are expired as well
+        Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+        String allResourcesQuery = component.getResourcesRequestQuery(DBPEDIA_TO_WIKIDATA_QUERY,
+                List.of("http://dbpedia.org/resource/Leipzig", "http://dbpedia.org/resource/Hulk"));
+        Mockito.verify(repository).fetchEquivalentResources(allResourcesQuery);
+    }
+
+    @Test
+    void singleLookupUsesTheCacheTest() throws IOException {
+        component.computeEquivalentResources(createQuestion());
+
+        assertEquals(3, component.getEquivalentResource(DBPEDIA_TO_WIKIDATA_QUERY, "http://dbpedia.org/resource/Leipzig").size());
+        assertThrows(RuntimeException.class,
+                () -> component.getEquivalentResource(DBPEDIA_TO_WIKIDATA_QUERY, "http://dbpedia.org/resource/Hulk"));
+        assertNull(component.computeEquivalentResource("http://www.wikidata.org/entity/Q1"));
+
+        Mockito.verify(repository, Mockito.times(2)).fetchEquivalentResources(any());
+    }
+
+    @Test
+    void failedRequestsAreNotCachedTest() throws IOException {
+        Mockito.doThrow(new RuntimeException("connection refused")).when(repository).fetchEquivalentResources(any());
+        assertTrue(component.computeEquivalentResources(createQuestion()).isEmpty());
+        assertEquals(0, cache.size(DBPEDIA_TO_WIKIDATA_QUERY));
+
+        Mockito.doCallRealMethod().when(repository).fetchEquivalentResources(any());
+        assertEquals(2, component.computeEquivalentResources(createQuestion()).size());
+    }
+
+    @Test
+    void directionsAreCachedSeparatelyTest() {
+        List<RDFNode> wikidataResources = List.of(ResourceFactory.createResource("http://www.wikidata.org/entity/Q2079"));
+        cache.put(DBPEDIA_TO_WIKIDATA_QUERY, "http://dbpedia.org/resource/Leipzig", wikidataResources);
+
+        assertEquals(wikidataResources, cache.get(DBPEDIA_TO_WIKIDATA_QUERY, "http://dbpedia.org/resource/Leipzig"));
+        assertNull(cache.get(WIKIDATA_TO_DBPEDIA_QUERY, "http://dbpedia.org/resource/Leipzig"));
+        assertEquals(1, cache.getHitCount(DBPEDIA_TO_WIKIDATA_QUERY));
+        assertEquals(1, cache.getMissCount(WIKIDATA_TO_DBPEDIA_QUERY));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedTest() {
+        EquivalentResourceCache smallCache = new EquivalentResourceCache(2, TTL_MS, NEGATIVE_TTL_MS, now::get);
+        smallCache.put(DBPEDIA_TO_WIKIDATA_QUERY, "a", null);
+        smallCache.put(DBPEDIA_TO_WIKIDATA_QUERY, "b", null);
+        assertNotNull(smallCache.get(DBPEDIA_TO_WIKIDATA_QUERY, "a"));
+        smallCache.put(DBPEDIA_TO_WIKIDATA_QUERY, "c", null);
+
+        assertEquals(2, smallCache.size(DBPEDIA_TO_WIKIDATA_QUERY));
+        assertNotNull(smallCache.get(DBPEDIA_TO_WIKIDATA_QUERY, "a"));
+        assertNull(smallCache.get(DBPEDIA_TO_WIKIDATA_QUERY, "b"));
+        assertNotNull(smallCache.get(DBPEDIA_TO_WIKIDATA_QUERY, "c"));
+    }
+
+    @Test
+    void disabledCacheTest() throws IOException {
+        ReflectionTestUtils.setField(component, "equivalentResourceCache", new EquivalentResourceCache(0, TTL_MS, NEGATIVE_TTL_MS));
+
+        component.computeEquivalentResources(createQuestion());
+        component.computeEquivalentResources(createQuestion());
+
+        Mockito.verify(repository, Mockito.times(4)).fetchEquivalentResources(any());
+    }
+
+    @Test
+    void invalidConfigurationTest() {
+        assertThrows(IllegalArgumentException.class, () -> new EquivalentResourceCache(-1, TTL_MS, NEGATIVE_TTL_MS));
+        assertThrows(IllegalArgumentException.class, () -> new EquivalentResourceCache(100, TTL_MS, -1));
+    }
+}
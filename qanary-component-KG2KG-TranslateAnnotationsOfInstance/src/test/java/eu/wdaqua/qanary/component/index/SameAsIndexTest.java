@@ -0,0 +1,203 @@
+package eu.wdaqua.qanary.component.index;
+
+import eu.wdaqua.qanary.component.KG2KGTranslateAnnotationsOfInstance;
+import eu.wdaqua.qanary.component.cache.EquivalentResourceCache;
+import eu.wdaqua.qanary.component.pojos.AnnotationOfInstancePojo;
+import eu.wdaqua.qanary.component.repositories.KG2KGTranslateAnnotationsOfInstanceRepository;
+import org.apache.jena.rdf.model.RDFNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class SameAsIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SameAsIndexTest.class);
+    private static final String SAME_AS = "<" + SameAsIndexBuilder.OWL_SAME_AS + ">";
+    private static final String DBPEDIA_RESOURCE = "http://dbpedia.org/resource/";
+    private static final String WIKIDATA_ENTITY = "http://www.wikidata.org/entity/";
+
+    @TempDir
+    Path directory;
+
+    private static String link(String subject, String object) {
+        return "<" + subject + "> " + SAME_AS + " <" + object + "> .\n";
+    }
+
+    /**
+     * small dump containing links between DBpedia, Wikidata and other knowledge graphs, duplicates and
+     * triples that are not indexed
+     */
+    private static void writeSmallDump(Writer dump) throws IOException {
+        dump.write("# owl:sameAs links\n\n");
+        dump.write(link(DBPEDIA_RESOURCE + "Leipzig", WIKIDATA_ENTITY + "Q2079"));
+        dump.write(link(DBPEDIA_RESOURCE + "Leipzig", WIKIDATA_ENTITY + "Q3677461"));
+        dump.write(link(DBPEDIA_RESOURCE + "Leipzig", "http://de.dbpedia.org/resource/Leipzig"));
+        dump.write(link(DBPEDIA_RESOURCE + "Leipzig", WIKIDATA_ENTITY + "Q2079"));
+        dump.write(link(DBPEDIA_RESOURCE + "Dresden", WIKIDATA_ENTITY + "Q1731"));
+        dump.write(link(DBPEDIA_RESOURCE + "Dresden_(disambiguation)", WIKIDATA_ENTITY + "Q1731"));
+        dump.write(link(DBPEDIA_RESOURCE + "K%C3%B6ln", WIKIDATA_ENTITY + "Q365"));
+        dump.write(link(DBPEDIA_RESOURCE + "Köln", WIKIDATA_ENTITY + "Q365"));
+        dump.write(link("http://example.org/ontology#Thing", "http://www.w3.org/2002/07/owl#Thing"));
+        dump.write("<" + DBPEDIA_RESOURCE + "Berlin> <http://www.w3.org/2000/01/rdf-schema#label> \"Berlin\"@en .\n");
+        dump.write("<" + DBPEDIA_RESOURCE + "Berlin> " + SAME_AS + " \"Berlin\" .\n");
+        dump.write("_:b0 " + SAME_AS + " <" + WIKIDATA_ENTITY + "Q64> .\n");
+    }
+
+    private SameAsIndex buildSmallIndex(String dumpFileName, int chunkSize) throws IOException {
+        Path dump = directory.resolve(dumpFileName);
+        try (Writer writer = new OutputStreamWriter(dumpFileName.endsWith(".gz")
+                ? new GZIPOutputStream(Files.newOutputStream(dump)) : Files.newOutputStream(dump), StandardCharsets.UTF_8)) {
+            writeSmallDump(writer);
+        }
+        Path index = directory.resolve("sameas.idx");
+        assertEquals(8, new SameAsIndexBuilder(chunkSize).build(dump, index));
+        return SameAsIndex.open(index);
+    }
+
+    @Test
+    void lookupsInBothDirectionsTest() throws IOException {
+        try (SameAsIndex index = buildSmallIndex("dump.nt", SameAsIndexBuilder.DEFAULT_CHUNK_SIZE)) {
+            assertEquals(8, index.size());
+            assertEquals(List.of(WIKIDATA_ENTITY + "Q2079", WIKIDATA_ENTITY + "Q3677461", "http://de.dbpedia.org/resource/Leipzig"),
+                    index.getObjects(DBPEDIA_RESOURCE + "Leipzig"));
+            assertEquals(List.of(DBPEDIA_RESOURCE + "Leipzig"), index.getSubjects(WIKIDATA_ENTITY + "Q2079"));
+            assertEquals(List.of(DBPEDIA_RESOURCE + "Dresden", DBPEDIA_RESOURCE + "Dresden_(disambiguation)"),
+                    index.getSubjects(WIKIDATA_ENTITY + "Q1731"));
+            // ordered by the length of the UTF-8 encoded local names
+            assertEquals(List.of(DBPEDIA_RESOURCE + "Köln", DBPEDIA_RESOURCE + "K%C3%B6ln"), index.getSubjects(WIKIDATA_ENTITY + "Q365"));
+            assertEquals(List.of(WIKIDATA_ENTITY + "Q365"), index.getObjects(DBPEDIA_RESOURCE + "Köln"));
+            assertEquals(List.of("http://www.w3.org/2002/07/owl#Thing"), index.getObjects("http://example.org/ontology#Thing"));
+
+            // not indexed
+            assertTrue(index.getObjects(DBPEDIA_RESOURCE + "Berlin").isEmpty());
+            assertTrue(index.getSubjects(WIKIDATA_ENTITY + "Q64").isEmpty());
+            assertTrue(index.getObjects(WIKIDATA_ENTITY + "Q2079").isEmpty());
+            assertTrue(index.getObjects(DBPEDIA_RESOURCE + "Leipzi").isEmpty());
+            assertTrue(index.getObjects("http://unknown.org/resource/Leipzig").isEmpty());
+        }
+    }
+
+    @Test
+    void multipleSortedRunsTest() throws IOException {
+        // each run contains only a few links, the runs are merged
+        try (SameAsIndex index = buildSmallIndex("dump.nt.gz", 128)) {
+            assertEquals(8, index.size());
+            assertEquals(List.of(WIKIDATA_ENTITY + "Q2079", WIKIDATA_ENTITY + "Q3677461", "http://de.dbpedia.org/resource/Leipzig"),
+                    index.getObjects(DBPEDIA_RESOURCE + "Leipzig"));
+            assertEquals(List.of(DBPEDIA_RESOURCE + "Dresden", DBPEDIA_RESOURCE + "Dresden_(disambiguation)"),
+                    index.getSubjects(WIKIDATA_ENTITY + "Q1731"));
+        }
+        // the temporary files are removed
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("dump.nt.gz", "sameas.idx"), files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void invalidIndexFileTest() throws IOException {
+        Path file = directory.resolve("invalid.idx");
+        Files.writeString(file, "this is not an index of owl:sameAs links");
+        assertThrows(IOException.class, () -> SameAsIndex.open(file));
+    }
+
+    @Test
+    void translationWithoutSparqlEndpointTest() throws IOException {
+        KG2KGTranslateAnnotationsOfInstanceRepository repository = Mockito.spy(new KG2KGTranslateAnnotationsOfInstanceRepository());
+        KG2KGTranslateAnnotationsOfInstance component = new KG2KGTranslateAnnotationsOfInstance("KG2KGTranslateAnnotationsOfInstance");
+        ReflectionTestUtils.setField(component, "kg2KGTranslateAnnotationsOfInstanceRepository", repository);
+        ReflectionTestUtils.setField(component, "equivalentResourceCache", new EquivalentResourceCache(0, 0, 0));
+
+        try (SameAsIndex index = buildSmallIndex("dump.nt", SameAsIndexBuilder.DEFAULT_CHUNK_SIZE)) {
+            repository.setSameAsIndex(index);
+            List<AnnotationOfInstancePojo> annotations = new ArrayList<>(List.of(
+                    new AnnotationOfInstancePojo("annoID1", DBPEDIA_RESOURCE + "Leipzig", "targetQuestion", 1, 2, 0.5d),
+                    new AnnotationOfInstancePojo("annoID2", WIKIDATA_ENTITY + "Q1731", "targetQuestion", 3, 4, 0.6d),
+                    new AnnotationOfInstancePojo("annoID3", DBPEDIA_RESOURCE + "Berlin", "targetQuestion", 5, 6, 0.7d)));
+
+            List<AnnotationOfInstancePojo> computed = component.computeEquivalentResources(annotations);
+
+            assertEquals(2, computed.size());
+            // only the Wikidata resources are used
+            assertEquals(List.of(WIKIDATA_ENTITY + "Q2079", WIKIDATA_ENTITY + "Q3677461"),
+                    computed.get(0).getNewResources().stream().map(RDFNode::toString).collect(Collectors.toList()));
+            assertEquals(List.of(DBPEDIA_RESOURCE + "Dresden", DBPEDIA_RESOURCE + "Dresden_(disambiguation)"),
+                    computed.get(1).getNewResources().stream().map(RDFNode::toString).collect(Collectors.toList()));
+            assertNull(component.computeEquivalentResource(DBPEDIA_RESOURCE + "Berlin"));
+            Mockito.verify(repository, Mockito.never()).fetchEquivalentResources(any());
+        }
+    }
+
+    /**
+     * builds an index of 10M synthetic links and measures the latency of random lookups,
+     * executed only if the system property sameas.index.performance.test.active is true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "sameas.index.performance.test.active", matches = "true")
+    void lookupLatencyOf10MillionLinksTest() throws IOException {
+        int numberOfLinks = 10_000_000;
+        Path dump = directory.resolve("synthetic.nt");
+        try (BufferedWriter writer = Files.newBufferedWriter(dump, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < numberOfLinks; i++) {
+                writer.write(link(DBPEDIA_RESOURCE + "Entity_" + i, WIKIDATA_ENTITY + "Q" + (7L * i + 1)));
+            }
+        }
+        Path indexFile = directory.resolve("synthetic.idx");
+        long start = System.currentTimeMillis();
+        assertEquals(numberOfLinks, new SameAsIndexBuilder().build(dump, indexFile));
+        logger.info("built index of {} links in {} ms ({} bytes)", numberOfLinks, System.currentTimeMillis() - start, Files.size(indexFile));
+        Files.delete(dump);
+
+        try (SameAsIndex index = SameAsIndex.open(indexFile)) {
+            Random random = new Random(42);
+            int numberOfLookups = 100_000;
+            // warm up, the pages of the file are loaded
+            for (int i = 0; i < numberOfLookups; i++) {
+                index.getObjects(DBPEDIA_RESOURCE + "Entity_" + random.nextInt(numberOfLinks));
+            }
+
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < numberOfLookups; i++) {
+                int entity = random.nextInt(numberOfLinks);
+                assertEquals(List.of(WIKIDATA_ENTITY + "Q" + (7L * entity + 1)), index.getObjects(DBPEDIA_RESOURCE + "Entity_" + entity));
+                assertEquals(List.of(DBPEDIA_RESOURCE + "Entity_" + entity), index.getSubjects(WIKIDATA_ENTITY + "Q" + (7L * entity + 1)));
+            }
+            double averageMicros = (System.nanoTime() - startNanos) / 1000.0 / (2 * numberOfLookups);
+            logger.info("average lookup latency: {} µs", averageMicros);
+            assertTrue(averageMicros < 100, averageMicros + " µs");
+
+            assertTrue(index.getObjects(DBPEDIA_RESOURCE + "Entity_" + numberOfLinks).isEmpty());
+            assertTrue(index.getSubjects(WIKIDATA_ENTITY + "Q2").isEmpty());
+        }
+    }
+
+    @Test
+    void parseLinkTest() {
+        assertArrayEquals(new String[]{"http://a", "http://b"}, SameAsIndexBuilder.parseLink("<http://a> " + SAME_AS + " <http://b> ."));
+        assertArrayEquals(new String[]{"http://a", "http://b"}, SameAsIndexBuilder.parseLink("  <http://a>\t" + SAME_AS + "\t<http://b>."));
+        assertNull(SameAsIndexBuilder.parseLink("# <http://a> " + SAME_AS + " <http://b> ."));
+        assertNull(SameAsIndexBuilder.parseLink("<http://a> <http://www.w3.org/2002/07/owl#sameAsX> <http://b> ."));
+        assertNull(SameAsIndexBuilder.parseLink("<http://a> " + SAME_AS + " \"b\" ."));
+        assertNull(SameAsIndexBuilder.parseLink("_:a " + SAME_AS + " <http://b> ."));
+        assertNull(SameAsIndexBuilder.parseLink(""));
+    }
+}
@@ -0,0 +1,251 @@
+package eu.wdaqua.qanary.component.shuyo.ld;
+
+import com.cybozu.labs.langdetect.Language;
+import com.cybozu.labs.langdetect.util.LangProfile;
+import com.cybozu.labs.langdetect.util.NGram;
+import net.arnx.jsonic.JSON;
+
+import java.lang.Character.UnicodeBlock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * deterministic alternative to the randomized com.cybozu.labs.langdetect.Detector
+ *
+ * The Detector estimates the language probabilities by several trials, each
+ * multiplying the probabilities of randomly sampled n-grams until the
+ * probabilities converge. For short texts (e.g., questions) it is cheaper to
+ * compute the probabilities exactly: the log-probabilities of all n-grams of
+ * the text are summed up per language and normalized afterwards. The text is
+ * cleaned and split into n-grams exactly like the Detector does it, the
+ * smoothing parameter is the mean of the randomized smoothing parameters of the
+ * Detector. The probabilities are kept in a NGramProfileStore, thus, the
+ * detection does not create n-gram Strings.
+ *
+ * Instances are immutable and might be shared between threads.
+ */
+public class DeterministicDetector {
+	private static final double ALPHA = 0.5;
+	private static final int BASE_FREQ = 10000;
+	private static final double PROB_THRESHOLD = 0.1;
+
+	private static final Pattern URL_REGEX = Pattern.compile("https?://[-_.?&~;+=/#0-9A-Za-z]{1,2076}");
+	private static final Pattern MAIL_REGEX = Pattern
+			.compile("[-_.0-9A-Za-z]{1,64}@[-_0-9A-Za-z]{1,255}[-_.0-9A-Za-z]{1,255}");
+
+	// smoothed log-probabilities of each n-gram for each language of langlist
+	private final NGramProfileStore wordLangLogProbStore;
+	private final List<String> langlist = new ArrayList<>();
+	private final int maxTextLength;
+
+	/**
+	 * @param jsonProfiles  language profiles as used by
+	 *                      DetectorFactory.loadProfile(List)
+	 * @param maxTextLength the maximum number of characters of a text that are
+	 *                      considered
+	 */
+	public DeterministicDetector(List<String> jsonProfiles, int maxTextLength) {
+		this.maxTextLength = maxTextLength;
+
+		List<LangProfile> profiles = new ArrayList<>();
+		Set<String> words = new HashSet<>();
+		for (String json : jsonProfiles) {
+			LangProfile profile = JSON.decode(json, LangProfile.class);
+			if (langlist.contains(profile.name)) {
+				throw new IllegalArgumentException("duplicate language profile: " + profile.name);
+			}
+			langlist.add(profile.name);
+			profiles.add(profile);
+			for (String word : profile.freq.keySet()) {
+				// longer words are never extracted from a text
+				if (word.length() >= 1 && word.length() <= NGram.N_GRAM) {
+					words.add(word);
+				}
+			}
+		}
+
+		// same probabilities as computed in DetectorFactory.addProfile
+		this.wordLangLogProbStore = new NGramProfileStore(profiles.size(), words.size());
+		for (int index = 0; index < profiles.size(); index++) {
+			LangProfile profile = profiles.get(index);
+			for (Map.Entry<String, Integer> entry : profile.freq.entrySet()) {
+				int length = entry.getKey().length();
+				if (length >= 1 && length <= NGram.N_GRAM) {
+					wordLangLogProbStore.put(entry.getKey(), index,
+							entry.getValue().doubleValue() / profile.n_words[length - 1]);
+				}
+			}
+		}
+
+		double weight = ALPHA / BASE_FREQ;
+		wordLangLogProbStore.transformValues(p -> Math.log(weight + p));
+	}
+
+	/**
+	 * @return the language with the highest probability, null if the text does not
+	 *         contain any known n-gram
+	 */
+	public String detect(String text) {
+		List<Language> probabilities = getProbabilities(text);
+		return probabilities.isEmpty() ? null : probabilities.get(0).lang;
+	}
+
+	/**
+	 * @return the languages having a probability over 0.1 ordered by their
+	 *         probabilities descendingly, an empty list if the text does not
+	 *         contain any known n-gram
+	 */
+	public List<Language> getProbabilities(String text) {
+		double[] logProb = computeLogProbabilities(cleanText(text));
+		List<Language> result = new ArrayList<>();
+		if (logProb == null) {
+			return result;
+		}
+
+		// normalize in log space to prevent underflows
+		double max = Double.NEGATIVE_INFINITY;
+		for (double p : logProb) {
+			max = Math.max(max, p);
+		}
+		double sum = 0;
+		for (int j = 0; j < logProb.length; j++) {
+			logProb[j] = Math.exp(logProb[j] - max);
+			sum += logProb[j];
+		}
+		for (int j = 0; j < logProb.length; j++) {
+			double p = logProb[j] / sum;
+			if (p > PROB_THRESHOLD) {
+				int i = 0;
+				while (i < result.size() && result.get(i).prob >= p) {
+					i++;
+				}
+				result.add(i, new Language(langlist.get(j), p));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the sum of the smoothed log-probabilities of all n-grams of the
+	 *         cleaned text for each language, null if the text does not contain
+	 *         any known n-gram
+	 */
+	double[] computeLogProbabilities(String cleanedText) {
+		double[] logProb = new double[langlist.size()];
+		int numberOfNGrams = 0;
+		// the last (up to 3) chars as in NGram, but without creating any String
+		char g0 = ' ';
+		char g1 = 0;
+		char g2 = 0;
+		int length = 1;
+		boolean capitalword = false;
+		for (int i = 0; i < cleanedText.length(); i++) {
+			char ch = NGram.normalize(cleanedText.charAt(i));
+			char lastchar = length == 1 ? g0 : (length == 2 ? g1 : g2);
+			if (lastchar == ' ') {
+				g0 = ' ';
+				length = 1;
+				capitalword = false;
+				if (ch == ' ') {
+					continue;
+				}
+			} else if (length >= NGram.N_GRAM) {
+				g0 = g1;
+				g1 = g2;
+				length--;
+			}
+			if (length == 1) {
+				g1 = ch;
+			} else {
+				g2 = ch;
+			}
+			length++;
+
+			if (Character.isUpperCase(ch)) {
+				if (Character.isUpperCase(lastchar)) {
+					capitalword = true;
+				}
+			} else {
+				capitalword = false;
+			}
+			if (capitalword) {
+				continue;
+			}
+
+			// 1-gram, 2-gram and 3-gram ending with the current char
+			if (ch != ' ') {
+				numberOfNGrams += add(NGramProfileStore.encode(ch), logProb);
+			}
+			if (length == 2) {
+				numberOfNGrams += add(NGramProfileStore.encode(g0, g1), logProb);
+			} else {
+				numberOfNGrams += add(NGramProfileStore.encode(g1, g2), logProb);
+				numberOfNGrams += add(NGramProfileStore.encode(g0, g1, g2), logProb);
+			}
+		}
+
+		return numberOfNGrams == 0 ? null : logProb;
+	}
+
+	/**
+	 * adds the log-probabilities of the n-gram to the given array
+	 * 
+	 * @return 1 if the n-gram is known, 0 otherwise
+	 */
+	private int add(long key, double[] logProb) {
+		int slot = wordLangLogProbStore.getSlot(key);
+		if (slot == NGramProfileStore.NOT_FOUND) {
+			return 0;
+		}
+		wordLangLogProbStore.addTo(slot, logProb);
+		return 1;
+	}
+
+	/**
+	 * same as Detector.append and Detector.cleaningText: removes URLs and e-mail
+	 * addresses, multiple spaces and Latin characters if the text is mainly not
+	 * written in Latin characters
+	 */
+	String cleanText(String text) {
+		text = URL_REGEX.matcher(text).replaceAll(" ");
+		text = MAIL_REGEX.matcher(text).replaceAll(" ");
+		text = NGram.normalize_vi(text);
+
+		StringBuilder cleanedText = new StringBuilder();
+		int latinCount = 0;
+		int nonLatinCount = 0;
+		char pre = 0;
+		for (int i = 0; i < text.length() && i < maxTextLength; i++) {
+			char c = text.charAt(i);
+			if (c != ' ' || pre != ' ') {
+				cleanedText.append(c);
+				if (c <= 'z' && c >= 'A') {
+					latinCount++;
+				} else if (c >= '\u0300' && UnicodeBlock.of(c) != UnicodeBlock.LATIN_EXTENDED_ADDITIONAL) {
+					nonLatinCount++;
+				}
+			}
+			pre = c;
+		}
+
+		if (latinCount * 2 < nonLatinCount) {
+			StringBuilder textWithoutLatin = new StringBuilder();
+			for (int i = 0; i < cleanedText.length(); i++) {
+				char c = cleanedText.charAt(i);
+				if (c > 'z' || c < 'A') {
+					textWithoutLatin.append(c);
+				}
+			}
+			return textWithoutLatin.toString();
+		}
+		return cleanedText.toString();
+	}
+
+	public List<String> getLanguages() {
+		return new ArrayList<>(langlist);
+	}
+}
@@ -13,13 +13,17 @@ import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -39,43 +43,83 @@ public class LanguageDetection extends QanaryComponent {
 	private final String FILENAME_ANNOTATIONS_FILTERED = "/queries/insert_one_annotation_of_question_language.rq";
 
 	private static final Logger logger = LoggerFactory.getLogger(LanguageDetection.class);
-	private static boolean languageProfileLoaded = false;
+	private static List<String> languageProfiles = null;
 	private final String applicationName;
+	private final DetectionMode detectionMode;
+	private final int deterministicMaxTextLength;
+	private final DeterministicDetector deterministicDetector;
 
-	public LanguageDetection(@Value("${spring.application.name}") final String applicationName)
-			throws IOException, LangDetectException {
+	/**
+	 * RANDOMIZED: the randomized trials of the langdetect Detector are used for all
+	 * texts
+	 * 
+	 * DETERMINISTIC: the language probabilities of short texts are computed exactly
+	 * by the DeterministicDetector, longer texts are processed by the langdetect
+	 * Detector
+	 */
+	public enum DetectionMode {
+		RANDOMIZED, DETERMINISTIC
+	}
+
+	public LanguageDetection(final String applicationName) throws IOException, LangDetectException {
+		this(applicationName, DetectionMode.RANDOMIZED, 0);
+	}
+
+	@Autowired
+	public LanguageDetection( //
+			@Value("${spring.application.name}") final String applicationName, //
+			@Value("${languagedetection.mode:RANDOMIZED}") final DetectionMode detectionMode, //
+			@Value("${languagedetection.deterministic.max-text-length:500}") final int deterministicMaxTextLength //
+	) throws IOException, LangDetectException {
 
 		this.applicationName = applicationName;
+		this.detectionMode = detectionMode;
+		this.deterministicMaxTextLength = deterministicMaxTextLength;
 
 		// check if files exists and are not empty
 		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_ANNOTATIONS_FILTERED);
 
-		this.safeLoadProfile();
+		List<String> profiles = safeLoadProfile();
+		if (detectionMode == DetectionMode.DETERMINISTIC) {
+			this.deterministicDetector = new DeterministicDetector(profiles, deterministicMaxTextLength);
+		} else {
+			this.deterministicDetector = null;
+		}
+		logger.info("language detection mode: {} (max. text length for deterministic detection: {})", detectionMode,
+				deterministicMaxTextLength);
 	}
 
 	/**
 	 * load profile with several fallbacks
 	 *
+	 * @return the JSON language profiles loaded into the DetectorFactory
 	 * @throws IOException
 	 * @throws LangDetectException
 	 */
-	private void safeLoadProfile() throws IOException, LangDetectException {
+	static synchronized List<String> safeLoadProfile() throws IOException, LangDetectException {
 		// just do this once as the DetectorFactory will crash otherwise
-		if (!languageProfileLoaded) {
-			languageProfileLoaded = true;
+		if (languageProfiles == null) {
 			// location of the profile directory
 			String profileLocation = "language-detection/profiles/";
+			List<String> profiles = new ArrayList<>();
 
 			// main problem in LangDetect exists while referring to a profile directory
 			// inside of a JAR file
-			try {
+			URL profileResource = LanguageDetection.class.getClassLoader().getResource(profileLocation);
+			File profileDirectory = profileResource == null ? null : new File(profileResource.getFile());
+			if (profileDirectory != null && profileDirectory.isDirectory()) {
 				// running application OUTSIDE of JAR files
-				DetectorFactory.loadProfile(getClass().getClassLoader().getResource(profileLocation).getFile());
-			} catch (Exception e) {
+				File[] files = profileDirectory.listFiles();
+				Arrays.sort(files);
+				for (File file : files) {
+					if (!file.getName().startsWith(".") && file.isFile()) {
+						profiles.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+					}
+				}
+			} else {
 				// running application INSIDE of JAR files
 				String dirname = profileLocation;
 				Enumeration<URL> en = Detector.class.getClassLoader().getResources(dirname);
-				List<String> profiles = new ArrayList<>();
 				if (en.hasMoreElements()) {
 					URL url = en.nextElement();
 					JarURLConnection urlcon = (JarURLConnection) url.openConnection();
@@ -83,9 +127,9 @@ public class LanguageDetection extends QanaryComponent {
 						Enumeration<JarEntry> entries = jar.entries();
 						while (entries.hasMoreElements()) {
 							String entry = entries.nextElement().getName();
-							if (entry.startsWith(dirname)) {
+							if (entry.startsWith(dirname) && !entry.endsWith("/")) {
 								try (InputStream in = Detector.class.getClassLoader().getResourceAsStream(entry);) {
-									profiles.add(IOUtils.toString(in));
+									profiles.add(IOUtils.toString(in, StandardCharsets.UTF_8));
 								} catch (Exception e2) {
 									e2.printStackTrace();
 								}
@@ -93,10 +137,12 @@ public class LanguageDetection extends QanaryComponent {
 						}
 					}
 				}
-
-				DetectorFactory.loadProfile(profiles);
 			}
+
+			DetectorFactory.loadProfile(profiles);
+			languageProfiles = profiles;
 		}
+		return languageProfiles;
 	}
 
 	@Override
@@ -130,14 +176,20 @@ public class LanguageDetection extends QanaryComponent {
 	 * @throws LangDetectException
 	 */
 	public List<String> getDetectedLanguages(String myQuestion) throws LangDetectException {
-		Detector detector = DetectorFactory.create();
-		detector.append(myQuestion);
 		String detectedLangOfGivenQuestion = null;
-		try {
-			detectedLangOfGivenQuestion = detector.detect();
-		} catch (LangDetectException lde) {
-			logger.warn(lde.getMessage());
-			detectedLangOfGivenQuestion = null;
+		if (myQuestion == null) {
+			logger.warn("no text given, no language detected");
+		} else if (this.deterministicDetector != null && myQuestion.length() <= this.deterministicMaxTextLength) {
+			detectedLangOfGivenQuestion = this.deterministicDetector.detect(myQuestion);
+		} else {
+			Detector detector = DetectorFactory.create();
+			detector.append(myQuestion);
+			try {
+				detectedLangOfGivenQuestion = detector.detect();
+			} catch (LangDetectException lde) {
+				logger.warn(lde.getMessage());
+				detectedLangOfGivenQuestion = null;
+			}
 		}
 
 		logger.info("for question '{}' the language '{}' was detected.", myQuestion, detectedLangOfGivenQuestion);
@@ -162,6 +214,10 @@ public class LanguageDetection extends QanaryComponent {
 		}
 	}
 
+	public DetectionMode getDetectionMode() {
+		return this.detectionMode;
+	}
+
 	private String loadQueryFromFile(String filenameWithRelativePath, QuerySolutionMap bindings) throws IOException {
 		return QanaryTripleStoreConnector.readFileFromResourcesWithMap(filenameWithRelativePath, bindings);
 	}
@@ -13,18 +13,38 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Controller
 public class LanguageDetectorController {
 	private static final Logger logger = LoggerFactory.getLogger(LanguageDetectorController.class);
 	private LanguageDetection myLanguageDetection;
+	private final ExecutorService batchExecutor;
+	private final int batchChunkSize;
 
 	public LanguageDetectorController( //
 			LanguageDetection myLanguageDetection, //
 			@Value("${server.port}") String serverPort, //
 			@Value("${springdoc.api-docs.path}") String swaggerApiDocsPath, //
-			@Value("${springdoc.swagger-ui.path}") String swaggerUiPath //
+			@Value("${springdoc.swagger-ui.path}") String swaggerUiPath, //
+			@Value("${languagedetection.batch.threads:0}") int batchThreads, //
+			@Value("${languagedetection.batch.chunk-size:100}") int batchChunkSize //
 	) {
 		this.myLanguageDetection = myLanguageDetection;
+		this.batchChunkSize = Math.max(1, batchChunkSize);
+		int threads = batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors();
+		// if all threads are busy and the queue is full, then the requesting thread processes the chunk itself
+		this.batchExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(4 * threads), new ThreadPoolExecutor.CallerRunsPolicy());
+		logger.info("batch language detection uses {} threads and chunks of {} texts", threads, this.batchChunkSize);
 		logger.info("Service API docs available at http://0.0.0.0:{}{}", serverPort, swaggerApiDocsPath);
 		logger.info("Service API docs UI available at http://0.0.0.0:{}{}", serverPort, swaggerUiPath);
 	}
@@ -72,4 +92,81 @@ public class LanguageDetectorController {
 		logger.info("LanguageDetectionResponse: {}", result);
 		return new HttpEntity<>(result);
 	}
+
+	/**
+	 * controller receiving an array of texts and responding with the languages
+	 * of each text (in the same order), large batches are processed in parallel
+	 * 
+	 * example:
+	 * 
+	 * <pre>
+			curl -X POST "http://localhost:5555/api/batch" -H  "accept: application/json" -H  "Content-Type: application/json" -d "[\"What is the capital of Germany?\", \"Was ist die Hauptstadt von Deutschland?\", \"\"]"
+	
+			[{"text":"What is the capital of Germany?","languages":["en"]},{"text":"Was ist die Hauptstadt von Deutschland?","languages":["de"]},{"text":"","languages":[null]}]
+	 * </pre>
+	 * 
+	 * @param texts
+	 * @return
+	 * @throws LangDetectException
+	 * @throws InterruptedException
+	 */
+	@PostMapping(value = "/api/batch", produces = "application/json")
+	@ResponseBody
+	@Operation(summary = "Web interface to send an array of texts, the languages of each text are determined", //
+			operationId = "requestBatchLanguageDetectionWebService", //
+			description = "The results are returned in the order of the given texts. " //
+					+ "Example: [\"What is the capital of Germany?\", \"Wie viele Personen leben in Frankreich?\"]" //
+	)
+	public HttpEntity<List<LanguageDetectionResponse>> getLanguagesOfTexts(@RequestBody List<String> texts)
+			throws LangDetectException, InterruptedException {
+		logger.info("batch language detection of {} texts", texts.size());
+		return new HttpEntity<>(this.detectLanguages(texts));
+	}
+
+	/**
+	 * detects the languages of all texts, batches larger than one chunk are split
+	 * into chunks processed by the bounded batch executor
+	 */
+	List<LanguageDetectionResponse> detectLanguages(List<String> texts)
+			throws LangDetectException, InterruptedException {
+		if (texts.size() <= this.batchChunkSize) {
+			return this.detectLanguagesOfChunk(texts);
+		}
+
+		List<Future<List<LanguageDetectionResponse>>> chunks = new ArrayList<>();
+		try {
+			for (int start = 0; start < texts.size(); start += this.batchChunkSize) {
+				List<String> chunk = texts.subList(start, Math.min(texts.size(), start + this.batchChunkSize));
+				chunks.add(this.batchExecutor.submit(() -> this.detectLanguagesOfChunk(chunk)));
+			}
+
+			List<LanguageDetectionResponse> result = new ArrayList<>(texts.size());
+			for (Future<List<LanguageDetectionResponse>> chunk : chunks) {
+				result.addAll(chunk.get());
+			}
+			return result;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof LangDetectException) {
+				throw (LangDetectException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			for (Future<List<LanguageDetectionResponse>> chunk : chunks) {
+				chunk.cancel(true);
+			}
+		}
+	}
+
+	private List<LanguageDetectionResponse> detectLanguagesOfChunk(List<String> texts) throws LangDetectException {
+		List<LanguageDetectionResponse> result = new ArrayList<>(texts.size());
+		for (String text : texts) {
+			result.add(new LanguageDetectionResponse(this.myLanguageDetection, text));
+		}
+		return result;
+	}
+
+	@PreDestroy
+	public void shutdownBatchExecutor() {
+		this.batchExecutor.shutdownNow();
+	}
 }
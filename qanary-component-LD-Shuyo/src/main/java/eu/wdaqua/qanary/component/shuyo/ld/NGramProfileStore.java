@@ -0,0 +1,169 @@
+package eu.wdaqua.qanary.component.shuyo.ld;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * compact store of the per-language values of n-grams (n &lt;= 3)
+ *
+ * An n-gram is encoded as a primitive long key (its length and its UTF-16 chars),
+ * the keys are stored in an open-addressing table using linear probing. The
+ * values of all languages of a key are stored consecutively in one contiguous
+ * double array. Therefore, a lookup neither creates a String nor any other
+ * object.
+ */
+public class NGramProfileStore {
+	public static final int MAX_NGRAM_LENGTH = 3;
+	public static final int NOT_FOUND = -1;
+
+	// 0 is never a valid key as the length of an encoded n-gram is at least 1
+	private static final long EMPTY = 0L;
+
+	private final int numberOfLanguages;
+	private final int mask;
+	private final long[] keys;
+	private final double[] values;
+	private int size = 0;
+
+	/**
+	 * @param numberOfLanguages number of values stored for each n-gram
+	 * @param expectedSize      number of n-grams that will be stored
+	 */
+	public NGramProfileStore(int numberOfLanguages, int expectedSize) {
+		this.numberOfLanguages = numberOfLanguages;
+		// the load factor is kept below 0.5 to keep the probing sequences short
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+		this.mask = capacity - 1;
+		this.keys = new long[capacity];
+		this.values = new double[capacity * numberOfLanguages];
+	}
+
+	/**
+	 * @return the key of the given n-gram, EMPTY if it is empty or longer than
+	 *         MAX_NGRAM_LENGTH
+	 */
+	public static long encode(CharSequence ngram) {
+		int length = ngram.length();
+		if (length < 1 || length > MAX_NGRAM_LENGTH) {
+			return EMPTY;
+		}
+		long key = length;
+		for (int i = 0; i < length; i++) {
+			key = (key << 16) | ngram.charAt(i);
+		}
+		return key;
+	}
+
+	public static long encode(char c0) {
+		return (1L << 16) | c0;
+	}
+
+	public static long encode(char c0, char c1) {
+		return (((2L << 16) | c0) << 16) | c1;
+	}
+
+	public static long encode(char c0, char c1, char c2) {
+		return (((((3L << 16) | c0) << 16) | c1) << 16) | c2;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @return the slot of the key, NOT_FOUND if the key is not stored
+	 */
+	public int getSlot(long key) {
+		if (key == EMPTY) {
+			return NOT_FOUND;
+		}
+		int slot = hash(key) & mask;
+		while (true) {
+			long current = keys[slot];
+			if (current == key) {
+				return slot;
+			} else if (current == EMPTY) {
+				return NOT_FOUND;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the slot of the key, the key is added if it is not stored yet
+	 */
+	private int getOrAddSlot(long key) {
+		int slot = hash(key) & mask;
+		while (true) {
+			long current = keys[slot];
+			if (current == key) {
+				return slot;
+			} else if (current == EMPTY) {
+				if (2 * (size + 1) > keys.length) {
+					throw new IllegalStateException("capacity of the n-gram profile store exceeded");
+				}
+				keys[slot] = key;
+				size++;
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	public void put(CharSequence ngram, int language, double value) {
+		long key = encode(ngram);
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("n-gram length not supported: '" + ngram + "'");
+		}
+		values[getOrAddSlot(key) * numberOfLanguages + language] = value;
+	}
+
+	/**
+	 * @return the value of the language at the given slot
+	 */
+	public double get(int slot, int language) {
+		return values[slot * numberOfLanguages + language];
+	}
+
+	/**
+	 * adds the values of all languages at the given slot to the given array
+	 */
+	public void addTo(int slot, double[] target) {
+		int offset = slot * numberOfLanguages;
+		for (int i = 0; i < numberOfLanguages; i++) {
+			target[i] += values[offset + i];
+		}
+	}
+
+	/**
+	 * @return the values of all languages of the n-gram, null if it is not stored
+	 */
+	public double[] get(CharSequence ngram) {
+		int slot = getSlot(encode(ngram));
+		if (slot == NOT_FOUND) {
+			return null;
+		}
+		int offset = slot * numberOfLanguages;
+		return Arrays.copyOfRange(values, offset, offset + numberOfLanguages);
+	}
+
+	public void transformValues(DoubleUnaryOperator operator) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				int offset = slot * numberOfLanguages;
+				for (int i = 0; i < numberOfLanguages; i++) {
+					values[offset + i] = operator.applyAsDouble(values[offset + i]);
+				}
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getNumberOfLanguages() {
+		return numberOfLanguages;
+	}
+}
@@ -0,0 +1,166 @@
+package eu.wdaqua.qanary.component.shuyo.ld;
+
+import com.cybozu.labs.langdetect.LangDetectException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * compares the deterministic detection mode with the randomized trials of the langdetect Detector
+ */
+class DeterministicDetectionTest {
+    private static final Logger logger = LoggerFactory.getLogger(DeterministicDetectionTest.class);
+
+    private static final double MINIMUM_AGREEMENT_AS_PERCENT = 95;
+
+    // question, expected language
+    static final String[][] MULTILINGUAL_QUESTIONS = { //
+            {"Who is the mayor of New York City?", "en"}, //
+            {"Which countries have places with more than two caves?", "en"}, //
+            {"Give me all actors starring in movies directed by and starring William Shatner.", "en"}, //
+            {"What are the official languages of the Philippines?", "en"}, //
+            {"Which organizations were founded in 1950?", "en"}, //
+            {"Wer ist der Bürgermeister von New York City?", "de"}, //
+            {"In welchen Ländern gibt es Orte mit mehr als zwei Höhlen?", "de"}, //
+            {"Was sind die Amtssprachen der Philippinen?", "de"}, //
+            {"Welche Unternehmen wurden 1950 gegründet?", "de"}, //
+            {"Mit wem ist die Tochter von Ingrid Bergman verheiratet?", "de"}, //
+            {"Qui est le maire de la ville de New York ?", "fr"}, //
+            {"Quelles sont les langues officielles des Philippines ?", "fr"}, //
+            {"Quelles organisations ont été fondées en 1950 ?", "fr"}, //
+            {"Montre-moi tous les musées de Londres.", "fr"}, //
+            {"¿Quién es el alcalde de la ciudad de Nueva York?", "es"}, //
+            {"¿Cuáles son los idiomas oficiales de Filipinas?", "es"}, //
+            {"¿Qué organizaciones fueron fundadas en 1950?", "es"}, //
+            {"Muéstrame todos los museos de Londres.", "es"}, //
+            {"Chi è il sindaco della città di New York?", "it"}, //
+            {"Quali sono le lingue ufficiali delle Filippine?", "it"}, //
+            {"Quali organizzazioni sono state fondate nel 1950?", "it"}, //
+            {"Wie is de burgemeester van de stad New York?", "nl"}, //
+            {"Wat zijn de officiële talen van de Filipijnen?", "nl"}, //
+            {"Quem é o prefeito da cidade de Nova Iorque?", "pt"}, //
+            {"Quais são as línguas oficiais das Filipinas?", "pt"}, //
+            {"Кто является мэром города Нью-Йорк?", "ru"}, //
+            {"Какие официальные языки на Филиппинах?", "ru"}, //
+            {"Kto jest burmistrzem Nowego Jorku?", "pl"}, //
+            {"Vem är borgmästare i New York?", "sv"}, //
+            {"ニューヨーク市の市長は誰ですか？", "ja"}, //
+            {"Ποιος είναι ο δήμαρχος της Νέας Υόρκης;", "el"}, //
+            {"Kim jest żoną Ingrid Bergman?", "pl"} //
+    };
+
+    private static LanguageDetection randomized;
+    private static LanguageDetection deterministic;
+
+    @BeforeAll
+    public static void initLanguageDetection() throws IOException, LangDetectException {
+        randomized = new LanguageDetection("DeterministicDetectionTest");
+        deterministic = new LanguageDetection("DeterministicDetectionTest",
+                LanguageDetection.DetectionMode.DETERMINISTIC, 500);
+    }
+
+    private static String detect(LanguageDetection languageDetection, String text) throws LangDetectException {
+        return languageDetection.getDetectedLanguages(text).get(0);
+    }
+
+    private static long getAllocatedBytesOfCurrentThread() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    void testAgreesWithRandomizedDetector() throws LangDetectException {
+        int agreements = 0;
+        int correct = 0;
+        List<String> disagreements = new ArrayList<>();
+        for (String[] question : MULTILINGUAL_QUESTIONS) {
+            String expected = detect(randomized, question[0]);
+            String actual = detect(deterministic, question[0]);
+            if (expected != null && expected.equals(actual)) {
+                agreements++;
+            } else {
+                disagreements.add(question[0] + " (randomized: " + expected + ", deterministic: " + actual + ")");
+            }
+            if (question[1].equals(actual)) {
+                correct++;
+            }
+        }
+
+        double agreement = agreements * 100.0 / MULTILINGUAL_QUESTIONS.length;
+        logger.info("agreement: {}%, correctly detected by the deterministic mode: {} of {}, disagreements: {}",
+                agreement, correct, MULTILINGUAL_QUESTIONS.length, disagreements);
+        assertTrue(agreement >= MINIMUM_AGREEMENT_AS_PERCENT, "disagreements: " + disagreements);
+    }
+
+    @Test
+    void testResultIsReproducible() throws LangDetectException {
+        for (String[] question : MULTILINGUAL_QUESTIONS) {
+            String first = detect(deterministic, question[0]);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(first, detect(deterministic, question[0]), question[0]);
+            }
+        }
+    }
+
+    @Test
+    void testUncommonInput() throws LangDetectException {
+        for (String text : new String[]{"12345", "   ", "---", ".", "1", ""}) {
+            assertNull(detect(deterministic, text), text);
+            assertNull(detect(randomized, text), text);
+        }
+    }
+
+    @Test
+    void testLongTextsUseRandomizedDetector() throws LangDetectException {
+        LanguageDetection shortTextsOnly = new LanguageDetection("DeterministicDetectionTest",
+                LanguageDetection.DetectionMode.DETERMINISTIC, 10);
+        assertEquals("de", detect(shortTextsOnly, "Welche Unternehmen wurden 1950 in Deutschland gegründet?"));
+    }
+
+    @Test
+    void benchmarkDetectionModes() throws LangDetectException {
+        int repetitions = 20;
+        // warm up
+        for (String[] question : MULTILINGUAL_QUESTIONS) {
+            detect(randomized, question[0]);
+            detect(deterministic, question[0]);
+        }
+
+        long allocationBefore = getAllocatedBytesOfCurrentThread();
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            for (String[] question : MULTILINGUAL_QUESTIONS) {
+                detect(randomized, question[0]);
+            }
+        }
+        long randomizedTime = (System.nanoTime() - start) / (repetitions * MULTILINGUAL_QUESTIONS.length);
+        long randomizedBytes = (getAllocatedBytesOfCurrentThread() - allocationBefore)
+                / (repetitions * MULTILINGUAL_QUESTIONS.length);
+
+        allocationBefore = getAllocatedBytesOfCurrentThread();
+        start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            for (String[] question : MULTILINGUAL_QUESTIONS) {
+                detect(deterministic, question[0]);
+            }
+        }
+        long deterministicTime = (System.nanoTime() - start) / (repetitions * MULTILINGUAL_QUESTIONS.length);
+        long deterministicBytes = (getAllocatedBytesOfCurrentThread() - allocationBefore)
+                / (repetitions * MULTILINGUAL_QUESTIONS.length);
+
+        logger.info("per question: RANDOMIZED {} µs, {} bytes allocated; DETERMINISTIC {} µs, {} bytes allocated",
+                randomizedTime / 1000, randomizedBytes, deterministicTime / 1000, deterministicBytes);
+        assertTrue(deterministicTime < randomizedTime,
+                "deterministic: " + deterministicTime + " ns, randomized: " + randomizedTime + " ns");
+    }
+}
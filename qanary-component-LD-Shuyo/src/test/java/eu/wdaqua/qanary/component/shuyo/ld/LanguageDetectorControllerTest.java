@@ -0,0 +1,145 @@
+package eu.wdaqua.qanary.component.shuyo.ld;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * compares the batch endpoint with the single text endpoint (the deterministic mode is used to get reproducible
+ * results)
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = Application.class, properties = { //
+        "languagedetection.mode=DETERMINISTIC", //
+        "languagedetection.batch.chunk-size=50" //
+})
+@WebAppConfiguration
+class LanguageDetectorControllerTest {
+    private static final Logger logger = LoggerFactory.getLogger(LanguageDetectorControllerTest.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockMvc mockMvc;
+    @Autowired
+    private WebApplicationContext applicationContext;
+
+    @BeforeEach
+    public void setUp() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.applicationContext).build();
+    }
+
+    private List<String> getLanguagesFromApi(String text) throws Exception {
+        String body = objectMapper.writeValueAsString(Collections.singletonMap("text", text));
+        String response = mockMvc.perform(post("/api").contentType(MediaType.APPLICATION_JSON).content(body)) //
+                .andExpect(status().isOk()) //
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.convertValue(objectMapper.readTree(response).get("languages"),
+                new TypeReference<List<String>>() {
+                });
+    }
+
+    private JsonNode getResponseFromBatchApi(List<String> texts) throws Exception {
+        String response = mockMvc.perform(post("/api/batch").contentType(MediaType.APPLICATION_JSON) //
+                        .content(objectMapper.writeValueAsString(texts))) //
+                .andExpect(status().isOk()) //
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    /**
+     * checks that the n-th result belongs to the n-th text and equals the result of the single text endpoint
+     */
+    private void assertSameResultsAsApi(List<String> texts, JsonNode results, Map<String, List<String>> expected)
+            throws Exception {
+        assertEquals(texts.size(), results.size());
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (!expected.containsKey(text)) {
+                expected.put(text, getLanguagesFromApi(text));
+            }
+            assertEquals(text, results.get(i).get("text").asText(), "position " + i);
+            assertEquals(expected.get(text), objectMapper.convertValue(results.get(i).get("languages"),
+                    new TypeReference<List<String>>() {
+                    }), text);
+        }
+    }
+
+    private static List<String> getQuestions() {
+        List<String> questions = new ArrayList<>();
+        for (String[] question : DeterministicDetectionTest.MULTILINGUAL_QUESTIONS) {
+            questions.add(question[0]);
+        }
+        return questions;
+    }
+
+    @Test
+    void testResultsInOrderOfTexts() throws Exception {
+        // more texts than one chunk, so the texts are processed in parallel
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            texts.addAll(getQuestions());
+        }
+        Collections.shuffle(texts, new Random(42));
+
+        assertSameResultsAsApi(texts, getResponseFromBatchApi(texts), new HashMap<>());
+    }
+
+    @Test
+    void testEmptyEntries() throws Exception {
+        List<String> texts = Arrays.asList("Who is the mayor of New York City?", "", "   ", null,
+                "Wer ist der Bürgermeister von New York City?");
+        JsonNode results = getResponseFromBatchApi(texts);
+
+        assertEquals(texts.size(), results.size());
+        assertEquals("en", results.get(0).get("languages").get(0).asText());
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(1, results.get(i).get("languages").size());
+            assertTrue(results.get(i).get("languages").get(0).isNull(), "position " + i);
+        }
+        assertTrue(results.get(3).get("text").isNull());
+        assertEquals("de", results.get(4).get("languages").get(0).asText());
+
+        assertSameResultsAsApi(texts.subList(0, 3), getResponseFromBatchApi(texts.subList(0, 3)), new HashMap<>());
+        assertEquals(0, getResponseFromBatchApi(new ArrayList<>()).size());
+    }
+
+    @Test
+    void testLargeBatch() throws Exception {
+        List<String> questions = getQuestions();
+        List<String> texts = new ArrayList<>();
+        Random random = new Random(4711);
+        for (int i = 0; i < 10000; i++) {
+            texts.add(questions.get(random.nextInt(questions.size())));
+        }
+
+        long start = System.currentTimeMillis();
+        JsonNode results = getResponseFromBatchApi(texts);
+        logger.info("batch of {} texts processed in {} ms", texts.size(), System.currentTimeMillis() - start);
+
+        assertSameResultsAsApi(texts, results, new HashMap<>());
+    }
+}
@@ -0,0 +1,246 @@
+package eu.wdaqua.qanary.component.shuyo.ld;
+
+import com.cybozu.labs.langdetect.LangDetectException;
+import com.cybozu.labs.langdetect.util.LangProfile;
+import com.cybozu.labs.langdetect.util.NGram;
+import net.arnx.jsonic.JSON;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * compares the NGramProfileStore with the HashMap&lt;String, double[]&gt; used by the langdetect DetectorFactory
+ */
+class NGramProfileStoreTest {
+    private static final Logger logger = LoggerFactory.getLogger(NGramProfileStoreTest.class);
+
+    private static List<String> jsonProfiles;
+    private static List<LangProfile> profiles;
+
+    @BeforeAll
+    public static void loadProfiles() throws IOException, LangDetectException {
+        jsonProfiles = LanguageDetection.safeLoadProfile();
+        profiles = new ArrayList<>();
+        for (String json : jsonProfiles) {
+            profiles.add(JSON.decode(json, LangProfile.class));
+        }
+    }
+
+    /**
+     * the map as created by DetectorFactory.addProfile
+     */
+    private static Map<String, double[]> createWordLangProbMap() {
+        Map<String, double[]> wordLangProbMap = new HashMap<>();
+        for (int index = 0; index < profiles.size(); index++) {
+            LangProfile profile = profiles.get(index);
+            for (String word : profile.freq.keySet()) {
+                if (!wordLangProbMap.containsKey(word)) {
+                    wordLangProbMap.put(word, new double[profiles.size()]);
+                }
+                int length = word.length();
+                if (length >= 1 && length <= 3) {
+                    double prob = profile.freq.get(word).doubleValue() / profile.n_words[length - 1];
+                    wordLangProbMap.get(word)[index] = prob;
+                }
+            }
+        }
+        return wordLangProbMap;
+    }
+
+    /**
+     * the smoothed log-probabilities as used by the DeterministicDetector
+     */
+    private static Map<String, double[]> createWordLangLogProbMap(Map<String, double[]> wordLangProbMap) {
+        Map<String, double[]> wordLangLogProbMap = new HashMap<>();
+        for (Map.Entry<String, double[]> entry : wordLangProbMap.entrySet()) {
+            double[] logProb = new double[entry.getValue().length];
+            for (int i = 0; i < logProb.length; i++) {
+                logProb[i] = Math.log(0.5 / 10000 + entry.getValue()[i]);
+            }
+            wordLangLogProbMap.put(entry.getKey(), logProb);
+        }
+        return wordLangLogProbMap;
+    }
+
+    /**
+     * the log-probabilities computed using the n-gram Strings and the map
+     */
+    private static double[] computeLogProbabilities(Map<String, double[]> wordLangLogProbMap, String cleanedText) {
+        double[] logProb = new double[profiles.size()];
+        int numberOfNGrams = 0;
+        for (String ngram : extractNGrams(cleanedText)) {
+            double[] langLogProb = wordLangLogProbMap.get(ngram);
+            if (langLogProb != null) {
+                for (int j = 0; j < logProb.length; j++) {
+                    logProb[j] += langLogProb[j];
+                }
+                numberOfNGrams++;
+            }
+        }
+        return numberOfNGrams == 0 ? null : logProb;
+    }
+
+    private static NGramProfileStore createStore(Map<String, double[]> wordLangProbMap) {
+        int size = 0;
+        for (String word : wordLangProbMap.keySet()) {
+            if (word.length() <= NGramProfileStore.MAX_NGRAM_LENGTH) {
+                size++;
+            }
+        }
+        NGramProfileStore store = new NGramProfileStore(profiles.size(), size);
+        for (Map.Entry<String, double[]> entry : wordLangProbMap.entrySet()) {
+            if (entry.getKey().length() <= NGramProfileStore.MAX_NGRAM_LENGTH) {
+                for (int i = 0; i < entry.getValue().length; i++) {
+                    store.put(entry.getKey(), i, entry.getValue()[i]);
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * the n-grams of the text as extracted by Detector.extractNGrams (without cleaning)
+     */
+    private static List<String> extractNGrams(String text) {
+        List<String> ngrams = new ArrayList<>();
+        NGram ngram = new NGram();
+        for (int i = 0; i < text.length(); i++) {
+            ngram.addChar(text.charAt(i));
+            for (int n = 1; n <= NGram.N_GRAM; n++) {
+                String w = ngram.get(n);
+                if (w != null) {
+                    ngrams.add(w);
+                }
+            }
+        }
+        return ngrams;
+    }
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    void testSameValuesAsMapOfBundledProfiles() {
+        Map<String, double[]> wordLangProbMap = createWordLangProbMap();
+        NGramProfileStore store = createStore(wordLangProbMap);
+
+        int numberOfNGrams = 0;
+        for (Map.Entry<String, double[]> entry : wordLangProbMap.entrySet()) {
+            if (entry.getKey().length() <= NGramProfileStore.MAX_NGRAM_LENGTH) {
+                assertArrayEquals(entry.getValue(), store.get(entry.getKey()), entry.getKey());
+                numberOfNGrams++;
+            }
+        }
+        assertEquals(numberOfNGrams, store.size());
+        assertNull(store.get("qqx"));
+        assertNull(store.get("four"));
+        assertNull(store.get(""));
+    }
+
+    @Test
+    void testSameNGramsFoundAsMap() {
+        Map<String, double[]> wordLangProbMap = createWordLangProbMap();
+        NGramProfileStore store = createStore(wordLangProbMap);
+
+        for (String[] question : DeterministicDetectionTest.MULTILINGUAL_QUESTIONS) {
+            for (String ngram : extractNGrams(question[0])) {
+                double[] expected = wordLangProbMap.get(ngram);
+                int slot = store.getSlot(NGramProfileStore.encode(ngram));
+                if (expected == null) {
+                    assertEquals(NGramProfileStore.NOT_FOUND, slot, ngram);
+                } else {
+                    for (int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], store.get(slot, i), ngram);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCharEncodingEqualsStringEncoding() {
+        assertEquals(NGramProfileStore.encode("a"), NGramProfileStore.encode('a'));
+        assertEquals(NGramProfileStore.encode(" a"), NGramProfileStore.encode(' ', 'a'));
+        assertEquals(NGramProfileStore.encode("ニュー"), NGramProfileStore.encode('ニ', 'ュ', 'ー'));
+        // the length is part of the key
+        assertNotEquals(NGramProfileStore.encode("\u0000a"), NGramProfileStore.encode("a"));
+    }
+
+    @Test
+    void testSameDetectionResultsAsMap() {
+        Map<String, double[]> wordLangLogProbMap = createWordLangLogProbMap(createWordLangProbMap());
+        DeterministicDetector detector = new DeterministicDetector(jsonProfiles, 500);
+
+        for (String[] question : DeterministicDetectionTest.MULTILINGUAL_QUESTIONS) {
+            String cleanedText = detector.cleanText(question[0]);
+            assertArrayEquals(computeLogProbabilities(wordLangLogProbMap, cleanedText),
+                    detector.computeLogProbabilities(cleanedText), question[0]);
+        }
+        for (String text : new String[]{"", " ", "12345", "NASA", "UNO und NATO", "a  b"}) {
+            assertArrayEquals(computeLogProbabilities(wordLangLogProbMap, text), detector.computeLogProbabilities(text),
+                    text);
+        }
+    }
+
+    @Test
+    void benchmarkFootprintAndThroughput() {
+        Map<String, double[]> wordLangProbMap = createWordLangProbMap();
+
+        long before = getUsedMemory();
+        Map<String, double[]> wordLangLogProbMap = createWordLangLogProbMap(wordLangProbMap);
+        long mapBytes = getUsedMemory() - before;
+
+        before = getUsedMemory();
+        DeterministicDetector detector = new DeterministicDetector(jsonProfiles, 500);
+        long storeBytes = getUsedMemory() - before;
+
+        List<String> texts = new ArrayList<>();
+        for (String[] question : DeterministicDetectionTest.MULTILINGUAL_QUESTIONS) {
+            texts.add(detector.cleanText(question[0]));
+        }
+        int repetitions = 2000;
+        // warm up
+        for (String text : texts) {
+            computeLogProbabilities(wordLangLogProbMap, text);
+            detector.computeLogProbabilities(text);
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (String text : texts) {
+                computeLogProbabilities(wordLangLogProbMap, text);
+            }
+        }
+        long mapTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (String text : texts) {
+                detector.computeLogProbabilities(text);
+            }
+        }
+        long storeTime = System.nanoTime() - start;
+
+        long numberOfTexts = (long) repetitions * texts.size();
+        logger.info("HashMap<String, double[]>: ~{} KB, {} texts/ms; NGramProfileStore: ~{} KB, {} texts/ms",
+                mapBytes / 1024, numberOfTexts * 1_000_000 / mapTime, storeBytes / 1024,
+                numberOfTexts * 1_000_000 / storeTime);
+    }
+}
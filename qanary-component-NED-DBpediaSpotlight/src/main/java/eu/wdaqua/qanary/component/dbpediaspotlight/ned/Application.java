@@ -1,5 +1,9 @@
 package eu.wdaqua.qanary.component.dbpediaspotlight.ned;
 
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,15 +49,25 @@ public class Application {
 			@Value("${dbpediaspotlight.confidence.minimum}") float confidenceMinimum, //
 			@Value("${dbpediaspotlight.endpoint:https://api.dbpedia-spotlight.org/en/annotate}") String endpoint, //
 			@Value("${dbpediaspotlight.perform-live-check-on-component-start:true}") boolean performLiveCheckOnComponentStart, //
-			@Value("${dbpediaspotlight.endpoint.ssl.certificatevalidation.ignore:false}") final boolean ignore
-	) throws DBpediaSpotlightServiceNotAvailable {
+			@Value("${dbpediaspotlight.endpoint.ssl.certificatevalidation.ignore:false}") final boolean ignore, //
+			@Value("${dbpediaspotlight.endpoint.connections.max-total:20}") int maxConnectionsTotal, //
+			@Value("${dbpediaspotlight.endpoint.connections.max-per-route:20}") int maxConnectionsPerRoute //
+	) throws DBpediaSpotlightServiceNotAvailable, KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+		// the request factory is replaced exactly once here (and not per request) as
+		// the restTemplate is shared by all concurrently processed questions
+		if (ignore) {
+			restTemplate.setRequestFactory(DBpediaSpotlightNED
+					.getRequestFactoryForSslVerficationDeactivation(maxConnectionsTotal, maxConnectionsPerRoute));
+			logger.warn("SSL certificate validation deactivated for DBpedia spotlight server (max. {} connections)",
+					maxConnectionsTotal);
+		}
 		this.checkSpotlightServiceAvailability(testQuestion, endpoint, confidenceMinimum,
-				myDBpediaSpotlightServiceFetcher, performLiveCheckOnComponentStart, ignore);
+				myDBpediaSpotlightServiceFetcher, performLiveCheckOnComponentStart);
 		return new DBpediaSpotlightConfiguration(confidenceMinimum, endpoint);
 	}
 
 	private void checkSpotlightServiceAvailability(String testQuestion, String endpoint, float confidenceMinimum,
-			DBpediaSpotlightServiceFetcher dBpediaSpotlightServiceFetcher, boolean performLiveCheckOnComponentStart, boolean ignore)
+			DBpediaSpotlightServiceFetcher dBpediaSpotlightServiceFetcher, boolean performLiveCheckOnComponentStart)
 			throws DBpediaSpotlightServiceNotAvailable {
 
 		if (!performLiveCheckOnComponentStart) {
@@ -65,10 +79,6 @@ public class Application {
 			logger.warn("live check of endpoint {} will be executed with question '{}'", endpoint, testQuestion);
 			String err;
 			try {
-				if(ignore) {
-					restTemplate.setRequestFactory(DBpediaSpotlightNED.getRequestFactoryForSslVerficationDeactivation());
-					logger.warn("SSL certificate validation deactivated.");
-				}
 				dBpediaSpotlightServiceFetcher.getJsonFromService(testQuestion);
 				return;
 			} catch (Exception e) {
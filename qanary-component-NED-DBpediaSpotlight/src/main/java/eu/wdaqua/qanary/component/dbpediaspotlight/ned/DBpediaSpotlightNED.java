@@ -7,14 +7,22 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.net.ssl.SSLContext;
 
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.ResourceFactory;
@@ -66,57 +74,37 @@ public class DBpediaSpotlightNED extends QanaryComponent {
 	@Inject
 	private DBpediaSpotlightConfiguration myDBpediaSpotlightConfiguration;
 
-	private boolean ignoreSslCertificate;
-
 	private final String applicationName;
 	private static final String FILENAME_INSERT_ANNOTATION = "/queries/insert_one_annotation.rq";
+	private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
 
 	public DBpediaSpotlightNED( //
 			@Value("${spring.application.name}") final String applicationName, //
-			@Value("${dbpediaspotlight.endpoint.ssl.certificatevalidation.ignore:false}") final boolean ignore, //
 			@Autowired DBpediaSpotlightServiceFetcher myDBpediaSpotlightServiceFetcher,
 			RestTemplateWithCaching restTemplate //
 	) {
 		this.applicationName = applicationName;
 		this.restTemplate = restTemplate;
 		this.myDBpediaSpotlightServiceFetcher = myDBpediaSpotlightServiceFetcher;
-		this.setIgnoreSslCertificate(ignore);
 
 		// check if files exists and are not empty
 		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_INSERT_ANNOTATION);
 	}
 
-	public void setIgnoreSslCertificate(boolean flag) {
-		this.ignoreSslCertificate = flag;
-	}
-
-	public boolean getIgnoreSslCertificate() {
-		return this.ignoreSslCertificate;
-	}
-
-	/**
-	 * deactivates the SSL certificate validation for the restTemplate
-	 * 
-	 * @throws NoSuchAlgorithmException
-	 * @throws KeyManagementException
-	 * @throws KeyStoreException
-	 */
-	private void deactivateRestTemplateCertificateValidation()
-			throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException {
-
-		this.restTemplate.setRequestFactory(getRequestFactoryForSslVerficationDeactivation());
-		logger.warn("SSL certifcate validation deactivated for DBpedia spotlight server");
-	}
-
 	/**
-	 * create a request factory capable of bypassing SSL certificates
+	 * create a request factory capable of bypassing SSL certificates, the factory
+	 * is backed by a bounded pool of keep-alive connections and is intended to be
+	 * created once (at startup) and shared by all requests
 	 * 
+	 * @param maxConnectionsTotal
+	 * @param maxConnectionsPerRoute
 	 * @return
 	 * @throws KeyManagementException
 	 * @throws NoSuchAlgorithmException
 	 * @throws KeyStoreException
 	 */
-	protected static HttpComponentsClientHttpRequestFactory getRequestFactoryForSslVerficationDeactivation()
+	protected static HttpComponentsClientHttpRequestFactory getRequestFactoryForSslVerficationDeactivation(
+			int maxConnectionsTotal, int maxConnectionsPerRoute)
 			throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
 		TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
 
@@ -125,7 +113,22 @@ public class DBpediaSpotlightNED extends QanaryComponent {
 
 		SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(sslContext);
 
-		CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(csf).build();
+		Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create() //
+				.register("http", PlainConnectionSocketFactory.getSocketFactory()) //
+				.register("https", csf) //
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				socketFactoryRegistry);
+		connectionManager.setMaxTotal(maxConnectionsTotal);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+		CloseableHttpClient httpClient = HttpClients.custom() //
+				.setConnectionManager(connectionManager) //
+				.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE) //
+				.evictExpiredConnections() //
+				.evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS) //
+				.build();
 
 		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
 
@@ -139,10 +142,9 @@ public class DBpediaSpotlightNED extends QanaryComponent {
 	 */
 	public QanaryMessage process(QanaryMessage myQanaryMessage) throws Exception {
 
-		// deactivate SSL check if demanded
-		if (this.getIgnoreSslCertificate()) {
-			deactivateRestTemplateCertificateValidation();
-		}
+		// the SSL check is not touched here, if it should be ignored, then the request
+		// factory of the shared restTemplate was already replaced on startup (see
+		// Application)
 
 		// STEP 1: Retrieve the information needed for the computations
 		// i.e., retrieve the current question
@@ -166,16 +168,59 @@ public class DBpediaSpotlightNED extends QanaryComponent {
 		// triplestore, here the same data is added as already exit (see
 		// previous SELECT query)
 
-		// TODO: create one larger SPARQL INSERT query that adds all discovered named
-		// entities at once
-		for (FoundDBpediaResource found : foundDBpediaResources) {
-			String sparql = getSparqlInsertQuery(found, myQanaryQuestion);
-			myQanaryUtils.getQanaryTripleStoreConnector().update(sparql);
-		}
+		storeAnnotationsOfInstance(foundDBpediaResources, myQanaryQuestion,
+				myQanaryUtils.getQanaryTripleStoreConnector());
 
 		return myQanaryMessage;
 	}
 
+	/**
+	 * store all found DBpedia resources of the current question as
+	 * AnnotationOfInstance using a single update request (i.e., one round trip to
+	 * the triplestore per question)
+	 * 
+	 * @param foundDBpediaResources
+	 * @param myQanaryQuestion
+	 * @param myQanaryTripleStoreConnector
+	 * @throws QanaryExceptionNoOrMultipleQuestions
+	 * @throws URISyntaxException
+	 * @throws SparqlQueryFailed
+	 * @throws IOException
+	 */
+	void storeAnnotationsOfInstance(List<FoundDBpediaResource> foundDBpediaResources,
+			QanaryQuestion<String> myQanaryQuestion, QanaryTripleStoreConnector myQanaryTripleStoreConnector)
+			throws QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed, IOException {
+		if (foundDBpediaResources.isEmpty()) {
+			logger.info("no DBpedia resources found, nothing to store");
+			return;
+		}
+		String sparql = getSparqlInsertQuery(foundDBpediaResources, myQanaryQuestion);
+		myQanaryTripleStoreConnector.update(sparql);
+	}
+
+	/**
+	 * create one SPARQL update request containing the INSERT operations for all
+	 * found DBpedia resources, the operations are separated by ';' (c.f., SPARQL
+	 * 1.1 Update) and produce the same triples as executing each of them separately
+	 * 
+	 * @param foundDBpediaResources
+	 * @param myQanaryQuestion
+	 * @return
+	 * @throws QanaryExceptionNoOrMultipleQuestions
+	 * @throws URISyntaxException
+	 * @throws SparqlQueryFailed
+	 * @throws IOException
+	 */
+	public String getSparqlInsertQuery(List<FoundDBpediaResource> foundDBpediaResources,
+			QanaryQuestion<String> myQanaryQuestion)
+			throws QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed, IOException {
+		StringJoiner sparql = new StringJoiner(" ;\n");
+		for (FoundDBpediaResource found : foundDBpediaResources) {
+			sparql.add(getSparqlInsertQuery(found, myQanaryQuestion));
+		}
+		return sparql.toString();
+	}
+
 	public String getSparqlInsertQuery(FoundDBpediaResource found, QanaryQuestion<String> myQanaryQuestion) throws QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed, IOException{
 			QuerySolutionMap bindingsForInsert = new QuerySolutionMap();
 			bindingsForInsert.add("graph",
@@ -0,0 +1,115 @@
+package eu.wdaqua.qanary.component.dbpediaspotlight.ned;
+
+import eu.wdaqua.qanary.commons.QanaryExceptionNoOrMultipleQuestions;
+import eu.wdaqua.qanary.commons.QanaryQuestion;
+import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnector;
+import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnectorInMemory;
+import eu.wdaqua.qanary.exceptions.SparqlQueryFailed;
+import org.apache.jena.query.ResultSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+/**
+ * test that all AnnotationOfInstance triples of a question are written to the
+ * triplestore using a single update request
+ */
+class DBpediaSpotlightNEDTest {
+    private static final Logger logger = LoggerFactory.getLogger(DBpediaSpotlightNEDTest.class);
+
+    private static final String COUNT_ANNOTATIONS_OF_INSTANCE = "" //
+            + "PREFIX qa: <http://www.wdaqua.eu/qa#> " //
+            + "SELECT (COUNT(?a) AS ?count) FROM <%s> WHERE { ?a a qa:AnnotationOfInstance . }";
+
+    private URI outGraph;
+    private QanaryQuestion<String> mockedQanaryQuestion;
+    private DBpediaSpotlightNED mockedDBpediaSpotlightNED;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() throws URISyntaxException, QanaryExceptionNoOrMultipleQuestions, SparqlQueryFailed, IOException {
+        this.outGraph = new URI("urn:qanary:test:outgraph");
+
+        this.mockedQanaryQuestion = Mockito.mock(QanaryQuestion.class);
+        Mockito.when(this.mockedQanaryQuestion.getOutGraph()).thenReturn(this.outGraph);
+        Mockito.when(this.mockedQanaryQuestion.getUri()).thenReturn(new URI("urn:qanary:test:question"));
+
+        this.mockedDBpediaSpotlightNED = Mockito.mock(DBpediaSpotlightNED.class);
+        Mockito.when(this.mockedDBpediaSpotlightNED.getSparqlInsertQuery(any(FoundDBpediaResource.class), any(QanaryQuestion.class))).thenCallRealMethod();
+        Mockito.when(this.mockedDBpediaSpotlightNED.getSparqlInsertQuery(anyList(), any(QanaryQuestion.class))).thenCallRealMethod();
+        Mockito.doCallRealMethod().when(this.mockedDBpediaSpotlightNED).storeAnnotationsOfInstance(anyList(), any(QanaryQuestion.class), any(QanaryTripleStoreConnector.class));
+    }
+
+    private List<FoundDBpediaResource> createFoundResources(int number) throws URISyntaxException {
+        List<FoundDBpediaResource> foundDBpediaResources = new LinkedList<>();
+        for (int i = 0; i < number; i++) {
+            foundDBpediaResources.add(new FoundDBpediaResource("Entity" + i, i * 10, 0.9, 100 + i,
+                    new URI("http://dbpedia.org/resource/Entity" + i)));
+        }
+        return foundDBpediaResources;
+    }
+
+    private int countTriples(QanaryTripleStoreConnector connector) throws SparqlQueryFailed {
+        ResultSet results = connector.select(QanaryTripleStoreConnector.getCountAllTriplesInGraph(this.outGraph));
+        return results.nextSolution().getLiteral("count").getInt();
+    }
+
+    private int countAnnotationsOfInstance(QanaryTripleStoreConnector connector) throws SparqlQueryFailed {
+        ResultSet results = connector.select(String.format(COUNT_ANNOTATIONS_OF_INSTANCE, this.outGraph.toASCIIString()));
+        return results.nextSolution().getLiteral("count").getInt();
+    }
+
+    @Test
+    void testOneUpdateRequestPerQuestion() throws Exception {
+        for (int number : new int[]{1, 2, 8, 25}) {
+            QanaryTripleStoreConnectorInMemory connector = Mockito.spy(new QanaryTripleStoreConnectorInMemory());
+            List<FoundDBpediaResource> foundDBpediaResources = createFoundResources(number);
+
+            this.mockedDBpediaSpotlightNED.storeAnnotationsOfInstance(foundDBpediaResources, this.mockedQanaryQuestion, connector);
+
+            Mockito.verify(connector, times(1)).update(anyString());
+            assertEquals(number, countAnnotationsOfInstance(connector));
+            logger.info("{} resources stored using 1 update request", number);
+        }
+    }
+
+    @Test
+    void testNoUpdateRequestIfNothingWasFound() throws Exception {
+        QanaryTripleStoreConnectorInMemory connector = Mockito.spy(new QanaryTripleStoreConnectorInMemory());
+
+        this.mockedDBpediaSpotlightNED.storeAnnotationsOfInstance(new LinkedList<>(), this.mockedQanaryQuestion, connector);
+
+        Mockito.verify(connector, never()).update(anyString());
+    }
+
+    @Test
+    void testBatchedInsertCreatesSameTriplesAsSingleInserts() throws Exception {
+        List<FoundDBpediaResource> foundDBpediaResources = createFoundResources(8);
+
+        QanaryTripleStoreConnectorInMemory batchedConnector = new QanaryTripleStoreConnectorInMemory();
+        batchedConnector.update(this.mockedDBpediaSpotlightNED.getSparqlInsertQuery(foundDBpediaResources, this.mockedQanaryQuestion));
+
+        QanaryTripleStoreConnectorInMemory singleConnector = new QanaryTripleStoreConnectorInMemory();
+        for (FoundDBpediaResource found : foundDBpediaResources) {
+            singleConnector.update(this.mockedDBpediaSpotlightNED.getSparqlInsertQuery(found, this.mockedQanaryQuestion));
+        }
+
+        assertEquals(countAnnotationsOfInstance(singleConnector), countAnnotationsOfInstance(batchedConnector));
+        assertEquals(countTriples(singleConnector), countTriples(batchedConnector));
+    }
+}
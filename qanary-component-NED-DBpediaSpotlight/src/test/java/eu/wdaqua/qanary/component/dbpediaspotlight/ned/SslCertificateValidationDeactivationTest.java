@@ -0,0 +1,146 @@
+package eu.wdaqua.qanary.component.dbpediaspotlight.ned;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * test the request factory used if the SSL certificate validation is
+ * deactivated against a local HTTPS server using a self-signed certificate
+ */
+class SslCertificateValidationDeactivationTest {
+    private static final Logger logger = LoggerFactory.getLogger(SslCertificateValidationDeactivationTest.class);
+
+    private static final String KEYSTORE = "/selfsigned-localhost.p12";
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+    private static final String RESPONSE = "{\"confidence\":\"0.1\",\"Resources\":{\"Resource\":[]}}";
+
+    private static final int MAX_CONNECTIONS = 4;
+    private static final int NUMBER_OF_THREADS = 16;
+    private static final int NUMBER_OF_REQUESTS = 200;
+
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    // the HttpsConfigurator is called once for each new connection, i.e., for each TLS handshake
+    private final AtomicInteger numberOfConnections = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = getClass().getResourceAsStream(KEYSTORE)) {
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        this.server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+            @Override
+            public void configure(HttpsParameters params) {
+                numberOfConnections.incrementAndGet();
+                super.configure(params);
+            }
+        });
+        this.server.createContext("/annotate", exchange -> {
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.serverExecutor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    private URI getEndpoint(int i) {
+        return URI.create("https://localhost:" + this.server.getAddress().getPort() + "/annotate?text=question" + i);
+    }
+
+    private void executeConcurrentRequests(RestTemplate restTemplate, int numberOfRequests) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<ResponseEntity<String>>> responses = new LinkedList<>();
+            for (int i = 0; i < numberOfRequests; i++) {
+                URI uri = getEndpoint(i);
+                responses.add(clients.submit(() -> restTemplate.getForEntity(uri, String.class)));
+            }
+            for (Future<ResponseEntity<String>> response : responses) {
+                assertEquals(HttpStatus.OK, response.get().getStatusCode());
+                assertEquals(RESPONSE, response.get().getBody());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    void testSelfSignedCertificateIsAccepted() throws Exception {
+        HttpComponentsClientHttpRequestFactory requestFactory = DBpediaSpotlightNED
+                .getRequestFactoryForSslVerficationDeactivation(MAX_CONNECTIONS, MAX_CONNECTIONS);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(getEndpoint(0), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        requestFactory.destroy();
+    }
+
+    @Test
+    void testConcurrentRequestsReusePooledConnections() throws Exception {
+        HttpComponentsClientHttpRequestFactory requestFactory = DBpediaSpotlightNED
+                .getRequestFactoryForSslVerficationDeactivation(MAX_CONNECTIONS, MAX_CONNECTIONS);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        executeConcurrentRequests(restTemplate, NUMBER_OF_REQUESTS);
+        int connectionsAfterFirstRun = this.numberOfConnections.get();
+        logger.info("{} requests used {} connections", NUMBER_OF_REQUESTS, connectionsAfterFirstRun);
+        assertTrue(connectionsAfterFirstRun <= MAX_CONNECTIONS,
+                "expected at most " + MAX_CONNECTIONS + " connections, but was " + connectionsAfterFirstRun);
+
+        // the number of handshakes does not grow with the number of requests
+        executeConcurrentRequests(restTemplate, 2 * NUMBER_OF_REQUESTS);
+        int connectionsAfterSecondRun = this.numberOfConnections.get();
+        logger.info("{} requests used {} connections", 3 * NUMBER_OF_REQUESTS, connectionsAfterSecondRun);
+        assertTrue(connectionsAfterSecondRun <= MAX_CONNECTIONS,
+                "expected at most " + MAX_CONNECTIONS + " connections, but was " + connectionsAfterSecondRun);
+
+        requestFactory.destroy();
+    }
+}
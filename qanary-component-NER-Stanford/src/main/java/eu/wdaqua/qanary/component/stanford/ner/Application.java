@@ -1,7 +1,6 @@
 package eu.wdaqua.qanary.component.stanford.ner;
 
 import eu.wdaqua.qanary.component.QanaryComponent;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -20,9 +19,12 @@ public class Application {
     /**
      * this method is needed to make the QanaryComponent in this project known to the
      * QanaryServiceController in the qanary_component-template
+     * <p>
+     * the component instance is shared with the batch endpoint (StanfordNERController), hence, both paths are
+     * limited by the same pipeline slots
      */
     @Bean
-    public QanaryComponent qanaryComponent(@Value("${spring.application.name}") final String applicationName) {
-        return new StanfordNERComponent(applicationName);
+    public QanaryComponent qanaryComponent(final StanfordNERComponent stanfordNERComponent) {
+        return stanfordNERComponent;
     }
 }
@@ -0,0 +1,11 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+/**
+ * thrown if a question could not be annotated as all StanfordCoreNLP pipeline slots were occupied until the timeout
+ */
+public class PipelineSaturatedException extends RuntimeException {
+
+    public PipelineSaturatedException(String message) {
+        super(message);
+    }
+}
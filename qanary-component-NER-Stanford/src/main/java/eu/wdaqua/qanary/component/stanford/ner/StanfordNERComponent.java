@@ -17,13 +17,22 @@ import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * represents a wrapper of the Stanford NER tool used here as a spotter for English questions
@@ -34,19 +43,59 @@ import java.util.Properties;
 @Component
 public class StanfordNERComponent extends QanaryComponent {
     private static final Logger logger = LoggerFactory.getLogger(StanfordNERComponent.class);
+    public static final int DEFAULT_ACQUIRE_TIMEOUT_MS = 10000;
+
     private final StanfordCoreNLP myStanfordCoreNLP;
+    // limits the number of questions annotated concurrently
+    private final Semaphore pipelinePermits;
+    private final int poolSize;
+    private final long acquireTimeoutMs;
 
     private final String applicationName;
 
     private String FILENAME_INSERT_ANNOTATION = "/queries/insert_one_annotation.rq";
 
-    public StanfordNERComponent(@Value("${spring.application.name}") final String applicationName) {
+    /**
+     * FULL: tokenize, ssplit, pos, lemma, ner (including the numeric classifiers, e.g., NUMBER, ORDINAL)
+     * <p>
+     * FAST: tokenize, ssplit, ner without the numeric classifiers, so that pos and lemma are not required; the named
+     * entities (PERSON, LOCATION, ORGANIZATION, MISC, ...) are the same as in FULL mode, numeric entities are not
+     * recognized
+     */
+    public enum PipelineMode {
+        FULL, FAST
+    }
+
+    public StanfordNERComponent(final String applicationName) {
+        this(applicationName, 0, DEFAULT_ACQUIRE_TIMEOUT_MS);
+    }
+
+    public StanfordNERComponent(final String applicationName, final int poolSize, final long acquireTimeoutMs) {
+        this(applicationName, poolSize, acquireTimeoutMs, PipelineMode.FULL);
+    }
+
+    /**
+     * @param applicationName
+     * @param poolSize         maximum number of questions annotated concurrently, the number of available processors
+     *                         is used if it is not positive
+     * @param acquireTimeoutMs maximum time (in ms) a question waits for a free pipeline slot
+     * @param pipelineMode     annotators used for the NER
+     */
+    @Autowired
+    public StanfordNERComponent(@Value("${spring.application.name}") final String applicationName, //
+                                @Value("${stanford.ner.pipeline.pool-size:0}") final int poolSize, //
+                                @Value("${stanford.ner.pipeline.acquire-timeout-ms:" + DEFAULT_ACQUIRE_TIMEOUT_MS + "}") final long acquireTimeoutMs, //
+                                @Value("${stanford.ner.pipeline.mode:FULL}") final PipelineMode pipelineMode) {
         // ATTENTION: This should be done only ones when the component is started
-        // Define the properties needed for the pipeline of the Stanford parser
-        Properties props = new Properties();
-        props.put("annotators", "tokenize, ssplit, pos, lemma, ner");
-        props.setProperty("ner.useSUTime", "false");
-        myStanfordCoreNLP = new StanfordCoreNLP(props);
+        // the annotators of a StanfordCoreNLP pipeline are thread-safe, so one pipeline is shared by all slots
+        myStanfordCoreNLP = new StanfordCoreNLP(createPipelineProperties(pipelineMode));
+        logger.info("StanfordCoreNLP pipeline mode: {}", pipelineMode);
+
+        this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.pipelinePermits = new Semaphore(this.poolSize, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        logger.info("StanfordCoreNLP pipeline: {} concurrent annotations, acquire timeout: {} ms", this.poolSize,
+                acquireTimeoutMs);
 
         this.applicationName = applicationName;
 
@@ -54,6 +103,24 @@ public class StanfordNERComponent extends QanaryComponent {
         QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_INSERT_ANNOTATION);
     }
 
+    /**
+     * @return the properties needed for the pipeline of the Stanford parser
+     */
+    static Properties createPipelineProperties(PipelineMode pipelineMode) {
+        Properties props = new Properties();
+        props.setProperty("ner.useSUTime", "false");
+        if (pipelineMode == PipelineMode.FAST) {
+            // only the NER tags and the token offsets are used, the NERCombinerAnnotator requires pos and lemma
+            // only for SUTime and the numeric classifiers
+            props.put("annotators", "tokenize, ssplit, ner");
+            props.setProperty("ner.applyNumericClassifiers", "false");
+            props.setProperty("ner.buildEntityMentions", "false");
+        } else {
+            props.put("annotators", "tokenize, ssplit, pos, lemma, ner");
+        }
+        return props;
+    }
+
     /**
      * default processor of a QanaryMessage
      */
@@ -86,8 +153,74 @@ public class StanfordNERComponent extends QanaryComponent {
         // Create an empty annotation just with the given text
         Annotation document = new Annotation(myQuestion);
         // Run the Stanford annotator on question
-        myStanfordCoreNLP.annotate(document);
-        // Identify which parts of the question is tagged by the NER tool
+        annotate(document);
+        return getSelections(document, myQuestion);
+    }
+
+    /**
+     * annotates all questions concurrently, each question takes its own pipeline slot, hence, the questions of the
+     * Qanary process are annotated in between; a batch uses at most half of the slots (at least one)
+     *
+     * @return the selections of each question (in the order of the questions)
+     * @throws PipelineSaturatedException if a slot did not become free in time
+     */
+    protected List<ArrayList<Selection>> annotateQuestions(List<String> questions) {
+        List<ArrayList<Selection>> result = new ArrayList<>(questions.size());
+        if (questions.isEmpty()) {
+            return result;
+        }
+
+        List<Annotation> documents = new ArrayList<>(questions.size());
+        for (String question : questions) {
+            documents.add(new Annotation(question));
+        }
+
+        int threads = Math.min(getMaxBatchThreads(), questions.size());
+        AtomicInteger nextDocument = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int index = nextDocument.getAndIncrement(); index < documents.size();
+                         index = nextDocument.getAndIncrement()) {
+                        annotate(documents.get(index));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineSaturatedException("interrupted while annotating the questions");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // stops the other workers if one failed
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < questions.size(); i++) {
+            result.add(getSelections(documents.get(i), questions.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum number of questions of a batch annotated concurrently
+     */
+    int getMaxBatchThreads() {
+        return Math.max(1, poolSize / 2);
+    }
+
+    /**
+     * Identify which parts of the question is tagged by the NER tool
+     */
+    private ArrayList<Selection> getSelections(Annotation document, String myQuestion) {
         ArrayList<Selection> selections = new ArrayList<>();
 
         // stores the last token with non-zero
@@ -131,6 +264,39 @@ public class StanfordNERComponent extends QanaryComponent {
         return selections;
     }
 
+    /**
+     * runs the pipeline on the document, waits at most acquireTimeoutMs for a free slot
+     *
+     * @throws PipelineSaturatedException if no slot became free in time
+     */
+    protected void annotate(Annotation document) {
+        acquire(1);
+        try {
+            myStanfordCoreNLP.annotate(document);
+        } finally {
+            pipelinePermits.release();
+        }
+    }
+
+    private void acquire(int slots) {
+        boolean acquired;
+        try {
+            acquired = pipelinePermits.tryAcquire(slots, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineSaturatedException("interrupted while waiting for a StanfordCoreNLP pipeline");
+        }
+        if (!acquired) {
+            throw new PipelineSaturatedException(String.format(
+                    "no StanfordCoreNLP pipeline available within %d ms (all %d pipelines busy, %d questions waiting)",
+                    acquireTimeoutMs, poolSize, pipelinePermits.getQueueLength()));
+        }
+    }
+
+    Semaphore getPipelinePermits() {
+        return pipelinePermits;
+    }
+
     protected void insertSelectionsIntoQanaryTriplestore(Selection s, QanaryQuestion<String> myQanaryQuestion,
                                                          QanaryUtils myQanaryUtils)
             throws SparqlQueryFailed, QanaryExceptionNoOrMultipleQuestions, URISyntaxException, IOException {
@@ -0,0 +1,72 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+import eu.wdaqua.qanary.component.stanford.ner.StanfordNERComponent.Selection;
+import eu.wdaqua.qanary.component.stanford.ner.messages.NamedEntitiesResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Controller
+public class StanfordNERController {
+    private static final Logger logger = LoggerFactory.getLogger(StanfordNERController.class);
+    private final StanfordNERComponent myStanfordNERComponent;
+
+    public StanfordNERController(@Qualifier("stanfordNERComponent") StanfordNERComponent myStanfordNERComponent) {
+        this.myStanfordNERComponent = myStanfordNERComponent;
+    }
+
+    /**
+     * annotates a list of questions using the multi-threaded annotation of StanfordCoreNLP and responds with the
+     * merged entity spans of each question (in the order of the questions)
+     * <p>
+     * example:
+     *
+     * <pre>
+     curl -X POST "http://localhost:10001/api/batch" -H  "accept: application/json" -H  "Content-Type: application/json" -d "[\"Where did Abraham Lincoln die?\", \"Who developed Skype?\"]"
+
+     [{"question":"Where did Abraham Lincoln die?","entities":[{"begin":10,"end":25,"entity":"Abraham Lincoln"}]},{"question":"Who developed Skype?","entities":[{"begin":14,"end":19,"entity":"Skype"}]}]
+     * </pre>
+     *
+     * @param questions
+     * @return
+     */
+    @PostMapping(value = "/api/batch", produces = "application/json")
+    @ResponseBody
+    public HttpEntity<List<NamedEntitiesResponse>> annotateQuestions(@RequestBody List<String> questions) {
+        logger.info("batch annotation of {} questions", questions.size());
+        List<String> texts = new ArrayList<>(questions.size());
+        for (String question : questions) {
+            texts.add(question == null ? "" : question);
+        }
+
+        List<ArrayList<Selection>> selections = this.myStanfordNERComponent.annotateQuestions(texts);
+        List<NamedEntitiesResponse> result = new ArrayList<>(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            NamedEntitiesResponse response = new NamedEntitiesResponse(questions.get(i));
+            for (Selection s : selections.get(i)) {
+                response.addEntity(s.getBegin(), s.getEnd(), s.getIdentifiedEntity());
+            }
+            result.add(response);
+        }
+        return new HttpEntity<>(result);
+    }
+
+    @ExceptionHandler(PipelineSaturatedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public String handlePipelineSaturated(PipelineSaturatedException e) {
+        logger.warn(e.getMessage());
+        return e.getMessage();
+    }
+}
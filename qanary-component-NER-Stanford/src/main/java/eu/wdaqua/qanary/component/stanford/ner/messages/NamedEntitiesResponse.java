@@ -0,0 +1,63 @@
+package eu.wdaqua.qanary.component.stanford.ner.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the named entities found in one question
+ */
+public class NamedEntitiesResponse {
+
+    private final String question;
+    private final List<NamedEntity> entities = new ArrayList<>();
+
+    public NamedEntitiesResponse(String question) {
+        this.question = question;
+    }
+
+    public void addEntity(int begin, int end, String entity) {
+        this.entities.add(new NamedEntity(begin, end, entity));
+    }
+
+    public String getQuestion() {
+        return this.question;
+    }
+
+    public List<NamedEntity> getEntities() {
+        return this.entities;
+    }
+
+    @Override
+    public String toString() {
+        return (this.getClass().getName() + " ( question=" + this.getQuestion() + ", entities=" + this.getEntities() + ")");
+    }
+
+    public static class NamedEntity {
+        private final int begin;
+        private final int end;
+        private final String entity;
+
+        public NamedEntity(int begin, int end, String entity) {
+            this.begin = begin;
+            this.end = end;
+            this.entity = entity;
+        }
+
+        public int getBegin() {
+            return this.begin;
+        }
+
+        public int getEnd() {
+            return this.end;
+        }
+
+        public String getEntity() {
+            return this.entity;
+        }
+
+        @Override
+        public String toString() {
+            return this.begin + "-" + this.end + " " + this.entity;
+        }
+    }
+}
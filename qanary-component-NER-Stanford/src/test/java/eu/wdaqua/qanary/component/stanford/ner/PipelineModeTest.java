@@ -0,0 +1,119 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * compares the FAST pipeline mode (no pos and lemma) with the FULL pipeline mode
+ */
+class PipelineModeTest {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineModeTest.class);
+
+    // questions containing only named entities
+    private static final String[] NAMED_ENTITY_QUESTIONS = { //
+            "Which airports does Air China serve?", //
+            "Who developed Skype?", //
+            "Which people were born in Heraklion?", //
+            "Who is the mayor of New York City?", //
+            "Where did Abraham Lincoln die?", //
+            "What are the official languages of the Philippines?", //
+            "Which movies starring Brad Pitt were directed by Guy Ritchie?", //
+            "Give me all Danish films", //
+            "Give me the grandchildren of Bruce Lee.", //
+            "Who is the owner of Universal Studios?", //
+            "Which monarchs were married to a German?", //
+            "Who created the comic Captain America?", //
+            "Who is the daughter of Ingrid Bergman married to?", //
+            "How deep is Lake Placid?", //
+            "Show me all museums in London.", //
+            "Which spaceflights were launched from Baikonur?", //
+            "Is Barack Obama a democrat?", //
+            "Who wrote the book The Pillars of the Earth?" //
+    };
+    // questions containing numeric entities that are only recognized in FULL mode
+    private static final String[] NUMERIC_QUESTIONS = { //
+            "Which countries have places with more than two caves?", //
+            "Which organizations were founded in 1950?", //
+            "Give me the Apollo 14 astronauts.", //
+            "Which caves have more than 3 entrances?", //
+            "Who was the first president of the United States?" //
+    };
+
+    private static StanfordNERComponent full;
+    private static StanfordNERComponent fast;
+
+    @BeforeAll
+    public static void initStanfordNERComponents() {
+        full = new StanfordNERComponent("stanfordNER", 1, 60000, StanfordNERComponent.PipelineMode.FULL);
+        fast = new StanfordNERComponent("stanfordNER", 1, 60000, StanfordNERComponent.PipelineMode.FAST);
+    }
+
+    /**
+     * @return the questions whose spans differ between both modes (including the spans)
+     */
+    private static List<String> getSpanDifferences(String[] questions) {
+        List<String> differences = new ArrayList<>();
+        for (String question : questions) {
+            String expected = StanfordNERConcurrencyTest.toString(full.annotateQuestion(question));
+            String actual = StanfordNERConcurrencyTest.toString(fast.annotateQuestion(question));
+            if (!expected.equals(actual)) {
+                differences.add(question + "\nFULL:\n" + expected + "FAST:\n" + actual);
+            }
+        }
+        return differences;
+    }
+
+    @Test
+    void testSameSpansForNamedEntities() {
+        List<String> differences = getSpanDifferences(NAMED_ENTITY_QUESTIONS);
+        for (String difference : differences) {
+            logger.warn("span difference for {}", difference);
+        }
+        assertEquals(0, differences.size(), String.join("\n", differences));
+    }
+
+    @Test
+    void reportSpanDifferencesForNumericEntities() {
+        List<String> differences = getSpanDifferences(NUMERIC_QUESTIONS);
+        logger.info("{} of {} questions with numeric entities have different spans", differences.size(),
+                NUMERIC_QUESTIONS.length);
+        for (String difference : differences) {
+            logger.info("span difference for {}", difference);
+        }
+    }
+
+    @Test
+    void benchmarkPipelineModes() {
+        int repetitions = 10;
+        // warm up
+        for (String question : NAMED_ENTITY_QUESTIONS) {
+            full.annotateQuestion(question);
+            fast.annotateQuestion(question);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            for (String question : NAMED_ENTITY_QUESTIONS) {
+                full.annotateQuestion(question);
+            }
+        }
+        long fullTime = (System.nanoTime() - start) / (repetitions * NAMED_ENTITY_QUESTIONS.length);
+
+        start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            for (String question : NAMED_ENTITY_QUESTIONS) {
+                fast.annotateQuestion(question);
+            }
+        }
+        long fastTime = (System.nanoTime() - start) / (repetitions * NAMED_ENTITY_QUESTIONS.length);
+
+        logger.info("latency per question: FULL {} µs, FAST {} µs", fullTime / 1000, fastTime / 1000);
+    }
+}
@@ -0,0 +1,72 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+import eu.wdaqua.qanary.component.QanaryComponent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * the Qanary process (qanaryComponent) and the batch endpoint are limited by the same pipeline slots
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = { //
+        "stanford.ner.pipeline.pool-size=2", //
+        "stanford.ner.pipeline.acquire-timeout-ms=200" //
+})
+class SharedPipelineLimitTest {
+    @Autowired
+    private WebApplicationContext applicationContext;
+    @Autowired
+    @Qualifier("qanaryComponent")
+    private QanaryComponent qanaryComponent;
+    @Autowired
+    @Qualifier("stanfordNERComponent")
+    private StanfordNERComponent stanfordNERComponent;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.applicationContext).build();
+    }
+
+    @Test
+    void testQanaryProcessAndBatchEndpointShareTheComponent() {
+        assertSame(stanfordNERComponent, qanaryComponent);
+    }
+
+    @Test
+    void testBatchEndpointIsRejectedIfQanaryProcessUsesAllSlots() throws Exception {
+        String questions = "[\"Who developed Skype?\", \"Where did Abraham Lincoln die?\"]";
+        // all slots are used by questions of the Qanary process
+        Semaphore pipelinePermits = ((StanfordNERComponent) qanaryComponent).getPipelinePermits();
+        pipelinePermits.acquire(2);
+        try {
+            mockMvc.perform(post("/api/batch").contentType(MediaType.APPLICATION_JSON).content(questions)) //
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            pipelinePermits.release(2);
+        }
+
+        mockMvc.perform(post("/api/batch").contentType(MediaType.APPLICATION_JSON).content(questions)) //
+                .andExpect(status().isOk());
+    }
+}
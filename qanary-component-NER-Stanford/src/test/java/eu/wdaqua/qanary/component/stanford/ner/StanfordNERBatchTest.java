@@ -0,0 +1,141 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * compares the multi-threaded batch annotation with the annotation of single questions and checks the pipeline slots
+ * used by a batch
+ */
+class StanfordNERBatchTest {
+    private static final Logger logger = LoggerFactory.getLogger(StanfordNERBatchTest.class);
+
+    private static final String[] TEMPLATES = {"Where was %s born?", "Who is the wife of %s?",
+            "Which movies did %s direct in %s?", "How many people live in %s?", "When did %s visit %s?",
+            "Give me all books written by %s.", "Is %s older than %s?"};
+    private static final String[] NAMES = {"Abraham Lincoln", "Bruce Lee", "Brad Pitt", "Guy Ritchie",
+            "Ingrid Bergman", "Angela Merkel", "Barack Obama", "Berlin", "New York City", "Heraklion", "London",
+            "the Philippines", "Air China", "Universal Studios", "Skype", "Germany"};
+    private static final int NUMBER_OF_QUESTIONS = 1000;
+
+    private static StanfordNERComponent component;
+
+    @BeforeAll
+    public static void initStanfordNERComponent() {
+        component = new StanfordNERComponent("stanfordNER", 4, 60000);
+    }
+
+    static List<String> createQuestions(int numberOfQuestions, Random random) {
+        List<String> questions = new ArrayList<>();
+        for (int i = 0; i < numberOfQuestions; i++) {
+            String template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+            questions.add(String.format(template, NAMES[random.nextInt(NAMES.length)],
+                    NAMES[random.nextInt(NAMES.length)]));
+        }
+        return questions;
+    }
+
+    @Test
+    void testBatchAnnotationEqualsSingleAnnotation() {
+        List<String> questions = createQuestions(NUMBER_OF_QUESTIONS, new Random(42));
+
+        long start = System.currentTimeMillis();
+        List<String> expected = new ArrayList<>();
+        for (String question : questions) {
+            expected.add(StanfordNERConcurrencyTest.toString(component.annotateQuestion(question)));
+        }
+        long singleTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        List<String> actual = new ArrayList<>();
+        for (List<StanfordNERComponent.Selection> selections : component.annotateQuestions(questions)) {
+            actual.add(StanfordNERConcurrencyTest.toString(selections));
+        }
+        long batchTime = System.currentTimeMillis() - start;
+
+        logger.info("{} questions: one by one {} ms, batch {} ms", questions.size(), singleTime, batchTime);
+        assertEquals(expected, actual);
+        assertEquals(4, component.getPipelinePermits().availablePermits());
+    }
+
+    @Test
+    void testBatchLeavesSlotsForSingleQuestions() throws Exception {
+        List<String> questions = createQuestions(NUMBER_OF_QUESTIONS, new Random(7));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<ArrayList<StanfordNERComponent.Selection>>> batch = executor
+                    .submit(() -> component.annotateQuestions(questions));
+            int minAvailablePermits = 4;
+            int singleQuestions = 0;
+            while (!batch.isDone()) {
+                minAvailablePermits = Math.min(minAvailablePermits, component.getPipelinePermits().availablePermits());
+                // annotated while the batch is running
+                component.annotateQuestion("Where was Bruce Lee born?");
+                singleQuestions++;
+            }
+
+            logger.info("{} single questions annotated during the batch, min. {} free slots", singleQuestions,
+                    minAvailablePermits);
+            assertEquals(questions.size(), batch.get().size());
+            assertTrue(singleQuestions > 0);
+            // the batch uses at most half of the slots
+            assertTrue(minAvailablePermits >= 2, "free slots: " + minAvailablePermits);
+            assertEquals(4, component.getPipelinePermits().availablePermits());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchEndpointKeepsOrder() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StanfordNERController(component)).build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> questions = new ArrayList<>(createQuestions(20, new Random(4711)));
+        questions.addAll(Arrays.asList("", "What is 42?", null));
+
+        String response = mockMvc.perform(post("/api/batch").contentType(MediaType.APPLICATION_JSON) //
+                        .content(objectMapper.writeValueAsString(questions))) //
+                .andExpect(status().isOk()) //
+                .andReturn().getResponse().getContentAsString();
+        JsonNode results = objectMapper.readTree(response);
+
+        assertEquals(questions.size(), results.size());
+        for (int i = 0; i < questions.size(); i++) {
+            String question = questions.get(i);
+            JsonNode result = results.get(i);
+            StringBuilder actual = new StringBuilder();
+            for (JsonNode entity : result.get("entities")) {
+                actual.append(entity.get("begin").asInt()).append('-').append(entity.get("end").asInt()).append(' ')
+                        .append(entity.get("entity").asText()).append('\n');
+            }
+            if (question == null) {
+                assertEquals(true, result.get("question").isNull());
+                assertEquals("", actual.toString());
+            } else {
+                assertEquals(question, result.get("question").asText());
+                assertEquals(StanfordNERConcurrencyTest.toString(component.annotateQuestion(question)),
+                        actual.toString(), question);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package eu.wdaqua.qanary.component.stanford.ner;
+
+import eu.wdaqua.qanary.component.stanford.ner.StanfordNERComponent.Selection;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * tests the bounded number of concurrent annotations of the StanfordNERComponent
+ */
+class StanfordNERConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(StanfordNERConcurrencyTest.class);
+
+    static final String[] QUESTIONS = { //
+            "Which airports does Air China serve?", //
+            "Who developed Skype?", //
+            "Which people were born in Heraklion?", //
+            "Who is the mayor of New York City?", //
+            "Where did Abraham Lincoln die?", //
+            "What are the official languages of the Philippines?", //
+            "Which movies starring Brad Pitt were directed by Guy Ritchie?", //
+            "Give me all Danish films", //
+            "Give me the grandchildren of Bruce Lee.", //
+            "Which countries have places with more than two caves?" //
+    };
+    private static final int NUMBER_OF_PARALLEL_QUESTIONS = 50;
+
+    static String toString(List<Selection> selections) {
+        StringBuilder result = new StringBuilder();
+        for (Selection s : selections) {
+            result.append(s.getBegin()).append('-').append(s.getEnd()).append(' ').append(s.getIdentifiedEntity())
+                    .append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * annotates NUMBER_OF_PARALLEL_QUESTIONS questions using the given number of client threads
+     *
+     * @return the annotations in the order of the questions
+     */
+    private static List<String> annotateInParallel(StanfordNERComponent component, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_PARALLEL_QUESTIONS; i++) {
+                String question = QUESTIONS[i % QUESTIONS.length];
+                futures.add(executor.submit(() -> toString(component.annotateQuestion(question))));
+            }
+            List<String> result = new ArrayList<>();
+            for (Future<String> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testParallelAnnotationsEqualSerialAnnotations() throws Exception {
+        StanfordNERComponent component = new StanfordNERComponent("stanfordNER", 4, 60000);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_PARALLEL_QUESTIONS; i++) {
+            expected.add(toString(component.annotateQuestion(QUESTIONS[i % QUESTIONS.length])));
+        }
+
+        assertEquals(expected, annotateInParallel(component, NUMBER_OF_PARALLEL_QUESTIONS));
+        assertEquals(4, component.getPipelinePermits().availablePermits());
+    }
+
+    @Test
+    void testSaturatedPipelineFailsAfterTimeout() throws Exception {
+        StanfordNERComponent component = new StanfordNERComponent("stanfordNER", 1, 200);
+        component.getPipelinePermits().acquire();
+        try {
+            long start = System.currentTimeMillis();
+            PipelineSaturatedException e = assertThrows(PipelineSaturatedException.class,
+                    () -> component.annotateQuestion(QUESTIONS[0]));
+            long waited = System.currentTimeMillis() - start;
+            logger.info("failed after {} ms: {}", waited, e.getMessage());
+            assertTrue(waited >= 200 && waited < 5000, "waited " + waited + " ms");
+        } finally {
+            component.getPipelinePermits().release();
+        }
+        // the component is usable again
+        assertEquals(toString(new StanfordNERComponent("stanfordNER").annotateQuestion(QUESTIONS[0])),
+                toString(component.annotateQuestion(QUESTIONS[0])));
+    }
+
+    @Test
+    void testThroughputScalesWithPoolSize() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        StanfordNERComponent single = new StanfordNERComponent("stanfordNER", 1, 60000);
+        StanfordNERComponent pool = new StanfordNERComponent("stanfordNER", cores, 60000);
+        // warm up
+        annotateInParallel(single, NUMBER_OF_PARALLEL_QUESTIONS);
+        annotateInParallel(pool, NUMBER_OF_PARALLEL_QUESTIONS);
+
+        long start = System.currentTimeMillis();
+        annotateInParallel(single, NUMBER_OF_PARALLEL_QUESTIONS);
+        long singleTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        annotateInParallel(pool, NUMBER_OF_PARALLEL_QUESTIONS);
+        long poolTime = System.currentTimeMillis() - start;
+
+        logger.info("{} parallel questions: pool size 1: {} ms, pool size {}: {} ms", NUMBER_OF_PARALLEL_QUESTIONS,
+                singleTime, cores, poolTime);
+        assumeTrue(cores >= 4, "scaling is only checked on multi-core machines");
+        assertTrue(poolTime < singleTime, "pool: " + poolTime + " ms, single: " + singleTime + " ms");
+    }
+}
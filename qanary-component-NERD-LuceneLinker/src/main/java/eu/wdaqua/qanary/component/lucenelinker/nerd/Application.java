@@ -18,8 +18,11 @@ public class Application {
      * QanaryServiceController in the qanary_component-template
      */
     @Bean
-    public QanaryComponent qanaryComponent(@Value("${spring.application.name}") final String applicationName) {
-        return new LuceneLinker(applicationName);
+    public QanaryComponent qanaryComponent(@Value("${spring.application.name}") final String applicationName,
+                                           @Value("${lucenelinker.candidate-generation:PER_NGRAM}") final LuceneLinker.CandidateGeneration candidateGeneration,
+                                           @Value("${lucenelinker.dump:" + Index.DEFAULT_DUMP + "}") final String dump,
+                                           @Value("${lucenelinker.index.directory:" + Index.DEFAULT_INDEX_DIRECTORY + "}") final String indexDirectory) {
+        return new LuceneLinker(applicationName, candidateGeneration, dump, indexDirectory);
     }
 
     public static void main(String[] args) {
@@ -12,61 +12,100 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.*;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
 import org.apache.lucene.search.similarities.TFIDFSimilarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.StringReader;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class Index {
+public class Index implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(LuceneLinker.class);
     private static final Analyzer analyzer = new EnglishAnalyzer(CharArraySet.EMPTY_SET);
-    private static Directory index;
-    private static String dump;
+    public static final String DEFAULT_DUMP = "/tmp/dump.nt";
+    public static final String DEFAULT_INDEX_DIRECTORY = "/tmp/lucene";
+    // maximum number of hits retrieved by query()
+    private static final int MAX_HITS = 60;
+    // returned by query() for hits that contain the searched phrase, but are not equal to it
+    public static final String NO_EXACT_MATCH = "http://dbpedia.org/";
+    private static final String NORMALIZED_LEXICALIZATION = "normalizedLexicalization";
+    // length of the label, the exact matches with the shortest labels are retrieved first
+    private static final String LEXICALIZATION_LENGTH = "lexicalizationLength";
+    private static final Sort EXACT_MATCH_ORDER = new Sort(new SortField(LEXICALIZATION_LENGTH, SortField.Type.INT), SortField.FIELD_DOC);
+    // Lucene rejects terms longer than 32766 bytes, longer labels cannot be matched exactly by any question anyway
+    private static final int MAX_NORMALIZED_LENGTH = 8000;
+
+    private final Directory index;
+    private final String dump;
+    // shared by all queries and concurrent requests, a new reader is only opened if the index has changed
+    private final SearcherManager searcherManager;
+    private final AtomicInteger numberOfOpenedSearchers = new AtomicInteger();
 
     public Index(String d) throws IOException {
         //dump=d;
-        dump = "/tmp/dump.nt";
-        index = FSDirectory.open(Paths.get("/tmp/lucene"));
+        this(DEFAULT_DUMP, DEFAULT_INDEX_DIRECTORY);
+    }
+
+    public Index(String dump, String indexDirectory) throws IOException {
+        this.dump = dump;
+        this.index = FSDirectory.open(Paths.get(indexDirectory));
         if (!DirectoryReader.indexExists(index)) {
             index();
         }
+        this.searcherManager = new SearcherManager(index, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setSimilarity(new CustomSimilarity());
+                numberOfOpenedSearchers.incrementAndGet();
+                return searcher;
+            }
+        });
     }
 
 
-    private static void index() throws IOException {
-        //The index uses the same analyser as the query parser
-        IndexWriterConfig config = new IndexWriterConfig(analyzer).setSimilarity(new CustomSimilarity());
-
+    private void index() throws IOException {
         //Create an index for the instances
-        IndexWriter w_instances = new IndexWriter(index, config);
+        IndexWriter w_instances = new IndexWriter(index, createIndexWriterConfig());
         PipedRDFIterator<Triple> iter = parse(dump);
         int count = 0;
         while (iter.hasNext()) {
             Triple next = iter.next();
-            if (next.getPredicate().toString().equals("http://www.w3.org/2000/01/rdf-schema#label") || next.getPredicate().toString().equals("http://dbpedia.org/ontology/demonym")) {
-                if (next.getObject().getLiteralLanguage().equals("en")) {
-                    addDoc(w_instances, next.getSubject().toString(), next.getObject().getLiteralValue().toString());
-                }
-            }
+            addIfLabel(w_instances, next);
             count++;
             if (count % 10000 == 0) {
                 logger.info("Number {} ", count);
@@ -76,56 +115,337 @@ public class Index {
 
     }
 
+    static IndexWriterConfig createIndexWriterConfig() {
+        //The index uses the same analyser as the query parser
+        return new IndexWriterConfig(analyzer).setSimilarity(new CustomSimilarity());
+    }
+
+    /**
+     * adds the triple to the index if it is an English label (rdfs:label or dbo:demonym)
+     *
+     * @return true if the triple was added
+     */
+    static boolean addIfLabel(IndexWriter w, Triple next) throws IOException {
+        if (next.getPredicate().toString().equals("http://www.w3.org/2000/01/rdf-schema#label") || next.getPredicate().toString().equals("http://dbpedia.org/ontology/demonym")) {
+            if (next.getObject().getLiteralLanguage().equals("en")) {
+                addDoc(w, next.getSubject().toString(), next.getObject().getLiteralValue().toString());
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void addDoc(IndexWriter w, String resource, String lexicalization) throws IOException {
         Document doc = new Document();
         doc.add(new TextField("resource", resource, Field.Store.YES));
         doc.add(new TextField("lexicalization", lexicalization, Field.Store.YES));
+        // the analyzed (stemmed) label is used for the exact match lookup, so stored labels are not analyzed at query time
+        String normalized = normalize(lexicalization);
+        if (normalized.length() <= MAX_NORMALIZED_LENGTH) {
+            doc.add(new StringField(NORMALIZED_LEXICALIZATION, normalized, Field.Store.YES));
+        }
+        doc.add(new NumericDocValuesField(LEXICALIZATION_LENGTH, lexicalization.length()));
         w.addDocument(doc);
     }
 
-    public static List<String> query(String querystr) throws IOException, ParseException, InvalidTokenOffsetsException {
+    /**
+     * the tokens of the text as computed by the analyzer of the index, separated by a space
+     */
+    static String normalize(String text) throws IOException {
+        return String.join(" ", analyze(text));
+    }
+
+    public List<String> query(String querystr) throws IOException, ParseException, InvalidTokenOffsetsException {
         List<String> result = new ArrayList<String>();
         // the "lexicalization" arg specifies the default field to use
         // when no field is explicitly specified in the query.
 
         Query q = new QueryParser("lexicalization", analyzer).parse(querystr);
-        IndexReader reader = DirectoryReader.open(index);
-        IndexSearcher searcher = new IndexSearcher(reader);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            if (hasNormalizedLexicalizations(searcher)) {
+                return queryNormalized(searcher, q, querystr);
+            }
+
+            // index created without the normalized labels: compare the stemmed labels of the hits
+            TopDocs docs_instances = searcher.search(q, 10);
+            ScoreDoc[] hits = docs_instances.scoreDocs;
+
+            //Search more if perfect match
+            //if (hits.length>0 && hits[0].score==hits[hits.length-1].score){
+            if (hits.length > 0 && compareStemmed(querystr, searcher.doc(hits[hits.length - 1].doc).get("lexicalization"))) {
+                docs_instances = searcher.search(q, 20);
+                hits = docs_instances.scoreDocs;
+            }
+
+            if (hits.length > 0 && compareStemmed(querystr, searcher.doc(hits[hits.length - 1].doc).get("lexicalization"))) {
+                docs_instances = searcher.search(q, MAX_HITS);
+                hits = docs_instances.scoreDocs;
+            }
+
+            for (int i = 0; i < hits.length; ++i) {
+                int docId = hits[i].doc;
+                Document d = searcher.doc(docId);
 
-        searcher.setSimilarity(new CustomSimilarity());
-        TopDocs docs_instances = searcher.search(q, 10);
-        ScoreDoc[] hits = docs_instances.scoreDocs;
 
-        //Search more if perfect match
-        //if (hits.length>0 && hits[0].score==hits[hits.length-1].score){
-        if (hits.length > 0 && compareStemmed(querystr, searcher.doc(hits[hits.length - 1].doc).get("lexicalization"))) {
-            docs_instances = searcher.search(q, 20);
-            hits = docs_instances.scoreDocs;
+                //System.out.println("Search " + querystr + " found " + d.get("resource") + "  Score: " + hits[i].score);
+
+                //Look if the retrieved result matches exactly the searched
+                if (compareStemmed(querystr, d.get("lexicalization"))) {
+                    result.add(d.get("resource"));
+                } else {
+                    result.add(NO_EXACT_MATCH);
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return result;
+    }
+
+    /**
+     * looks up the labels that are equal to the (stemmed) query using the normalized labels, the result contains the
+     * exactly matching resources ordered by the length of their labels (like the hits of the phrase query, as the
+     * custom similarity ranks shorter labels higher), if there are none, but the phrase is contained in some label,
+     * then the result contains just NO_EXACT_MATCH
+     */
+    private List<String> queryNormalized(IndexSearcher searcher, Query q, String querystr) throws IOException {
+        List<String> result = new ArrayList<String>();
+        // sorted while collecting, hence, the shortest labels are kept if there are more than MAX_HITS exact matches
+        TopDocs exactMatches = searcher.search(new TermQuery(new Term(NORMALIZED_LEXICALIZATION, normalize(querystr))), MAX_HITS, EXACT_MATCH_ORDER);
+        if (exactMatches.scoreDocs.length == 0) {
+            if (exists(searcher, q)) {
+                result.add(NO_EXACT_MATCH);
+            }
+            return result;
         }
 
-        if (hits.length > 0 && compareStemmed(querystr, searcher.doc(hits[hits.length - 1].doc).get("lexicalization"))) {
-            docs_instances = searcher.search(q, 60);
-            hits = docs_instances.scoreDocs;
+        for (ScoreDoc hit : exactMatches.scoreDocs) {
+            result.add(searcher.doc(hit.doc).get("resource"));
         }
+        return result;
+    }
 
-        for (int i = 0; i < hits.length; ++i) {
-            int docId = hits[i].doc;
-            Document d = searcher.doc(docId);
+    /**
+     * true if the query matches any document (stops at the first match)
+     */
+    private static boolean exists(IndexSearcher searcher, Query q) throws IOException {
+        final boolean[] found = {false};
+        searcher.search(q, new SimpleCollector() {
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                if (found[0]) {
+                    throw new CollectionTerminatedException();
+                }
+            }
 
+            @Override
+            public void collect(int doc) {
+                found[0] = true;
+                throw new CollectionTerminatedException();
+            }
 
-            //System.out.println("Search " + querystr + " found " + d.get("resource") + "  Score: " + hits[i].score);
+            @Override
+            public boolean needsScores() {
+                return false;
+            }
+        });
+        return found[0];
+    }
 
-            //Look if the retrieved result matches exactly the searched
-            if (compareStemmed(querystr, d.get("lexicalization"))) {
-                result.add(d.get("resource"));
-            } else {
-                result.add("http://dbpedia.org/");
+    /**
+     * true if all segments of the index contain the normalized labels and their lengths (not the case for indexes
+     * created before they were introduced)
+     */
+    private static boolean hasNormalizedLexicalizations(IndexSearcher searcher) {
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            FieldInfos fieldInfos = leaf.reader().getFieldInfos();
+            FieldInfo lengthInfo = fieldInfos.fieldInfo(LEXICALIZATION_LENGTH);
+            if (fieldInfos.fieldInfo(NORMALIZED_LEXICALIZATION) == null
+                    || lengthInfo == null || lengthInfo.getDocValuesType() != DocValuesType.NUMERIC) {
+                return false;
             }
         }
-        reader.close();
+        return true;
+    }
+
+    /**
+     * reopens the shared searcher if (and only if) the index was changed, e.g., after it was rebuilt
+     */
+    public void maybeRefresh() throws IOException {
+        if (searcherManager.maybeRefresh()) {
+            logger.info("Lucene searcher of {} refreshed", index);
+        }
+    }
+
+    /**
+     * number of searchers (i.e., index readers) opened so far
+     */
+    int getNumberOfOpenedSearchers() {
+        return numberOfOpenedSearchers.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        index.close();
+    }
+
+    /**
+     * resolves all n-grams of the given question tokens in a single pass over the postings of the question terms
+     * (instead of one search per n-gram)
+     * <p>
+     * the result contains for each start token i a list of the exactly matching resources of the n-grams starting
+     * at i (the element at position L-1 belongs to the n-gram of length L), as in the n-gram loop of the
+     * LuceneLinker the list ends with the first n-gram that is not contained in any label
+     *
+     * @param tokens the tokens of the question (as computed by the LuceneLinker)
+     * @return the exact matches per n-gram or null if the tokens cannot be mapped to index terms one by one
+     */
+    public List<List<List<String>>> queryAllNGrams(List<String> tokens) throws IOException {
+        List<String> terms = new ArrayList<String>();
+        for (String token : tokens) {
+            List<String> analyzed = analyze(token);
+            if (analyzed.size() != 1) {
+                return null;
+            }
+            terms.add(analyzed.get(0));
+        }
+
+        List<List<List<String>>> result = new ArrayList<List<List<String>>>();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            // the occurrences (document and position) of each question term are read only once
+            Map<String, long[]> occurrences = new HashMap<String, long[]>();
+            for (String term : terms) {
+                if (!occurrences.containsKey(term)) {
+                    occurrences.put(term, getOccurrences(searcher.getIndexReader(), term));
+                }
+            }
+            Map<Integer, Integer> numberOfTokensOfDocument = new HashMap<Integer, Integer>();
+
+            for (int i = 0; i < terms.size(); i++) {
+                List<List<String>> nGramsStartingAtI = new ArrayList<List<String>>();
+                // start positions of the current n-gram (starting with the unigram at i)
+                long[] matches = occurrences.get(terms.get(i));
+                int length = 1;
+                while (matches.length > 0) {
+                    nGramsStartingAtI.add(getExactMatches(searcher, matches, length, numberOfTokensOfDocument));
+                    if (i + length >= terms.size()) {
+                        break;
+                    }
+                    matches = extend(matches, occurrences.get(terms.get(i + length)), length);
+                    length++;
+                }
+                result.add(nGramsStartingAtI);
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
         return result;
     }
 
+    /**
+     * all occurrences of the term in the index encoded as (document &lt;&lt; 32 | position), sorted ascending
+     */
+    private static long[] getOccurrences(IndexReader reader, String term) throws IOException {
+        long[] occurrences = new long[16];
+        int size = 0;
+        BytesRef bytes = new BytesRef(term);
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Terms terms = leaf.reader().terms("lexicalization");
+            if (terms == null) {
+                continue;
+            }
+            TermsEnum termsEnum = terms.iterator();
+            if (!termsEnum.seekExact(bytes)) {
+                continue;
+            }
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            PostingsEnum postings = termsEnum.postings(null, PostingsEnum.POSITIONS);
+            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) {
+                    continue;
+                }
+                for (int j = 0; j < postings.freq(); j++) {
+                    if (size == occurrences.length) {
+                        occurrences = Arrays.copyOf(occurrences, size * 2);
+                    }
+                    occurrences[size++] = ((long) (leaf.docBase + doc) << 32) | postings.nextPosition();
+                }
+            }
+        }
+        return Arrays.copyOf(occurrences, size);
+    }
+
+    /**
+     * keeps the start positions of an n-gram of the given length that are followed by the next term
+     */
+    private static long[] extend(long[] matches, long[] nextTermOccurrences, int length) {
+        long[] extended = new long[matches.length];
+        int size = 0;
+        for (long match : matches) {
+            if (Arrays.binarySearch(nextTermOccurrences, match + length) >= 0) {
+                extended[size++] = match;
+            }
+        }
+        return Arrays.copyOf(extended, size);
+    }
+
+    /**
+     * the resources whose label is equal to the n-gram, i.e., the n-gram starts at position 0 and the label has the
+     * same number of tokens, ordered like the hits of query()
+     */
+    private List<String> getExactMatches(IndexSearcher searcher, long[] matches, int length,
+                                         Map<Integer, Integer> numberOfTokensOfDocument) throws IOException {
+        List<Document> exactMatches = new ArrayList<Document>();
+        for (long match : matches) {
+            if ((int) match != 0) {
+                continue;
+            }
+            int docId = (int) (match >>> 32);
+            Integer numberOfTokens = numberOfTokensOfDocument.get(docId);
+            Document d = null;
+            if (numberOfTokens == null) {
+                d = searcher.doc(docId);
+                String normalized = d.get(NORMALIZED_LEXICALIZATION);
+                if (normalized != null) {
+                    numberOfTokens = normalized.isEmpty() ? 0 : normalized.split(" ").length;
+                } else {
+                    numberOfTokens = analyze(d.get("lexicalization")).size();
+                }
+                numberOfTokensOfDocument.put(docId, numberOfTokens);
+            }
+            if (numberOfTokens == length) {
+                exactMatches.add(d != null ? d : searcher.doc(docId));
+            }
+        }
+        // the custom similarity ranks shorter labels higher, equally scored hits are ordered by document
+        exactMatches.sort(Comparator.comparingInt(d -> d.get("lexicalization").length()));
+
+        List<String> resources = new ArrayList<String>();
+        for (Document d : exactMatches.subList(0, Math.min(MAX_HITS, exactMatches.size()))) {
+            resources.add(d.get("resource"));
+        }
+        return resources;
+    }
+
+    private static List<String> analyze(String text) throws IOException {
+        List<String> tokens = new ArrayList<String>();
+        TokenStream tokenStream = analyzer.tokenStream(null, new StringReader(text));
+        try {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            tokenStream.end();
+        } finally {
+            tokenStream.close();
+        }
+        return tokens;
+    }
+
     //Methods to parse rdf dunmps. It takes as input the location of the dump and returns an iterator over it
     private static PipedRDFIterator<Triple> parse(String dump) {
         PipedRDFIterator<Triple> iter = new PipedRDFIterator<Triple>();
@@ -142,8 +462,9 @@ public class Index {
             }
         };
 
-        // Start the parser on another thread
+        // Start the parser on another thread, the executor terminates as soon as the dump is parsed
         executor.submit(parser);
+        executor.shutdown();
         return iter;
     }
 
@@ -0,0 +1,168 @@
+package eu.wdaqua.qanary.component.lucenelinker.nerd;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * standalone builder of the Lucene index used by the LuceneLinker
+ * <p>
+ * The N-Triples dump is streamed line by line, the lines are passed in batches to a bounded pool of worker threads
+ * that parse them and add the labels to a shared IndexWriter. The resulting index answers the queries of the
+ * LuceneLinker like an index created by the (serial) Index class.
+ * <p>
+ * usage: IndexBuilder &lt;N-Triples dump&gt; &lt;index directory&gt; [worker threads] [RAM buffer in MB]
+ */
+public class IndexBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(IndexBuilder.class);
+
+    public static final double DEFAULT_RAM_BUFFER_SIZE_MB = 256;
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    private final int numberOfThreads;
+    private final double ramBufferSizeMB;
+    private final int batchSize;
+
+    private final AtomicLong numberOfTriples = new AtomicLong();
+    private final AtomicLong numberOfLabels = new AtomicLong();
+
+    public IndexBuilder(int numberOfThreads, double ramBufferSizeMB) {
+        this(numberOfThreads, ramBufferSizeMB, DEFAULT_BATCH_SIZE);
+    }
+
+    public IndexBuilder(int numberOfThreads, double ramBufferSizeMB, int batchSize) {
+        this.numberOfThreads = numberOfThreads;
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            logger.error("usage: IndexBuilder <N-Triples dump> <index directory> [worker threads] [RAM buffer in MB]");
+            System.exit(1);
+        }
+        int numberOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        double ramBufferSizeMB = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_RAM_BUFFER_SIZE_MB;
+
+        new IndexBuilder(numberOfThreads, ramBufferSizeMB).build(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * creates (or replaces) the index in the given directory from the N-Triples dump
+     */
+    public void build(Path dump, Path indexDirectory) throws IOException, InterruptedException {
+        logger.info("building index {} from {} using {} threads and a RAM buffer of {} MB", indexDirectory, dump,
+                numberOfThreads, ramBufferSizeMB);
+        long start = System.currentTimeMillis();
+        numberOfTriples.set(0);
+        numberOfLabels.set(0);
+
+        IndexWriterConfig config = Index.createIndexWriterConfig() //
+                .setRAMBufferSizeMB(ramBufferSizeMB) //
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        // if all workers are busy and the queue is full, then the reading thread parses the batch itself
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(2 * numberOfThreads), new ThreadPoolExecutor.CallerRunsPolicy());
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        try (Directory directory = FSDirectory.open(indexDirectory);
+             IndexWriter writer = new IndexWriter(directory, config);
+             BufferedReader reader = Files.newBufferedReader(dump, StandardCharsets.UTF_8)) {
+            progress.scheduleAtFixedRate(() -> logProgress(start), PROGRESS_INTERVAL_SECONDS,
+                    PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            StringBuilder batch = new StringBuilder();
+            int linesInBatch = 0;
+            String line;
+            while ((line = reader.readLine()) != null && error.get() == null) {
+                batch.append(line).append('\n');
+                if (++linesInBatch == batchSize) {
+                    submit(workers, writer, batch.toString(), error);
+                    batch.setLength(0);
+                    linesInBatch = 0;
+                }
+            }
+            if (linesInBatch > 0) {
+                submit(workers, writer, batch.toString(), error);
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            if (error.get() != null) {
+                writer.rollback();
+                throw new IOException("index could not be built from " + dump, error.get());
+            }
+            writer.commit();
+        } finally {
+            workers.shutdownNow();
+            progress.shutdownNow();
+        }
+        logProgress(start);
+        logger.info("index {} built in {} ms", indexDirectory, System.currentTimeMillis() - start);
+    }
+
+    private void submit(ThreadPoolExecutor workers, IndexWriter writer, String batch, AtomicReference<Throwable> error) {
+        workers.execute(() -> {
+            try {
+                parseAndIndex(writer, batch);
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void parseAndIndex(IndexWriter writer, String batch) {
+        RDFDataMgr.parse(new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                numberOfTriples.incrementAndGet();
+                try {
+                    if (Index.addIfLabel(writer, triple)) {
+                        numberOfLabels.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }, new ByteArrayInputStream(batch.getBytes(StandardCharsets.UTF_8)), Lang.NTRIPLES);
+    }
+
+    private void logProgress(long start) {
+        long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        logger.info("{} triples parsed, {} labels indexed ({} triples/s)", numberOfTriples.get(),
+                numberOfLabels.get(), numberOfTriples.get() / seconds);
+    }
+
+    public long getNumberOfTriples() {
+        return numberOfTriples.get();
+    }
+
+    public long getNumberOfLabels() {
+        return numberOfLabels.get();
+    }
+}
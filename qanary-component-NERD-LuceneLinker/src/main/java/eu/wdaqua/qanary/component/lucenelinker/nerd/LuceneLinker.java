@@ -23,11 +23,13 @@ import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
 import org.apache.lucene.util.AttributeSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
@@ -50,8 +52,40 @@ public class LuceneLinker extends QanaryComponent {
 
     private String FILENAME_INSERT_ANNOTATION = "/queries/insert_one_annotation.rq";
 
-    public LuceneLinker(@Value("${spring.application.name}") final String applicationName) {
+    private static final List<String> stopWords = Arrays.asList("give", "me", "is", "are", "was", "were", "has", "have", "had", "do", "does", "did", "of", "the", "a", "in", "by", "to", "me", "all", "with", "from", "for", "and", "who");
+
+    private Index index;
+
+    /**
+     * PER_NGRAM: one index search per n-gram of the question, SINGLE_PASS: all n-grams of the question are resolved
+     * in one pass over the index
+     */
+    public enum CandidateGeneration {
+        PER_NGRAM, SINGLE_PASS
+    }
+
+    private final CandidateGeneration candidateGeneration;
+    private final String dump;
+    private final String indexDirectory;
+
+    public LuceneLinker(final String applicationName) {
+        this(applicationName, CandidateGeneration.PER_NGRAM);
+    }
+
+    public LuceneLinker(final String applicationName, final CandidateGeneration candidateGeneration) {
+        this(applicationName, candidateGeneration, Index.DEFAULT_DUMP, Index.DEFAULT_INDEX_DIRECTORY);
+    }
+
+    @Autowired
+    public LuceneLinker(@Value("${spring.application.name}") final String applicationName,
+                        @Value("${lucenelinker.candidate-generation:PER_NGRAM}") final CandidateGeneration candidateGeneration,
+                        @Value("${lucenelinker.dump:" + Index.DEFAULT_DUMP + "}") final String dump,
+                        @Value("${lucenelinker.index.directory:" + Index.DEFAULT_INDEX_DIRECTORY + "}") final String indexDirectory) {
         this.applicationName = applicationName;
+        this.candidateGeneration = candidateGeneration;
+        this.dump = dump;
+        this.indexDirectory = indexDirectory;
+        logger.info("candidate generation: {}", candidateGeneration);
 
         // check if files exists and are not empty
         QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_INSERT_ANNOTATION);
@@ -78,97 +112,7 @@ public class LuceneLinker extends QanaryComponent {
             //String question="Which German cities have more than 250000 inhabitants?";
             //String question="What is the birth name of Angela Merkel?";
             // STEP3: Pass the information to the component and execute it
-            //Tokenize the question using the lucene tokenizer
-            Index index = new Index("/Users/Dennis/Desktop/dump.ttl");
-            ArrayList<String> stopWords = new ArrayList<String>(Arrays.asList(new String[]{"give", "me", "is", "are", "was", "were", "has", "have", "had", "do", "does", "did", "of", "the", "a", "in", "by", "to", "me", "all", "with", "from", "for", "and", "who"}));
-            Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
-            //Analyzer analyzer = index.analyzer;
-            TokenStream tokenStream = analyzer.tokenStream(null, new StringReader(myQuestion));
-            tokenStream.reset();
-            List<AttributeSource> tokens = new ArrayList<AttributeSource>();
-            while (tokenStream.incrementToken()) {
-                tokens.add(tokenStream.cloneAttributes());
-            }
-            tokenStream.close();
-            tokenStream.end();
-            //analyzer.close();
-
-
-            //Try to match each sequence of words in a question to an uri searching at rdfs:label
-            List<Annotation> annotations = new ArrayList<Annotation>();
-            for (int i = 0; i < tokens.size(); i++) {
-                boolean found = true;
-                String search = tokens.get(i).getAttribute(CharTermAttribute.class).toString();
-                int k = 1;
-                List<String> candidates = new ArrayList<String>();
-                while (found) {
-                    logger.info("Search string {} ", search);
-                    List<String> tmp = index.query("\"" + search + "\"");
-
-                    //If no matches found add the previews ones if they exist
-                    if (tmp.size() == 0) {
-                        found = false;
-                        for (String uri : candidates) {
-                            if (!uri.equals("http://dbpedia.org/")) {
-                                int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
-                                int end = tokens.get(i + k - 2).getAttribute(OffsetAttribute.class).endOffset();
-                                logger.info("Added uri {} ", uri);
-                                annotations.add(new Annotation(begin, end, uri));
-                            }
-                        }
-                    } else {
-                        if (candidates.size() > 0) {
-                            for (String uri : candidates) {
-                                if (!uri.equals("http://dbpedia.org/")) {
-                                    int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
-                                    int end = tokens.get(i + k - 2).getAttribute(OffsetAttribute.class).endOffset();
-                                    logger.info("Added uri {} ", uri);
-                                    annotations.add(new Annotation(begin, end, uri));
-                                }
-                            }
-                        }
-                        //candidates=new ArrayList<String>(Arrays.asList(tmp));
-                        candidates = tmp;
-                        if (i + k < tokens.size()) {
-                            search += " " + tokens.get(i + k).getAttribute(CharTermAttribute.class).toString();
-                            k++;
-                        } else {
-                            found = false;
-                            for (String uri : candidates) {
-                                if (!uri.equals("http://dbpedia.org/")) {
-                                    int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
-                                    int end = tokens.get(i + k - 1).getAttribute(OffsetAttribute.class).endOffset();
-                                    logger.info("Added uri {} ", uri);
-                                    annotations.add(new Annotation(begin, end, uri));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-
-            Iterator<Annotation> it = annotations.iterator();
-            while (it.hasNext()) {
-                Annotation a = it.next();
-                if (stopWords.contains(myQuestion.substring(a.begin, a.end).toLowerCase())) {
-                    it.remove();
-                }
-            }
-
-            //Remove duplicates
-            it = annotations.iterator();
-            while (it.hasNext()) {
-                Annotation a1 = it.next();
-                int count = 0;
-                for (Annotation a2 : annotations) {
-                    if ((a1.uri).equals(a2.uri)) {
-                        count++;
-                    }
-                }
-                if (count > 1) {
-                    it.remove();
-                }
-            }
+            List<Annotation> annotations = link(myQuestion, getIndex());
 
             // STEP4: Push the result of the component to the triplestore
             logger.info("Apply commons alignment on outgraph");
@@ -212,6 +156,165 @@ public class LuceneLinker extends QanaryComponent {
         return myQanaryMessage;
     }
 
+    /**
+     * returns the shared index, it is created on first use and then reused by all requests, its searcher is
+     * reopened if the index was changed (e.g., rebuilt by the IndexBuilder)
+     */
+    synchronized Index getIndex() throws IOException {
+        if (this.index == null) {
+            this.index = new Index(this.dump, this.indexDirectory);
+        } else {
+            this.index.maybeRefresh();
+        }
+        return this.index;
+    }
+
+    @PreDestroy
+    public synchronized void closeIndex() throws IOException {
+        if (this.index != null) {
+            this.index.close();
+            this.index = null;
+        }
+    }
+
+    /**
+     * tries to match each sequence of words in the question to an uri searching at rdfs:label
+     */
+    List<Annotation> link(String question, Index index) throws IOException, ParseException, InvalidTokenOffsetsException {
+        //Tokenize the question using the lucene tokenizer
+        Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+        //Analyzer analyzer = index.analyzer;
+        TokenStream tokenStream = analyzer.tokenStream(null, new StringReader(question));
+        tokenStream.reset();
+        List<AttributeSource> tokens = new ArrayList<AttributeSource>();
+        while (tokenStream.incrementToken()) {
+            tokens.add(tokenStream.cloneAttributes());
+        }
+        tokenStream.close();
+        tokenStream.end();
+        //analyzer.close();
+
+
+        List<Annotation> annotations;
+        if (this.candidateGeneration == CandidateGeneration.SINGLE_PASS) {
+            annotations = findCandidatesInSinglePass(tokens, index);
+        } else {
+            annotations = findCandidatesPerNGram(tokens, index);
+        }
+
+        Iterator<Annotation> it = annotations.iterator();
+        while (it.hasNext()) {
+            Annotation a = it.next();
+            if (stopWords.contains(question.substring(a.begin, a.end).toLowerCase())) {
+                it.remove();
+            }
+        }
+
+        //Remove duplicates
+        it = annotations.iterator();
+        while (it.hasNext()) {
+            Annotation a1 = it.next();
+            int count = 0;
+            for (Annotation a2 : annotations) {
+                if ((a1.uri).equals(a2.uri)) {
+                    count++;
+                }
+            }
+            if (count > 1) {
+                it.remove();
+            }
+        }
+
+        return annotations;
+    }
+
+    /**
+     * tries to match each sequence of words in a question to an uri searching at rdfs:label (one search per n-gram)
+     */
+    private List<Annotation> findCandidatesPerNGram(List<AttributeSource> tokens, Index index) throws IOException, ParseException, InvalidTokenOffsetsException {
+        List<Annotation> annotations = new ArrayList<Annotation>();
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean found = true;
+            String search = tokens.get(i).getAttribute(CharTermAttribute.class).toString();
+            int k = 1;
+            List<String> candidates = new ArrayList<String>();
+            while (found) {
+                logger.info("Search string {} ", search);
+                List<String> tmp = index.query("\"" + search + "\"");
+
+                //If no matches found add the previews ones if they exist
+                if (tmp.size() == 0) {
+                    found = false;
+                    for (String uri : candidates) {
+                        if (!uri.equals(Index.NO_EXACT_MATCH)) {
+                            int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
+                            int end = tokens.get(i + k - 2).getAttribute(OffsetAttribute.class).endOffset();
+                            logger.info("Added uri {} ", uri);
+                            annotations.add(new Annotation(begin, end, uri));
+                        }
+                    }
+                } else {
+                    if (candidates.size() > 0) {
+                        for (String uri : candidates) {
+                            if (!uri.equals(Index.NO_EXACT_MATCH)) {
+                                int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
+                                int end = tokens.get(i + k - 2).getAttribute(OffsetAttribute.class).endOffset();
+                                logger.info("Added uri {} ", uri);
+                                annotations.add(new Annotation(begin, end, uri));
+                            }
+                        }
+                    }
+                    //candidates=new ArrayList<String>(Arrays.asList(tmp));
+                    candidates = tmp;
+                    if (i + k < tokens.size()) {
+                        search += " " + tokens.get(i + k).getAttribute(CharTermAttribute.class).toString();
+                        k++;
+                    } else {
+                        found = false;
+                        for (String uri : candidates) {
+                            if (!uri.equals(Index.NO_EXACT_MATCH)) {
+                                int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
+                                int end = tokens.get(i + k - 1).getAttribute(OffsetAttribute.class).endOffset();
+                                logger.info("Added uri {} ", uri);
+                                annotations.add(new Annotation(begin, end, uri));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * resolves all n-grams of the question in a single pass over the index, the annotations are the same (and
+     * in the same order) as computed by findCandidatesPerNGram
+     */
+    private List<Annotation> findCandidatesInSinglePass(List<AttributeSource> tokens, Index index) throws IOException, ParseException, InvalidTokenOffsetsException {
+        List<String> terms = new ArrayList<String>();
+        for (AttributeSource token : tokens) {
+            terms.add(token.getAttribute(CharTermAttribute.class).toString());
+        }
+        List<List<List<String>>> matches = index.queryAllNGrams(terms);
+        if (matches == null) {
+            logger.warn("question tokens cannot be mapped to index terms, searching each n-gram");
+            return findCandidatesPerNGram(tokens, index);
+        }
+
+        List<Annotation> annotations = new ArrayList<Annotation>();
+        for (int i = 0; i < matches.size(); i++) {
+            int begin = tokens.get(i).getAttribute(OffsetAttribute.class).startOffset();
+            for (int length = 1; length <= matches.get(i).size(); length++) {
+                int end = tokens.get(i + length - 1).getAttribute(OffsetAttribute.class).endOffset();
+                for (String uri : matches.get(i).get(length - 1)) {
+                    logger.info("Added uri {} ", uri);
+                    annotations.add(new Annotation(begin, end, uri));
+                }
+            }
+        }
+        return annotations;
+    }
+
     private String loadQueryFromFile(String filenameWithRelativePath, QuerySolutionMap bindings) throws IOException {
         return QanaryTripleStoreConnector.readFileFromResourcesWithMap(filenameWithRelativePath, bindings);
     }
@@ -0,0 +1,138 @@
+package eu.wdaqua.qanary.component.lucenelinker.nerd;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * compares the candidate generation modes of the LuceneLinker on a fixed test index
+ */
+class CandidateGenerationTest {
+    private static final Logger logger = LoggerFactory.getLogger(CandidateGenerationTest.class);
+
+    private static final String[] FILLER = {"who", "was", "the", "of", "in", "what", "is", "and", "give", "me", "all",
+            "which", "have", "more", "than", "people", "live", "entity", "synthetic", "new", "york"};
+    // additional labels shared by several resources or contained in longer labels
+    private static final String[] AMBIGUOUS_LABELS = {"Paris", "Paris", "Paris Hilton", "York", "Entity", "The Who"};
+
+    @TempDir
+    Path tempDir;
+
+    private Index index;
+    private LuceneLinker perNGram;
+    private LuceneLinker singlePass;
+
+    @BeforeEach
+    public void init() throws IOException {
+        Path dump = IndexTest.createDump(tempDir, 500);
+        StringBuilder additionalTriples = new StringBuilder();
+        for (int i = 0; i < AMBIGUOUS_LABELS.length; i++) {
+            additionalTriples.append("<http://dbpedia.org/resource/Ambiguous_").append(i).append("> ")
+                    .append("<http://www.w3.org/2000/01/rdf-schema#label> \"").append(AMBIGUOUS_LABELS[i]).append("\"@en .\n");
+        }
+        Files.write(dump, additionalTriples.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        this.index = new Index(dump.toString(), tempDir.resolve("lucene").toString());
+        this.perNGram = new LuceneLinker("LuceneLinkerTest", LuceneLinker.CandidateGeneration.PER_NGRAM);
+        this.singlePass = new LuceneLinker("LuceneLinkerTest", LuceneLinker.CandidateGeneration.SINGLE_PASS);
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        this.index.close();
+    }
+
+    /**
+     * creates questions of the given number of tokens using labels, parts of labels and filler words
+     */
+    private static List<String> createQuestions(int numberOfTokens, int numberOfQuestions, Random random) {
+        List<String> questions = new ArrayList<>();
+        for (int q = 0; q < numberOfQuestions; q++) {
+            List<String> words = new ArrayList<>();
+            while (words.size() < numberOfTokens) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        for (String word : IndexTest.LABELS[random.nextInt(IndexTest.LABELS.length)].split(" ")) {
+                            words.add(word);
+                        }
+                        break;
+                    case 1:
+                        words.add("Synthetic");
+                        words.add("Entity");
+                        words.add(String.valueOf(random.nextInt(600)));
+                        break;
+                    case 2:
+                        words.add(AMBIGUOUS_LABELS[random.nextInt(AMBIGUOUS_LABELS.length)].split(" ")[0]);
+                        break;
+                    default:
+                        words.add(FILLER[random.nextInt(FILLER.length)]);
+                }
+            }
+            questions.add(String.join(" ", words.subList(0, numberOfTokens)) + "?");
+        }
+        return questions;
+    }
+
+    @Test
+    void testSameLinkedSpans() throws Exception {
+        List<String> questions = new ArrayList<>(List.of(IndexTest.QUESTIONS));
+        questions.addAll(createQuestions(12, 50, new Random(42)));
+
+        int numberOfAnnotations = 0;
+        for (String question : questions) {
+            List<Annotation> expected = this.perNGram.link(question, this.index);
+            List<Annotation> actual = this.singlePass.link(question, this.index);
+            assertEquals(IndexTest.toString(expected), IndexTest.toString(actual), question);
+            numberOfAnnotations += expected.size();
+        }
+        assertFalse(numberOfAnnotations == 0, "the fixture should produce annotations");
+    }
+
+    @Test
+    void benchmarkCandidateGenerationModes() throws Exception {
+        Random random = new Random(4711);
+        int repetitions = 5;
+        for (int numberOfTokens = 5; numberOfTokens <= 30; numberOfTokens += 5) {
+            List<String> questions = createQuestions(numberOfTokens, 20, random);
+            // warm up
+            for (String question : questions) {
+                this.perNGram.link(question, this.index);
+                this.singlePass.link(question, this.index);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                for (String question : questions) {
+                    this.perNGram.link(question, this.index);
+                }
+            }
+            long perNGramTime = (System.nanoTime() - start) / (repetitions * questions.size());
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                for (String question : questions) {
+                    this.singlePass.link(question, this.index);
+                }
+            }
+            long singlePassTime = (System.nanoTime() - start) / (repetitions * questions.size());
+
+            logger.info("{} tokens: PER_NGRAM {} µs, SINGLE_PASS {} µs per question", numberOfTokens,
+                    perNGramTime / 1000, singlePassTime / 1000);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package eu.wdaqua.qanary.component.lucenelinker.nerd;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * compares the parallel IndexBuilder with the serial indexing of the Index class
+ */
+class IndexBuilderTest {
+    private static final Logger logger = LoggerFactory.getLogger(IndexBuilderTest.class);
+
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta",
+            "iota", "kappa", "lambda", "river", "city", "mountain", "lake", "university", "station", "church"};
+    // each resource is described by 4 triples
+    private static final int NUMBER_OF_TRIPLES = 1_000_000;
+    private static final int NUMBER_OF_QUERIES = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private static String createLabel(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+
+    /**
+     * writes a synthetic N-Triples dump (English and German labels, demonyms and types)
+     */
+    private static Path createSyntheticDump(Path directory, int numberOfTriples) throws IOException {
+        Path dump = directory.resolve("synthetic.nt");
+        try (BufferedWriter writer = Files.newBufferedWriter(dump, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < numberOfTriples / 4; i++) {
+                String subject = "<http://dbpedia.org/resource/Synthetic_" + i + "> ";
+                writer.write(subject + "<http://www.w3.org/2000/01/rdf-schema#label> \"" + createLabel(i) + "\"@en .\n");
+                writer.write(subject + "<http://www.w3.org/2000/01/rdf-schema#label> \"" + createLabel(i) + " de\"@de .\n");
+                writer.write(subject + "<http://dbpedia.org/ontology/demonym> \"" + WORDS[i % WORDS.length] + "ian " + i + "\"@en .\n");
+                writer.write(subject + "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://dbpedia.org/ontology/Place> .\n");
+            }
+        }
+        return dump;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> result = new ArrayList<>(list);
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    void testParallelIndexAnswersQueriesLikeSerialIndex() throws Exception {
+        Path dump = createSyntheticDump(tempDir, NUMBER_OF_TRIPLES);
+        int numberOfThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        long start = System.currentTimeMillis();
+        Index serialIndex = new Index(dump.toString(), tempDir.resolve("serial").toString());
+        long serialTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        IndexBuilder builder = new IndexBuilder(numberOfThreads, 64);
+        builder.build(dump, tempDir.resolve("parallel"));
+        long parallelTime = System.currentTimeMillis() - start;
+        Index parallelIndex = new Index(dump.toString(), tempDir.resolve("parallel").toString());
+
+        logger.info("serial: {} ms, parallel ({} threads): {} ms, speedup: {}", serialTime, numberOfThreads,
+                parallelTime, (double) serialTime / parallelTime);
+        assertEquals(NUMBER_OF_TRIPLES, builder.getNumberOfTriples());
+        assertEquals(NUMBER_OF_TRIPLES / 2, builder.getNumberOfLabels());
+
+        try {
+            // equally scored hits might be ordered differently as the document order depends on the threads
+            Random random = new Random(42);
+            for (int q = 0; q < NUMBER_OF_QUERIES; q++) {
+                int i = random.nextInt(NUMBER_OF_TRIPLES / 4);
+                for (String query : new String[]{createLabel(i), WORDS[i % WORDS.length],
+                        WORDS[i % WORDS.length] + "ian " + i, WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length]}) {
+                    String querystr = "\"" + query + "\"";
+                    assertEquals(sorted(serialIndex.query(querystr)), sorted(parallelIndex.query(querystr)), querystr);
+                }
+            }
+        } finally {
+            serialIndex.close();
+            parallelIndex.close();
+        }
+
+        assumeTrue(Runtime.getRuntime().availableProcessors() >= 4, "speedup is only checked on multi-core machines");
+        assertTrue(parallelTime < serialTime, "parallel: " + parallelTime + " ms, serial: " + serialTime + " ms");
+    }
+
+    @Test
+    void testInvalidDumpFails() throws Exception {
+        Path dump = tempDir.resolve("invalid.nt");
+        Files.write(dump, "<http://dbpedia.org/resource/A> <http://www.w3.org/2000/01/rdf-schema#label> \"A\"@en\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        IndexBuilder builder = new IndexBuilder(2, 16);
+        assertThrows(IOException.class, () -> builder.build(dump, tempDir.resolve("invalid")));
+    }
+}
@@ -0,0 +1,225 @@
+package eu.wdaqua.qanary.component.lucenelinker.nerd;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * tests the shared searcher of the Index using a small, locally built index
+ */
+class IndexTest {
+    private static final Logger logger = LoggerFactory.getLogger(IndexTest.class);
+
+    static final String[] LABELS = {"Angela Merkel", "Socrates", "Berlin", "Germany", "Sweden", "German",
+            "Swedish", "Oceanographer", "City", "Inhabitant", "Birth Name", "New York City", "New York"};
+    static final String[] QUESTIONS = {"Who was influenced by Socrates?", "Give me all Swedish oceanographers.",
+            "Which German cities have more than 250000 inhabitants?", "What is the birth name of Angela Merkel?",
+            "How many people live in New York City?"};
+    private static final int NUMBER_OF_SYNTHETIC_LABELS = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    private Index index;
+    private LuceneLinker luceneLinker;
+
+    /**
+     * writes a small N-Triples dump containing the given labels and some synthetic ones
+     */
+    static Path createDump(Path directory, int numberOfSyntheticLabels) throws IOException {
+        Path dump = directory.resolve("dump.nt");
+        try (BufferedWriter writer = Files.newBufferedWriter(dump, StandardCharsets.UTF_8)) {
+            for (String label : LABELS) {
+                writer.write("<http://dbpedia.org/resource/" + label.replace(' ', '_') + "> "
+                        + "<http://www.w3.org/2000/01/rdf-schema#label> \"" + label + "\"@en .\n");
+            }
+            for (int i = 0; i < numberOfSyntheticLabels; i++) {
+                writer.write("<http://dbpedia.org/resource/Synthetic_" + i + "> "
+                        + "<http://www.w3.org/2000/01/rdf-schema#label> \"Synthetic Entity " + i + "\"@en .\n");
+                writer.write("<http://dbpedia.org/resource/Synthetic_" + i + "> "
+                        + "<http://www.w3.org/2000/01/rdf-schema#label> \"Synthetische Entitaet " + i + "\"@de .\n");
+            }
+        }
+        return dump;
+    }
+
+    static String toString(List<Annotation> annotations) {
+        StringBuilder result = new StringBuilder();
+        for (Annotation a : annotations) {
+            result.append(a.begin).append('-').append(a.end).append(' ').append(a.uri).append('\n');
+        }
+        return result.toString();
+    }
+
+    @BeforeEach
+    public void init() throws IOException {
+        Path dump = createDump(tempDir, NUMBER_OF_SYNTHETIC_LABELS);
+        this.index = new Index(dump.toString(), tempDir.resolve("lucene").toString());
+        this.luceneLinker = new LuceneLinker("LuceneLinkerTest");
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        this.index.close();
+    }
+
+    @Test
+    void testSearcherIsReusedAcrossQueries() throws Exception {
+        for (String question : QUESTIONS) {
+            this.luceneLinker.link(question, this.index);
+        }
+        assertEquals(1, this.index.getNumberOfOpenedSearchers());
+    }
+
+    @Test
+    void testSearcherIsSharedByConcurrentRequests() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (String question : QUESTIONS) {
+            expected.add(toString(this.luceneLinker.link(question, this.index)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new LinkedList<>();
+            for (int i = 0; i < 20 * QUESTIONS.length; i++) {
+                String question = QUESTIONS[i % QUESTIONS.length];
+                results.add(executor.submit(() -> toString(this.luceneLinker.link(question, this.index))));
+            }
+            int i = 0;
+            for (Future<String> result : results) {
+                assertEquals(expected.get(i % QUESTIONS.length), result.get());
+                i++;
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, this.index.getNumberOfOpenedSearchers());
+    }
+
+    @Test
+    void testSearcherIsRefreshedOnlyIfIndexChanged() throws Exception {
+        this.index.maybeRefresh();
+        assertEquals(1, this.index.getNumberOfOpenedSearchers());
+        assertTrue(this.index.query("\"Qanary\"").isEmpty());
+
+        try (Directory directory = FSDirectory.open(tempDir.resolve("lucene"));
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new EnglishAnalyzer(CharArraySet.EMPTY_SET)))) {
+            Document doc = new Document();
+            doc.add(new TextField("resource", "http://dbpedia.org/resource/Qanary", Field.Store.YES));
+            doc.add(new TextField("lexicalization", "Qanary", Field.Store.YES));
+            writer.addDocument(doc);
+        }
+
+        this.index.maybeRefresh();
+        assertEquals(2, this.index.getNumberOfOpenedSearchers());
+        assertEquals(List.of("http://dbpedia.org/resource/Qanary"), this.index.query("\"Qanary\""));
+    }
+
+    @Test
+    void testLinkerUsesRebuiltIndex() throws Exception {
+        Path dump = createDump(Files.createDirectory(tempDir.resolve("rebuilt-dump")), 0);
+        Path indexDirectory = tempDir.resolve("rebuilt");
+        IndexBuilder indexBuilder = new IndexBuilder(2, IndexBuilder.DEFAULT_RAM_BUFFER_SIZE_MB);
+        indexBuilder.build(dump, indexDirectory);
+        LuceneLinker linker = new LuceneLinker("LuceneLinkerTest", LuceneLinker.CandidateGeneration.PER_NGRAM,
+                dump.toString(), indexDirectory.toString());
+        try {
+            String question = "Who founded Qanary?";
+            assertFalse(toString(linker.link(question, linker.getIndex())).contains("http://dbpedia.org/resource/Qanary"));
+            // unchanged index: the searcher is not reopened
+            assertEquals(1, linker.getIndex().getNumberOfOpenedSearchers());
+
+            Files.writeString(dump, "<http://dbpedia.org/resource/Qanary> <http://www.w3.org/2000/01/rdf-schema#label> \"Qanary\"@en .\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            indexBuilder.build(dump, indexDirectory);
+
+            // the next request uses the rebuilt index without restarting the component
+            assertTrue(toString(linker.link(question, linker.getIndex())).contains("http://dbpedia.org/resource/Qanary"));
+            assertEquals(2, linker.getIndex().getNumberOfOpenedSearchers());
+        } finally {
+            linker.closeIndex();
+        }
+    }
+
+    @Test
+    void testExactMatchesWithShortestLabelsAreKept() throws Exception {
+        // more exact matches than retrieved, the shortest label is indexed last
+        Path dump = Files.createDirectory(tempDir.resolve("exact-dump")).resolve("dump.nt");
+        try (BufferedWriter writer = Files.newBufferedWriter(dump, StandardCharsets.UTF_8)) {
+            for (int i = 100; i > 0; i--) {
+                writer.write("<http://dbpedia.org/resource/Leipzig_" + i + "> "
+                        + "<http://www.w3.org/2000/01/rdf-schema#label> \"Leipzig" + "!".repeat(i) + "\"@en .\n");
+            }
+            writer.write("<http://dbpedia.org/resource/Leipzig> <http://www.w3.org/2000/01/rdf-schema#label> \"Leipzig\"@en .\n");
+        }
+        try (Index exactMatchIndex = new Index(dump.toString(), tempDir.resolve("exact").toString())) {
+            List<String> result = exactMatchIndex.query("\"Leipzig\"");
+
+            assertEquals(60, result.size());
+            assertEquals("http://dbpedia.org/resource/Leipzig", result.get(0));
+            for (int i = 1; i < result.size(); i++) {
+                assertEquals("http://dbpedia.org/resource/Leipzig_" + i, result.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testLatencyDoesNotContainReaderOpenCost() throws Exception {
+        int repetitions = 50;
+        // warm up
+        for (String question : QUESTIONS) {
+            this.luceneLinker.link(question, this.index);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            for (String question : QUESTIONS) {
+                this.luceneLinker.link(question, this.index);
+            }
+        }
+        long sharedSearcher = (System.nanoTime() - start) / (repetitions * QUESTIONS.length);
+
+        // cost of opening a reader as done before for each n-gram
+        start = System.nanoTime();
+        try (Directory directory = FSDirectory.open(tempDir.resolve("lucene"))) {
+            for (int i = 0; i < repetitions; i++) {
+                DirectoryReader.open(directory).close();
+            }
+        }
+        long readerOpen = (System.nanoTime() - start) / repetitions;
+
+        logger.info("average latency per question: {} µs, opening one reader: {} µs", sharedSearcher / 1000,
+                readerOpen / 1000);
+        assertEquals(1, this.index.getNumberOfOpenedSearchers());
+    }
+}
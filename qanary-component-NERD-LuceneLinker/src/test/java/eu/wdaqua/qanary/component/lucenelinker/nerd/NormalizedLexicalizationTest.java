@@ -0,0 +1,158 @@
+package eu.wdaqua.qanary.component.lucenelinker.nerd;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * compares the exact match lookup using the normalized labels with the comparison of the stemmed labels of the
+ * hits (as done for indexes without normalized labels)
+ */
+class NormalizedLexicalizationTest {
+    private static final Logger logger = LoggerFactory.getLogger(NormalizedLexicalizationTest.class);
+
+    private static final int NUMBER_OF_SYNTHETIC_LABELS = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    private Index normalizedIndex;
+    private Index legacyIndex;
+    private LuceneLinker luceneLinker;
+
+    /**
+     * creates an index containing the same labels as IndexTest.createDump, but without normalized labels
+     */
+    private Path createLegacyIndex() throws IOException {
+        Path indexDirectory = tempDir.resolve("legacy");
+        try (Directory directory = FSDirectory.open(indexDirectory);
+             IndexWriter writer = new IndexWriter(directory, Index.createIndexWriterConfig())) {
+            for (String label : IndexTest.LABELS) {
+                addLegacyDoc(writer, "http://dbpedia.org/resource/" + label.replace(' ', '_'), label);
+            }
+            for (int i = 0; i < NUMBER_OF_SYNTHETIC_LABELS; i++) {
+                addLegacyDoc(writer, "http://dbpedia.org/resource/Synthetic_" + i, "Synthetic Entity " + i);
+            }
+        }
+        return indexDirectory;
+    }
+
+    private static void addLegacyDoc(IndexWriter writer, String resource, String lexicalization) throws IOException {
+        Document doc = new Document();
+        doc.add(new TextField("resource", resource, Field.Store.YES));
+        doc.add(new TextField("lexicalization", lexicalization, Field.Store.YES));
+        writer.addDocument(doc);
+    }
+
+    private static List<String> createQueries() {
+        List<String> queries = new ArrayList<>();
+        for (String label : IndexTest.LABELS) {
+            queries.add(label.toLowerCase());
+            queries.add(label.toLowerCase().split(" ")[0]);
+        }
+        for (int i = 0; i < 100; i++) {
+            queries.add("synthetic entity " + (i * 31));
+        }
+        queries.add("synthetic entity");
+        queries.add("entity");
+        queries.add("oceanographers");
+        queries.add("cities");
+        queries.add("unknown");
+        return queries;
+    }
+
+    private static long getAllocatedBytesOfCurrentThread() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @BeforeEach
+    public void init() throws IOException {
+        Path dump = IndexTest.createDump(tempDir, NUMBER_OF_SYNTHETIC_LABELS);
+        this.normalizedIndex = new Index(dump.toString(), tempDir.resolve("normalized").toString());
+        this.legacyIndex = new Index(dump.toString(), createLegacyIndex().toString());
+        this.luceneLinker = new LuceneLinker("LuceneLinkerTest");
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        this.normalizedIndex.close();
+        this.legacyIndex.close();
+    }
+
+    @Test
+    void testSameLinkResults() throws Exception {
+        for (String question : IndexTest.QUESTIONS) {
+            assertEquals(IndexTest.toString(this.luceneLinker.link(question, this.legacyIndex)),
+                    IndexTest.toString(this.luceneLinker.link(question, this.normalizedIndex)), question);
+        }
+    }
+
+    @Test
+    void testSameExactMatches() throws Exception {
+        for (String query : createQueries()) {
+            String querystr = "\"" + query + "\"";
+            List<String> legacy = this.legacyIndex.query(querystr);
+            List<String> normalized = this.normalizedIndex.query(querystr);
+
+            // the legacy result contains a placeholder for each hit that is not an exact match
+            List<String> legacyExactMatches = new ArrayList<>(legacy);
+            legacyExactMatches.removeIf(Index.NO_EXACT_MATCH::equals);
+            List<String> normalizedExactMatches = new ArrayList<>(normalized);
+            normalizedExactMatches.removeIf(Index.NO_EXACT_MATCH::equals);
+
+            assertEquals(legacyExactMatches, normalizedExactMatches, querystr);
+            assertEquals(legacy.isEmpty(), normalized.isEmpty(), querystr);
+        }
+    }
+
+    @Test
+    void testFewerAllocationsPerQuery() throws Exception {
+        List<String> queries = createQueries();
+        int repetitions = 20;
+        // warm up
+        for (String query : queries) {
+            this.legacyIndex.query("\"" + query + "\"");
+            this.normalizedIndex.query("\"" + query + "\"");
+        }
+
+        long before = getAllocatedBytesOfCurrentThread();
+        for (int i = 0; i < repetitions; i++) {
+            for (String query : queries) {
+                this.legacyIndex.query("\"" + query + "\"");
+            }
+        }
+        long legacyBytes = (getAllocatedBytesOfCurrentThread() - before) / (repetitions * queries.size());
+
+        before = getAllocatedBytesOfCurrentThread();
+        for (int i = 0; i < repetitions; i++) {
+            for (String query : queries) {
+                this.normalizedIndex.query("\"" + query + "\"");
+            }
+        }
+        long normalizedBytes = (getAllocatedBytesOfCurrentThread() - before) / (repetitions * queries.size());
+
+        logger.info("allocated bytes per query: {} (stemmed labels of hits), {} (normalized labels)", legacyBytes,
+                normalizedBytes);
+        assertTrue(normalizedBytes < legacyBytes,
+                "normalized: " + normalizedBytes + " bytes, legacy: " + legacyBytes + " bytes");
+    }
+}
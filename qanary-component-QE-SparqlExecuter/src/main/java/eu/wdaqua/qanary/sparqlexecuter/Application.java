@@ -22,8 +22,17 @@ public class Application {
 	* @return
 	*/
 	@Bean
-	public QanaryComponent qanaryComponent(@Value("${spring.application.name}") final String applicationName) {
-		return new SparqlExecuter(applicationName);
+	public QanaryComponent qanaryComponent( //
+			@Value("${spring.application.name}") final String applicationName, //
+			@Value("${knowledgegraph.connection.max-per-endpoint:" + SparqlExecuter.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT + "}") final int maxConnectionsPerEndpoint, //
+			@Value("${knowledgegraph.connection.acquire-timeout-ms:" + SparqlExecuter.DEFAULT_ACQUIRE_TIMEOUT_MS + "}") final long acquireTimeoutMs, //
+			@Value("${knowledgegraph.connection.socket-timeout-ms:" + SparqlExecuter.DEFAULT_SOCKET_TIMEOUT_MS + "}") final long socketTimeoutMs, //
+			@Value("${knowledgegraph.result.max-rows:" + SparqlExecuter.DEFAULT_MAX_RESULT_ROWS + "}") final long maxResultRows, //
+			@Value("${knowledgegraph.result.max-bytes:" + SparqlExecuter.DEFAULT_MAX_RESULT_BYTES + "}") final long maxResultBytes, //
+			@Value("${knowledgegraph.cache.max-entries:" + SparqlExecuter.DEFAULT_CACHE_MAX_ENTRIES + "}") final int cacheMaxEntries, //
+			@Value("${knowledgegraph.cache.ttl-ms:" + SparqlExecuter.DEFAULT_CACHE_TTL_MS + "}") final long cacheTtlMs) {
+		return new SparqlExecuter(applicationName, maxConnectionsPerEndpoint, acquireTimeoutMs, socketTimeoutMs, maxResultRows, maxResultBytes,
+				cacheMaxEntries, cacheTtlMs);
 	}
 	
 	
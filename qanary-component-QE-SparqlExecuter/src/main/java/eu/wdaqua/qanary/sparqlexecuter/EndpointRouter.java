@@ -0,0 +1,297 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.apache.jena.sparql.syntax.ElementNamedGraph;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.PropertyResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * selects the endpoints of a SPARQL query using configurable rules
+ *
+ * A rule matches a query if the query targets one of its graphs (FROM, FROM
+ * NAMED or GRAPH) or contains one of its IRI prefixes. The first matching rule
+ * is used. The endpoints of a rule (e.g., mirrors or replicas) are used in
+ * turns. An endpoint that failed is not used for some time, unless all
+ * endpoints of the rule failed.
+ */
+public class EndpointRouter {
+    private static final Logger logger = LoggerFactory.getLogger(EndpointRouter.class);
+
+    public static final String RULES_PROPERTY = "knowledgegraph.routing.rules";
+    public static final String RULE_PROPERTY_PREFIX = "knowledgegraph.routing.rule.";
+    public static final String FAILURE_COOLDOWN_PROPERTY = "knowledgegraph.routing.failure-cooldown-ms";
+    public static final long DEFAULT_FAILURE_COOLDOWN_MS = 30000;
+
+    public static class Rule {
+        private final String name;
+        private final List<String> graphs;
+        private final List<String> prefixes;
+        private final List<String> endpoints;
+        private final AtomicInteger nextEndpoint = new AtomicInteger();
+
+        /**
+         * @param name      the name of the rule (used for logging)
+         * @param graphs    the IRIs of the target graphs matched by the rule
+         * @param prefixes  the IRI prefixes matched by the rule
+         * @param endpoints the URLs of the endpoints serving the same data
+         */
+        public Rule(String name, List<String> graphs, List<String> prefixes, List<String> endpoints) {
+            if (endpoints.isEmpty()) {
+                throw new IllegalArgumentException("no endpoints defined for routing rule " + name);
+            }
+            this.name = name;
+            this.graphs = List.copyOf(graphs);
+            this.prefixes = List.copyOf(prefixes);
+            this.endpoints = List.copyOf(endpoints);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getGraphs() {
+            return graphs;
+        }
+
+        public List<String> getPrefixes() {
+            return prefixes;
+        }
+
+        public List<String> getEndpoints() {
+            return endpoints;
+        }
+
+        boolean matches(Set<String> targetGraphs, String sparqlQuery) {
+            for (String graph : graphs) {
+                if (targetGraphs.contains(graph)) {
+                    return true;
+                }
+            }
+            for (String prefix : prefixes) {
+                if (sparqlQuery.contains(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final List<Rule> rules;
+    private final long failureCooldownMs;
+    private final LongSupplier currentTimeMillis;
+    // the time until which an endpoint is not used after a failure
+    private final ConcurrentMap<String, Long> unhealthyUntil = new ConcurrentHashMap<>();
+
+    public EndpointRouter(List<Rule> rules, long failureCooldownMs) {
+        this(rules, failureCooldownMs, System::currentTimeMillis);
+    }
+
+    EndpointRouter(List<Rule> rules, long failureCooldownMs, LongSupplier currentTimeMillis) {
+        this.rules = List.copyOf(rules);
+        this.failureCooldownMs = failureCooldownMs;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * @return the rules routing the queries on DBpedia and Wikidata to the given
+     *         endpoints (null endpoints are ignored)
+     */
+    public static EndpointRouter createDefault(String dbpediaEndpoint, String wikidataEndpoint, long failureCooldownMs) {
+        List<Rule> rules = new ArrayList<>();
+        if (dbpediaEndpoint != null && !dbpediaEndpoint.isBlank()) {
+            rules.add(new Rule("dbpedia", List.of(), List.of("http://dbpedia.org"), List.of(dbpediaEndpoint)));
+        }
+        if (wikidataEndpoint != null && !wikidataEndpoint.isBlank()) {
+            rules.add(new Rule("wikidata", List.of(), List.of("http://www.wikidata.org"), List.of(wikidataEndpoint)));
+        }
+        return new EndpointRouter(rules, failureCooldownMs);
+    }
+
+    /**
+     * creates the rules defined by the properties, e.g.,
+     *
+     * <pre>
+     * knowledgegraph.routing.rules=dbpedia
+     * knowledgegraph.routing.rule.dbpedia.graphs=http://dbpedia.org
+     * knowledgegraph.routing.rule.dbpedia.prefixes=http://dbpedia.org
+     * knowledgegraph.routing.rule.dbpedia.endpoints=http://mirror-1:8890/sparql,http://mirror-2:8890/sparql
+     * </pre>
+     *
+     * If no rules are defined, the default rules for DBpedia and Wikidata are
+     * used (see createDefault).
+     */
+    public static EndpointRouter fromProperties(PropertyResolver properties) {
+        long failureCooldownMs = properties.getProperty(FAILURE_COOLDOWN_PROPERTY, Long.class, DEFAULT_FAILURE_COOLDOWN_MS);
+        List<String> ruleNames = split(properties.getProperty(RULES_PROPERTY, ""));
+        if (ruleNames.isEmpty()) {
+            return createDefault(properties.getProperty("knowledgegraph.endpoint.dbpedia"),
+                    properties.getProperty("knowledgegraph.endpoint.wikidata"), failureCooldownMs);
+        }
+        List<Rule> rules = new ArrayList<>();
+        for (String name : ruleNames) {
+            rules.add(new Rule(name, //
+                    split(properties.getProperty(RULE_PROPERTY_PREFIX + name + ".graphs", "")), //
+                    split(properties.getProperty(RULE_PROPERTY_PREFIX + name + ".prefixes", "")), //
+                    split(properties.getProperty(RULE_PROPERTY_PREFIX + name + ".endpoints", ""))));
+        }
+        return new EndpointRouter(rules, failureCooldownMs);
+    }
+
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return the IRIs of the graphs targeted by the query (FROM, FROM NAMED and
+     *         GRAPH), empty if the query cannot be parsed
+     */
+    static Set<String> getTargetGraphs(String sparqlQuery) {
+        Set<String> graphs = new HashSet<>();
+        Query query;
+        try {
+            query = QueryFactory.create(sparqlQuery);
+        } catch (QueryParseException e) {
+            return graphs;
+        }
+        graphs.addAll(query.getGraphURIs());
+        graphs.addAll(query.getNamedGraphURIs());
+        if (query.getQueryPattern() != null) {
+            ElementWalker.walk(query.getQueryPattern(), new ElementVisitorBase() {
+                @Override
+                public void visit(ElementNamedGraph element) {
+                    Node graph = element.getGraphNameNode();
+                    if (graph.isURI()) {
+                        graphs.add(graph.getURI());
+                    }
+                }
+            });
+        }
+        return graphs;
+    }
+
+    /**
+     * @return the rule used for the query, null if no rule matches
+     */
+    public Rule getRule(String sparqlQuery) {
+        Set<String> targetGraphs = getTargetGraphs(sparqlQuery);
+        for (Rule rule : rules) {
+            if (rule.matches(targetGraphs, sparqlQuery)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the endpoints of the matching rule in the order they should be
+     *         tried: the healthy endpoints in turns, followed by the endpoints
+     *         that failed recently; empty if no rule matches
+     */
+    public List<String> getEndpoints(String sparqlQuery) {
+        Rule rule = getRule(sparqlQuery);
+        if (rule == null) {
+            return Collections.emptyList();
+        }
+        List<String> healthy = new ArrayList<>();
+        List<String> unhealthy = new ArrayList<>();
+        for (String endpoint : rule.endpoints) {
+            (isHealthy(endpoint) ? healthy : unhealthy).add(endpoint);
+        }
+        if (healthy.size() > 1) {
+            Collections.rotate(healthy, -Math.floorMod(rule.nextEndpoint.getAndIncrement(), healthy.size()));
+        }
+        healthy.addAll(unhealthy);
+        logger.debug("routing rule {}: {}", rule.name, healthy);
+        return healthy;
+    }
+
+    public boolean isHealthy(String endpoint) {
+        Long until = unhealthyUntil.get(endpoint);
+        return until == null || until <= currentTimeMillis.getAsLong();
+    }
+
+    public void markFailed(String endpoint) {
+        logger.warn("endpoint {} failed, it is not used for {} ms", endpoint, failureCooldownMs);
+        unhealthyUntil.put(endpoint, currentTimeMillis.getAsLong() + failureCooldownMs);
+    }
+
+    public void markSucceeded(String endpoint) {
+        unhealthyUntil.remove(endpoint);
+    }
+
+    /**
+     * @return true if the failure was caused by the request (HTTP status 4xx
+     *         except 408 Request Timeout and 429 Too Many Requests, which are
+     *         caused by the load of the endpoint), hence, other endpoints would
+     *         fail as well
+     */
+    public static boolean isClientError(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            int statusCode = -1;
+            if (cause instanceof QueryExceptionHTTP) {
+                statusCode = ((QueryExceptionHTTP) cause).getStatusCode();
+            } else if (cause instanceof HttpException) {
+                statusCode = ((HttpException) cause).getStatusCode();
+            }
+            if (statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429) {
+                return true;
+            }
+            if (cause instanceof SparqlQueryFailed) {
+                // the base exception is not registered as cause
+                Exception base = ((SparqlQueryFailed) cause).getBaseException();
+                if (base != null && base != failure && isClientError(base)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the failure was caused by the exhausted local connection
+     *         pool, i.e., the endpoint was not requested and did not fail
+     */
+    public static boolean isConnectionLimitReached(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ConnectionPoolTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SparqlQueryFailed) {
+                // the base exception is not registered as cause
+                Exception base = ((SparqlQueryFailed) cause).getBaseException();
+                if (base != null && base != failure && isConnectionLimitReached(base)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
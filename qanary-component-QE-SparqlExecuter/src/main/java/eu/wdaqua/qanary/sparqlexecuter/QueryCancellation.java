@@ -0,0 +1,47 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+/**
+ * cancels the execution of a query from another thread
+ *
+ * Interrupting the executing thread does not stop a blocking socket read,
+ * hence, the connector registers an action aborting its in-flight HTTP request,
+ * the request is aborted immediately if the query was already cancelled.
+ */
+public class QueryCancellation {
+    private boolean cancelled = false;
+    private Runnable abortAction;
+
+    /**
+     * @param abortAction executed on cancellation, null removes the current action
+     */
+    public void onCancel(Runnable abortAction) {
+        synchronized (this) {
+            if (!cancelled) {
+                this.abortAction = abortAction;
+                return;
+            }
+        }
+        if (abortAction != null) {
+            abortAction.run();
+        }
+    }
+
+    public void cancel() {
+        Runnable action;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            action = abortAction;
+            abortAction = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
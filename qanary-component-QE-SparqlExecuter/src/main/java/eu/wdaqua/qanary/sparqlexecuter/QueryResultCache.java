@@ -0,0 +1,214 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.graph.NodeTransform;
+import org.apache.jena.sparql.graph.NodeTransformLib;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * bounded cache of query results with a time-to-live
+ *
+ * The entries are keyed by the endpoint and a normalized form of the query:
+ * the SPARQL algebra of the query with all variables renamed in the order of
+ * their occurrence, extended by the dataset (FROM, FROM NAMED) and the
+ * template of CONSTRUCT queries. Hence, queries differing only in whitespace,
+ * prefix declarations or variable names share an entry. If the names of the result
+ * variables differ, they are renamed in the cached JSON result.
+ */
+public class QueryResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static class Entry {
+        private final QueryResultJson result;
+        private final List<String> resultVars;
+        private final long expiresAt;
+
+        private Entry(QueryResultJson result, List<String> resultVars, long expiresAt) {
+            this.result = result;
+            this.resultVars = resultVars;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LongSupplier currentTimeMillis;
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of cached results, the least recently
+     *                   used entries are removed first, 0 disables the cache
+     * @param ttlMs      time-to-live of the cached results
+     */
+    public QueryResultCache(int maxEntries, long ttlMs) {
+        this(maxEntries, ttlMs, System::currentTimeMillis);
+    }
+
+    QueryResultCache(int maxEntries, long ttlMs, LongSupplier currentTimeMillis) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMs = ttlMs;
+        this.currentTimeMillis = currentTimeMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > QueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * @return the normalized form of the query, equal for queries differing
+     *         only in whitespace, prefix declarations and variable names
+     */
+    public static String normalize(Query query) {
+        Op op = Algebra.compile(query);
+        Map<Var, Var> canonicalVars = new HashMap<>();
+        NodeTransform canonicalize = node -> {
+            if (!Var.isVar(node)) {
+                return node;
+            }
+            return canonicalVars.computeIfAbsent(Var.alloc(node), var -> Var.alloc("v" + canonicalVars.size()));
+        };
+        Op normalized = NodeTransformLib.transform(canonicalize, op);
+        // the algebra of an ASK query does not contain its type
+        StringBuilder key = new StringBuilder(query.queryType() + " " + normalized);
+        // neither the dataset (FROM, FROM NAMED) nor the template of a CONSTRUCT
+        // query or the resources of a DESCRIBE query are part of the algebra
+        key.append("FROM ").append(new TreeSet<>(query.getGraphURIs())).append('\n');
+        key.append("FROM NAMED ").append(new TreeSet<>(query.getNamedGraphURIs())).append('\n');
+        if (query.isConstructType()) {
+            key.append("TEMPLATE ").append(NodeTransformLib.transformQuads(canonicalize, query.getConstructTemplate().getQuads()));
+        } else if (query.isDescribeType()) {
+            key.append("DESCRIBE ").append(query.getResultURIs());
+            key.append(' ').append(NodeTransformLib.transformVars(canonicalize, query.getProjectVars()));
+        }
+        return key.toString();
+    }
+
+    static String createKey(String endpoint, Query query) {
+        return endpoint + "\n" + normalize(query);
+    }
+
+    /**
+     * @return the cached result of an equivalent query, null if there is none
+     */
+    public QueryResultJson get(String endpoint, Query query) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = createKey(endpoint, query);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= currentTimeMillis.getAsLong()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        QueryResultJson result = null;
+        if (entry != null) {
+            List<String> resultVars = query.isAskType() ? List.of() : query.getResultVars();
+            if (resultVars.equals(entry.resultVars)) {
+                result = entry.result;
+            } else {
+                result = renameVariables(entry.result, entry.resultVars, resultVars);
+            }
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    public void put(String endpoint, Query query, QueryResultJson result) {
+        if (!isEnabled()) {
+            return;
+        }
+        List<String> resultVars = query.isAskType() ? List.of() : new ArrayList<>(query.getResultVars());
+        Entry entry = new Entry(result, resultVars, currentTimeMillis.getAsLong() + ttlMs);
+        synchronized (entries) {
+            entries.put(createKey(endpoint, query), entry);
+        }
+    }
+
+    /**
+     * @return the result using the names of the target variables instead of the
+     *         names of the source variables (at the same position)
+     */
+    private static QueryResultJson renameVariables(QueryResultJson result, List<String> sourceVars, List<String> targetVars) {
+        Map<String, String> names = new HashMap<>();
+        for (int i = 0; i < Math.min(sourceVars.size(), targetVars.size()); i++) {
+            names.put(sourceVars.get(i), targetVars.get(i));
+        }
+        try {
+            JsonNode json = objectMapper.readTree(result.getJson());
+            ArrayNode vars = (ArrayNode) json.path("head").path("vars");
+            for (int i = 0; i < vars.size(); i++) {
+                vars.set(i, TextNode.valueOf(names.getOrDefault(vars.get(i).asText(), vars.get(i).asText())));
+            }
+            for (JsonNode binding : json.path("results").path("bindings")) {
+                ObjectNode renamed = objectMapper.createObjectNode();
+                Iterator<Map.Entry<String, JsonNode>> fields = binding.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    renamed.set(names.getOrDefault(field.getKey(), field.getKey()), field.getValue());
+                }
+                ((ObjectNode) binding).removeAll().setAll(renamed);
+            }
+            return new QueryResultJson(objectMapper.writeValueAsString(json), result.getNumberOfRows(),
+                    result.isTruncated());
+        } catch (JsonProcessingException | ClassCastException e) {
+            logger.warn("cached result cannot be renamed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+/**
+ * the result of a SPARQL query serialized as SPARQL 1.1 Query Results JSON
+ */
+public class QueryResultJson {
+    private final String json;
+    private final long numberOfRows;
+    private final boolean truncated;
+
+    public QueryResultJson(String json, long numberOfRows, boolean truncated) {
+        this.json = json;
+        this.numberOfRows = numberOfRows;
+        this.truncated = truncated;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * @return the number of rows contained in the JSON string
+     */
+    public long getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * @return true if the query has more results than the JSON string contains
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResultJson{numberOfRows=" + numberOfRows + ", truncated=" + truncated + ", length="
+                + json.length() + "}";
+    }
+}
@@ -0,0 +1,183 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.RDFNode;
+
+import java.util.List;
+
+/**
+ * writes SPARQL 1.1 Query Results JSON while consuming a result set row by row
+ *
+ * The serialization stops as soon as the maximum number of rows or bytes
+ * (UTF-8) is reached. Hence, neither the complete result set nor a JSON
+ * string larger than the maximum is kept in memory. A truncated result is
+ * still valid JSON containing the rows that fitted into the limits.
+ */
+public class QueryResultJsonWriter {
+    private static final String RESULTS_SUFFIX = "]}}";
+
+    private final long maxRows;
+    private final long maxBytes;
+
+    /**
+     * @param maxRows  maximum number of rows, values &lt;= 0 mean no limit
+     * @param maxBytes maximum number of bytes of the JSON string, values &lt;= 0
+     *                 mean no limit (the head of the result is always written)
+     */
+    public QueryResultJsonWriter(long maxRows, long maxBytes) {
+        this.maxRows = maxRows <= 0 ? Long.MAX_VALUE : maxRows;
+        this.maxBytes = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public QueryResultJson write(boolean askResult) {
+        return new QueryResultJson("{\"head\":{},\"boolean\":" + askResult + "}", 1, false);
+    }
+
+    /**
+     * consumes the result set until it is exhausted or a limit is reached
+     */
+    public QueryResultJson write(ResultSet resultSet) {
+        List<String> vars = resultSet.getResultVars();
+        StringBuilder json = new StringBuilder("{\"head\":{\"vars\":[");
+        for (int i = 0; i < vars.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, vars.get(i));
+        }
+        json.append("]},\"results\":{\"bindings\":[");
+
+        long bytes = utf8Length(json) + RESULTS_SUFFIX.length();
+        long rows = 0;
+        boolean truncated = false;
+        StringBuilder row = new StringBuilder();
+        while (resultSet.hasNext()) {
+            if (rows >= maxRows) {
+                truncated = true;
+                break;
+            }
+            row.setLength(0);
+            if (rows > 0) {
+                row.append(',');
+            }
+            appendRow(row, vars, resultSet.next());
+            long rowBytes = utf8Length(row);
+            if (bytes + rowBytes > maxBytes) {
+                truncated = true;
+                break;
+            }
+            json.append(row);
+            bytes += rowBytes;
+            rows++;
+        }
+        json.append(RESULTS_SUFFIX);
+        return new QueryResultJson(json.toString(), rows, truncated);
+    }
+
+    private static void appendRow(StringBuilder json, List<String> vars, QuerySolution solution) {
+        json.append('{');
+        boolean first = true;
+        for (String var : vars) {
+            RDFNode value = solution.get(var);
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, var);
+            json.append(':');
+            appendNode(json, value.asNode());
+        }
+        json.append('}');
+    }
+
+    private static void appendNode(StringBuilder json, Node node) {
+        if (node.isURI()) {
+            json.append("{\"type\":\"uri\",\"value\":");
+            appendString(json, node.getURI());
+        } else if (node.isBlank()) {
+            json.append("{\"type\":\"bnode\",\"value\":");
+            appendString(json, node.getBlankNodeLabel());
+        } else if (node.isLiteral()) {
+            json.append("{\"type\":\"literal\",\"value\":");
+            appendString(json, node.getLiteralLexicalForm());
+            String language = node.getLiteralLanguage();
+            String datatype = node.getLiteralDatatypeURI();
+            if (language != null && !language.isEmpty()) {
+                json.append(",\"xml:lang\":");
+                appendString(json, language);
+            } else if (datatype != null && !datatype.equals(XSDDatatype.XSDstring.getURI())) {
+                json.append(",\"datatype\":");
+                appendString(json, datatype);
+            }
+        } else {
+            throw new IllegalArgumentException("node cannot be serialized as query result: " + node);
+        }
+        json.append('}');
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding (without encoding it)
+     */
+    static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                // each char of a surrogate pair takes 2 of the 4 bytes
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,143 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * executes ranked candidate queries concurrently and determines the result of
+ * the best-ranked query having a non-empty result
+ *
+ * As soon as a query has a non-empty result and all better-ranked queries
+ * failed, timed out or returned an empty result, the executions of the
+ * remaining queries are cancelled: their threads are interrupted and their
+ * in-flight requests are aborted.
+ */
+public class RankedQueryExecutor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RankedQueryExecutor.class);
+
+    /**
+     * executes a single candidate query
+     */
+    public interface QueryRunner {
+        /**
+         * @param cancellation is cancelled if the result is not needed anymore
+         * @return the result, null if the query cannot be executed
+         */
+        QueryResultJson run(String sparqlQuery, QueryCancellation cancellation) throws Exception;
+    }
+
+    /**
+     * the result of the selected candidate query
+     */
+    public static class RankedResult {
+        private final int rank;
+        private final String sparqlQuery;
+        private final QueryResultJson result;
+
+        public RankedResult(int rank, String sparqlQuery, QueryResultJson result) {
+            this.rank = rank;
+            this.sparqlQuery = sparqlQuery;
+            this.result = result;
+        }
+
+        /**
+         * @return the position of the query in the ranked candidates (0 is the best)
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        public String getSparqlQuery() {
+            return sparqlQuery;
+        }
+
+        public QueryResultJson getResult() {
+            return result;
+        }
+    }
+
+    private final ExecutorService executor;
+
+    public RankedQueryExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "candidate-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static boolean isEmpty(QueryResultJson result) {
+        return result == null || result.getNumberOfRows() == 0;
+    }
+
+    /**
+     * @param rankedQueries  the candidate queries, the best-ranked first
+     * @param queryTimeoutMs maximum execution time of each query
+     * @return the result of the best-ranked query with a non-empty result, null
+     *         if no such query exists
+     */
+    public RankedResult execute(List<String> rankedQueries, long queryTimeoutMs, QueryRunner queryRunner) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        List<Future<QueryResultJson>> futures = new ArrayList<>();
+        List<QueryCancellation> cancellations = new ArrayList<>();
+        for (String sparqlQuery : rankedQueries) {
+            QueryCancellation cancellation = new QueryCancellation();
+            cancellations.add(cancellation);
+            futures.add(executor.submit(() -> queryRunner.run(sparqlQuery, cancellation)));
+        }
+
+        try {
+            for (int rank = 0; rank < futures.size(); rank++) {
+                Future<QueryResultJson> future = futures.get(rank);
+                QueryResultJson result;
+                try {
+                    result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    logger.warn("candidate query {} timed out after {} ms", rank, queryTimeoutMs);
+                    cancel(future, cancellations.get(rank));
+                    continue;
+                } catch (ExecutionException e) {
+                    logger.warn("candidate query {} failed: {}", rank, e.getCause().getMessage());
+                    continue;
+                }
+                if (isEmpty(result)) {
+                    logger.info("candidate query {} has no result", rank);
+                } else {
+                    logger.info("use the result of candidate query {} of {}", rank, futures.size());
+                    return new RankedResult(rank, rankedQueries.get(rank), result);
+                }
+            }
+            return null;
+        } finally {
+            // the outcome is determined, the remaining executions are not needed
+            for (int rank = 0; rank < futures.size(); rank++) {
+                cancel(futures.get(rank), cancellations.get(rank));
+            }
+        }
+    }
+
+    /**
+     * interrupting the thread does not stop a blocking socket read, hence, the
+     * in-flight request is aborted as well
+     */
+    private static void cancel(Future<QueryResultJson> future, QueryCancellation cancellation) {
+        cancellation.cancel();
+        future.cancel(true);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
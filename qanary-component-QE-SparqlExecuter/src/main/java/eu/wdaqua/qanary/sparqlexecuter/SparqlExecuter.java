@@ -2,21 +2,25 @@ package eu.wdaqua.qanary.sparqlexecuter;
 
 import static org.apache.jena.datatypes.xsd.XSDDatatype.XSDstring;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.query.ResultSet;
-import org.apache.jena.query.ResultSetFormatter;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import eu.wdaqua.qanary.commons.QanaryExceptionNoOrMultipleQuestions;
@@ -34,13 +38,92 @@ import eu.wdaqua.qanary.exceptions.SparqlQueryFailed;
  * The Qanary pipeline endpoint defined in application.properties (spring.boot.admin.url)
  * @see <a href="https://github.com/WDAqua/Qanary/wiki/How-do-I-integrate-a-new-component-in-Qanary%3F" target="_top">Github wiki howto</a>
  */
-public class SparqlExecuter extends QanaryComponent {
+public class SparqlExecuter extends QanaryComponent implements EnvironmentAware {
     private static final Logger logger = LoggerFactory.getLogger(SparqlExecuter.class);
 
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT = 10;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 30000;
+    public static final long DEFAULT_SOCKET_TIMEOUT_MS = TripleStoreConnector.DEFAULT_SOCKET_TIMEOUT_MS;
+    public static final long DEFAULT_MAX_RESULT_ROWS = 10000;
+    public static final long DEFAULT_MAX_RESULT_BYTES = 10 * 1024 * 1024;
+    // 0 disables the result cache
+    public static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_CACHE_TTL_MS = 10 * 60 * 1000;
+
+    // annotation of the answer, a truncated answer is additionally marked, see getSparqlInsertQuery
+    private static final String FILENAME_INSERT_ANNOTATION_OF_QUERY_RESULT = "/queries/insert_one_annotation_of_query_result.rq";
+
+    // the SPARQL queries of the answer sorted by their score, the highest first
+    private static final String FILENAME_SELECT_RANKED_ANNOTATIONS_OF_ANSWER_SPARQL = "/queries/select_ranked_annotations_of_answer_sparql.rq";
+
     private final String applicationName;
+    private final TripleStoreConnectorRegistry tripleStoreConnectorRegistry;
+    private final QueryResultJsonWriter queryResultJsonWriter;
+    private final QueryResultCache queryResultCache;
+    private final RankedQueryExecutor rankedQueryExecutor = new RankedQueryExecutor();
+    private volatile EndpointRouter endpointRouter;
 
-    public SparqlExecuter(@Value("${spring.application.name}") final String applicationName) {
+    public SparqlExecuter(final String applicationName) {
+        this(applicationName, DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT, DEFAULT_ACQUIRE_TIMEOUT_MS);
+    }
+
+    public SparqlExecuter(final String applicationName, final int maxConnectionsPerEndpoint, final long acquireTimeoutMs) {
+        this(applicationName, maxConnectionsPerEndpoint, acquireTimeoutMs, DEFAULT_MAX_RESULT_ROWS, DEFAULT_MAX_RESULT_BYTES);
+    }
+
+    public SparqlExecuter(final String applicationName, final int maxConnectionsPerEndpoint, final long acquireTimeoutMs, final long maxResultRows, final long maxResultBytes) {
+        this(applicationName, maxConnectionsPerEndpoint, acquireTimeoutMs, maxResultRows, maxResultBytes, DEFAULT_CACHE_MAX_ENTRIES, DEFAULT_CACHE_TTL_MS);
+    }
+
+    /**
+     * @param applicationName           the name of the component
+     * @param maxConnectionsPerEndpoint maximum number of open connections to each
+     *                                  knowledge graph endpoint
+     * @param acquireTimeoutMs          maximum time a query waits for a free
+     *                                  connection
+     * @param maxResultRows             maximum number of rows stored as answer,
+     *                                  values &lt;= 0 mean no limit
+     * @param maxResultBytes            maximum size of the JSON answer in bytes,
+     *                                  values &lt;= 0 mean no limit
+     * @param cacheMaxEntries           maximum number of cached query results, 0
+     *                                  disables the cache
+     * @param cacheTtlMs                time-to-live of the cached query results
+     */
+    public SparqlExecuter(final String applicationName, final int maxConnectionsPerEndpoint, final long acquireTimeoutMs, final long maxResultRows, final long maxResultBytes, final int cacheMaxEntries, final long cacheTtlMs) {
+        this(applicationName, maxConnectionsPerEndpoint, acquireTimeoutMs, DEFAULT_SOCKET_TIMEOUT_MS, maxResultRows, maxResultBytes, cacheMaxEntries, cacheTtlMs);
+    }
+
+    /**
+     * @param applicationName           the name of the component
+     * @param maxConnectionsPerEndpoint maximum number of open connections to each
+     *                                  knowledge graph endpoint
+     * @param acquireTimeoutMs          maximum time a query waits for a free
+     *                                  connection
+     * @param socketTimeoutMs           maximum time a knowledge graph endpoint
+     *                                  may not send any data while a query is
+     *                                  executed, 0 means no limit
+     * @param maxResultRows             maximum number of rows stored as answer,
+     *                                  values &lt;= 0 mean no limit
+     * @param maxResultBytes            maximum size of the JSON answer in bytes,
+     *                                  values &lt;= 0 mean no limit
+     * @param cacheMaxEntries           maximum number of cached query results, 0
+     *                                  disables the cache
+     * @param cacheTtlMs                time-to-live of the cached query results
+     */
+    @Autowired
+    public SparqlExecuter( //
+            @Value("${spring.application.name}") final String applicationName, //
+            @Value("${knowledgegraph.connection.max-per-endpoint:" + DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT + "}") final int maxConnectionsPerEndpoint, //
+            @Value("${knowledgegraph.connection.acquire-timeout-ms:" + DEFAULT_ACQUIRE_TIMEOUT_MS + "}") final long acquireTimeoutMs, //
+            @Value("${knowledgegraph.connection.socket-timeout-ms:" + DEFAULT_SOCKET_TIMEOUT_MS + "}") final long socketTimeoutMs, //
+            @Value("${knowledgegraph.result.max-rows:" + DEFAULT_MAX_RESULT_ROWS + "}") final long maxResultRows, //
+            @Value("${knowledgegraph.result.max-bytes:" + DEFAULT_MAX_RESULT_BYTES + "}") final long maxResultBytes, //
+            @Value("${knowledgegraph.cache.max-entries:" + DEFAULT_CACHE_MAX_ENTRIES + "}") final int cacheMaxEntries, //
+            @Value("${knowledgegraph.cache.ttl-ms:" + DEFAULT_CACHE_TTL_MS + "}") final long cacheTtlMs) {
         this.applicationName = applicationName;
+        this.tripleStoreConnectorRegistry = new TripleStoreConnectorRegistry(maxConnectionsPerEndpoint, acquireTimeoutMs, socketTimeoutMs);
+        this.queryResultJsonWriter = new QueryResultJsonWriter(maxResultRows, maxResultBytes);
+        this.queryResultCache = new QueryResultCache(cacheMaxEntries, cacheTtlMs);
     }
 
     @Value("${knowledgegraph.endpoint.dbpedia}")
@@ -49,6 +132,13 @@ public class SparqlExecuter extends QanaryComponent {
     @Value("${knowledgegraph.endpoint.wikidata}")
     private String knowledgegraphEndpointWikidata;
 
+    // number of the best-ranked SPARQL queries executed concurrently, 1 executes only the best one
+    @Value("${knowledgegraph.candidates.top-k:1}")
+    private int numberOfCandidateQueries;
+
+    @Value("${knowledgegraph.candidates.query-timeout-ms:30000}")
+    private long candidateQueryTimeoutMs;
+
     /**
      * implement this method encapsulating the functionality of your Qanary
      * component
@@ -61,21 +151,38 @@ public class SparqlExecuter extends QanaryComponent {
         QanaryUtils myQanaryUtils = this.getUtils(myQanaryMessage);
         QanaryQuestion<String> myQanaryQuestion = new QanaryQuestion<>(myQanaryMessage, myQanaryUtils.getQanaryTripleStoreConnector());
 
-        // STEP 1: get the required data from the triplestore
-        String sparqlQuery = getResultSparqlQuery(myQanaryUtils, myQanaryQuestion);
+        String sparqlQuery;
+        QueryResultJson result;
+        if (this.numberOfCandidateQueries > 1) {
+            // STEP 1: get the best-ranked SPARQL queries from the triplestore
+            List<String> candidateQueries = getCandidateSparqlQueries(myQanaryUtils, myQanaryQuestion, this.numberOfCandidateQueries);
 
-        // STEP 2: execute the first SPARQL query
-        String endpoint = selectKnowledgeGraphEnpdoint(sparqlQuery);
-        if (endpoint == null) {
-            return myQanaryMessage;
-        }
+            // STEP 2: execute them concurrently and use the best-ranked non-empty result
+            RankedQueryExecutor.RankedResult rankedResult = getBestCandidateQueryResults(candidateQueries, this.candidateQueryTimeoutMs);
+            if (rankedResult == null) {
+                logger.warn("None of the {} candidate SPARQL queries has a result", candidateQueries.size());
+                return myQanaryMessage;
+            }
+            sparqlQuery = rankedResult.getSparqlQuery();
+            result = rankedResult.getResult();
+        } else {
+            // STEP 1: get the required data from the triplestore
+            sparqlQuery = getResultSparqlQuery(myQanaryUtils, myQanaryQuestion);
 
-        String json = getQueryResultsAsJson(sparqlQuery, endpoint);
-        logger.info("Generated answers in RDF json: {}", json);
+            // STEP 2: execute the first SPARQL query
+            result = getQueryResultsFromKnowledgeGraph(sparqlQuery);
+            if (result == null) {
+                return myQanaryMessage;
+            }
+        }
+        if (result.isTruncated()) {
+            logger.warn("The answer contains only the first {} rows of the results of {}", result.getNumberOfRows(), sparqlQuery);
+        }
+        logger.info("Generated answers in RDF json: {}", result.getJson());
 
         // STEP 3: Push the the JSON object to the named graph reserved for the question
         logger.info("Push the the JSON object to the named graph reserved for the answer");
-        String sparqlInsertAnnotationOfAnswerJson = getSparqlInsertQuery(json, myQanaryQuestion);
+        String sparqlInsertAnnotationOfAnswerJson = getSparqlInsertQuery(result, myQanaryQuestion);
         logger.info("SPARQL insert for adding data to Qanary triplestore: {}", sparqlInsertAnnotationOfAnswerJson);
         myQanaryUtils.getQanaryTripleStoreConnector().update(sparqlInsertAnnotationOfAnswerJson);
 
@@ -91,37 +198,134 @@ public class SparqlExecuter extends QanaryComponent {
      * @throws URISyntaxException
      */
     public String getQueryResultsAsJson(String sparqlQuery, String endpoint) throws UnsupportedEncodingException, eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed, URISyntaxException{
+        return getQueryResults(sparqlQuery, endpoint).getJson();
+    }
+
+    /**
+     * executes the query and serializes the streamed results, the serialization
+     * stops if the configured maximum number of rows or bytes is reached
+     *
+     * @param sparqlQuery
+     * @param endpoint
+     * @return the (possibly truncated) results as JSON
+     * @throws SparqlQueryFailed
+     * @throws URISyntaxException
+     */
+    public QueryResultJson getQueryResults(String sparqlQuery, String endpoint) throws eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed, URISyntaxException {
+        return getQueryResults(sparqlQuery, endpoint, null);
+    }
+
+    /**
+     * @param cancellation aborts the in-flight request if it is cancelled, null
+     *                     if the query cannot be cancelled
+     * @return the (possibly truncated) results as JSON
+     */
+    public QueryResultJson getQueryResults(String sparqlQuery, String endpoint, QueryCancellation cancellation) throws eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed, URISyntaxException {
         Query query = QueryFactory.create(sparqlQuery);
-        TripleStoreConnector myTripleStoreConnector = new TripleStoreConnector(new URI(endpoint));
-        String json;
-        ByteArrayOutputStream outputStream;
+        QueryResultJson result = this.queryResultCache.get(endpoint, query);
+        if (result != null) {
+            logger.debug("use cached result (hits: {}, misses: {})", this.queryResultCache.getHitCount(), this.queryResultCache.getMissCount());
+            return result;
+        }
+        TripleStoreConnector myTripleStoreConnector = this.tripleStoreConnectorRegistry.getConnector(endpoint);
         if (query.isAskType()) {
-            Boolean result = myTripleStoreConnector.ask(sparqlQuery);
-            outputStream = new ByteArrayOutputStream();
-            ResultSetFormatter.outputAsJSON(outputStream, result);
+            result = this.queryResultJsonWriter.write(myTripleStoreConnector.ask(sparqlQuery, cancellation));
         } else {
-            ResultSet result = myTripleStoreConnector.select(sparqlQuery);
-            outputStream = new ByteArrayOutputStream();
-            ResultSetFormatter.outputAsJSON(outputStream, result);
+            result = myTripleStoreConnector.select(sparqlQuery, this.queryResultJsonWriter::write, cancellation);
         }
-        json = new String(outputStream.toByteArray(), "UTF-8");
-        return json;
+        this.queryResultCache.put(endpoint, query, result);
+        return result;
     }
     
+    /**
+     * executes the query on the endpoints selected by the routing rules, if an
+     * endpoint fails the next endpoint of the rule is used
+     *
+     * @param sparqlQuery
+     * @return the (possibly truncated) results as JSON, null if no routing rule
+     *         matches the query
+     * @throws SparqlQueryFailed if all endpoints failed or the query was rejected
+     * @throws URISyntaxException
+     */
+    public QueryResultJson getQueryResultsFromKnowledgeGraph(String sparqlQuery) throws eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed, URISyntaxException {
+        return getQueryResultsFromKnowledgeGraph(sparqlQuery, null);
+    }
+
+    /**
+     * @param cancellation aborts the in-flight request if it is cancelled, null
+     *                     if the query cannot be cancelled
+     * @return the (possibly truncated) results as JSON, null if no routing rule
+     *         matches the query
+     */
+    public QueryResultJson getQueryResultsFromKnowledgeGraph(String sparqlQuery, QueryCancellation cancellation) throws eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed, URISyntaxException {
+        EndpointRouter router = getEndpointRouter();
+        List<String> endpoints = router.getEndpoints(sparqlQuery);
+        if (endpoints.isEmpty()) {
+            logger.warn("knowledge graph was unknown");
+            return null;
+        }
+        eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed lastFailure = null;
+        for (String endpoint : endpoints) {
+            try {
+                QueryResultJson result = getQueryResults(sparqlQuery, endpoint, cancellation);
+                router.markSucceeded(endpoint);
+                return result;
+            } catch (eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed e) {
+                if (Thread.currentThread().isInterrupted() || (cancellation != null && cancellation.isCancelled())
+                        || EndpointRouter.isClientError(e)) {
+                    // not caused by the endpoint, the other endpoints would fail as well
+                    throw e;
+                }
+                if (EndpointRouter.isConnectionLimitReached(e)) {
+                    // the endpoint was not requested, it is still healthy
+                    logger.warn("no free connection to endpoint {}", endpoint);
+                } else {
+                    router.markFailed(endpoint);
+                }
+                lastFailure = e;
+            }
+        }
+        logger.error("all {} endpoints failed: {}", endpoints.size(), endpoints);
+        throw lastFailure;
+    }
+
+    /**
+     * @return the first endpoint selected by the routing rules, null if no rule
+     *         matches the query
+     */
     public String selectKnowledgeGraphEnpdoint(String sparqlQuery){
         // TODO: extend functionality to use qa:TargetDataset if present
-        String endpoint = "";
-        if (sparqlQuery.contains("http://dbpedia.org")) {
-            endpoint = this.knowledgegraphEndpointDbpedia;
-            logger.info("use DBpedia endpoint");
-        } else if (sparqlQuery.contains("http://www.wikidata.org")) {
-            endpoint = this.knowledgegraphEndpointWikidata;
-            logger.info("use Wikidata endpoint");
-        } else {
+        List<String> endpoints = getEndpointRouter().getEndpoints(sparqlQuery);
+        if (endpoints.isEmpty()) {
             logger.warn("knowledge graph was unknown");
             return null;
         }
-        return endpoint;
+        logger.info("use endpoint {}", endpoints.get(0));
+        return endpoints.get(0);
+    }
+
+    /**
+     * creates the routing rules from the configuration (knowledgegraph.routing.*)
+     */
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.endpointRouter = EndpointRouter.fromProperties(environment);
+    }
+
+    public void setEndpointRouter(EndpointRouter endpointRouter) {
+        this.endpointRouter = endpointRouter;
+    }
+
+    /**
+     * @return the configured routing rules, if there are none, the DBpedia and
+     *         Wikidata endpoints are used
+     */
+    public EndpointRouter getEndpointRouter() {
+        if (this.endpointRouter == null) {
+            this.endpointRouter = EndpointRouter.createDefault(this.knowledgegraphEndpointDbpedia,
+                    this.knowledgegraphEndpointWikidata, EndpointRouter.DEFAULT_FAILURE_COOLDOWN_MS);
+        }
+        return this.endpointRouter;
     }
 
     public String getResultSparqlQuery(QanaryUtils myQanaryUtils, QanaryQuestion myQanaryQuestion) throws SparqlQueryFailed, IOException{
@@ -138,6 +342,37 @@ public class SparqlExecuter extends QanaryComponent {
         return sparqlQuery;
     }
 
+    /**
+     * @param numberOfCandidates maximum number of returned queries
+     * @return the SPARQL queries of the answer ordered by their score, the
+     *         highest first
+     */
+    public List<String> getCandidateSparqlQueries(QanaryUtils myQanaryUtils, QanaryQuestion myQanaryQuestion, int numberOfCandidates) throws IOException, SparqlQueryFailed, URISyntaxException {
+        QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("graph", ResourceFactory.createResource(myQanaryQuestion.getOutGraph().toASCIIString()));
+        Query sparql = QueryFactory.create(QanaryTripleStoreConnector.readFileFromResourcesWithMap(FILENAME_SELECT_RANKED_ANNOTATIONS_OF_ANSWER_SPARQL, bindings));
+        sparql.setLimit(numberOfCandidates);
+        ResultSet resultset = myQanaryUtils.getQanaryTripleStoreConnector().select(sparql.toString());
+        List<String> candidateQueries = new ArrayList<>();
+        while (resultset.hasNext()) {
+            candidateQueries.add(resultset.next().get("selectQueryThatShouldComputeTheAnswer").toString().replace("\\\"", "\"").replace("\\n", "\n"));
+        }
+        logger.info("{} candidate SPARQL queries: {}", candidateQueries.size(), candidateQueries);
+        return candidateQueries;
+    }
+
+    /**
+     * executes the candidate queries concurrently on their knowledge graphs
+     *
+     * @param candidateQueries the candidate queries, the best-ranked first
+     * @param queryTimeoutMs   maximum execution time of each query
+     * @return the result of the best-ranked query with a non-empty result, null
+     *         if there is none
+     */
+    public RankedQueryExecutor.RankedResult getBestCandidateQueryResults(List<String> candidateQueries, long queryTimeoutMs) throws InterruptedException {
+        return this.rankedQueryExecutor.execute(candidateQueries, queryTimeoutMs, this::getQueryResultsFromKnowledgeGraph);
+    }
+
     public String getSparqlInsertQuery(String json, QanaryQuestion myQanaryQuestion) throws IOException, QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed{
         // define here the parameters for the SPARQL INSERT query
         QuerySolutionMap bindings = new QuerySolutionMap();
@@ -155,4 +390,43 @@ public class SparqlExecuter extends QanaryComponent {
         return sparqlInsertAnnotationOfAnswerJson;
     }
 
+    /**
+     * creates the INSERT query of the answer, a truncated answer is additionally
+     * marked by qa:isTruncated and its number of rows (qa:numberOfRows)
+     */
+    public String getSparqlInsertQuery(QueryResultJson result, QanaryQuestion myQanaryQuestion) throws IOException, QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed {
+        QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("graph", ResourceFactory.createResource(myQanaryQuestion.getOutGraph().toASCIIString()));
+        bindings.add("targetQuestion", ResourceFactory.createResource(myQanaryQuestion.getUri().toASCIIString()));
+        bindings.add("jsonAnswer", ResourceFactory.createTypedLiteral(result.getJson().replace("\n", ""), XSDstring));
+        bindings.add("application", ResourceFactory.createResource("urn:qanary:" + this.applicationName));
+        if (result.isTruncated()) {
+            // the triples of the unbound variables are not inserted for complete answers
+            bindings.add("isTruncated", ResourceFactory.createTypedLiteral(true));
+            bindings.add("numberOfRows", ResourceFactory.createTypedLiteral(result.getNumberOfRows()));
+        }
+        return QanaryTripleStoreConnector.readFileFromResourcesWithMap(FILENAME_INSERT_ANNOTATION_OF_QUERY_RESULT, bindings);
+    }
+
+    /**
+     * @return the cache of the query results providing the hit and miss counts
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    TripleStoreConnectorRegistry getTripleStoreConnectorRegistry() {
+        return tripleStoreConnectorRegistry;
+    }
+
+    /**
+     * closes the connections to all knowledge graph endpoints and stops the
+     * executions of candidate queries
+     */
+    @PreDestroy
+    public void closeTripleStoreConnectors() {
+        this.rankedQueryExecutor.close();
+        this.tripleStoreConnectorRegistry.close();
+    }
+
 }
@@ -1,26 +1,67 @@
 package eu.wdaqua.qanary.sparqlexecuter;
 
 import eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.atlas.web.HttpException;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
 import org.apache.jena.rdfconnection.RDFConnection;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
-public class TripleStoreConnector {
+public class TripleStoreConnector implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(TripleStoreConnector.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final long DEFAULT_SOCKET_TIMEOUT_MS = 60000;
+    private static final String RESULTS_JSON = "application/sparql-results+json";
+
     private final URI endpoint;
     private final String username;
     private final String password;
 
+    // only used by pooled connectors, otherwise null
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Semaphore connectionPermits;
+    private final long acquireTimeoutMs;
+    private volatile boolean closed = false;
+
     private RDFConnection conn;
 
     public TripleStoreConnector(URI endpoint) {
         this.endpoint = endpoint;
         this.username = null;
         this.password = null;
+        this.connectionManager = null;
+        this.httpClient = null;
+        this.connectionPermits = null;
+        this.acquireTimeoutMs = 0;
 
         logger.debug("SPARQL Connection initialized: endpoint:{}", endpoint);
         this.connect();
@@ -32,12 +73,99 @@ public class TripleStoreConnector {
         this.endpoint = endpoint;
         this.username = username;
         this.password = password;
+        this.connectionManager = null;
+        this.httpClient = null;
+        this.connectionPermits = null;
+        this.acquireTimeoutMs = 0;
 
         logger.debug("SPARQL Connection initialized: endpoint:{}, username:{}, password:{}", endpoint, username, password);
         this.connect();
         logger.info("SPARQL Connection created on endpoint {}", endpoint);
     }
 
+    /**
+     * creates a connector using its own keep-alive HTTP client, the connections
+     * to the endpoint are reused by all queries of this connector
+     *
+     * @param endpoint         the SPARQL endpoint
+     * @param maxConnections   maximum number of queries executed concurrently,
+     *                         i.e., the maximum number of open connections
+     * @param acquireTimeoutMs maximum time a query waits for a free connection
+     */
+    public TripleStoreConnector(URI endpoint, int maxConnections, long acquireTimeoutMs) {
+        this(endpoint, maxConnections, acquireTimeoutMs, DEFAULT_SOCKET_TIMEOUT_MS);
+    }
+
+    /**
+     * creates a connector using its own keep-alive HTTP client, the connections
+     * to the endpoint are reused by all queries of this connector
+     *
+     * @param endpoint         the SPARQL endpoint
+     * @param maxConnections   maximum number of queries executed concurrently,
+     *                         i.e., the maximum number of open connections
+     * @param acquireTimeoutMs maximum time a query waits for a free connection
+     * @param socketTimeoutMs  maximum time the endpoint may not send any data
+     *                         while a query is executed (0: no limit), hence,
+     *                         a hung endpoint does not hold the connections
+     */
+    public TripleStoreConnector(URI endpoint, int maxConnections, long acquireTimeoutMs, long socketTimeoutMs) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections has to be positive: " + maxConnections);
+        }
+        this.endpoint = endpoint;
+        this.username = null;
+        this.password = null;
+        this.connectionPermits = new Semaphore(maxConnections, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+
+        logger.debug("SPARQL Connection initialized: endpoint:{}, maxConnections:{}, socketTimeoutMs:{}", endpoint, maxConnections, socketTimeoutMs);
+        // the pool owns the keep-alive sockets, hence, they are closed together with the connector
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxConnections);
+        this.connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom() //
+                .setConnectionManager(this.connectionManager) //
+                .setRedirectStrategy(new LaxRedirectStrategy()) //
+                .setDefaultRequestConfig(RequestConfig.custom() //
+                        .setConnectTimeout((int) CONNECT_TIMEOUT.toMillis()) //
+                        .setConnectionRequestTimeout((int) Math.min(acquireTimeoutMs, Integer.MAX_VALUE)) //
+                        .setSocketTimeout((int) Math.min(socketTimeoutMs, Integer.MAX_VALUE)) //
+                        .build()) //
+                .build();
+        logger.info("pooled SPARQL Connection created on endpoint {} (max. {} connections)", endpoint, maxConnections);
+    }
+
+    private boolean isPooled() {
+        return httpClient != null;
+    }
+
+    /**
+     * creates a query request of the SPARQL 1.1 protocol (form-encoded POST)
+     * sent by the pooled HTTP client
+     */
+    private HttpPost createQueryRequest(String sparql) {
+        HttpPost request = new HttpPost(this.endpoint);
+        request.setHeader(HttpHeaders.ACCEPT, RESULTS_JSON);
+        request.setEntity(new UrlEncodedFormEntity(List.of(new BasicNameValuePair("query", sparql)), StandardCharsets.UTF_8));
+        return request;
+    }
+
+    /**
+     * @return the body of a successful response
+     */
+    private static InputStream getContent(CloseableHttpResponse response) throws IOException {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        if (statusLine.getStatusCode() < 200 || statusLine.getStatusCode() >= 300) {
+            String body = entity == null ? null : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            throw new HttpException(statusLine.getStatusCode(), statusLine.getReasonPhrase(), body);
+        }
+        if (entity == null) {
+            throw new IOException("response without body");
+        }
+        return entity.getContent();
+    }
+
     /**
      * get current time in milliseconds
      */
@@ -61,29 +189,203 @@ public class TripleStoreConnector {
         logger.info("runtime measurement: {} ms for {}", duration, description);
     }
 
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the number of free connections, -1 if the connector is not pooled
+     */
+    int getAvailableConnections() {
+        return connectionPermits == null ? -1 : connectionPermits.availablePermits();
+    }
+
+    /**
+     * waits for a free connection of a pooled connector
+     */
+    private void acquireConnection(String sparql) throws SparqlQueryFailed {
+        if (closed) {
+            throw new SparqlQueryFailed(sparql, this.endpoint.toString(),
+                    new IllegalStateException("connector was already closed"));
+        }
+        if (connectionPermits == null) {
+            return;
+        }
+        try {
+            if (!connectionPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SparqlQueryFailed(sparql, this.endpoint.toString(), new TimeoutException(
+                        "no free connection to " + this.endpoint + " within " + acquireTimeoutMs + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+        }
+    }
+
+    private static void onCancel(QueryCancellation cancellation, Runnable abortAction) {
+        if (cancellation != null) {
+            cancellation.onCancel(abortAction);
+        }
+    }
+
+    private void releaseConnection() {
+        if (connectionPermits != null) {
+            connectionPermits.release();
+        }
+    }
+
+    /**
+     * the results are copied, hence, the query execution is closed and its
+     * connection is free for the next query when this method returns
+     */
     public ResultSet select(String sparql) throws SparqlQueryFailed {
+        if (isPooled()) {
+            return select(sparql, ResultSetFactory::copyResults);
+        }
+        acquireConnection(sparql);
         long start = getTime();
 
-        try {
-            QueryExecution qExec = conn.query(sparql);
+        try (QueryExecution qExec = conn.query(sparql)) {
+            ResultSet resultSet = ResultSetFactory.copyResults(qExec.execSelect());
+            this.logTime(getTime() - start, "SELECT on " + this.endpoint.toString() + ": " + sparql);
+            return resultSet;
+        } catch (Exception e) {
+            throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+        } finally {
+            releaseConnection();
+        }
+    }
 
+    /**
+     * passes the streamed results to the handler, the query execution is
+     * aborted if the handler did not consume all results
+     *
+     * @return the value returned by the handler
+     */
+    public <T> T select(String sparql, Function<ResultSet, T> resultSetHandler) throws SparqlQueryFailed {
+        return select(sparql, resultSetHandler, null);
+    }
+
+    /**
+     * passes the streamed results to the handler, the query execution is
+     * aborted if the handler did not consume all results or if the query is
+     * cancelled
+     *
+     * @param cancellation aborts the in-flight request if it is cancelled, null
+     *                     if the query cannot be cancelled
+     * @return the value returned by the handler
+     */
+    public <T> T select(String sparql, Function<ResultSet, T> resultSetHandler, QueryCancellation cancellation) throws SparqlQueryFailed {
+        acquireConnection(sparql);
+        long start = getTime();
+
+        if (isPooled()) {
+            HttpPost request = createQueryRequest(sparql);
+            onCancel(cancellation, request::abort);
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                ResultSet resultSet = ResultSetMgr.read(getContent(response), ResultSetLang.RS_JSON);
+                T result = resultSetHandler.apply(resultSet);
+                if (resultSet.hasNext()) {
+                    // do not transfer the remaining results, the connection is discarded
+                    request.abort();
+                } else {
+                    // the connection is returned to the pool
+                    EntityUtils.consume(response.getEntity());
+                }
+                this.logTime(getTime() - start, "SELECT on " + this.endpoint.toString() + ": " + sparql);
+                return result;
+            } catch (Exception e) {
+                throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+            } finally {
+                onCancel(cancellation, null);
+                releaseConnection();
+            }
+        }
+
+        try (QueryExecution qExec = conn.query(sparql)) {
+            onCancel(cancellation, qExec::abort);
+            ResultSet resultSet = qExec.execSelect();
+            T result = resultSetHandler.apply(resultSet);
+            if (resultSet.hasNext()) {
+                // do not transfer the remaining results
+                qExec.abort();
+            }
             this.logTime(getTime() - start, "SELECT on " + this.endpoint.toString() + ": " + sparql);
-            return qExec.execSelect();
+            return result;
         } catch (Exception e) {
             throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+        } finally {
+            onCancel(cancellation, null);
+            releaseConnection();
         }
     }
 
     public boolean ask(String sparql) throws SparqlQueryFailed {
+        return ask(sparql, null);
+    }
+
+    /**
+     * @param cancellation aborts the in-flight request if it is cancelled, null
+     *                     if the query cannot be cancelled
+     */
+    public boolean ask(String sparql, QueryCancellation cancellation) throws SparqlQueryFailed {
+        acquireConnection(sparql);
         long start = getTime();
 
-        try {
-            QueryExecution qExec = conn.query(sparql);
+        if (isPooled()) {
+            HttpPost request = createQueryRequest(sparql);
+            onCancel(cancellation, request::abort);
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                boolean result = ResultSetMgr.readBoolean(getContent(response), ResultSetLang.RS_JSON);
+                EntityUtils.consume(response.getEntity());
+                this.logTime(getTime() - start, "ASK on " + this.endpoint.toString() + ": " + sparql);
+                return result;
+            } catch (Exception e) {
+                throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+            } finally {
+                onCancel(cancellation, null);
+                releaseConnection();
+            }
+        }
 
+        try (QueryExecution qExec = conn.query(sparql)) {
+            onCancel(cancellation, qExec::abort);
+            boolean result = qExec.execAsk();
             this.logTime(getTime() - start, "ASK on " + this.endpoint.toString() + ": " + sparql);
-            return qExec.execAsk();
+            return result;
         } catch (Exception e) {
             throw new SparqlQueryFailed(sparql, this.endpoint.toString(), e);
+        } finally {
+            onCancel(cancellation, null);
+            releaseConnection();
+        }
+    }
+
+    /**
+     * closes the connection (all sockets of a pooled connector), queries
+     * executed afterwards will fail
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (conn != null) {
+            conn.close();
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                logger.warn("HTTP client of endpoint {} could not be closed: {}", endpoint, e.getMessage());
+            }
+            connectionManager.shutdown();
         }
+        logger.info("SPARQL Connection closed on endpoint {}", endpoint);
     }
 }
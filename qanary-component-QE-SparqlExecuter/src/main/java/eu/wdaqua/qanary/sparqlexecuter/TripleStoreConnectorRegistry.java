@@ -0,0 +1,96 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * keeps one pooled TripleStoreConnector per SPARQL endpoint, hence, the
+ * connections to an endpoint are reused by all queries instead of creating a
+ * new connection for each query
+ */
+public class TripleStoreConnectorRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TripleStoreConnectorRegistry.class);
+
+    private final int maxConnectionsPerEndpoint;
+    private final long acquireTimeoutMs;
+    private final long socketTimeoutMs;
+    private final ConcurrentMap<URI, TripleStoreConnector> connectors = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param maxConnectionsPerEndpoint maximum number of open connections to
+     *                                  each endpoint
+     * @param acquireTimeoutMs          maximum time a query waits for a free
+     *                                  connection
+     */
+    public TripleStoreConnectorRegistry(int maxConnectionsPerEndpoint, long acquireTimeoutMs) {
+        this(maxConnectionsPerEndpoint, acquireTimeoutMs, TripleStoreConnector.DEFAULT_SOCKET_TIMEOUT_MS);
+    }
+
+    /**
+     * @param maxConnectionsPerEndpoint maximum number of open connections to
+     *                                  each endpoint
+     * @param acquireTimeoutMs          maximum time a query waits for a free
+     *                                  connection
+     * @param socketTimeoutMs           maximum time an endpoint may not send any
+     *                                  data while a query is executed (0: no
+     *                                  limit)
+     */
+    public TripleStoreConnectorRegistry(int maxConnectionsPerEndpoint, long acquireTimeoutMs, long socketTimeoutMs) {
+        if (maxConnectionsPerEndpoint < 1) {
+            throw new IllegalArgumentException(
+                    "maxConnectionsPerEndpoint has to be positive: " + maxConnectionsPerEndpoint);
+        }
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.socketTimeoutMs = socketTimeoutMs;
+    }
+
+    /**
+     * @return the connector of the endpoint, it is created on first use
+     */
+    public TripleStoreConnector getConnector(String endpoint) throws URISyntaxException {
+        URI uri = new URI(endpoint);
+        if (closed) {
+            throw new IllegalStateException("registry was already closed, no connector for " + endpoint);
+        }
+        TripleStoreConnector connector = connectors.computeIfAbsent(uri,
+                key -> new TripleStoreConnector(key, maxConnectionsPerEndpoint, acquireTimeoutMs, socketTimeoutMs));
+        if (closed) {
+            // close() was called concurrently and might have missed the new connector
+            connector.close();
+            throw new IllegalStateException("registry was already closed, no connector for " + endpoint);
+        }
+        return connector;
+    }
+
+    public int size() {
+        return connectors.size();
+    }
+
+    public int getMaxConnectionsPerEndpoint() {
+        return maxConnectionsPerEndpoint;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * closes the connectors of all endpoints
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (TripleStoreConnector connector : connectors.values()) {
+            connector.close();
+        }
+        logger.info("closed the connectors of {} SPARQL endpoints", connectors.size());
+        connectors.clear();
+    }
+}
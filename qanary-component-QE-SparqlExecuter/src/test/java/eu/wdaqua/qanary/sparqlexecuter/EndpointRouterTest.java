@@ -0,0 +1,216 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * tests the routing rules, the load balancing between mirrors and the failover
+ */
+class EndpointRouterTest {
+    private static final String MIRROR_1 = "http://mirror-1/sparql";
+    private static final String MIRROR_2 = "http://mirror-2/sparql";
+    private static final String WIKIDATA_QUERY = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q183> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+
+    private static EndpointRouter createRouter(List<String> endpoints, AtomicLong now) {
+        return new EndpointRouter(List.of( //
+                new EndpointRouter.Rule("archive", List.of("urn:graph:archive"), List.of(), List.of("http://archive/sparql")), //
+                new EndpointRouter.Rule("wikidata", List.of(), List.of("http://www.wikidata.org"), endpoints)), //
+                1000, now::get);
+    }
+
+    @Test
+    void testRuleSelection() {
+        EndpointRouter router = createRouter(List.of(MIRROR_1), new AtomicLong());
+
+        assertEquals("wikidata", router.getRule(WIKIDATA_QUERY).getName());
+        assertEquals("wikidata", router.getRule("PREFIX wd: <http://www.wikidata.org/entity/> ASK { wd:Q183 ?p ?o }").getName());
+        // the graph rule is checked first
+        assertEquals("archive", router.getRule(WIKIDATA_QUERY.replace("WHERE", "FROM <urn:graph:archive> WHERE")).getName());
+        assertEquals("archive", router.getRule("SELECT ?s FROM NAMED <urn:graph:archive> WHERE { GRAPH ?g { ?s ?p ?o } }").getName());
+        assertEquals("archive", router.getRule("SELECT ?s WHERE { GRAPH <urn:graph:archive> { ?s ?p ?o } }").getName());
+        assertNull(router.getRule("SELECT ?s WHERE { GRAPH <urn:graph:other> { ?s ?p ?o } }"));
+        assertTrue(router.getEndpoints("SELECT ?s WHERE { ?s ?p <http://dbpedia.org/resource/Berlin> }").isEmpty());
+    }
+
+    @Test
+    void testMirrorsAreUsedInTurns() {
+        EndpointRouter router = createRouter(List.of(MIRROR_1, MIRROR_2), new AtomicLong());
+
+        assertEquals(List.of(MIRROR_1, MIRROR_2), router.getEndpoints(WIKIDATA_QUERY));
+        assertEquals(List.of(MIRROR_2, MIRROR_1), router.getEndpoints(WIKIDATA_QUERY));
+        assertEquals(List.of(MIRROR_1, MIRROR_2), router.getEndpoints(WIKIDATA_QUERY));
+    }
+
+    @Test
+    void testFailedMirrorIsSkippedUntilCooldownExpired() {
+        AtomicLong now = new AtomicLong(5000);
+        EndpointRouter router = createRouter(List.of(MIRROR_1, MIRROR_2), now);
+
+        router.markFailed(MIRROR_1);
+        for (int i = 0; i < 3; i++) {
+            // the failed mirror is used only if the healthy one fails as well
+            assertEquals(List.of(MIRROR_2, MIRROR_1), router.getEndpoints(WIKIDATA_QUERY));
+        }
+        now.addAndGet(999);
+        assertFalse(router.isHealthy(MIRROR_1));
+        now.addAndGet(1);
+        assertTrue(router.isHealthy(MIRROR_1));
+        assertEquals(2, List.of(router.getEndpoints(WIKIDATA_QUERY), router.getEndpoints(WIKIDATA_QUERY)).stream()
+                .map(endpoints -> endpoints.get(0)).distinct().count());
+    }
+
+    @Test
+    void testRulesFromProperties() {
+        MockEnvironment environment = new MockEnvironment() //
+                .withProperty("knowledgegraph.endpoint.dbpedia", "http://dbpedia/sparql") //
+                .withProperty("knowledgegraph.endpoint.wikidata", "http://wikidata/sparql");
+        EndpointRouter defaultRouter = EndpointRouter.fromProperties(environment);
+        assertEquals(List.of("http://wikidata/sparql"), defaultRouter.getEndpoints(WIKIDATA_QUERY));
+        assertEquals(List.of("http://dbpedia/sparql"), defaultRouter.getEndpoints("ASK { <http://dbpedia.org/resource/Berlin> ?p ?o }"));
+
+        environment.withProperty("knowledgegraph.routing.rules", "mirrors") //
+                .withProperty("knowledgegraph.routing.rule.mirrors.prefixes", "http://www.wikidata.org") //
+                .withProperty("knowledgegraph.routing.rule.mirrors.endpoints", " " + MIRROR_1 + " , " + MIRROR_2 + " ");
+        EndpointRouter router = EndpointRouter.fromProperties(environment);
+        assertEquals(1, router.getRules().size());
+        assertEquals(List.of(MIRROR_1, MIRROR_2), router.getRules().get(0).getEndpoints());
+        assertTrue(router.getRules().get(0).getGraphs().isEmpty());
+    }
+
+    @Test
+    void testFailoverToHealthyLocalEndpoint() throws Exception {
+        try (LocalSparqlEndpoint failing = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset());
+             LocalSparqlEndpoint healthy = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            failing.setFailureStatusCode(503);
+            EndpointRouter router = new EndpointRouter(List.of(new EndpointRouter.Rule("wikidata", List.of(),
+                    List.of("http://www.wikidata.org"), List.of(failing.getUrl(), healthy.getUrl()))), 60000);
+            // without result cache, the repeated query is sent to the endpoints
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter", SparqlExecuter.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT,
+                    SparqlExecuter.DEFAULT_ACQUIRE_TIMEOUT_MS, SparqlExecuter.DEFAULT_MAX_RESULT_ROWS, SparqlExecuter.DEFAULT_MAX_RESULT_BYTES,
+                    0, SparqlExecuter.DEFAULT_CACHE_TTL_MS);
+            sparqlExecuter.setEndpointRouter(router);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    QueryResultJson result = sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY);
+                    assertTrue(result.getJson().contains("http://www.wikidata.org/entity/Q64"));
+                }
+
+                // the failing endpoint was tried once, afterwards it was skipped
+                assertEquals(1, failing.getNumberOfRequests());
+                assertEquals(10, healthy.getNumberOfRequests());
+                assertFalse(router.isHealthy(failing.getUrl()));
+                assertTrue(router.isHealthy(healthy.getUrl()));
+            } finally {
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+
+    @Test
+    void testFailureOfAllLocalEndpoints() throws Exception {
+        try (LocalSparqlEndpoint first = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset());
+             LocalSparqlEndpoint second = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            first.setFailureStatusCode(503);
+            second.close();
+            EndpointRouter router = new EndpointRouter(List.of(new EndpointRouter.Rule("wikidata", List.of(),
+                    List.of("http://www.wikidata.org"), List.of(first.getUrl(), second.getUrl()))), 60000);
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+            sparqlExecuter.setEndpointRouter(router);
+            try {
+                assertThrows(SparqlQueryFailed.class, () -> sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY));
+                assertFalse(router.isHealthy(first.getUrl()));
+                assertFalse(router.isHealthy(second.getUrl()));
+
+                // the failed endpoints are still used if there is no other one
+                first.setFailureStatusCode(0);
+                assertTrue(sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY).getJson().contains("Q64"));
+                assertTrue(router.isHealthy(first.getUrl()));
+            } finally {
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+
+    @Test
+    void testOverloadedEndpointIsFailedOver() throws Exception {
+        for (int statusCode : new int[]{408, 429}) {
+            try (LocalSparqlEndpoint overloaded = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset());
+                 LocalSparqlEndpoint healthy = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+                overloaded.setFailureStatusCode(statusCode);
+                EndpointRouter router = new EndpointRouter(List.of(new EndpointRouter.Rule("wikidata", List.of(),
+                        List.of("http://www.wikidata.org"), List.of(overloaded.getUrl(), healthy.getUrl()))), 60000);
+                SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+                sparqlExecuter.setEndpointRouter(router);
+                try {
+                    assertTrue(sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY).getJson().contains("Q64"));
+                    assertEquals(1, overloaded.getNumberOfRequests(), "HTTP status " + statusCode);
+                    assertFalse(router.isHealthy(overloaded.getUrl()), "HTTP status " + statusCode);
+                } finally {
+                    sparqlExecuter.closeTripleStoreConnectors();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testExhaustedConnectionPoolDoesNotFailEndpoint() throws Exception {
+        try (LocalSparqlEndpoint endpoint = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            endpoint.setResponseDelayMs(1000);
+            EndpointRouter router = new EndpointRouter(List.of(new EndpointRouter.Rule("wikidata", List.of(),
+                    List.of("http://www.wikidata.org"), List.of(endpoint.getUrl()))), 60000);
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter", 1, 100);
+            sparqlExecuter.setEndpointRouter(router);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<QueryResultJson> running = executor.submit(() -> sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY));
+                while (endpoint.getNumberOfRequests() == 0) {
+                    Thread.sleep(10);
+                }
+
+                // the only connection is in use
+                assertThrows(SparqlQueryFailed.class, () -> sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY));
+                assertTrue(router.isHealthy(endpoint.getUrl()));
+                assertTrue(running.get(10, TimeUnit.SECONDS).getJson().contains("Q64"));
+                assertEquals(1, endpoint.getNumberOfRequests());
+            } finally {
+                executor.shutdownNow();
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+
+    @Test
+    void testRejectedQueryIsNotRetried() throws Exception {
+        try (LocalSparqlEndpoint first = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset());
+             LocalSparqlEndpoint second = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            first.setFailureStatusCode(400);
+            second.setFailureStatusCode(400);
+            EndpointRouter router = new EndpointRouter(List.of(new EndpointRouter.Rule("wikidata", List.of(),
+                    List.of("http://www.wikidata.org"), List.of(first.getUrl(), second.getUrl()))), 60000);
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+            sparqlExecuter.setEndpointRouter(router);
+            try {
+                assertThrows(SparqlQueryFailed.class, () -> sparqlExecuter.getQueryResultsFromKnowledgeGraph(WIKIDATA_QUERY));
+                assertEquals(1, first.getNumberOfRequests() + second.getNumberOfRequests());
+                assertTrue(router.isHealthy(first.getUrl()));
+                assertTrue(router.isHealthy(second.getUrl()));
+            } finally {
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * minimal SPARQL endpoint (SPARQL 1.1 protocol, JSON results) serving an
+ * in-memory dataset, it records the client connections and the number of
+ * concurrent requests
+ * <p>
+ * The clients connect to a socket forwarding to the HTTP server, hence, the
+ * connections currently opened by the clients are known as well.
+ */
+class LocalSparqlEndpoint implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalSparqlEndpoint.class);
+    static final String PATH = "/sparql";
+
+    private final Dataset dataset;
+    private final HttpServer server;
+    private final ServerSocket clientSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger numberOfRequests = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final AtomicLong generatedRowsWritten = new AtomicLong();
+    private final Map<String, Long> queryResponseDelaysMs = new ConcurrentHashMap<>();
+    private volatile long responseDelayMs = 0;
+    private volatile long generatedRows = -1;
+    private volatile int failureStatusCode = 0;
+
+    LocalSparqlEndpoint(Dataset dataset) throws IOException {
+        this.dataset = dataset;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        this.clientSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.executor.execute(this::acceptClients);
+    }
+
+    String getUrl() {
+        return "http://localhost:" + clientSocket.getLocalPort() + PATH;
+    }
+
+    void setResponseDelayMs(long responseDelayMs) {
+        this.responseDelayMs = responseDelayMs;
+    }
+
+    /**
+     * delays the responses to all queries containing the given part
+     */
+    void setResponseDelayMs(String queryPart, long responseDelayMs) {
+        this.queryResponseDelaysMs.put(queryPart, responseDelayMs);
+    }
+
+    /**
+     * answers all requests with the given HTTP status code (e.g., 503), 0
+     * answers the requests normally
+     */
+    void setFailureStatusCode(int failureStatusCode) {
+        this.failureStatusCode = failureStatusCode;
+    }
+
+    /**
+     * answers SELECT queries with the given number of generated rows (?item
+     * ?label) instead of evaluating them on the dataset, the rows are streamed
+     *
+     * @param generatedRows number of rows, a negative value disables the
+     *                      generated results
+     */
+    void setGeneratedRows(long generatedRows) {
+        this.generatedRows = generatedRows;
+    }
+
+    /**
+     * @return number of generated rows written before the clients closed the
+     *         connections
+     */
+    long getGeneratedRowsWritten() {
+        return generatedRowsWritten.get();
+    }
+
+    /**
+     * @return the ports of all client connections, i.e., the number of
+     *         connections opened by the clients
+     */
+    Set<Integer> getClientPorts() {
+        return clientPorts;
+    }
+
+    /**
+     * @return the number of connections which were opened by the clients and
+     *         not closed yet
+     */
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    int getNumberOfRequests() {
+        return numberOfRequests.get();
+    }
+
+    int getMaxConcurrentRequests() {
+        return maxConcurrentRequests.get();
+    }
+
+    private static String getParameter(String encodedParameters, String name) {
+        if (encodedParameters == null) {
+            return null;
+        }
+        for (String parameter : encodedParameters.split("&")) {
+            int index = parameter.indexOf('=');
+            if (index > 0 && parameter.substring(0, index).equals(name)) {
+                return URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String getQuery(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.startsWith("application/sparql-query")) {
+                return body;
+            }
+            return getParameter(body, "query");
+        }
+        return getParameter(exchange.getRequestURI().getRawQuery(), "query");
+    }
+
+    private void acceptClients() {
+        while (!clientSocket.isClosed()) {
+            try {
+                Socket client = clientSocket.accept();
+                clientPorts.add(client.getPort());
+                openConnections.incrementAndGet();
+                Socket upstream = new Socket(InetAddress.getLoopbackAddress(), server.getAddress().getPort());
+                executor.execute(() -> {
+                    // the connection is closed by the client if its stream ends
+                    forward(client, upstream);
+                    openConnections.decrementAndGet();
+                });
+                executor.execute(() -> forward(upstream, client));
+            } catch (IOException e) {
+                if (!clientSocket.isClosed()) {
+                    logger.warn("failed to accept connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * copies the stream of the source to the target, both sockets are closed
+     * afterwards
+     */
+    private static void forward(Socket source, Socket target) {
+        try (InputStream in = source.getInputStream(); OutputStream out = target.getOutputStream()) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            // closed by one of the sides
+        } finally {
+            closeQuietly(source);
+            closeQuietly(target);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        numberOfRequests.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+        try {
+            if (failureStatusCode > 0) {
+                exchange.sendResponseHeaders(failureStatusCode, -1);
+                return;
+            }
+            String queryString = getQuery(exchange);
+            Query query = QueryFactory.create(queryString);
+            long delay = responseDelayMs;
+            for (Map.Entry<String, Long> queryResponseDelay : queryResponseDelaysMs.entrySet()) {
+                if (queryString.contains(queryResponseDelay.getKey())) {
+                    delay = Math.max(delay, queryResponseDelay.getValue());
+                }
+            }
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/sparql-results+json");
+            exchange.sendResponseHeaders(200, 0);
+            if (generatedRows >= 0 && query.isSelectType()) {
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+                    writeGeneratedRows(out, generatedRows);
+                }
+                return;
+            }
+            try (OutputStream out = exchange.getResponseBody();
+                 QueryExecution qExec = QueryExecutionFactory.create(query, dataset)) {
+                if (query.isAskType()) {
+                    ResultSetFormatter.outputAsJSON(out, qExec.execAsk());
+                } else {
+                    ResultSetFormatter.outputAsJSON(out, qExec.execSelect());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (RuntimeException e) {
+            logger.warn("failed to answer request: {}", e.getMessage());
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            concurrentRequests.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void writeGeneratedRows(Writer out, long rows) throws IOException {
+        out.write("{\"head\":{\"vars\":[\"item\",\"label\"]},\"results\":{\"bindings\":[\n");
+        for (long i = 0; i < rows; i++) {
+            if (i > 0) {
+                out.write(",\n");
+            }
+            out.write("{\"item\":{\"type\":\"uri\",\"value\":\"urn:qanary:item:" + i
+                    + "\"},\"label\":{\"type\":\"literal\",\"value\":\"item number " + i
+                    + "\",\"xml:lang\":\"en\"}}");
+            generatedRowsWritten.incrementAndGet();
+        }
+        out.write("]}}\n");
+    }
+
+    @Override
+    public void close() {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            logger.warn("failed to close client socket: {}", e.getMessage());
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
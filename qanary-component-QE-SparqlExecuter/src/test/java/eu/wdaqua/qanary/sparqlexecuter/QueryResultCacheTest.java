@@ -0,0 +1,205 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * tests the query result cache keyed by the normalized query
+ */
+class QueryResultCacheTest {
+    private static final String ENDPOINT = "http://localhost/sparql";
+
+    private static final String QUERY = "" //
+            + "PREFIX wd: <http://www.wikidata.org/entity/> " //
+            + "PREFIX wdt: <http://www.wikidata.org/prop/direct/> " //
+            + "SELECT ?capital ?label WHERE { " //
+            + "wd:Q183 wdt:P36 ?capital . " //
+            + "?capital <http://www.w3.org/2000/01/rdf-schema#label> ?label . " //
+            + "FILTER(lang(?label) = 'en') " //
+            + "} ORDER BY ?label LIMIT 10";
+    private static final String[] EQUIVALENT_QUERIES = { //
+            // whitespace
+            "PREFIX wd: <http://www.wikidata.org/entity/>\nPREFIX wdt: <http://www.wikidata.org/prop/direct/>\n" //
+                    + "SELECT ?capital ?label\nWHERE {\n    wd:Q183   wdt:P36 ?capital .\n" //
+                    + "    ?capital <http://www.w3.org/2000/01/rdf-schema#label> ?label .\n" //
+                    + "    FILTER ( lang(?label) = 'en' )\n}\nORDER BY ?label\nLIMIT 10\n", //
+            // prefix declarations
+            "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> PREFIX entity: <http://www.wikidata.org/entity/> " //
+                    + "SELECT ?capital ?label WHERE { entity:Q183 <http://www.wikidata.org/prop/direct/P36> ?capital . " //
+                    + "?capital rdfs:label ?label . FILTER(lang(?label) = 'en') } ORDER BY ?label LIMIT 10", //
+            // variable names
+            "PREFIX wd: <http://www.wikidata.org/entity/> PREFIX wdt: <http://www.wikidata.org/prop/direct/> " //
+                    + "SELECT ?city ?name WHERE { wd:Q183 wdt:P36 ?city . " //
+                    + "?city <http://www.w3.org/2000/01/rdf-schema#label> ?name . " //
+                    + "FILTER(lang(?name) = 'en') } ORDER BY ?name LIMIT 10" //
+    };
+    private static final String[] DIFFERENT_QUERIES = { //
+            // other entity
+            QUERY.replace("wd:Q183", "wd:Q142"), //
+            // other limit
+            QUERY.replace("LIMIT 10", "LIMIT 100"), //
+            // other filter
+            QUERY.replace("'en'", "'de'"), //
+            // other order of the result variables
+            QUERY.replace("SELECT ?capital ?label", "SELECT ?label ?capital"), //
+            // distinct results
+            QUERY.replace("SELECT", "SELECT DISTINCT"), //
+            // variables switched in the pattern
+            QUERY.replace("?capital <http://www.w3.org/2000/01/rdf-schema#label> ?label",
+                    "?label <http://www.w3.org/2000/01/rdf-schema#label> ?capital"), //
+            // other dataset
+            QUERY.replace("SELECT ?capital ?label WHERE", "SELECT ?capital ?label FROM <urn:graph:a> WHERE"), //
+            QUERY.replace("SELECT ?capital ?label WHERE", "SELECT ?capital ?label FROM NAMED <urn:graph:a> WHERE"), //
+            // ASK query having the same pattern
+            "PREFIX wd: <http://www.wikidata.org/entity/> PREFIX wdt: <http://www.wikidata.org/prop/direct/> " //
+                    + "ASK { wd:Q183 wdt:P36 ?capital . ?capital <http://www.w3.org/2000/01/rdf-schema#label> ?label . " //
+                    + "FILTER(lang(?label) = 'en') }" //
+    };
+    private static final QueryResultJson RESULT = new QueryResultJson("" //
+            + "{\"head\":{\"vars\":[\"capital\",\"label\"]},\"results\":{\"bindings\":[" //
+            + "{\"capital\":{\"type\":\"uri\",\"value\":\"http://www.wikidata.org/entity/Q64\"}," //
+            + "\"label\":{\"type\":\"literal\",\"value\":\"Berlin\",\"xml:lang\":\"en\"}}]}}", 1, false);
+
+    @Test
+    void testEquivalentQueriesShareEntry() {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        cache.put(ENDPOINT, QueryFactory.create(QUERY), RESULT);
+
+        for (String equivalentQuery : EQUIVALENT_QUERIES) {
+            Query query = QueryFactory.create(equivalentQuery);
+            assertEquals(QueryResultCache.normalize(QueryFactory.create(QUERY)), QueryResultCache.normalize(query));
+            assertNotNull(cache.get(ENDPOINT, query), equivalentQuery);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(EQUIVALENT_QUERIES.length, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    void testDifferentQueriesDoNotShareEntry() {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        cache.put(ENDPOINT, QueryFactory.create(QUERY), RESULT);
+
+        for (String differentQuery : DIFFERENT_QUERIES) {
+            Query query = QueryFactory.create(differentQuery);
+            assertNotEquals(QueryResultCache.normalize(QueryFactory.create(QUERY)), QueryResultCache.normalize(query));
+            assertNull(cache.get(ENDPOINT, query), differentQuery);
+        }
+        // same query, other endpoint
+        assertNull(cache.get("http://localhost/other/sparql", QueryFactory.create(QUERY)));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(DIFFERENT_QUERIES.length + 1, cache.getMissCount());
+    }
+
+    @Test
+    void testQueriesOfOtherGraphsDoNotShareEntry() {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        Query queryOfGraphA = QueryFactory.create(QUERY.replace("WHERE", "FROM <urn:graph:a> WHERE"));
+        Query queryOfGraphB = QueryFactory.create(QUERY.replace("WHERE", "FROM <urn:graph:b> WHERE"));
+        Query queryOfGraphsAB = QueryFactory.create(QUERY.replace("WHERE", "FROM <urn:graph:a> FROM <urn:graph:b> WHERE"));
+        Query queryOfGraphsBA = QueryFactory.create(QUERY.replace("WHERE", "FROM <urn:graph:b> FROM <urn:graph:a> WHERE"));
+        cache.put(ENDPOINT, queryOfGraphA, RESULT);
+
+        assertNull(cache.get(ENDPOINT, queryOfGraphB));
+        assertNull(cache.get(ENDPOINT, queryOfGraphsAB));
+        assertNull(cache.get(ENDPOINT, QueryFactory.create(QUERY)));
+        assertNotNull(cache.get(ENDPOINT, queryOfGraphA));
+
+        // the order of the graphs does not change the dataset
+        assertEquals(QueryResultCache.normalize(queryOfGraphsAB), QueryResultCache.normalize(queryOfGraphsBA));
+    }
+
+    @Test
+    void testConstructQueriesOfOtherTemplatesDoNotShareEntry() {
+        String construct = "CONSTRUCT { ?s <urn:p> ?o } WHERE { ?s <urn:q> ?o }";
+
+        assertEquals(QueryResultCache.normalize(QueryFactory.create(construct)),
+                QueryResultCache.normalize(QueryFactory.create("CONSTRUCT { ?a <urn:p> ?b } WHERE { ?a <urn:q> ?b }")));
+        assertNotEquals(QueryResultCache.normalize(QueryFactory.create(construct)),
+                QueryResultCache.normalize(QueryFactory.create("CONSTRUCT { ?o <urn:p> ?s } WHERE { ?s <urn:q> ?o }")));
+        assertNotEquals(QueryResultCache.normalize(QueryFactory.create(construct)),
+                QueryResultCache.normalize(QueryFactory.create("CONSTRUCT { ?s <urn:other> ?o } WHERE { ?s <urn:q> ?o }")));
+        assertNotEquals(QueryResultCache.normalize(QueryFactory.create("DESCRIBE <urn:a>")),
+                QueryResultCache.normalize(QueryFactory.create("DESCRIBE <urn:b>")));
+    }
+
+    @Test
+    void testResultVariablesAreRenamed() {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        cache.put(ENDPOINT, QueryFactory.create(QUERY), RESULT);
+
+        assertSame(RESULT, cache.get(ENDPOINT, QueryFactory.create(EQUIVALENT_QUERIES[0])));
+        QueryResultJson renamed = cache.get(ENDPOINT, QueryFactory.create(EQUIVALENT_QUERIES[2]));
+        assertEquals(RESULT.getJson().replace("\"capital\"", "\"city\"").replace("\"label\"", "\"name\""),
+                renamed.getJson());
+        assertEquals(RESULT.getNumberOfRows(), renamed.getNumberOfRows());
+    }
+
+    @Test
+    void testEntriesExpire() {
+        AtomicLong now = new AtomicLong(1000);
+        QueryResultCache cache = new QueryResultCache(10, 500, now::get);
+        cache.put(ENDPOINT, QueryFactory.create(QUERY), RESULT);
+
+        now.addAndGet(499);
+        assertNotNull(cache.get(ENDPOINT, QueryFactory.create(QUERY)));
+        now.addAndGet(1);
+        assertNull(cache.get(ENDPOINT, QueryFactory.create(QUERY)));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreRemoved() {
+        QueryResultCache cache = new QueryResultCache(2, 60000);
+        cache.put(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[0]), RESULT);
+        cache.put(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[1]), RESULT);
+        assertNotNull(cache.get(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[0])));
+        cache.put(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[2]), RESULT);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[0])));
+        assertNull(cache.get(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[1])));
+        assertNotNull(cache.get(ENDPOINT, QueryFactory.create(DIFFERENT_QUERIES[2])));
+    }
+
+    @Test
+    void testDisabledCache() {
+        QueryResultCache cache = new QueryResultCache(0, 60000);
+        cache.put(ENDPOINT, QueryFactory.create(QUERY), RESULT);
+
+        assertNull(cache.get(ENDPOINT, QueryFactory.create(QUERY)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    void testEquivalentQueriesAreExecutedOnce() throws Exception {
+        String query = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q183> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+        String equivalentQuery = "PREFIX wd: <http://www.wikidata.org/entity/>\nSELECT ?city\nWHERE { wd:Q183 <http://www.wikidata.org/prop/direct/P36> ?city . }";
+        try (LocalSparqlEndpoint endpoint = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter", 1, 10000, 0, 0, 10, 60000);
+            try {
+                String json = sparqlExecuter.getQueryResultsAsJson(query, endpoint.getUrl());
+                String cachedJson = sparqlExecuter.getQueryResultsAsJson(equivalentQuery, endpoint.getUrl());
+
+                assertEquals(1, endpoint.getNumberOfRequests());
+                assertEquals(json.replace("\"capital\"", "\"city\""), cachedJson);
+                assertEquals(1, sparqlExecuter.getQueryResultCache().getHitCount());
+                assertEquals(1, sparqlExecuter.getQueryResultCache().getMissCount());
+            } finally {
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+}
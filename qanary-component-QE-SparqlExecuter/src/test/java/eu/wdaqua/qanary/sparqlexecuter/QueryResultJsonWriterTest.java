@@ -0,0 +1,230 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import eu.wdaqua.qanary.commons.QanaryQuestion;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetRewindable;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * tests the streaming serialization of query results with a maximum number of
+ * rows and bytes
+ */
+class QueryResultJsonWriterTest {
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultJsonWriterTest.class);
+
+    private static final String ALL_QUERY = "SELECT ?s ?p ?o ?unbound WHERE { ?s ?p ?o OPTIONAL { ?o <urn:qanary:unknown> ?unbound } } ORDER BY ?s ?p ?o";
+    private static final int NUMBER_OF_ITEMS = 100;
+
+    /**
+     * upper bound of the heap used additionally while the truncated large result
+     * is serialized, the complete result would need more than 100 MB
+     */
+    private static final long MAX_ADDITIONAL_HEAP_MB = 64;
+
+    private static Dataset createDataset() {
+        Dataset dataset = DatasetFactory.createGeneral();
+        Model model = dataset.getDefaultModel();
+        Property label = model.createProperty("http://www.w3.org/2000/01/rdf-schema#label");
+        Property population = model.createProperty("http://dbpedia.org/ontology/populationTotal");
+        Property comment = model.createProperty("http://www.w3.org/2000/01/rdf-schema#comment");
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            Resource item = model.createResource("http://dbpedia.org/resource/Item_" + i);
+            item.addProperty(label, "Item " + i, "en");
+            item.addProperty(label, "Élément é " + i + " 東京 😀", "fr");
+            item.addLiteral(population, (long) i * 1000);
+        }
+        Resource special = model.createResource("http://dbpedia.org/resource/Special");
+        special.addProperty(comment, "a \"quoted\"\nmultiline\ttext with \\ backslash and \u0001 control char");
+        return dataset;
+    }
+
+    private static QueryResultJson write(QueryResultJsonWriter writer, Dataset dataset, String query) {
+        try (QueryExecution qExec = QueryExecutionFactory.create(query, dataset)) {
+            return writer.write(qExec.execSelect());
+        }
+    }
+
+    private static ResultSetRewindable parse(String json) {
+        return ResultSetFactory.copyResults(
+                ResultSetFactory.fromJSON(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void testSameResultsAsJenaSerialization() {
+        Dataset dataset = createDataset();
+        QueryResultJson result = write(new QueryResultJsonWriter(0, 0), dataset, ALL_QUERY);
+
+        ResultSetRewindable expected;
+        try (QueryExecution qExec = QueryExecutionFactory.create(ALL_QUERY, dataset)) {
+            expected = ResultSetFactory.copyResults(qExec.execSelect());
+        }
+        ResultSetRewindable actual = parse(result.getJson());
+
+        assertFalse(result.isTruncated());
+        assertEquals(expected.size(), result.getNumberOfRows());
+        assertEquals(expected.getResultVars(), actual.getResultVars());
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(expected, actual));
+        assertFalse(result.getJson().contains("\n"));
+    }
+
+    @Test
+    void testAskResult() {
+        QueryResultJsonWriter writer = new QueryResultJsonWriter(1, 1);
+        assertEquals("{\"head\":{},\"boolean\":true}", writer.write(true).getJson());
+        assertEquals("{\"head\":{},\"boolean\":false}", writer.write(false).getJson());
+    }
+
+    @Test
+    void testRowLimit() {
+        Dataset dataset = createDataset();
+        String query = "SELECT ?s WHERE { ?s <http://dbpedia.org/ontology/populationTotal> ?o } ORDER BY ?o";
+
+        QueryResultJson truncated = write(new QueryResultJsonWriter(10, 0), dataset, query);
+        assertTrue(truncated.isTruncated());
+        assertEquals(10, truncated.getNumberOfRows());
+        ResultSet rows = parse(truncated.getJson());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("http://dbpedia.org/resource/Item_" + i, rows.next().getResource("s").getURI());
+        }
+        assertFalse(rows.hasNext());
+
+        // the limit is not exceeded if the results fit exactly
+        QueryResultJson complete = write(new QueryResultJsonWriter(NUMBER_OF_ITEMS, 0), dataset, query);
+        assertFalse(complete.isTruncated());
+        assertEquals(NUMBER_OF_ITEMS, complete.getNumberOfRows());
+    }
+
+    @Test
+    void testByteLimit() {
+        Dataset dataset = createDataset();
+        for (long maxBytes : new long[]{1, 100, 1000, 5000}) {
+            QueryResultJson result = write(new QueryResultJsonWriter(0, maxBytes), dataset, ALL_QUERY);
+            long bytes = result.getJson().getBytes(StandardCharsets.UTF_8).length;
+
+            assertTrue(result.isTruncated());
+            assertEquals(bytes, QueryResultJsonWriter.utf8Length(result.getJson()));
+            // the head is written in any case
+            assertTrue(bytes <= maxBytes || result.getNumberOfRows() == 0, maxBytes + ": " + bytes);
+            assertEquals(result.getNumberOfRows(), parse(result.getJson()).size());
+        }
+    }
+
+    @Test
+    void testTruncatedLargeResultOfLocalEndpoint() throws Exception {
+        long numberOfRows = 1_000_000;
+        long maxBytes = 1024 * 1024;
+        try (LocalSparqlEndpoint endpoint = new LocalSparqlEndpoint(DatasetFactory.createGeneral())) {
+            endpoint.setGeneratedRows(numberOfRows);
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter", 1, 10000, 0, maxBytes);
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong maxUsedMemory = new AtomicLong();
+            Thread memoryMonitor = new Thread(() -> {
+                Runtime runtime = Runtime.getRuntime();
+                while (running.get()) {
+                    maxUsedMemory.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            System.gc();
+            long usedMemoryBefore = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            memoryMonitor.start();
+            long start = System.currentTimeMillis();
+            QueryResultJson result;
+            try {
+                result = sparqlExecuter.getQueryResults("SELECT ?item ?label WHERE { ?item ?p ?label }",
+                        endpoint.getUrl());
+            } finally {
+                running.set(false);
+                memoryMonitor.join();
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+
+            logger.info("{} of {} rows serialized in {} ms ({} rows sent by the endpoint), used heap: {} MB before, max. {} MB",
+                    result.getNumberOfRows(), numberOfRows, System.currentTimeMillis() - start,
+                    endpoint.getGeneratedRowsWritten(), usedMemoryBefore / (1024 * 1024),
+                    maxUsedMemory.get() / (1024 * 1024));
+            assertTrue(result.isTruncated());
+            assertTrue(result.getNumberOfRows() > 0 && result.getNumberOfRows() < numberOfRows);
+            assertTrue(QueryResultJsonWriter.utf8Length(result.getJson()) <= maxBytes);
+            // the transfer was aborted, the endpoint did not send all rows
+            assertTrue(endpoint.getGeneratedRowsWritten() < numberOfRows, endpoint.getGeneratedRowsWritten() + " rows sent");
+            // the complete result (> 100 MB) was neither transferred nor held in memory
+            long maxAdditionalMemory = MAX_ADDITIONAL_HEAP_MB * 1024 * 1024;
+            assertTrue(maxUsedMemory.get() - usedMemoryBefore < maxAdditionalMemory,
+                    (maxUsedMemory.get() - usedMemoryBefore) / (1024 * 1024) + " MB additional heap");
+            List<String> vars = parse(result.getJson()).getResultVars();
+            assertEquals(List.of("item", "label"), vars);
+            QuerySolution last = null;
+            ResultSet rows = parse(result.getJson());
+            while (rows.hasNext()) {
+                last = rows.next();
+            }
+            assertEquals("urn:qanary:item:" + (result.getNumberOfRows() - 1), last.getResource("item").getURI());
+        }
+    }
+
+    @Test
+    void testTruncatedAnswerIsMarkedInAnnotation() throws Exception {
+        String outGraph = "urn:qanary:graph:test";
+        QanaryQuestion<?> question = Mockito.mock(QanaryQuestion.class);
+        Mockito.when(question.getOutGraph()).thenReturn(new URI(outGraph));
+        Mockito.when(question.getUri()).thenReturn(new URI("urn:qanary:question:test"));
+        SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+        String truncatedAnswersQuery = "PREFIX qa: <http://www.wdaqua.eu/qa#> " //
+                + "PREFIX oa: <http://www.w3.org/ns/openannotation/core/> " //
+                + "SELECT ?answer ?rows WHERE { GRAPH <" + outGraph + "> { " //
+                + "?annotation a qa:AnnotationOfAnswerJson ; oa:hasBody ?answer . " //
+                + "?answer a qa:AnswerJson ; qa:isTruncated true ; qa:numberOfRows ?rows } }";
+
+        QueryResultJson truncated = write(new QueryResultJsonWriter(3, 0), createDataset(), ALL_QUERY);
+        Dataset qanaryTriplestore = DatasetFactory.createGeneral();
+        String truncatedAnswerInsert = sparqlExecuter.getSparqlInsertQuery(truncated, question);
+        // the answer is marked by the same INSERT, not by matching its JSON literal afterwards
+        assertEquals(1, UpdateFactory.create(truncatedAnswerInsert).getOperations().size());
+        UpdateAction.parseExecute(truncatedAnswerInsert, qanaryTriplestore);
+        try (QueryExecution qExec = QueryExecutionFactory.create(truncatedAnswersQuery, qanaryTriplestore)) {
+            ResultSetRewindable answers = ResultSetFactory.copyResults(qExec.execSelect());
+            assertEquals(1, answers.size());
+            assertEquals(3, answers.next().getLiteral("rows").getLong());
+        }
+
+        QueryResultJson complete = write(new QueryResultJsonWriter(0, 0), createDataset(), ALL_QUERY);
+        qanaryTriplestore = DatasetFactory.createGeneral();
+        UpdateAction.parseExecute(sparqlExecuter.getSparqlInsertQuery(complete, question), qanaryTriplestore);
+        try (QueryExecution qExec = QueryExecutionFactory.create(truncatedAnswersQuery, qanaryTriplestore)) {
+            assertFalse(qExec.execSelect().hasNext());
+        }
+        sparqlExecuter.closeTripleStoreConnectors();
+    }
+}
@@ -0,0 +1,191 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import eu.wdaqua.qanary.commons.QanaryQuestion;
+import eu.wdaqua.qanary.commons.QanaryUtils;
+import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnector;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * tests the concurrent execution of ranked candidate queries
+ */
+class RankedQueryExecutorTest {
+    private static final Logger logger = LoggerFactory.getLogger(RankedQueryExecutorTest.class);
+
+    private static final QueryResultJson EMPTY = new QueryResultJson("{}", 0, false);
+    private static final QueryResultJson NON_EMPTY = new QueryResultJson("{}", 1, false);
+
+    private RankedQueryExecutor rankedQueryExecutor;
+
+    @BeforeEach
+    public void createExecutor() {
+        rankedQueryExecutor = new RankedQueryExecutor();
+    }
+
+    @AfterEach
+    public void closeExecutor() {
+        rankedQueryExecutor.close();
+    }
+
+    /**
+     * runner returning the given result of each query after the given delay,
+     * interrupted executions are counted down
+     */
+    private static RankedQueryExecutor.QueryRunner createRunner(Map<String, QueryResultJson> results,
+                                                                Map<String, Long> delaysMs, CountDownLatch interrupted) {
+        return (sparqlQuery, cancellation) -> {
+            try {
+                Thread.sleep(delaysMs.getOrDefault(sparqlQuery, 0L));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            if (!results.containsKey(sparqlQuery)) {
+                throw new IllegalArgumentException("unknown query " + sparqlQuery);
+            }
+            return results.get(sparqlQuery);
+        };
+    }
+
+    @Test
+    void testBestRankedNonEmptyResultIsSelected() throws Exception {
+        RankedQueryExecutor.QueryRunner runner = createRunner( //
+                Map.of("empty", EMPTY, "slow", NON_EMPTY, "fast", NON_EMPTY), //
+                Map.of("slow", 300L), new CountDownLatch(0));
+
+        RankedQueryExecutor.RankedResult result = rankedQueryExecutor.execute(
+                Arrays.asList("empty", "failing", "slow", "fast"), 10000, runner);
+
+        assertNotNull(result);
+        assertEquals(2, result.getRank());
+        assertEquals("slow", result.getSparqlQuery());
+        assertNull(rankedQueryExecutor.execute(List.of("empty", "failing"), 10000, runner));
+        assertNull(rankedQueryExecutor.execute(List.of(), 10000, runner));
+    }
+
+    @Test
+    void testRemainingExecutionsAreCancelled() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(2);
+        RankedQueryExecutor.QueryRunner runner = createRunner( //
+                Map.of("first", NON_EMPTY, "second", NON_EMPTY, "third", NON_EMPTY), //
+                Map.of("first", 100L, "second", 60000L, "third", 60000L), interrupted);
+
+        long start = System.currentTimeMillis();
+        RankedQueryExecutor.RankedResult result = rankedQueryExecutor.execute(List.of("first", "second", "third"),
+                60000, runner);
+        long duration = System.currentTimeMillis() - start;
+
+        assertEquals(0, result.getRank());
+        assertTrue(duration < 5000, duration + " ms");
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the remaining executions were not interrupted");
+    }
+
+    @Test
+    void testTimedOutQueryIsSkipped() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        RankedQueryExecutor.QueryRunner runner = createRunner( //
+                Map.of("timeout", NON_EMPTY, "fast", NON_EMPTY), //
+                Map.of("timeout", 60000L), interrupted);
+
+        long start = System.currentTimeMillis();
+        RankedQueryExecutor.RankedResult result = rankedQueryExecutor.execute(List.of("timeout", "fast"), 200, runner);
+        long duration = System.currentTimeMillis() - start;
+
+        assertEquals(1, result.getRank());
+        assertTrue(duration >= 200 && duration < 5000, duration + " ms");
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the timed out execution was not interrupted");
+    }
+
+    @Test
+    void testSlowAndEmptyQueriesOfLocalEndpoint() throws Exception {
+        String emptyQuery = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q0> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+        String slowEmptyQuery = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q1> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+        String slowQuery = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q183> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+        String verySlowQuery = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q142> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+        try (LocalSparqlEndpoint endpoint = new LocalSparqlEndpoint(TripleStoreConnectorRegistryTest.createDataset())) {
+            endpoint.setResponseDelayMs("Q1>", 300);
+            endpoint.setResponseDelayMs("Q183>", 500);
+            endpoint.setResponseDelayMs("Q142>", 30000);
+            SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+            try {
+                long start = System.currentTimeMillis();
+                RankedQueryExecutor.RankedResult result = rankedQueryExecutor.execute(
+                        List.of(slowEmptyQuery, emptyQuery, slowQuery, verySlowQuery), 10000,
+                        (sparqlQuery, cancellation) -> sparqlExecuter.getQueryResults(sparqlQuery, endpoint.getUrl(), cancellation));
+                long duration = System.currentTimeMillis() - start;
+
+                logger.info("selected candidate {} after {} ms", result.getRank(), duration);
+                assertEquals(2, result.getRank());
+                assertTrue(result.getResult().getJson().contains("http://www.wikidata.org/entity/Q64"));
+                assertTrue(duration >= 500 && duration < 5000, duration + " ms");
+                assertEquals(4, endpoint.getNumberOfRequests());
+
+                // the request of the very slow query is aborted, its permit and connection are released
+                TripleStoreConnector connector = sparqlExecuter.getTripleStoreConnectorRegistry().getConnector(endpoint.getUrl());
+                long releaseDeadline = System.currentTimeMillis() + 2000;
+                while ((connector.getAvailableConnections() < SparqlExecuter.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT
+                        || endpoint.getOpenConnections() >= endpoint.getClientPorts().size())
+                        && System.currentTimeMillis() < releaseDeadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(SparqlExecuter.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT, connector.getAvailableConnections());
+                assertTrue(endpoint.getOpenConnections() < endpoint.getClientPorts().size(),
+                        "the connection of the aborted query is still open");
+            } finally {
+                sparqlExecuter.closeTripleStoreConnectors();
+            }
+        }
+    }
+
+    @Test
+    void testCandidateQueriesAreOrderedByScore() throws Exception {
+        String outGraph = "urn:qanary:graph:test";
+        Dataset qanaryTriplestore = DatasetFactory.createGeneral();
+        UpdateAction.parseExecute("" //
+                + "PREFIX qa: <http://www.wdaqua.eu/qa#> " //
+                + "PREFIX oa: <http://www.w3.org/ns/openannotation/core/> " //
+                + "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> " //
+                + "INSERT DATA { GRAPH <" + outGraph + "> { " //
+                + "<urn:qanary:annotation:1> a qa:AnnotationOfAnswerSPARQL ; oa:hasBody \"ASK { ?s ?p 1 }\" ; qa:score \"0.3\"^^xsd:double . " //
+                + "<urn:qanary:annotation:2> a qa:AnnotationOfAnswerSPARQL ; oa:hasBody \"ASK { ?s ?p 2 }\" ; qa:score \"0.9\"^^xsd:double . " //
+                + "<urn:qanary:annotation:3> a qa:AnnotationOfAnswerSPARQL ; oa:hasBody \"ASK { ?s ?p 3 }\" ; qa:score \"0.5\"^^xsd:double . " //
+                + "} }", qanaryTriplestore);
+
+        QanaryTripleStoreConnector connector = Mockito.mock(QanaryTripleStoreConnector.class);
+        Mockito.when(connector.select(anyString())).thenAnswer(invocation -> ResultSetFactory.copyResults(
+                QueryExecutionFactory.create(invocation.<String>getArgument(0), qanaryTriplestore).execSelect()));
+        QanaryUtils utils = Mockito.mock(QanaryUtils.class);
+        Mockito.when(utils.getQanaryTripleStoreConnector()).thenReturn(connector);
+        QanaryQuestion<?> question = Mockito.mock(QanaryQuestion.class);
+        Mockito.when(question.getOutGraph()).thenReturn(new URI(outGraph));
+
+        SparqlExecuter sparqlExecuter = new SparqlExecuter("SparqlExecuter");
+        assertEquals(List.of("ASK { ?s ?p 2 }", "ASK { ?s ?p 3 }", "ASK { ?s ?p 1 }"),
+                sparqlExecuter.getCandidateSparqlQueries(utils, question, 5));
+        assertEquals(List.of("ASK { ?s ?p 2 }", "ASK { ?s ?p 3 }"),
+                sparqlExecuter.getCandidateSparqlQueries(utils, question, 2));
+        sparqlExecuter.closeTripleStoreConnectors();
+    }
+}
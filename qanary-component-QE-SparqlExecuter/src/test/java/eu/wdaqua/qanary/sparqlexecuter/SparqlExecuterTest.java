@@ -52,7 +52,8 @@ class SparqlExecuterTest {
 
     @BeforeEach
     public void init() throws QanaryExceptionNoOrMultipleQuestions, URISyntaxException, SparqlQueryFailed, IOException, eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed {
-        this.mockedSparqlExecuter = Mockito.mock(SparqlExecuter.class);
+        // the constructor is used to initialize the connectors of the knowledge graph endpoints
+        this.mockedSparqlExecuter = Mockito.mock(SparqlExecuter.class, Mockito.withSettings().useConstructor("SparqlExecuter"));
         this.mockedQanaryQuestion = Mockito.mock(QanaryQuestion.class);
         this.mockedQanaryUtils = Mockito.mock(QanaryUtils.class);
         this.mockedQanaryTriplestoreConnector = Mockito.mock(QanaryTripleStoreConnector.class);
@@ -0,0 +1,197 @@
+package eu.wdaqua.qanary.sparqlexecuter;
+
+import eu.wdaqua.qanary.sparqlexecuter.exception.SparqlQueryFailed;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * tests the reuse of the connections to a local SPARQL endpoint
+ */
+class TripleStoreConnectorRegistryTest {
+    private static final Logger logger = LoggerFactory.getLogger(TripleStoreConnectorRegistryTest.class);
+
+    static final String SELECT_QUERY = "SELECT ?capital WHERE { <http://www.wikidata.org/entity/Q183> <http://www.wikidata.org/prop/direct/P36> ?capital }";
+    static final String ASK_QUERY = "ASK { <http://www.wikidata.org/entity/Q183> <http://www.wikidata.org/prop/direct/P36> <http://www.wikidata.org/entity/Q64> }";
+    private static final int MAX_CONNECTIONS = 4;
+
+    private LocalSparqlEndpoint endpoint;
+    private SparqlExecuter sparqlExecuter;
+
+    static Dataset createDataset() {
+        Dataset dataset = DatasetFactory.createGeneral();
+        Model model = dataset.getDefaultModel();
+        Property capital = model.createProperty("http://www.wikidata.org/prop/direct/P36");
+        model.add(model.createResource("http://www.wikidata.org/entity/Q183"), capital,
+                model.createResource("http://www.wikidata.org/entity/Q64"));
+        model.add(model.createResource("http://www.wikidata.org/entity/Q142"), capital,
+                model.createResource("http://www.wikidata.org/entity/Q90"));
+        return dataset;
+    }
+
+    @BeforeEach
+    public void startEndpoint() throws Exception {
+        endpoint = new LocalSparqlEndpoint(createDataset());
+        // without result cache, the repeated queries are sent to the endpoint
+        sparqlExecuter = new SparqlExecuter("SparqlExecuter", MAX_CONNECTIONS, 10000, SparqlExecuter.DEFAULT_MAX_RESULT_ROWS,
+                SparqlExecuter.DEFAULT_MAX_RESULT_BYTES, 0, SparqlExecuter.DEFAULT_CACHE_TTL_MS);
+    }
+
+    @AfterEach
+    public void stopEndpoint() {
+        sparqlExecuter.closeTripleStoreConnectors();
+        endpoint.close();
+    }
+
+    @Test
+    void testRepeatedQueriesReuseConnections() throws Exception {
+        int numberOfQueries = 50;
+        for (int i = 0; i < numberOfQueries; i++) {
+            String query = i % 2 == 0 ? SELECT_QUERY : ASK_QUERY;
+            String json = sparqlExecuter.getQueryResultsAsJson(query, endpoint.getUrl());
+            assertTrue(json.contains(i % 2 == 0 ? "http://www.wikidata.org/entity/Q64" : "true"), json);
+        }
+
+        logger.info("{} queries used {} connections", endpoint.getNumberOfRequests(), endpoint.getClientPorts().size());
+        assertEquals(numberOfQueries, endpoint.getNumberOfRequests());
+        assertTrue(endpoint.getClientPorts().size() <= MAX_CONNECTIONS, endpoint.getClientPorts().toString());
+        assertEquals(1, sparqlExecuter.getTripleStoreConnectorRegistry().size());
+    }
+
+    @Test
+    void testConcurrentQueriesUseBoundedPool() throws Exception {
+        int numberOfQueries = 40;
+        endpoint.setResponseDelayMs(20);
+        ExecutorService executor = Executors.newFixedThreadPool(4 * MAX_CONNECTIONS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < numberOfQueries; i++) {
+                futures.add(executor.submit(() -> sparqlExecuter.getQueryResultsAsJson(SELECT_QUERY, endpoint.getUrl())));
+            }
+            for (Future<String> future : futures) {
+                assertTrue(future.get().contains("http://www.wikidata.org/entity/Q64"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        logger.info("{} concurrent queries used {} connections, max. {} concurrent requests",
+                endpoint.getNumberOfRequests(), endpoint.getClientPorts().size(), endpoint.getMaxConcurrentRequests());
+        assertTrue(endpoint.getMaxConcurrentRequests() <= MAX_CONNECTIONS);
+        assertTrue(endpoint.getClientPorts().size() <= MAX_CONNECTIONS, endpoint.getClientPorts().toString());
+        TripleStoreConnector connector = sparqlExecuter.getTripleStoreConnectorRegistry().getConnector(endpoint.getUrl());
+        assertEquals(MAX_CONNECTIONS, connector.getAvailableConnections());
+    }
+
+    @Test
+    void testQueryFailsIfNoConnectionIsFree() throws Exception {
+        endpoint.setResponseDelayMs(1000);
+        TripleStoreConnectorRegistry registry = new TripleStoreConnectorRegistry(1, 100);
+        try {
+            TripleStoreConnector connector = registry.getConnector(endpoint.getUrl());
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Boolean> slowQuery = executor.submit(() -> connector.ask(ASK_QUERY));
+                while (endpoint.getNumberOfRequests() == 0) {
+                    Thread.sleep(10);
+                }
+                SparqlQueryFailed e = assertThrows(SparqlQueryFailed.class, () -> connector.ask(ASK_QUERY));
+                assertInstanceOf(TimeoutException.class, e.getBaseException());
+                assertTrue(slowQuery.get());
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(1, connector.getAvailableConnections());
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    void testHungEndpointDoesNotHoldConnection() throws Exception {
+        endpoint.setResponseDelayMs(10000);
+        TripleStoreConnectorRegistry registry = new TripleStoreConnectorRegistry(1, 100, 200);
+        try {
+            TripleStoreConnector connector = registry.getConnector(endpoint.getUrl());
+            long start = System.currentTimeMillis();
+            SparqlQueryFailed e = assertThrows(SparqlQueryFailed.class, () -> connector.ask(ASK_QUERY));
+            long duration = System.currentTimeMillis() - start;
+
+            assertInstanceOf(SocketTimeoutException.class, e.getBaseException());
+            assertTrue(duration < 5000, "failed after " + duration + " ms");
+            assertEquals(1, connector.getAvailableConnections());
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    void testShutdownClosesAllConnectors() throws Exception {
+        try (LocalSparqlEndpoint otherEndpoint = new LocalSparqlEndpoint(createDataset())) {
+            sparqlExecuter.getQueryResultsAsJson(SELECT_QUERY, endpoint.getUrl());
+            sparqlExecuter.getQueryResultsAsJson(SELECT_QUERY, otherEndpoint.getUrl());
+            TripleStoreConnectorRegistry registry = sparqlExecuter.getTripleStoreConnectorRegistry();
+            TripleStoreConnector connector = registry.getConnector(endpoint.getUrl());
+            TripleStoreConnector otherConnector = registry.getConnector(otherEndpoint.getUrl());
+            assertSame(connector, registry.getConnector(endpoint.getUrl()));
+            assertEquals(2, registry.size());
+
+            sparqlExecuter.closeTripleStoreConnectors();
+
+            assertTrue(connector.isClosed());
+            assertTrue(otherConnector.isClosed());
+            assertEquals(0, registry.size());
+            assertEquals(MAX_CONNECTIONS, connector.getAvailableConnections());
+            assertThrows(SparqlQueryFailed.class, () -> connector.select(SELECT_QUERY));
+            assertThrows(IllegalStateException.class,
+                    () -> sparqlExecuter.getQueryResultsAsJson(SELECT_QUERY, endpoint.getUrl()));
+        }
+    }
+
+    @Test
+    void testCloseClosesKeepAliveConnections() throws Exception {
+        endpoint.setResponseDelayMs(20);
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONNECTIONS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 2 * MAX_CONNECTIONS; i++) {
+                futures.add(executor.submit(() -> sparqlExecuter.getQueryResultsAsJson(SELECT_QUERY, endpoint.getUrl())));
+            }
+            for (Future<String> future : futures) {
+                assertTrue(future.get().contains("http://www.wikidata.org/entity/Q64"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // the connections are kept alive for the next queries
+        assertTrue(endpoint.getOpenConnections() > 0);
+
+        sparqlExecuter.closeTripleStoreConnectors();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (endpoint.getOpenConnections() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, endpoint.getOpenConnections());
+    }
+}
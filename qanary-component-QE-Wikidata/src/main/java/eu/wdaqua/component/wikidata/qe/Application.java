@@ -23,8 +23,11 @@ public class Application {
 	* @return
 	*/
 	@Bean
-	public QanaryComponent qanaryComponent(@Value("${spring.application.name}") final String applicationName) {
-		return new QueryExecuter(applicationName);
+	public QanaryComponent qanaryComponent( //
+			@Value("${spring.application.name}") final String applicationName, //
+			@Value("${wikidata.endpoint:" + QueryExecuter.DEFAULT_WIKIDATA_ENDPOINT + "}") final String wikidataEndpoint, //
+			@Value("${wikidata.max-concurrent-queries:" + QueryExecuter.DEFAULT_MAX_CONCURRENT_QUERIES + "}") final int maxConcurrentQueries) {
+		return new QueryExecuter(applicationName, wikidataEndpoint, maxConcurrentQueries);
 	}
 
 	@Autowired
@@ -16,6 +16,7 @@ import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -23,8 +24,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 /**
  * represents a query executer for Wikidata
@@ -36,13 +46,43 @@ import java.util.List;
 public class QueryExecuter extends QanaryComponent {
 	private static final Logger logger = LoggerFactory.getLogger(QueryExecuter.class);
 
+	public static final String DEFAULT_WIKIDATA_ENDPOINT = "https://query.wikidata.org/sparql";
+	// the Wikidata Query Service allows only a few parallel queries per client
+	public static final int DEFAULT_MAX_CONCURRENT_QUERIES = 5;
+
 	private final String applicationName;
+	private final String wikidataEndpoint;
+	private final ExecutorService queryExecutor;
 
 	private String FILENAME_INSERT_ANNOTATION = "/queries/insert_one_annotation.rq";
 	private String FILENAME_GET_ANNOTATION = "/queries/get_annotation.rq";
 
-	public QueryExecuter(@Value("${spring.application.name}") final String applicationName) {
+	public QueryExecuter(final String applicationName) {
+		this(applicationName, DEFAULT_WIKIDATA_ENDPOINT, DEFAULT_MAX_CONCURRENT_QUERIES);
+	}
+
+	/**
+	 * @param applicationName      the name of the component
+	 * @param wikidataEndpoint     the URL of the Wikidata SPARQL endpoint
+	 * @param maxConcurrentQueries maximum number of queries executed concurrently
+	 *                             on the Wikidata endpoint
+	 */
+	@Autowired
+	public QueryExecuter( //
+			@Value("${spring.application.name}") final String applicationName, //
+			@Value("${wikidata.endpoint:" + DEFAULT_WIKIDATA_ENDPOINT + "}") final String wikidataEndpoint, //
+			@Value("${wikidata.max-concurrent-queries:" + DEFAULT_MAX_CONCURRENT_QUERIES + "}") final int maxConcurrentQueries) {
+		if (maxConcurrentQueries < 1) {
+			throw new IllegalArgumentException("maxConcurrentQueries must be at least 1, but was " + maxConcurrentQueries);
+		}
 		this.applicationName = applicationName;
+		this.wikidataEndpoint = wikidataEndpoint;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.queryExecutor = Executors.newFixedThreadPool(maxConcurrentQueries, runnable -> {
+			Thread thread = new Thread(runnable, "wikidata-query-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
 
 		// check if files exists and are not empty
 		QanaryTripleStoreConnector.guardNonEmptyFileFromResources(FILENAME_INSERT_ANNOTATION);
@@ -61,7 +101,6 @@ public class QueryExecuter extends QanaryComponent {
 	)
 	public String getAnswersFromWikidata(String queryString) {
 
-		String wikidataEndpoint = "https://query.wikidata.org/sparql";
 		QueryExecution qexec = QueryExecutionFactory.sparqlService(wikidataEndpoint,
 				queryString.replace("\\\"", "\"").replace("\\n", "\n"));
 
@@ -78,6 +117,41 @@ public class QueryExecuter extends QanaryComponent {
 		return null;
 	}
 
+	/**
+	 * Perform the requests of all queries concurrently, at most
+	 * wikidata.max-concurrent-queries at the same time
+	 *
+	 * @param queryStrings the Wikidata queries
+	 * @return the responses as JSON in the order of the queries, null for each
+	 *         failed query
+	 * @throws InterruptedException
+	 */
+	public List<String> getAnswersFromWikidata(List<String> queryStrings) throws InterruptedException {
+		List<Callable<String>> tasks = new ArrayList<>();
+		for (String queryString : queryStrings) {
+			tasks.add(() -> getAnswersFromWikidata(queryString));
+		}
+		List<String> answers = new ArrayList<>();
+		for (Future<String> future : this.queryExecutor.invokeAll(tasks)) {
+			try {
+				answers.add(future.get());
+			} catch (ExecutionException e) {
+				logger.warn("could not query wikidata endpoint {}", e.getCause().getMessage());
+				answers.add(null);
+			}
+		}
+		return answers;
+	}
+
+	public String getWikidataEndpoint() {
+		return wikidataEndpoint;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		this.queryExecutor.shutdownNow();
+	}
+
 	/**
 	 * Create a query to store the computed information in the Qanary triplestore
 	 *
@@ -176,11 +250,9 @@ public class QueryExecuter extends QanaryComponent {
 		// STEP 2: compute new knowledge about the given question
 		//
 		// Send a post request to the Wikidata endpoint using the queries that should
-		// answer the question
+		// answer the question (concurrently, the answers are in the order of the queries)
 
-		for (String queryString : queries) {
-			// get the results from Wikidata
-			String answers = this.getAnswersFromWikidata(queryString);
+		for (String answers : this.getAnswersFromWikidata(queries)) {
 			if (isAnswerValid(answers)) {
 				// create an insert query to store new information
 				String sparql = this.getSparqlInsertQuery(myQanaryQuestion.getOutGraph(), myQanaryQuestion.getUri(), answers);
@@ -0,0 +1,140 @@
+package eu.wdaqua.component.wikidata.qe;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * test the concurrent execution of the Wikidata queries using a local stand-in
+ * endpoint
+ */
+class ConcurrentQueryExecutionTest {
+	private static final Logger logger = LoggerFactory.getLogger(ConcurrentQueryExecutionTest.class);
+
+	private static final String[] ENTITIES = { "Q183", "Q142", "Q145", "Q38" };
+	private static final long[] DELAYS_MS = { 200, 800, 400, 600 };
+
+	private LocalSparqlEndpoint endpoint;
+
+	private static String createQuery(String entity) {
+		return "PREFIX wd: <http://www.wikidata.org/entity/> " //
+				+ "PREFIX wdt: <http://www.wikidata.org/prop/direct/> " //
+				+ "SELECT ?capital WHERE { wd:" + entity + " wdt:P36 ?capital . }";
+	}
+
+	@BeforeEach
+	public void startEndpoint() throws Exception {
+		Dataset dataset = DatasetFactory.createGeneral();
+		UpdateAction.parseExecute("" //
+				+ "PREFIX wd: <http://www.wikidata.org/entity/> " //
+				+ "PREFIX wdt: <http://www.wikidata.org/prop/direct/> " //
+				+ "INSERT DATA { wd:Q183 wdt:P36 wd:Q64 . wd:Q142 wdt:P36 wd:Q90 . " //
+				+ "wd:Q145 wdt:P36 wd:Q84 . wd:Q38 wdt:P36 wd:Q220 . }", dataset);
+		endpoint = new LocalSparqlEndpoint(dataset);
+		for (int i = 0; i < ENTITIES.length; i++) {
+			endpoint.setResponseDelayMs("wd:" + ENTITIES[i] + " ", DELAYS_MS[i]);
+		}
+	}
+
+	@AfterEach
+	public void stopEndpoint() {
+		endpoint.close();
+	}
+
+	@Test
+	void testAnswersMatchSequentialExecution() throws Exception {
+		List<String> queries = new ArrayList<>();
+		for (String entity : ENTITIES) {
+			queries.add(createQuery(entity));
+		}
+		QueryExecuter queryExecuter = new QueryExecuter("QueryExecuter", endpoint.getUrl(), 5);
+		try {
+			long start = System.currentTimeMillis();
+			List<String> sequentialAnswers = new ArrayList<>();
+			for (String query : queries) {
+				sequentialAnswers.add(queryExecuter.getAnswersFromWikidata(query));
+			}
+			long sequentialDuration = System.currentTimeMillis() - start;
+
+			endpoint.clearRequestWindows();
+			start = System.currentTimeMillis();
+			List<String> concurrentAnswers = queryExecuter.getAnswersFromWikidata(queries);
+			long concurrentDuration = System.currentTimeMillis() - start;
+			logger.info("sequential: {} ms, concurrent: {} ms", sequentialDuration, concurrentDuration);
+
+			assertEquals(sequentialAnswers, concurrentAnswers);
+			assertTrue(concurrentAnswers.get(0).contains("http://www.wikidata.org/entity/Q64"));
+			assertTrue(concurrentAnswers.get(1).contains("http://www.wikidata.org/entity/Q90"));
+			assertTrue(concurrentAnswers.get(3).contains("http://www.wikidata.org/entity/Q220"));
+			// the slowest query takes 800 ms, all queries together 2000 ms
+			assertTrue(sequentialDuration >= 2000, sequentialDuration + " ms");
+			assertTrue(concurrentDuration >= 800, concurrentDuration + " ms");
+			assertEquals(ENTITIES.length, endpoint.getMaxConcurrentRequests());
+			// all queries were executed at the same time: the last request started before the first one was answered
+			List<LocalSparqlEndpoint.RequestWindow> windows = endpoint.getRequestWindows();
+			assertEquals(ENTITIES.length, windows.size());
+			long lastStart = windows.stream().mapToLong(LocalSparqlEndpoint.RequestWindow::getStart).max().getAsLong();
+			long firstEnd = windows.stream().mapToLong(LocalSparqlEndpoint.RequestWindow::getEnd).min().getAsLong();
+			assertTrue(lastStart < firstEnd, "the query windows do not overlap");
+		} finally {
+			queryExecuter.shutdown();
+		}
+	}
+
+	@Test
+	void testConcurrentQueriesAreBounded() throws Exception {
+		List<String> queries = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			for (String entity : ENTITIES) {
+				queries.add(createQuery(entity));
+			}
+		}
+		QueryExecuter queryExecuter = new QueryExecuter("QueryExecuter", endpoint.getUrl(), 2);
+		try {
+			List<String> answers = queryExecuter.getAnswersFromWikidata(queries);
+
+			assertEquals(queries.size(), answers.size());
+			for (int i = 0; i < queries.size(); i++) {
+				assertEquals(answers.get(i % ENTITIES.length), answers.get(i));
+			}
+			assertEquals(queries.size(), endpoint.getNumberOfRequests());
+			assertEquals(2, endpoint.getMaxConcurrentRequests());
+		} finally {
+			queryExecuter.shutdown();
+		}
+	}
+
+	@Test
+	void testFailedQueryHasNoAnswer() throws Exception {
+		QueryExecuter queryExecuter = new QueryExecuter("QueryExecuter", endpoint.getUrl(), 5);
+		try {
+			List<String> answers = queryExecuter.getAnswersFromWikidata(
+					List.of(createQuery("Q183"), "SELECT ?s WHERE { ?s ?p ?o } GROUP BY ?x", createQuery("Q142")));
+
+			assertEquals(3, answers.size());
+			assertTrue(queryExecuter.isAnswerValid(answers.get(0)));
+			assertNull(answers.get(1));
+			assertTrue(queryExecuter.isAnswerValid(answers.get(2)));
+		} finally {
+			queryExecuter.shutdown();
+		}
+	}
+
+	@Test
+	void testInvalidConcurrencyLimit() {
+		assertThrows(IllegalArgumentException.class, () -> new QueryExecuter("QueryExecuter", endpoint.getUrl(), 0));
+	}
+}
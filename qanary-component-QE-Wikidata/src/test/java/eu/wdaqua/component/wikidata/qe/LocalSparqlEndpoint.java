@@ -0,0 +1,170 @@
+package eu.wdaqua.component.wikidata.qe;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * stand-in for the Wikidata endpoint (SPARQL 1.1 protocol, JSON results)
+ * serving an in-memory dataset, the responses to selected queries are delayed
+ */
+class LocalSparqlEndpoint implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(LocalSparqlEndpoint.class);
+
+	private final Dataset dataset;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final Map<String, Long> queryResponseDelaysMs = new ConcurrentHashMap<>();
+	private final AtomicInteger numberOfRequests = new AtomicInteger();
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+	private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+	private final List<RequestWindow> requestWindows = new CopyOnWriteArrayList<>();
+
+	/**
+	 * the time (System.nanoTime) a request was received and answered
+	 */
+	static class RequestWindow {
+		private final String query;
+		private final long start;
+		private final long end;
+
+		RequestWindow(String query, long start, long end) {
+			this.query = query;
+			this.start = start;
+			this.end = end;
+		}
+
+		String getQuery() {
+			return query;
+		}
+
+		long getStart() {
+			return start;
+		}
+
+		long getEnd() {
+			return end;
+		}
+	}
+
+	LocalSparqlEndpoint(Dataset dataset) throws IOException {
+		this.dataset = dataset;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/sparql", this::handle);
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+
+	String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + "/sparql";
+	}
+
+	/**
+	 * delays the responses to all queries containing the given part
+	 */
+	void setResponseDelayMs(String queryPart, long responseDelayMs) {
+		this.queryResponseDelaysMs.put(queryPart, responseDelayMs);
+	}
+
+	int getNumberOfRequests() {
+		return numberOfRequests.get();
+	}
+
+	int getMaxConcurrentRequests() {
+		return maxConcurrentRequests.get();
+	}
+
+	/**
+	 * @return the windows of all answered requests in the order of their answers
+	 */
+	List<RequestWindow> getRequestWindows() {
+		return requestWindows;
+	}
+
+	void clearRequestWindows() {
+		requestWindows.clear();
+	}
+
+	private static String getParameter(String encodedParameters, String name) {
+		if (encodedParameters == null) {
+			return null;
+		}
+		for (String parameter : encodedParameters.split("&")) {
+			int index = parameter.indexOf('=');
+			if (index > 0 && parameter.substring(0, index).equals(name)) {
+				return URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	private static String getQuery(HttpExchange exchange) throws IOException {
+		if ("POST".equals(exchange.getRequestMethod())) {
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+			if (contentType != null && contentType.startsWith("application/sparql-query")) {
+				return body;
+			}
+			return getParameter(body, "query");
+		}
+		return getParameter(exchange.getRequestURI().getRawQuery(), "query");
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		numberOfRequests.incrementAndGet();
+		maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+		String queryString = null;
+		try {
+			queryString = getQuery(exchange);
+			long delay = 0;
+			for (Map.Entry<String, Long> queryResponseDelay : queryResponseDelaysMs.entrySet()) {
+				if (queryString.contains(queryResponseDelay.getKey())) {
+					delay = Math.max(delay, queryResponseDelay.getValue());
+				}
+			}
+			Thread.sleep(delay);
+			exchange.getResponseHeaders().set("Content-Type", "application/sparql-results+json");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = exchange.getResponseBody();
+				 QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset)) {
+				ResultSetFormatter.outputAsJSON(out, qExec.execSelect());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.sendResponseHeaders(503, -1);
+		} catch (RuntimeException e) {
+			logger.warn("failed to answer request: {}", e.getMessage());
+			exchange.sendResponseHeaders(400, -1);
+		} finally {
+			concurrentRequests.decrementAndGet();
+			exchange.close();
+			requestWindows.add(new RequestWindow(queryString, start, System.nanoTime()));
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -3,6 +3,7 @@ package eu.wdaqua.qanary.component.chatgptwrapper.tqa;
 import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
 import eu.wdaqua.qanary.communications.RestTemplateWithCaching;
 import eu.wdaqua.qanary.component.QanaryComponent;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.MissingTokenException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.OpenApiUnreachableException;
@@ -59,17 +60,21 @@ public class Application {
             @Value("${chatgpt.api.key}") String token, //
             @Value("${chatgpt.api.live.test.active}") boolean doApiIsAliveCheck, //
             @Value("${chatgpt.base.url}") String baseUrl, //
+            @Value("${chatgpt.streamTimeBudgetMs}") long streamTimeBudgetMs, //
             @Autowired MyCompletionRequest completionRequest, //
-            RestTemplateWithCaching restTemplateWithCaching
+            RestTemplateWithCaching restTemplateWithCaching, //
+            @Autowired PersistentCompletionCache completionCache //
     ) throws MissingTokenException, URISyntaxException, OpenApiUnreachableException, MissingArgumentException {
         return new ChatGPTWrapper(
                 applicationName, //
                 token, //
                 doApiIsAliveCheck, //
                 baseUrl, //
+                streamTimeBudgetMs, //
                 completionRequest, //
                 restTemplateWithCaching, //
-                this.myCacheOfResponses //
+                this.myCacheOfResponses, //
+                completionCache //
         );
     }
 
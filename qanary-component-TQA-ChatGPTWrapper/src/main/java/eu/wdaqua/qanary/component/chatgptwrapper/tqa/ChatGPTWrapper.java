@@ -11,8 +11,10 @@ import eu.wdaqua.qanary.commons.QanaryUtils;
 import eu.wdaqua.qanary.commons.triplestoreconnectors.QanaryTripleStoreConnector;
 import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
 import eu.wdaqua.qanary.component.QanaryComponent;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyOpenAiApi;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.CompletionStreamException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.MissingTokenException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.OpenApiUnreachableException;
 import eu.wdaqua.qanary.exceptions.SparqlQueryFailed;
@@ -42,9 +44,12 @@ public class ChatGPTWrapper extends QanaryComponent {
     private final String applicationName;
     private final RestTemplate myRestTemplate;
     private final CacheOfRestTemplateResponse myCacheOfResponses;
+    private final long streamTimeBudgetMs;
+    private final PersistentCompletionCache completionCache;
 
-    private MyOpenAiApi openAiApi;
-    private MyCompletionRequest myCompletionRequest;
+    private final MyOpenAiApi openAiApi;
+    // the configured parameters of all requests, it is never changed (see MyCompletionRequest.withPrompt)
+    private final MyCompletionRequest myCompletionRequest;
 
 
     public ChatGPTWrapper(
@@ -52,9 +57,11 @@ public class ChatGPTWrapper extends QanaryComponent {
             @Value("${chatgpt.api.key}") String token, //
             @Value("${chatgpt.api.live.test.active}") boolean doApiIsAliveCheck, //
             @Value("${chatgpt.base.url}") String baseUrl, //
+            @Value("${chatgpt.streamTimeBudgetMs}") long streamTimeBudgetMs, //
             MyCompletionRequest myCompletionRequest, //
             RestTemplate restTemplate, //
-            CacheOfRestTemplateResponse myCacheOfResponses //
+            CacheOfRestTemplateResponse myCacheOfResponses, //
+            PersistentCompletionCache completionCache //
     ) throws MissingTokenException, URISyntaxException, OpenApiUnreachableException, MissingArgumentException {
 
         // check if files exists and are not empty
@@ -64,6 +71,8 @@ public class ChatGPTWrapper extends QanaryComponent {
         this.myCompletionRequest = myCompletionRequest;
         this.myRestTemplate = restTemplate;
         this.myCacheOfResponses = myCacheOfResponses;
+        this.streamTimeBudgetMs = streamTimeBudgetMs;
+        this.completionCache = completionCache;
 
         this.openAiApi = new MyOpenAiApi(token, doApiIsAliveCheck, baseUrl);
     }
@@ -87,14 +96,7 @@ public class ChatGPTWrapper extends QanaryComponent {
 
         // STEP 2: enriching of query and fetching data from the ChatGPT API
 
-        myCompletionRequest.setPrompt(myQuestion);
-
-
-        CompletionResult completionResult = this.openAiApi.createCompletion( //
-                this.myRestTemplate, //
-                this.myCacheOfResponses, //
-                myCompletionRequest //
-        );
+        CompletionResult completionResult = getCompletion(myQuestion);
 
         // STEP 3: Push the SPARQL query to the triplestore
 
@@ -105,6 +107,33 @@ public class ChatGPTWrapper extends QanaryComponent {
         return myQanaryMessage;
     }
 
+    /**
+     * requests the completion of the question using a new request, hence, concurrently processed questions
+     * do not interfere, if streaming is configured (chatgpt.stream) the completion is cut off after
+     * chatgpt.streamTimeBudgetMs
+     * <p>
+     * completions of equivalent requests (see chatgpt.cache.directory) are taken from the persistent cache
+     */
+    public CompletionResult getCompletion(String question) throws URISyntaxException, CompletionStreamException, InterruptedException {
+        MyCompletionRequest completionRequest = this.myCompletionRequest.withPrompt(question);
+        CompletionResult completionResult = this.completionCache.get(completionRequest);
+        if (completionResult != null) {
+            return completionResult;
+        }
+
+        if (Boolean.TRUE.equals(completionRequest.getStream())) {
+            completionResult = this.openAiApi.createCompletionStream(completionRequest, this.streamTimeBudgetMs);
+        } else {
+            completionResult = this.openAiApi.createCompletion( //
+                    this.myRestTemplate, //
+                    this.myCacheOfResponses, //
+                    completionRequest //
+            );
+        }
+        this.completionCache.put(completionRequest, completionResult);
+        return completionResult;
+    }
+
     public JsonObject creatJsonAnswer(CompletionResult completionResult) {
         JsonObject jsonAnswer = new JsonObject();
         JsonArray choices = new JsonArray();
@@ -0,0 +1,285 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.theokanning.openai.completion.CompletionChoice;
+import com.theokanning.openai.completion.CompletionResult;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyOpenAiApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * cache of the completions stored in a directory (one file per completion), hence, paid completion calls are not
+ * repeated after a restart or by other instances using the same directory
+ * <p>
+ * The completions are identified by the model, the normalized prompt (whitespace and case) and the generation
+ * parameters. If the maximum number of entries or the maximum size is exceeded, the least recently used
+ * completions are removed. The time of the last access is stored as modification time of the files, hence, the
+ * order is retained after a restart.
+ * <p>
+ * The limits apply per instance: each instance counts only the completions it has read or written (and the ones
+ * found at its start). If several instances share the directory, it might contain up to the sum of their limits, and
+ * completions removed by one instance are treated as misses by the others.
+ */
+@Component
+public class PersistentCompletionCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentCompletionCache.class);
+    private static final String FILE_SUFFIX = ".json";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Gson GSON = new Gson();
+
+    // null: the cache is disabled
+    private final Path directory;
+    private final int maxEntries;
+    private final long maxSizeBytes;
+    // file size of the cached completions (by hash of the key) in the order of their last access
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long sizeBytes;
+    private long lastAccessTime;
+
+    /**
+     * @param directory    the directory of the cached completions, empty: the cache is disabled
+     * @param maxEntries   the maximum number of cached completions, 0: the cache is disabled
+     * @param maxSizeBytes the maximum size of all cached completions, 0: unlimited
+     */
+    public PersistentCompletionCache( //
+                                      @Value("${chatgpt.cache.directory}") String directory, //
+                                      @Value("${chatgpt.cache.maxEntries}") int maxEntries, //
+                                      @Value("${chatgpt.cache.maxSizeBytes}") long maxSizeBytes //
+    ) throws IOException {
+        if (maxEntries < 0 || maxSizeBytes < 0) {
+            throw new IllegalArgumentException("the limits of the completion cache must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxSizeBytes = maxSizeBytes;
+
+        if (directory == null || directory.isBlank() || maxEntries == 0) {
+            this.directory = null;
+            LOGGER.info("completion cache is disabled");
+        } else {
+            this.directory = Paths.get(directory);
+            Files.createDirectories(this.directory);
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return the cached completion of the request, null if it was not cached
+     */
+    public CompletionResult get(MyCompletionRequest completionRequest) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = createKey(completionRequest);
+        String hash = hash(key);
+        Path file = getFile(hash);
+        CompletionResult completionResult = null;
+        try {
+            if (Files.exists(file)) {
+                JsonObject entry = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonObject();
+                if (key.equals(entry.get("key").getAsString())) {
+                    completionResult = GSON.fromJson(entry.get("result"), CompletionResult.class);
+                }
+            } else {
+                // removed by another instance sharing the directory
+                forget(hash);
+            }
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            LOGGER.warn("cached completion {} could not be read: {}", file, e.getMessage());
+        }
+        if (completionResult == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            // the entry might have been written by another instance, hence, it is added to the index as well
+            access(hash, file);
+        } catch (NoSuchFileException e) {
+            // removed by another instance after it was read, the completion is valid nevertheless
+            forget(hash);
+        } catch (IOException e) {
+            LOGGER.warn("access of cached completion {} could not be recorded: {}", file, e.getMessage());
+        }
+        hits.incrementAndGet();
+        LOGGER.info("completion was cached: {}", hash);
+        return completionResult;
+    }
+
+    /**
+     * caches the completion of the request, completions that were cut off are not cached
+     */
+    public void put(MyCompletionRequest completionRequest, CompletionResult completionResult) {
+        if (!isEnabled() || completionResult == null || isCutOff(completionResult)) {
+            return;
+        }
+        String key = createKey(completionRequest);
+        String hash = hash(key);
+        Path file = getFile(hash);
+
+        JsonObject entry = new JsonObject();
+        entry.addProperty("key", key);
+        entry.add("result", GSON.toJsonTree(completionResult));
+        try {
+            // written completely before it is visible to other threads and instances
+            Path temporaryFile = Files.createTempFile(directory, hash, TEMPORARY_FILE_SUFFIX);
+            Files.writeString(temporaryFile, entry.toString(), StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            access(hash, file);
+        } catch (IOException e) {
+            LOGGER.warn("completion {} could not be cached: {}", file, e.getMessage());
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return the key of the request, i.e., all parameters influencing the completion
+     */
+    static String createKey(MyCompletionRequest completionRequest) {
+        JsonObject key = completionRequest.withPrompt(normalizePrompt(completionRequest.getPrompt())).getAsJsonObject();
+        // streamed and blocking requests result in the same completion, the user is used for monitoring only
+        key.remove("stream");
+        key.remove("user");
+        return key.toString();
+    }
+
+    /**
+     * @return the prompt in lower case having single spaces between the words
+     */
+    static String normalizePrompt(String prompt) {
+        if (prompt == null) {
+            return null;
+        }
+        return WHITESPACE.matcher(prompt.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isCutOff(CompletionResult completionResult) {
+        List<CompletionChoice> choices = completionResult.getChoices();
+        return choices != null && choices.stream()
+                .anyMatch(choice -> MyOpenAiApi.FINISH_REASON_TIME_BUDGET_EXCEEDED.equals(choice.getFinish_reason()));
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path getFile(String hash) {
+        return directory.resolve(hash + FILE_SUFFIX);
+    }
+
+    /**
+     * reads the cached completions of a previous run in the order of their last access
+     */
+    private synchronized void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        Map<Path, FileTime> lastAccessTimes = new LinkedHashMap<>();
+        for (Path file : files) {
+            String filename = file.getFileName().toString();
+            if (filename.endsWith(TEMPORARY_FILE_SUFFIX)) {
+                // left by an interrupted write
+                Files.deleteIfExists(file);
+            } else if (filename.endsWith(FILE_SUFFIX)) {
+                lastAccessTimes.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+        for (Path file : lastAccessTimes.keySet().stream().sorted(Comparator.comparing(lastAccessTimes::get)).collect(Collectors.toList())) {
+            String filename = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(filename.substring(0, filename.length() - FILE_SUFFIX.length()), size);
+            sizeBytes += size;
+            lastAccessTime = Math.max(lastAccessTime, lastAccessTimes.get(file).toMillis());
+        }
+        evict();
+        LOGGER.info("completion cache {} contains {} completions ({} bytes)", directory, entries.size(), sizeBytes);
+    }
+
+    /**
+     * marks the completion as most recently used and removes the least recently used completions if the cache is full
+     */
+    private synchronized void access(String hash, Path file) throws IOException {
+        // strictly increasing, hence, the order is retained even if accesses share the same millisecond
+        lastAccessTime = Math.max(System.currentTimeMillis(), lastAccessTime + 1);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastAccessTime));
+        long size = Files.size(file);
+        Long previousSize = entries.put(hash, size);
+        sizeBytes += size - (previousSize == null ? 0 : previousSize);
+        evict();
+    }
+
+    /**
+     * removes the completion from the index, its file does not exist anymore
+     */
+    private synchronized void forget(String hash) {
+        Long size = entries.remove(hash);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+    }
+
+    private void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && (entries.size() > maxEntries || (maxSizeBytes > 0 && sizeBytes > maxSizeBytes))) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            sizeBytes -= eldest.getValue();
+            Files.deleteIfExists(getFile(eldest.getKey()));
+            LOGGER.debug("completion removed from cache: {}", eldest.getKey());
+        }
+    }
+}
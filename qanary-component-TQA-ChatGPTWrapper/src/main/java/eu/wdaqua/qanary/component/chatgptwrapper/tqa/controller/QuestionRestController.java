@@ -7,6 +7,7 @@ import com.theokanning.openai.completion.CompletionResult;
 import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyOpenAiApi;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.CompletionStreamException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.MissingTokenException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.OpenApiUnreachableException;
 import io.swagger.v3.oas.annotations.Operation;
@@ -40,12 +41,14 @@ public class QuestionRestController {
 
     private MyOpenAiApi openAiApi;
     private String model;
+    private final long streamTimeBudgetMs;
 
     public QuestionRestController(
             @Value("${chatgpt.api.key}") String token, //
             @Value("${chatgpt.api.live.test.active}") boolean doApiIsAliveCheck, //
             @Value("${chatgpt.model}") String model, //
             @Value("${chatgpt.base.url}") String endpointUrl, //              
+            @Value("${chatgpt.streamTimeBudgetMs}") long streamTimeBudgetMs, //
             @Autowired RestTemplate restTemplate, // 
             @Autowired CacheOfRestTemplateResponse myCacheOfResponses //
     ) throws OpenApiUnreachableException, MissingTokenException, URISyntaxException, MissingArgumentException {
@@ -53,6 +56,7 @@ public class QuestionRestController {
         this.myCacheOfResponses = myCacheOfResponses;
         this.openAiApi = new MyOpenAiApi(token, doApiIsAliveCheck, endpointUrl);
         this.model = model;
+        this.streamTimeBudgetMs = streamTimeBudgetMs;
     }
 
     /**
@@ -95,7 +99,7 @@ public class QuestionRestController {
                     )
             )
             @org.springframework.web.bind.annotation.RequestBody QuestionRequest myQuestionRequest
-    ) throws URISyntaxException {
+    ) throws URISyntaxException, CompletionStreamException, InterruptedException {
 
         if (myQuestionRequest.getPrompt() == null || myQuestionRequest.getPrompt().isEmpty()) {
             return new ResponseEntity<>(
@@ -127,11 +131,16 @@ public class QuestionRestController {
 
         LOGGER.info("Created Settings: {}", completionRequest);
 
-        CompletionResult completionResult = openAiApi.createCompletion(
-                myRestTemplate,
-                myCacheOfResponses,
-                completionRequest
-        );
+        CompletionResult completionResult;
+        if (Boolean.TRUE.equals(completionRequest.getStream())) {
+            completionResult = openAiApi.createCompletionStream(completionRequest, streamTimeBudgetMs);
+        } else {
+            completionResult = openAiApi.createCompletion(
+                    myRestTemplate,
+                    myCacheOfResponses,
+                    completionRequest
+            );
+        }
 
         JsonObject jsonAnswer = new JsonObject();
         JsonArray choices = new JsonArray();
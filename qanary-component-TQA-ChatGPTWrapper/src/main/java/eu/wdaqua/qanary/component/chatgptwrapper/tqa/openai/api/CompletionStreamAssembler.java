@@ -0,0 +1,176 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.theokanning.openai.completion.CompletionChoice;
+import com.theokanning.openai.completion.CompletionResult;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.CompletionStreamException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * assembles the completion from the server-sent events of a streamed completions request
+ * <p>
+ * Each event contains the next part of the text of one or more choices (data: {"choices":[{"text":...,"index":0}]}),
+ * the stream is finished by the event "data: [DONE]". The lines are consumed as soon as they are received, hence,
+ * the text assembled so far is available if the stream is cut off.
+ */
+class CompletionStreamAssembler implements Flow.Subscriber<String> {
+    static final String DONE = "[DONE]";
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompletionStreamAssembler.class);
+    private static final String DATA_FIELD = "data:";
+    private static final String EVENT_FIELD = "event:";
+
+    private final CompletableFuture<CompletionResult> result = new CompletableFuture<>();
+    // text and finish reason of each choice (by index)
+    private final Map<Integer, StringBuilder> texts = new TreeMap<>();
+    private final Map<Integer, String> finishReasons = new TreeMap<>();
+    private String id;
+    private String model;
+    private long created;
+    private String eventType;
+    private Flow.Subscription subscription;
+
+    /**
+     * @return the assembled completion, completed exceptionally with a {@link CompletionStreamException} if the
+     * stream failed
+     */
+    CompletableFuture<CompletionResult> getResult() {
+        return result;
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (result.isDone()) {
+            subscription.cancel();
+        } else {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public synchronized void onNext(String line) {
+        if (result.isDone()) {
+            return;
+        }
+        if (line.isBlank()) {
+            // end of event
+            eventType = null;
+        } else if (line.startsWith(EVENT_FIELD)) {
+            eventType = line.substring(EVENT_FIELD.length()).trim();
+        } else if (line.startsWith(DATA_FIELD)) {
+            onData(line.substring(DATA_FIELD.length()).trim());
+        }
+        // comments (":") and other fields are ignored
+    }
+
+    private void onData(String data) {
+        if (DONE.equals(data)) {
+            result.complete(createCompletionResult(null));
+            return;
+        }
+        JsonObject chunk;
+        try {
+            chunk = JsonParser.parseString(data).getAsJsonObject();
+        } catch (JsonSyntaxException | IllegalStateException e) {
+            fail(new CompletionStreamException("invalid chunk of completion stream: " + data, e));
+            return;
+        }
+        if ("error".equals(eventType) || chunk.has("error")) {
+            JsonElement error = chunk.has("error") ? chunk.get("error") : chunk;
+            String message = error.isJsonObject() && error.getAsJsonObject().has("message")
+                    ? error.getAsJsonObject().get("message").getAsString() : error.toString();
+            fail(new CompletionStreamException("completion stream failed: " + message));
+            return;
+        }
+        if (id == null) {
+            id = getString(chunk, "id");
+            model = getString(chunk, "model");
+            created = chunk.has("created") ? chunk.get("created").getAsLong() : 0;
+        }
+        if (chunk.has("choices")) {
+            for (JsonElement element : chunk.getAsJsonArray("choices")) {
+                JsonObject choice = element.getAsJsonObject();
+                int index = choice.has("index") ? choice.get("index").getAsInt() : 0;
+                StringBuilder text = texts.computeIfAbsent(index, key -> new StringBuilder());
+                String textPart = getString(choice, "text");
+                if (textPart != null) {
+                    text.append(textPart);
+                }
+                String finishReason = getString(choice, "finish_reason");
+                if (finishReason != null) {
+                    finishReasons.put(index, finishReason);
+                }
+            }
+        }
+    }
+
+    private static String getString(JsonObject object, String property) {
+        JsonElement element = object.get(property);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(new CompletionStreamException("completion stream failed: " + throwable.getMessage(), throwable));
+    }
+
+    @Override
+    public void onComplete() {
+        fail(new CompletionStreamException("completion stream ended without " + DONE));
+    }
+
+    /**
+     * finishes the stream exceptionally, the exception is ignored if the stream is already finished
+     */
+    synchronized void fail(CompletionStreamException exception) {
+        if (result.completeExceptionally(exception)) {
+            LOGGER.warn("{}", exception.getMessage());
+            cancelSubscription();
+        }
+    }
+
+    /**
+     * cuts the stream off if it is not finished yet, the result is the completion assembled so far, its unfinished
+     * choices get the given finish reason
+     */
+    synchronized void cutOff(String finishReason) {
+        if (result.complete(createCompletionResult(finishReason))) {
+            cancelSubscription();
+        }
+    }
+
+    private void cancelSubscription() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private CompletionResult createCompletionResult(String defaultFinishReason) {
+        List<CompletionChoice> choices = new ArrayList<>();
+        for (Map.Entry<Integer, StringBuilder> text : texts.entrySet()) {
+            CompletionChoice choice = new CompletionChoice();
+            choice.setIndex(text.getKey());
+            choice.setText(text.getValue().toString());
+            choice.setFinish_reason(finishReasons.getOrDefault(text.getKey(), defaultFinishReason));
+            choices.add(choice);
+        }
+        CompletionResult completionResult = new CompletionResult();
+        completionResult.setId(id);
+        completionResult.setObject("text_completion");
+        completionResult.setCreated(created);
+        completionResult.setModel(model);
+        completionResult.setChoices(choices);
+        return completionResult;
+    }
+}
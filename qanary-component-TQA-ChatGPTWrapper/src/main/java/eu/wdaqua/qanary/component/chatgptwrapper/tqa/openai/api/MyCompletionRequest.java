@@ -4,7 +4,39 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.theokanning.openai.completion.CompletionRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
 public class MyCompletionRequest extends CompletionRequest {
+    /**
+     * creates the request of one completion call, this request (e.g., the configured request shared by all
+     * questions) is not changed, hence, concurrent calls cannot overwrite each other's prompt
+     *
+     * @return a new request having the same parameters as this request and the given prompt
+     */
+    public MyCompletionRequest withPrompt(String prompt) {
+        MyCompletionRequest request = new MyCompletionRequest();
+
+        request.setModel(getModel());
+        request.setPrompt(prompt);
+        request.setSuffix(getSuffix());
+        request.setMaxTokens(getMaxTokens());
+        request.setTemperature(getTemperature());
+        request.setTopP(getTopP());
+        request.setN(getN());
+        request.setStream(getStream());
+        request.setLogprobs(getLogprobs());
+        request.setEcho(getEcho());
+        request.setStop(getStop() == null ? null : new ArrayList<>(getStop()));
+        request.setPresencePenalty(getPresencePenalty());
+        request.setFrequencyPenalty(getFrequencyPenalty());
+        request.setBestOf(getBestOf());
+        request.setLogitBias(getLogitBias() == null ? null : new HashMap<>(getLogitBias()));
+        request.setUser(getUser());
+
+        return request;
+    }
+
     public JsonObject getAsJsonObject() {
         JsonObject json = new JsonObject();
 
@@ -1,8 +1,10 @@
 package eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api;
 
+import com.google.gson.JsonObject;
 import com.theokanning.openai.completion.CompletionResult;
 import com.theokanning.openai.model.Model;
 import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.CompletionStreamException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.MissingTokenException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.OpenApiUnreachableException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.messages.OpenAiResponseModel;
@@ -16,28 +18,37 @@ import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class MyOpenAiApi {
     private static final Logger LOGGER = LoggerFactory.getLogger(MyOpenAiApi.class);
-    private static String BASE_URL; 
-    private static String GET_MODELS_URL;
-    private static String GET_MODELS_BY_ID_URL;
-    private static String CREATE_COMPLETION_URL;
-
+    private static final String GET_MODELS_PATH = "/v1/models";
+    private static final String GET_MODELS_BY_ID_PATH = "/v1/models/";
+    private static final String CREATE_COMPLETION_PATH = "/v1/completions";
+    // finish reason of the choices of a streamed completion that was cut off
+    public static final String FINISH_REASON_TIME_BUDGET_EXCEEDED = "time_budget_exceeded";
+
+    // the client is shared by concurrent questions, hence, its state is not changed after construction
+    private final String getModelsUrl;
+    private final String getModelsByIdUrl;
+    private final String createCompletionUrl;
     private final String token;
+    // used for streamed completions, the lines of the response are consumed as soon as they are received
+    private final HttpClient streamingHttpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
 
     public MyOpenAiApi( // 
                         @Value("${chatgpt.api.key}") String token, //
                         @Value("${chatgpt.api.live.test.active}") boolean doApiIsAliveCheck, //
                         @Value("${chatgpt.base.url}") String baseUrl //
     ) throws MissingTokenException, URISyntaxException, OpenApiUnreachableException, MissingArgumentException {
-        BASE_URL = baseUrl;
-        GET_MODELS_URL = BASE_URL + "/v1/models";
-        GET_MODELS_BY_ID_URL = BASE_URL + "/v1/models/";
-        CREATE_COMPLETION_URL = BASE_URL + "/v1/completions";
-        
-        
         if (baseUrl == null || baseUrl.isEmpty()) {
             throw new MissingArgumentException("OpenAI base URL is not set");
         }
@@ -46,6 +57,9 @@ public class MyOpenAiApi {
             throw new MissingTokenException("OpenAI API key is not set");
         }
 
+        this.getModelsUrl = baseUrl + GET_MODELS_PATH;
+        this.getModelsByIdUrl = baseUrl + GET_MODELS_BY_ID_PATH;
+        this.createCompletionUrl = baseUrl + CREATE_COMPLETION_PATH;
         this.token = token;
 
         if(doApiIsAliveCheck) {
@@ -54,7 +68,7 @@ public class MyOpenAiApi {
     }
 
     public List<Model> getModels(RestTemplate myRestTemplate, CacheOfRestTemplateResponse myCacheOfResponses) throws URISyntaxException {
-        URI uri = new URI(GET_MODELS_URL);
+        URI uri = new URI(getModelsUrl);
         long requestBefore = myCacheOfResponses.getNumberOfExecutedRequests();
 
         LOGGER.debug("URL: {}", uri);
@@ -77,7 +91,7 @@ public class MyOpenAiApi {
     }
 
     public Model getModelById(RestTemplate myRestTemplate, CacheOfRestTemplateResponse myCacheOfResponses, String modelId) throws URISyntaxException {
-        URI uri = new URI(GET_MODELS_BY_ID_URL + modelId);
+        URI uri = new URI(getModelsByIdUrl + modelId);
         long requestBefore = myCacheOfResponses.getNumberOfExecutedRequests();
 
         LOGGER.debug("URL: {}", uri);
@@ -104,7 +118,7 @@ public class MyOpenAiApi {
             CacheOfRestTemplateResponse myCacheOfResponses,
             MyCompletionRequest completionRequest
     ) throws URISyntaxException {
-        URI uri = new URI(CREATE_COMPLETION_URL);
+        URI uri = new URI(createCompletionUrl);
         long requestBefore = myCacheOfResponses.getNumberOfExecutedRequests();
 
         LOGGER.debug("URL: {}", uri);
@@ -130,10 +144,67 @@ public class MyOpenAiApi {
         return response.getBody();
     }
 
+    /**
+     * requests a streamed completion (server-sent events) and assembles the text of the choices while the chunks
+     * are received
+     *
+     * @param timeBudgetMs the maximum duration of the request, if it is exceeded the generation is cut off and the
+     *                     text received so far is returned (finish reason {@link #FINISH_REASON_TIME_BUDGET_EXCEEDED})
+     * @throws CompletionStreamException if the request fails or the stream contains an error
+     */
+    public CompletionResult createCompletionStream(
+            MyCompletionRequest completionRequest,
+            long timeBudgetMs
+    ) throws URISyntaxException, CompletionStreamException, InterruptedException {
+        URI uri = new URI(createCompletionUrl);
+        LOGGER.debug("URL: {}", uri);
+
+        JsonObject body = completionRequest.getAsJsonObject();
+        body.addProperty("stream", true);
+        HttpRequest request = HttpRequest.newBuilder(uri) //
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE) //
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE) //
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token) //
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())) //
+                .build();
+
+        CompletionStreamAssembler assembler = new CompletionStreamAssembler();
+        CompletableFuture<HttpResponse<Void>> response = streamingHttpClient.sendAsync(request, responseInfo -> {
+            if (responseInfo.statusCode() != HttpStatus.OK.value()) {
+                assembler.fail(new CompletionStreamException("completion stream failed: status code " + responseInfo.statusCode()));
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(assembler);
+        });
+        response.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                assembler.onError(throwable);
+            }
+        });
+
+        CompletableFuture<CompletionResult> completionResult = assembler.getResult();
+        try {
+            try {
+                return completionResult.get(timeBudgetMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.warn("time budget of {} ms exceeded, completion is cut off: {}", timeBudgetMs, uri);
+                assembler.cutOff(FINISH_REASON_TIME_BUDGET_EXCEEDED);
+                return completionResult.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CompletionStreamException) {
+                throw (CompletionStreamException) e.getCause();
+            }
+            throw new CompletionStreamException("completion stream failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            response.cancel(true);
+        }
+    }
+
     private void doLiveCheck() throws URISyntaxException, OpenApiUnreachableException {
         LOGGER.info("Live test is activated");
 
-        URI uri = new URI(GET_MODELS_URL);
+        URI uri = new URI(getModelsUrl);
         RestTemplate myRestTemplate = new RestTemplate();
         HttpHeaders headers = new HttpHeaders();
         headers.add("Authorization", "Bearer " + token);
@@ -0,0 +1,16 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception;
+
+import java.io.Serial;
+
+public class CompletionStreamException extends Exception {
+    @Serial
+    private static final long serialVersionUID = -3320968174532215386L;
+
+    public CompletionStreamException(String message) {
+        super(message);
+    }
+
+    public CompletionStreamException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -9,6 +9,7 @@ import eu.wdaqua.qanary.commons.QanaryExceptionNoOrMultipleQuestions;
 import eu.wdaqua.qanary.commons.QanaryQuestion;
 import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
 import eu.wdaqua.qanary.communications.RestTemplateWithCaching;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.MissingTokenException;
 import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.OpenApiUnreachableException;
@@ -81,9 +82,11 @@ class ChatGPTWrapperMockedTest {
                 "some-token", // 
                 false, //
                 env.getProperty("chatgpt.base.url"), //
+                60000, //
                 completionRequest, //
                 restTemplate, // 
-                myCacheOfResponse // 
+                myCacheOfResponse, //
+                new PersistentCompletionCache("", 0, 0) //
         );
     }
 
@@ -0,0 +1,91 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa;
+
+import com.theokanning.openai.completion.CompletionResult;
+import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * concurrently processed questions using a local stand-in of the completions API
+ */
+class ConcurrentCompletionTest {
+    private static final int NUMBER_OF_QUESTIONS = 100;
+
+    private LocalCompletionsServer server;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = new LocalCompletionsServer(50);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void eachAnswerBelongsToItsQuestionTest() throws Exception {
+        MyCompletionRequest completionRequest = new MyCompletionRequest();
+        completionRequest.setModel("text-davinci-003");
+        completionRequest.setMaxTokens(16);
+        ChatGPTWrapper chatGPTWrapper = new ChatGPTWrapper( //
+                "ConcurrentCompletionTest", //
+                "some-token", //
+                false, //
+                server.getUrl(), //
+                60000, //
+                completionRequest, //
+                new RestTemplate(), //
+                new CacheOfRestTemplateResponse(), //
+                new PersistentCompletionCache("", 0, 0) //
+        );
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_QUESTIONS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletionResult>> completionResults = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_QUESTIONS; i++) {
+                String question = "What is the answer to question number " + i + "?";
+                Callable<CompletionResult> task = () -> {
+                    start.await();
+                    return chatGPTWrapper.getCompletion(question);
+                };
+                completionResults.add(executor.submit(task));
+            }
+            start.countDown();
+
+            for (int i = 0; i < NUMBER_OF_QUESTIONS; i++) {
+                CompletionResult completionResult = completionResults.get(i).get();
+                assertEquals(1, completionResult.getChoices().size());
+                assertEquals(LocalCompletionsServer.ANSWER_PREFIX + "What is the answer to question number " + i + "?",
+                        completionResult.getChoices().get(0).getText());
+                assertEquals("text-davinci-003", completionResult.getModel());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // each question was requested exactly once, the configured request is unchanged
+        assertEquals(NUMBER_OF_QUESTIONS, server.getPrompts().size());
+        assertEquals(NUMBER_OF_QUESTIONS, new HashSet<>(server.getPrompts()).size());
+        assertTrue(server.getMaxConcurrentRequests() > 1, "requests were not executed concurrently");
+        assertNull(completionRequest.getPrompt());
+    }
+}
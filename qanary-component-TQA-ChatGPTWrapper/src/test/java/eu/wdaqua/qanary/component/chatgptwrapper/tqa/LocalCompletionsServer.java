@@ -0,0 +1,191 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * stand-in for the OpenAI completions API, the text of the completion is the answer prefix followed by the prompt
+ * <p>
+ * Requests having "stream": true are answered by server-sent events containing one word of the text each.
+ */
+class LocalCompletionsServer implements AutoCloseable {
+    static final String ANSWER_PREFIX = "answer to: ";
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalCompletionsServer.class);
+    // large enough for all connections opened at once by the tests
+    private static final int BACKLOG = 256;
+
+    /**
+     * failures of a streamed completion after the configured number of chunks
+     */
+    enum StreamFailure {
+        NONE, ERROR_EVENT, DISCONNECT
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> prompts = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final long maxResponseDelayMs;
+    private volatile long chunkDelayMs;
+    private volatile StreamFailure streamFailure = StreamFailure.NONE;
+    private volatile int failAfterChunks;
+    private volatile int statusCode = 200;
+
+    /**
+     * @param maxResponseDelayMs the responses are delayed randomly up to this time span
+     */
+    LocalCompletionsServer(long maxResponseDelayMs) throws IOException {
+        this.maxResponseDelayMs = maxResponseDelayMs;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        this.server.createContext("/v1/completions", this::handleCompletion);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * @return the base URL of the API
+     */
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the prompts of all received requests
+     */
+    List<String> getPrompts() {
+        return prompts;
+    }
+
+    int getMaxConcurrentRequests() {
+        return maxConcurrentRequests.get();
+    }
+
+    /**
+     * @param chunkDelayMs the delay before each chunk of a streamed completion
+     */
+    void setChunkDelayMs(long chunkDelayMs) {
+        this.chunkDelayMs = chunkDelayMs;
+    }
+
+    /**
+     * lets streamed completions fail after the given number of chunks
+     */
+    void setStreamFailure(StreamFailure streamFailure, int failAfterChunks) {
+        this.streamFailure = streamFailure;
+        this.failAfterChunks = failAfterChunks;
+    }
+
+    /**
+     * @param statusCode the status code of all responses, if it is not 200 the response has no body
+     */
+    void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+        try {
+            JsonObject request = JsonParser.parseString(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+            String prompt = request.get("prompt").getAsString();
+            prompts.add(prompt);
+            if (maxResponseDelayMs > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(maxResponseDelayMs));
+            }
+            if (statusCode != 200) {
+                exchange.sendResponseHeaders(statusCode, -1);
+                return;
+            }
+            if (request.has("stream") && request.get("stream").getAsBoolean()) {
+                streamCompletion(exchange, request, prompt);
+                return;
+            }
+
+            byte[] body = createCompletion(request, ANSWER_PREFIX + prompt, "stop").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to answer request: {}", e.getMessage());
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            concurrentRequests.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    /**
+     * sends the text word by word (one event per word), followed by the finish reason and [DONE]
+     */
+    private void streamCompletion(HttpExchange exchange, JsonObject request, String prompt) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        List<String> chunks = new ArrayList<>(List.of((ANSWER_PREFIX + prompt).split("(?<= )")));
+        chunks.add("");
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i == failAfterChunks && streamFailure == StreamFailure.ERROR_EVENT) {
+                sendEvent(out, "{\"error\":{\"message\":\"The server had an error while processing your request.\"}}");
+                return;
+            } else if (i == failAfterChunks && streamFailure == StreamFailure.DISCONNECT) {
+                return;
+            }
+            if (chunkDelayMs > 0) {
+                Thread.sleep(chunkDelayMs);
+            }
+            boolean isLast = i == chunks.size() - 1;
+            sendEvent(out, createCompletion(request, chunks.get(i), isLast ? "stop" : null).toString());
+        }
+        sendEvent(out, "[DONE]");
+    }
+
+    private static void sendEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private JsonObject createCompletion(JsonObject request, String text, String finishReason) {
+        JsonObject choice = new JsonObject();
+        choice.addProperty("text", text);
+        choice.addProperty("index", 0);
+        choice.addProperty("finish_reason", finishReason);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject response = new JsonObject();
+        response.addProperty("id", "cmpl-" + prompts.size());
+        response.addProperty("object", "text_completion");
+        response.addProperty("created", System.currentTimeMillis() / 1000);
+        response.addProperty("model", request.has("model") ? request.get("model").getAsString() : "unknown");
+        response.add("choices", choices);
+        return response;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -239,6 +239,30 @@ class MyCompletionRequestTest {
         assertEquals(2, logitBiasObject.get("a-other-test").getAsInt());
     }
 
+    @Test
+    void withPromptTest() {
+        MyCompletionRequest request = new MyCompletionRequest();
+        request.setModel("some-model");
+        request.setMaxTokens(10);
+        request.setTemperature(0.5);
+        request.setStop(new ArrayList<>(List.of("stop")));
+        request.setUser("some-user");
+
+        MyCompletionRequest requestOfCall = request.withPrompt("some-prompt");
+        request.getStop().add("other-stop");
+
+        assertNull(request.getPrompt());
+        JsonObject jsonObject = requestOfCall.getAsJsonObject();
+        checkPropertiesOfMessage(jsonObject, new String[]{MODEL, PROMPT, "max_tokens", "temperature", "stop", "user"});
+
+        assertEquals("some-model", jsonObject.get(MODEL).getAsString());
+        assertEquals("some-prompt", jsonObject.get(PROMPT).getAsString());
+        assertEquals(10, jsonObject.get("max_tokens").getAsInt());
+        assertEquals(0.5, jsonObject.get("temperature").getAsDouble());
+        assertEquals(1, jsonObject.get("stop").getAsJsonArray().size());
+        assertEquals("some-user", jsonObject.get("user").getAsString());
+    }
+
     @Test
     void userTest() {
         MyCompletionRequest request = new MyCompletionRequest();
@@ -0,0 +1,225 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa;
+
+import com.theokanning.openai.completion.CompletionChoice;
+import com.theokanning.openai.completion.CompletionResult;
+import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyOpenAiApi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * persistent cache of the completions using a local stand-in of the completions API
+ */
+class PersistentCompletionCacheTest {
+    private static final String QUESTION = "What is the capital of Germany?";
+    private static final int MAX_ENTRIES = 100;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private LocalCompletionsServer server;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = new LocalCompletionsServer(0);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    private static MyCompletionRequest createCompletionRequest() {
+        MyCompletionRequest completionRequest = new MyCompletionRequest();
+        completionRequest.setModel("text-davinci-003");
+        completionRequest.setMaxTokens(16);
+        completionRequest.setTemperature(1.0);
+        return completionRequest;
+    }
+
+    private ChatGPTWrapper createChatGPTWrapper(MyCompletionRequest completionRequest, PersistentCompletionCache completionCache) throws Exception {
+        return new ChatGPTWrapper( //
+                "PersistentCompletionCacheTest", //
+                "some-token", //
+                false, //
+                server.getUrl(), //
+                60000, //
+                completionRequest, //
+                new RestTemplate(), //
+                new CacheOfRestTemplateResponse(), //
+                completionCache //
+        );
+    }
+
+    private PersistentCompletionCache createCache(int maxEntries, long maxSizeBytes) throws IOException {
+        return new PersistentCompletionCache(cacheDirectory.toString(), maxEntries, maxSizeBytes);
+    }
+
+    private static CompletionResult createCompletionResult(String text, String finishReason) {
+        CompletionChoice choice = new CompletionChoice();
+        choice.setText(text);
+        choice.setIndex(0);
+        choice.setFinish_reason(finishReason);
+        CompletionResult completionResult = new CompletionResult();
+        completionResult.setId("cmpl-1");
+        completionResult.setModel("text-davinci-003");
+        completionResult.setChoices(List.of(choice));
+        return completionResult;
+    }
+
+    private long countCachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void cachedCompletionSurvivesRestartTest() throws Exception {
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), createCache(MAX_ENTRIES, 0));
+        CompletionResult completionResult = chatGPTWrapper.getCompletion(QUESTION);
+        assertEquals(1, server.getPrompts().size());
+
+        // simulated restart: new cache and component using the same directory, the API is not available anymore
+        server.close();
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        assertEquals(1, completionCache.size());
+        ChatGPTWrapper restartedChatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), completionCache);
+
+        CompletionResult cachedCompletionResult = restartedChatGPTWrapper.getCompletion(QUESTION);
+        assertEquals(completionResult.getId(), cachedCompletionResult.getId());
+        assertEquals(LocalCompletionsServer.ANSWER_PREFIX + QUESTION, cachedCompletionResult.getChoices().get(0).getText());
+        assertEquals("stop", cachedCompletionResult.getChoices().get(0).getFinish_reason());
+        assertEquals(1, completionCache.getHitCount());
+        assertEquals(1, server.getPrompts().size());
+    }
+
+    @Test
+    void cacheHitDoesNotReachTheApiTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), completionCache);
+
+        for (int i = 0; i < 10; i++) {
+            chatGPTWrapper.getCompletion(QUESTION);
+        }
+
+        assertEquals(List.of(QUESTION), server.getPrompts());
+        assertEquals(9, completionCache.getHitCount());
+        assertEquals(1, completionCache.getMissCount());
+    }
+
+    @Test
+    void normalizedPromptsShareTheCompletionTest() throws Exception {
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), createCache(MAX_ENTRIES, 0));
+
+        chatGPTWrapper.getCompletion(QUESTION);
+        chatGPTWrapper.getCompletion("  what IS the\n capital\tof   GERMANY? ");
+
+        assertEquals(1, server.getPrompts().size());
+        assertEquals("what is the capital of germany?", PersistentCompletionCache.normalizePrompt(" What  is the\ncapital of Germany? "));
+    }
+
+    @Test
+    void differentParametersAreCachedSeparatelyTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        MyCompletionRequest otherCompletionRequest = createCompletionRequest();
+        otherCompletionRequest.setTemperature(0.2);
+
+        createChatGPTWrapper(createCompletionRequest(), completionCache).getCompletion(QUESTION);
+        createChatGPTWrapper(otherCompletionRequest, completionCache).getCompletion(QUESTION);
+
+        assertEquals(2, server.getPrompts().size());
+        assertEquals(2, completionCache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedCompletionsAreEvictedTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(2, 0);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), completionCache);
+
+        chatGPTWrapper.getCompletion("question A");
+        chatGPTWrapper.getCompletion("question B");
+        chatGPTWrapper.getCompletion("question A");
+        chatGPTWrapper.getCompletion("question C");
+        assertEquals(2, completionCache.size());
+        assertEquals(2, countCachedFiles());
+
+        // the order of the last accesses is retained after a restart, hence, C is evicted next
+        completionCache = createCache(2, 0);
+        chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), completionCache);
+        chatGPTWrapper.getCompletion("question A");
+        chatGPTWrapper.getCompletion("question D");
+        chatGPTWrapper.getCompletion("question A");
+        chatGPTWrapper.getCompletion("question C");
+
+        assertEquals(List.of("question A", "question B", "question C", "question D", "question C"), server.getPrompts());
+    }
+
+    @Test
+    void sizeLimitTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        MyCompletionRequest completionRequest = createCompletionRequest().withPrompt(QUESTION);
+        completionCache.put(completionRequest, createCompletionResult("Berlin", "stop"));
+        long sizeOfOneCompletion = completionCache.getSizeBytes();
+
+        PersistentCompletionCache smallCompletionCache = createCache(MAX_ENTRIES, sizeOfOneCompletion + 10);
+        smallCompletionCache.put(createCompletionRequest().withPrompt("What is the capital of France?"), createCompletionResult("Paris", "stop"));
+
+        assertEquals(1, smallCompletionCache.size());
+        assertEquals(1, countCachedFiles());
+        assertNull(smallCompletionCache.get(completionRequest));
+    }
+
+    @Test
+    void cutOffCompletionsAreNotCachedTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        MyCompletionRequest completionRequest = createCompletionRequest().withPrompt(QUESTION);
+
+        completionCache.put(completionRequest, createCompletionResult("Ber", MyOpenAiApi.FINISH_REASON_TIME_BUDGET_EXCEEDED));
+
+        assertNull(completionCache.get(completionRequest));
+        assertEquals(0, countCachedFiles());
+    }
+
+    @Test
+    void completionRemovedByOtherInstanceIsMissTest() throws Exception {
+        PersistentCompletionCache completionCache = createCache(MAX_ENTRIES, 0);
+        PersistentCompletionCache otherCompletionCache = createCache(1, 0);
+        MyCompletionRequest completionRequest = createCompletionRequest().withPrompt(QUESTION);
+        completionCache.put(completionRequest, createCompletionResult("Berlin", "stop"));
+
+        // the other instance sharing the directory reads the completion and evicts it by its own limit
+        assertEquals("Berlin", otherCompletionCache.get(completionRequest).getChoices().get(0).getText());
+        otherCompletionCache.put(createCompletionRequest().withPrompt("What is the capital of France?"), createCompletionResult("Paris", "stop"));
+
+        assertNull(completionCache.get(completionRequest));
+        assertEquals(0, completionCache.size());
+        assertEquals(0, completionCache.getSizeBytes());
+        assertEquals(1, countCachedFiles());
+    }
+
+    @Test
+    void disabledCacheTest() throws Exception {
+        PersistentCompletionCache completionCache = new PersistentCompletionCache("", MAX_ENTRIES, 0);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper(createCompletionRequest(), completionCache);
+
+        chatGPTWrapper.getCompletion(QUESTION);
+        chatGPTWrapper.getCompletion(QUESTION);
+
+        assertFalse(completionCache.isEnabled());
+        assertEquals(2, server.getPrompts().size());
+        assertThrows(IllegalArgumentException.class, () -> createCache(-1, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package eu.wdaqua.qanary.component.chatgptwrapper.tqa;
+
+import com.theokanning.openai.completion.CompletionChoice;
+import com.theokanning.openai.completion.CompletionResult;
+import eu.wdaqua.qanary.communications.CacheOfRestTemplateResponse;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.cache.PersistentCompletionCache;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyCompletionRequest;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.MyOpenAiApi;
+import eu.wdaqua.qanary.component.chatgptwrapper.tqa.openai.api.exception.CompletionStreamException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * streamed completions (server-sent events) using a local stand-in of the completions API
+ */
+class StreamingCompletionTest {
+    private static final String QUESTION = "What is the capital of Germany?";
+    private static final long TIME_BUDGET_MS = 500;
+
+    private LocalCompletionsServer server;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = new LocalCompletionsServer(0);
+        server.setChunkDelayMs(10);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    private ChatGPTWrapper createChatGPTWrapper() throws Exception {
+        MyCompletionRequest completionRequest = new MyCompletionRequest();
+        completionRequest.setModel("text-davinci-003");
+        completionRequest.setMaxTokens(16);
+        completionRequest.setStream(true);
+        return new ChatGPTWrapper( //
+                "StreamingCompletionTest", //
+                "some-token", //
+                false, //
+                server.getUrl(), //
+                TIME_BUDGET_MS, //
+                completionRequest, //
+                new RestTemplate(), //
+                new CacheOfRestTemplateResponse(), //
+                new PersistentCompletionCache("", 0, 0) //
+        );
+    }
+
+    @Test
+    void streamedCompletionIsAssembledTest() throws Exception {
+        CompletionResult completionResult = createChatGPTWrapper().getCompletion(QUESTION);
+
+        assertEquals("text-davinci-003", completionResult.getModel());
+        assertEquals(1, completionResult.getChoices().size());
+        CompletionChoice choice = completionResult.getChoices().get(0);
+        assertEquals(LocalCompletionsServer.ANSWER_PREFIX + QUESTION, choice.getText());
+        assertEquals("stop", choice.getFinish_reason());
+        assertEquals(1, server.getPrompts().size());
+    }
+
+    @Test
+    void errorEventFailsTheCompletionTest() throws Exception {
+        server.setStreamFailure(LocalCompletionsServer.StreamFailure.ERROR_EVENT, 3);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper();
+
+        CompletionStreamException exception = assertThrows(CompletionStreamException.class,
+                () -> chatGPTWrapper.getCompletion(QUESTION));
+        assertTrue(exception.getMessage().contains("The server had an error"));
+    }
+
+    @Test
+    void streamEndingWithoutDoneFailsTheCompletionTest() throws Exception {
+        server.setStreamFailure(LocalCompletionsServer.StreamFailure.DISCONNECT, 3);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper();
+
+        assertThrows(CompletionStreamException.class, () -> chatGPTWrapper.getCompletion(QUESTION));
+    }
+
+    @Test
+    void errorStatusFailsTheCompletionTest() throws Exception {
+        server.setStatusCode(429);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper();
+
+        CompletionStreamException exception = assertThrows(CompletionStreamException.class,
+                () -> chatGPTWrapper.getCompletion(QUESTION));
+        assertTrue(exception.getMessage().contains("429"));
+    }
+
+    @Test
+    void slowCompletionIsCutOffTest() throws Exception {
+        // 10 chunks, hence, the complete stream would take 2 seconds
+        server.setChunkDelayMs(200);
+        ChatGPTWrapper chatGPTWrapper = createChatGPTWrapper();
+
+        long start = System.currentTimeMillis();
+        CompletionResult completionResult = chatGPTWrapper.getCompletion(QUESTION);
+        long duration = System.currentTimeMillis() - start;
+
+        assertTrue(duration >= TIME_BUDGET_MS, "returned after " + duration + " ms");
+        assertTrue(duration < 4 * TIME_BUDGET_MS, "returned after " + duration + " ms");
+        CompletionChoice choice = completionResult.getChoices().get(0);
+        assertFalse(choice.getText().isEmpty());
+        assertTrue((LocalCompletionsServer.ANSWER_PREFIX + QUESTION).startsWith(choice.getText()));
+        assertNotEquals(LocalCompletionsServer.ANSWER_PREFIX + QUESTION, choice.getText());
+        assertEquals(MyOpenAiApi.FINISH_REASON_TIME_BUDGET_EXCEEDED, choice.getFinish_reason());
+    }
+}